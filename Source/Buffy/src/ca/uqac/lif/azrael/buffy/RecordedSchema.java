@@ -0,0 +1,95 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.buffy;
+
+import ca.uqac.lif.azrael.PrintException;
+import ca.uqac.lif.azrael.ReadException;
+import ca.uqac.lif.azrael.buffy.SchemaEvent.SchemaPrintEvent;
+import ca.uqac.lif.azrael.buffy.SchemaEvent.SchemaReadEvent;
+
+/**
+ * A schema that records the objects printed and read by another schema as
+ * Java Flight Recorder events. Only the calls to this schema are recorded,
+ * and not those the wrapped schema makes to the schemas it is made of;
+ * typically, only the top-level schema of an application is wrapped. When
+ * the events are not enabled, the schema simply forwards the calls.
+ * 
+ * @author Sylvain Hallé
+ */
+public class RecordedSchema implements Schema
+{
+	/**
+	 * The schema whose calls are recorded
+	 */
+	protected final Schema m_schema;
+	
+	/**
+	 * Creates a new recorded schema.
+	 * @param s The schema whose calls are recorded
+	 */
+	public RecordedSchema(Schema s)
+	{
+		super();
+		m_schema = s;
+	}
+	
+	@Override
+	public Object read(Object o) throws ReadException
+	{
+		SchemaReadEvent event = new SchemaReadEvent();
+		if (!event.isEnabled())
+		{
+			return m_schema.read(o);
+		}
+		long bits = o instanceof BitSequence ? ((BitSequence) o).size() : 0;
+		event.begin();
+		Object out = m_schema.read(o);
+		event.end();
+		if (event.shouldCommit())
+		{
+			if (o instanceof BitSequence)
+			{
+				// The schema consumes the bits it reads
+				bits -= ((BitSequence) o).size();
+			}
+			event.setDetails(out == null ? null : out.getClass(), m_schema.getClass(), bits);
+			event.commit();
+		}
+		return out;
+	}
+
+	@Override
+	public BitSequence print(Object o) throws PrintException
+	{
+		SchemaPrintEvent event = new SchemaPrintEvent();
+		if (!event.isEnabled())
+		{
+			return m_schema.print(o);
+		}
+		event.begin();
+		BitSequence out = m_schema.print(o);
+		event.end();
+		if (event.shouldCommit())
+		{
+			event.setDetails(o == null ? null : o.getClass(), m_schema.getClass(), out.size());
+			event.commit();
+		}
+		return out;
+	}
+}
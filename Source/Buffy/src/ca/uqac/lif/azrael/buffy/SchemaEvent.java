@@ -0,0 +1,96 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.buffy;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Java Flight Recorder event for an object printed or read by a schema
+ * wrapped into a {@link RecordedSchema}.
+ * 
+ * @author Sylvain Hallé
+ */
+@Category({"Azrael", "Buffy"})
+@StackTrace(false)
+public abstract class SchemaEvent extends Event
+{
+	/**
+	 * The class of the object printed or read
+	 */
+	@Name("objectClass")
+	@Label("Object Class")
+	protected Class<?> m_objectClass;
+	
+	/**
+	 * The class of the schema
+	 */
+	@Name("schemaClass")
+	@Label("Schema Class")
+	protected Class<?> m_schemaClass;
+	
+	/**
+	 * The number of bits printed or read
+	 */
+	@Name("size")
+	@Label("Size")
+	@DataAmount(DataAmount.BITS)
+	protected long m_size;
+	
+	/**
+	 * Sets the details of the event.
+	 * @param object_class The class of the object printed or read, or
+	 * <tt>null</tt> for the null object
+	 * @param schema_class The class of the schema
+	 * @param size The number of bits printed or read
+	 */
+	public void setDetails(Class<?> object_class, Class<?> schema_class, long size)
+	{
+		m_objectClass = object_class;
+		m_schemaClass = schema_class;
+		m_size = size;
+	}
+	
+	/**
+	 * Event for an object printed by a schema.
+	 */
+	@Name("ca.uqac.lif.azrael.buffy.SchemaPrint")
+	@Label("Buffy Schema Print")
+	@Threshold("1 ms")
+	public static class SchemaPrintEvent extends SchemaEvent
+	{
+		
+	}
+	
+	/**
+	 * Event for an object read by a schema.
+	 */
+	@Name("ca.uqac.lif.azrael.buffy.SchemaRead")
+	@Label("Buffy Schema Read")
+	@Threshold("1 ms")
+	public static class SchemaReadEvent extends SchemaEvent
+	{
+		
+	}
+}
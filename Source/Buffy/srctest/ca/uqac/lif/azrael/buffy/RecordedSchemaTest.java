@@ -0,0 +1,90 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.buffy;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+
+import org.junit.Test;
+
+import ca.uqac.lif.azrael.PrintException;
+import ca.uqac.lif.azrael.ReadException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class RecordedSchemaTest
+{
+	@Test
+	public void testForward() throws PrintException, ReadException
+	{
+		RecordedSchema s = new RecordedSchema(IntSchema.int32);
+		BitSequence bs = s.print(8);
+		assertEquals(32, bs.size());
+		assertEquals(8, ((Number) s.read(bs)).intValue());
+	}
+
+	@Test
+	public void testEvents() throws PrintException, ReadException, IOException
+	{
+		RecordedSchema s = new RecordedSchema(IntSchema.int32);
+		File f = File.createTempFile("buffy", ".jfr");
+		Recording rec = new Recording();
+		try
+		{
+			rec.enable("ca.uqac.lif.azrael.buffy.SchemaPrint").withThreshold(Duration.ZERO);
+			rec.enable("ca.uqac.lif.azrael.buffy.SchemaRead").withThreshold(Duration.ZERO);
+			rec.start();
+			BitSequence bs = s.print(8);
+			// Two more ints after the first one: only 32 bits are read
+			bs.addAll(IntSchema.int32.print(3));
+			bs.addAll(IntSchema.int32.print(4));
+			assertEquals(8, ((Number) s.read(bs)).intValue());
+			rec.stop();
+			rec.dump(f.toPath());
+			int prints = 0, reads = 0;
+			for (RecordedEvent e : RecordingFile.readAllEvents(f.toPath()))
+			{
+				String name = e.getEventType().getName();
+				if (name.equals("ca.uqac.lif.azrael.buffy.SchemaPrint"))
+				{
+					prints++;
+					assertEquals(Integer.class.getName(), e.getClass("objectClass").getName());
+					assertEquals(IntSchema.int32.getClass().getName(), e.getClass("schemaClass").getName());
+					assertEquals(32, e.getLong("size"));
+				}
+				if (name.equals("ca.uqac.lif.azrael.buffy.SchemaRead"))
+				{
+					reads++;
+					assertEquals(32, e.getLong("size"));
+				}
+			}
+			assertEquals(1, prints);
+			assertEquals(1, reads);
+		}
+		finally
+		{
+			rec.close();
+			f.delete();
+		}
+	}
+}
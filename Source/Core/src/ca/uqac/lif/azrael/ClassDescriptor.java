@@ -0,0 +1,192 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reflective metadata about a class, computed once and shared by all the
+ * printers and readers that handle instances of this class. A descriptor
+ * holds the list of the fields declared by the class and its ancestors
+ * (already made accessible when possible), and an index of these fields
+ * by name.
+ * <p>
+ * Descriptors are obtained through {@link #forClass(Class)}. They are stored
+ * in a {@link ClassValue}, which attaches them to the class itself; a
+ * descriptor therefore does not prevent its class (or the class loader that
+ * defined it) from being garbage collected.
+ * @author Sylvain Hallé
+ */
+public class ClassDescriptor
+{
+	/**
+	 * The cache of descriptors, one per class
+	 */
+	private static final ClassValue<ClassDescriptor> s_descriptors = new ClassValue<ClassDescriptor>()
+	{
+		@Override
+		protected ClassDescriptor computeValue(Class<?> type)
+		{
+			return new ClassDescriptor(type);
+		}
+	};
+
+	/**
+	 * The class this descriptor is about
+	 */
+	protected final Class<?> m_class;
+
+	/**
+	 * The fields of the class and of all its ancestors, starting with the
+	 * fields declared by the class itself
+	 */
+	protected final List<Field> m_fields;
+
+	/**
+	 * An index associating field names to fields. When a field name is
+	 * declared by more than one class in the hierarchy, the index points to
+	 * the one declared lowest in the hierarchy.
+	 */
+	protected final Map<String,Field> m_fieldIndex;
+
+	/**
+	 * The exceptions thrown when attempting to make fields accessible, for
+	 * the fields where this attempt failed
+	 */
+	protected final Map<Field,RuntimeException> m_accessErrors;
+
+	/**
+	 * Gets the descriptor of a class, computing it on the first call.
+	 * @param clazz The class
+	 * @return The descriptor
+	 */
+	public static ClassDescriptor forClass(/*@ non_null @*/ Class<?> clazz)
+	{
+		return s_descriptors.get(clazz);
+	}
+
+	/**
+	 * Computes in advance the descriptors of a number of classes. Calling
+	 * this method at startup avoids paying the cost of reflection the first
+	 * time an instance of each class is printed or read.
+	 * @param classes The classes
+	 */
+	public static void preload(Class<?> ... classes)
+	{
+		for (Class<?> c : classes)
+		{
+			forClass(c);
+		}
+	}
+
+	/**
+	 * Creates a new class descriptor. Use {@link #forClass(Class)} to obtain
+	 * descriptors instead of this constructor.
+	 * @param clazz The class to describe
+	 */
+	protected ClassDescriptor(Class<?> clazz)
+	{
+		super();
+		m_class = clazz;
+		List<Field> fields = new ArrayList<Field>();
+		Map<String,Field> index = new HashMap<String,Field>();
+		Map<Field,RuntimeException> errors = new IdentityHashMap<Field,RuntimeException>();
+		for (Field f : ReflectionPrintHandler.getAllFields(new ArrayList<Field>(), clazz))
+		{
+			if (f.getName().startsWith("$") || f.getName().startsWith("!"))
+			{
+				continue;
+			}
+			try
+			{
+				f.setAccessible(true);
+			}
+			catch (RuntimeException e)
+			{
+				errors.put(f, e);
+			}
+			fields.add(f);
+			if (!index.containsKey(f.getName()))
+			{
+				index.put(f.getName(), f);
+			}
+		}
+		m_fields = Collections.unmodifiableList(fields);
+		m_fieldIndex = index;
+		m_accessErrors = errors;
+	}
+
+	/**
+	 * Gets the class this descriptor is about.
+	 * @return The class
+	 */
+	public Class<?> getDescribedClass()
+	{
+		return m_class;
+	}
+
+	/**
+	 * Gets the fields of the class and of all its ancestors.
+	 * @return The unmodifiable list of fields
+	 */
+	public List<Field> getFields()
+	{
+		return m_fields;
+	}
+
+	/**
+	 * Gets a field of the class or of one of its ancestors by its name.
+	 * @param name The name of the field
+	 * @return The field, or <tt>null</tt> if no such field exists
+	 */
+	public Field getField(String name)
+	{
+		return m_fieldIndex.get(name);
+	}
+
+	/**
+	 * Gets the exception that was thrown when attempting to make a field
+	 * accessible.
+	 * @param f The field
+	 * @return The exception, or <tt>null</tt> if the field is accessible
+	 */
+	public RuntimeException getAccessError(Field f)
+	{
+		return m_accessErrors.get(f);
+	}
+
+	/**
+	 * Determines if an exception thrown by a call to
+	 * <tt>setAccessible</tt> is an <tt>InaccessibleObjectException</tt>.
+	 * The class is checked by its name, as it only exists in Java 9+.
+	 * @param e The exception
+	 * @return <tt>true</tt> if the exception is an
+	 * <tt>InaccessibleObjectException</tt>, <tt>false</tt> otherwise
+	 */
+	public static boolean isInaccessibleObjectException(RuntimeException e)
+	{
+		return e.getClass().getSimpleName().contains("InaccessibleObjectException");
+	}
+}
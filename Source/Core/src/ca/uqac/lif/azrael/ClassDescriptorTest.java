@@ -0,0 +1,79 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ClassDescriptor}.
+ */
+public class ClassDescriptorTest
+{
+	@Test
+	public void testSameInstance()
+	{
+		ClassDescriptor d1 = ClassDescriptor.forClass(Child.class);
+		ClassDescriptor d2 = ClassDescriptor.forClass(Child.class);
+		assertTrue(d1 == d2);
+		assertEquals(Child.class, d1.getDescribedClass());
+	}
+
+	@Test
+	public void testFields()
+	{
+		ClassDescriptor d = ClassDescriptor.forClass(Child.class);
+		List<Field> fields = d.getFields();
+		assertEquals(3, fields.size());
+		assertEquals("m_y", fields.get(0).getName());
+		assertNotNull(d.getField("m_x"));
+		assertNotNull(d.getField("m_z"));
+		assertNull(d.getField("m_w"));
+		assertNull(d.getAccessError(d.getField("m_x")));
+	}
+
+	@Test
+	public void testHiddenField()
+	{
+		// The field declared lowest in the hierarchy wins
+		ClassDescriptor d = ClassDescriptor.forClass(Hiding.class);
+		assertEquals(Hiding.class, d.getField("m_x").getDeclaringClass());
+	}
+
+	protected static class Parent
+	{
+		int m_x;
+
+		transient int m_z;
+	}
+
+	protected static class Child extends Parent
+	{
+		String m_y;
+	}
+
+	protected static class Hiding extends Parent
+	{
+		int m_x;
+	}
+}
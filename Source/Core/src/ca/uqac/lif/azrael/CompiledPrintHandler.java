@@ -0,0 +1,84 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+/**
+ * Print handler that serializes the fields of objects of a given class
+ * through a {@link CompiledSerializer}, rather than through reflection.
+ * The output is the same as the one produced by the
+ * {@link ReflectionPrintHandler}, so that objects printed with one handler
+ * can be read with either.
+ * @author Sylvain Hallé
+ *
+ * @param <T> The type to which objects are serialized
+ */
+public class CompiledPrintHandler<T> implements PrintHandler<T>
+{
+	/**
+	 * The internal object printer
+	 */
+	protected ObjectPrinter<T> m_printer;
+
+	/**
+	 * The serializer for the objects handled by this handler
+	 */
+	protected CompiledSerializer<?> m_serializer;
+
+	/**
+	 * Creates a new compiled print handler
+	 * @param p The internal object printer
+	 * @param serializer The serializer for the objects handled by this
+	 * handler
+	 */
+	public CompiledPrintHandler(ObjectPrinter<T> p, CompiledSerializer<?> serializer)
+	{
+		super();
+		m_printer = p;
+		m_serializer = serializer;
+	}
+
+	@Override
+	public boolean canHandle(Object o)
+	{
+		return o != null && o.getClass() == m_serializer.getTargetClass();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T handle(Object o) throws PrintException
+	{
+		return m_printer.printWrapped(o, ((CompiledSerializer<Object>) m_serializer).getFields(o));
+	}
+
+	/**
+	 * Only accepts instances of a single class.
+	 * @return <tt>true</tt>
+	 */
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
+	@Override
+	public void reset()
+	{
+		// Nothing to do
+	}
+}
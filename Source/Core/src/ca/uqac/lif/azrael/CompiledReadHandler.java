@@ -0,0 +1,87 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.util.Map;
+
+/**
+ * Read handler that creates objects of a given class and populates their
+ * fields through a {@link CompiledSerializer}, rather than through
+ * reflection.
+ * @author Sylvain Hallé
+ *
+ * @param <T> The type from which objects are deserialized
+ */
+public class CompiledReadHandler<T> implements ReadHandler<T>
+{
+	/**
+	 * The internal object reader
+	 */
+	protected ObjectReader<T> m_reader;
+
+	/**
+	 * The serializer for the objects handled by this handler
+	 */
+	protected CompiledSerializer<?> m_serializer;
+
+	/**
+	 * Creates a new compiled read handler
+	 * @param reader The internal object reader
+	 * @param serializer The serializer for the objects handled by this
+	 * handler
+	 */
+	public CompiledReadHandler(ObjectReader<T> reader, CompiledSerializer<?> serializer)
+	{
+		super();
+		m_reader = reader;
+		m_serializer = serializer;
+	}
+
+	@Override
+	public boolean canHandle(T t) throws ReadException
+	{
+		if (!m_reader.isWrapped(t))
+		{
+			return false;
+		}
+		return m_reader.unwrapType(t) == m_serializer.getTargetClass();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Object handle(T t) throws ReadException
+	{
+		Object contents = m_reader.read(m_reader.unwrapContents(t));
+		if (!(contents instanceof Map))
+		{
+			throw new ReadException("Expected a map of fields for " + m_serializer.getTargetClass().getName());
+		}
+		return m_serializer.create((Map<String,Object>) contents);
+	}
+
+	/**
+	 * Only accepts elements declaring a single class.
+	 * @return <tt>true</tt>
+	 */
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
+}
@@ -0,0 +1,58 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.util.Map;
+
+/**
+ * Reads and writes the member fields of objects of a given class without
+ * using reflection. Implementations of this interface are normally not
+ * written by hand, but generated at build time for the classes marked with
+ * {@link GenerateHandlers}. They are used by a {@link CompiledPrintHandler}
+ * and a {@link CompiledReadHandler}, which take the place of the reflection
+ * handlers for that class.
+ * @author Sylvain Hallé
+ *
+ * @param <C> The class of the objects handled by this serializer
+ */
+public interface CompiledSerializer<C>
+{
+	/**
+	 * Gets the class of the objects handled by this serializer.
+	 * @return The class
+	 */
+	public Class<C> getTargetClass();
+
+	/**
+	 * Gets the values of the member fields of an object.
+	 * @param o The object
+	 * @return A map associating field names to their values, always
+	 * enumerated in the same order
+	 */
+	public Map<String,Object> getFields(C o);
+
+	/**
+	 * Creates an object and sets its member fields. Fields that have no
+	 * entry in the map keep the value given to them by the constructor.
+	 * @param fields A map associating field names to their values
+	 * @return The new object
+	 * @throws ReadException Thrown if a value cannot be assigned to its field
+	 */
+	public C create(Map<String,Object> fields) throws ReadException;
+}
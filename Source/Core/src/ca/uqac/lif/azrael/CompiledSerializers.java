@@ -0,0 +1,104 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the {@link CompiledSerializer}s available to the application.
+ * The serializers are discovered through the
+ * <tt>META-INF/services/ca.uqac.lif.azrael.CompiledSerializer</tt> index
+ * written by the annotation processor; the index is only read once, the
+ * first time the registry is queried.
+ * @author Sylvain Hallé
+ */
+public class CompiledSerializers
+{
+	/**
+	 * The serializers found in the service index, or <tt>null</tt> if the
+	 * index has not been read yet
+	 */
+	private static volatile List<CompiledSerializer<?>> s_serializers = null;
+
+	private CompiledSerializers()
+	{
+		super();
+	}
+
+	/**
+	 * Gets the serializers listed in the service index.
+	 * @return The unmodifiable list of serializers
+	 */
+	public static List<CompiledSerializer<?>> getAll()
+	{
+		List<CompiledSerializer<?>> serializers = s_serializers;
+		if (serializers == null)
+		{
+			synchronized (CompiledSerializers.class)
+			{
+				serializers = s_serializers;
+				if (serializers == null)
+				{
+					serializers = Collections.unmodifiableList(load());
+					s_serializers = serializers;
+				}
+			}
+		}
+		return serializers;
+	}
+
+	/**
+	 * Reads the service index. Entries that cannot be instantiated are
+	 * skipped; the classes they designate are then simply handled through
+	 * reflection.
+	 * @return The list of serializers
+	 */
+	@SuppressWarnings("rawtypes")
+	protected static List<CompiledSerializer<?>> load()
+	{
+		List<CompiledSerializer<?>> list = new ArrayList<CompiledSerializer<?>>();
+		ClassLoader cl = Thread.currentThread().getContextClassLoader();
+		if (cl == null)
+		{
+			cl = CompiledSerializers.class.getClassLoader();
+		}
+		Iterator<CompiledSerializer> it = ServiceLoader.load(CompiledSerializer.class, cl).iterator();
+		while (true)
+		{
+			try
+			{
+				if (!it.hasNext())
+				{
+					break;
+				}
+				list.add(it.next());
+			}
+			catch (ServiceConfigurationError e)
+			{
+				// Skip this entry
+			}
+		}
+		return list;
+	}
+}
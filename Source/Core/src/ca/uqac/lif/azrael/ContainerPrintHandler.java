@@ -0,0 +1,42 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+/**
+ * A print handler for objects that contain other objects, such as
+ * collections, maps and objects printed through reflection. Instead of
+ * printing these other objects itself, the handler describes them as the
+ * parts of a {@link PendingPrint}, which the printer goes through without
+ * recursive calls. Its {@link #handle(Object) handle()} method usually
+ * passes the result of {@link #open(Object) open()} to
+ * {@link ObjectPrinter#printPending(PendingPrint)}.
+ * @author Sylvain Hallé
+ *
+ * @param <T> The type to which objects are printed
+ */
+public interface ContainerPrintHandler<T> extends PrintHandler<T>
+{
+	/**
+	 * Starts printing an object.
+	 * @param o The object
+	 * @return The pending print of the object
+	 * @throws PrintException Thrown if the object cannot be printed
+	 */
+	public PendingPrint<T> open(Object o) throws PrintException;
+}
@@ -0,0 +1,68 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+/**
+ * Associates classes to the position, in a list of handlers, where the
+ * search for a handler should start for the objects of that class. The
+ * positions are attached to the classes themselves through a
+ * {@link ClassValue}; unlike a map keyed by classes, the cache therefore
+ * does not keep alive the classes it has seen, nor their class loader.
+ * <p>
+ * A cache cannot be emptied; a printer or a reader whose list of handlers
+ * changes replaces its cache with a new one.
+ * @author Sylvain Hallé
+ */
+public class DispatchCache
+{
+	/**
+	 * The position associated to each class, or -1 if it has not been
+	 * computed yet
+	 */
+	protected final ClassValue<int[]> m_positions = new ClassValue<int[]>()
+	{
+		@Override
+		protected int[] computeValue(Class<?> type)
+		{
+			return new int[] {-1};
+		}
+	};
+
+	/**
+	 * Gets the position associated to a class.
+	 * @param clazz The class
+	 * @return The position, or -1 if no position is associated to the class
+	 */
+	public int get(Class<?> clazz)
+	{
+		return m_positions.get(clazz)[0];
+	}
+
+	/**
+	 * Associates a position to a class. As a given class is always associated
+	 * with the same position, concurrent calls for the same class can safely
+	 * overwrite each other.
+	 * @param clazz The class
+	 * @param position The position
+	 */
+	public void put(Class<?> clazz, int position)
+	{
+		m_positions.get(clazz)[0] = position;
+	}
+}
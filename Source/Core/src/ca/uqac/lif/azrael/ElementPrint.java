@@ -0,0 +1,109 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Pending print whose parts are the elements of a collection. If the
+ * printer prints a collection of this size in parallel, the elements are
+ * not handed out as parts; they are all printed through
+ * {@link ObjectPrinter#printAll(Collection)} when the pending print is
+ * closed.
+ * @author Sylvain Hallé
+ *
+ * @param <T> The type to which objects are printed
+ */
+public abstract class ElementPrint<T> extends PendingPrint<T>
+{
+	/**
+	 * The printer printing the elements
+	 */
+	private final ObjectPrinter<T> m_elementPrinter;
+
+	/**
+	 * The elements
+	 */
+	private final Collection<?> m_elements;
+
+	/**
+	 * An iterator over the elements, or <tt>null</tt> if they are printed
+	 * in parallel
+	 */
+	private final Iterator<?> m_iterator;
+
+	/**
+	 * The printed elements
+	 */
+	private final List<T> m_printed;
+
+	/**
+	 * Creates a new element print.
+	 * @param printer The printer printing the elements
+	 * @param elements The elements
+	 */
+	public ElementPrint(ObjectPrinter<T> printer, Collection<?> elements)
+	{
+		super();
+		m_elementPrinter = printer;
+		m_elements = elements;
+		m_iterator = printer.parallelizes(elements.size()) ? null : elements.iterator();
+		m_printed = new ArrayList<T>(elements.size());
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return m_iterator != null && m_iterator.hasNext();
+	}
+
+	@Override
+	public Object next()
+	{
+		return m_iterator.next();
+	}
+
+	@Override
+	public void add(T t)
+	{
+		m_printed.add(t);
+	}
+
+	@Override
+	public T close() throws PrintException
+	{
+		if (m_iterator == null)
+		{
+			m_printed.addAll(m_elementPrinter.printAll(m_elements));
+		}
+		return combine(m_printed);
+	}
+
+	/**
+	 * Produces the printed collection from its printed elements.
+	 * @param elements The printed elements, in the iteration order of the
+	 * collection
+	 * @return The printed collection
+	 * @throws PrintException Thrown if the collection cannot be printed
+	 */
+	protected abstract T combine(List<T> elements) throws PrintException;
+}
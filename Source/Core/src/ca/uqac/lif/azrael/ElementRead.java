@@ -0,0 +1,106 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Pending read whose parts are the serialized elements of a collection. If
+ * the reader reads a collection of this size in parallel, the elements are
+ * not handed out as parts; they are all read through
+ * {@link ObjectReader#readAll(Collection)} when the pending read is closed.
+ * @author Sylvain Hallé
+ */
+public abstract class ElementRead extends PendingRead
+{
+	/**
+	 * The reader reading the elements
+	 */
+	private final ObjectReader<?> m_elementReader;
+
+	/**
+	 * The serialized elements
+	 */
+	private final Collection<?> m_elements;
+
+	/**
+	 * An iterator over the serialized elements, or <tt>null</tt> if they are
+	 * read in parallel
+	 */
+	private final Iterator<?> m_iterator;
+
+	/**
+	 * The elements read
+	 */
+	private final List<Object> m_read;
+
+	/**
+	 * Creates a new element read.
+	 * @param reader The reader reading the elements
+	 * @param elements The serialized elements
+	 */
+	public ElementRead(ObjectReader<?> reader, Collection<?> elements)
+	{
+		super();
+		m_elementReader = reader;
+		m_elements = elements;
+		m_iterator = reader.parallelizes(elements.size()) ? null : elements.iterator();
+		m_read = new ArrayList<Object>(elements.size());
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return m_iterator != null && m_iterator.hasNext();
+	}
+
+	@Override
+	public Object next()
+	{
+		return m_iterator.next();
+	}
+
+	@Override
+	public void add(Object o)
+	{
+		m_read.add(o);
+	}
+
+	@Override
+	public Object close() throws ReadException
+	{
+		if (m_iterator == null)
+		{
+			m_read.addAll(m_elementReader.readAll(m_elements));
+		}
+		return combine(m_read);
+	}
+
+	/**
+	 * Produces the collection from the elements read.
+	 * @param elements The elements, in the order of their serialized
+	 * versions
+	 * @return The collection
+	 * @throws ReadException Thrown if the collection cannot be created
+	 */
+	protected abstract Object combine(List<Object> elements) throws ReadException;
+}
@@ -0,0 +1,184 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task that processes each element of an array independently,
+ * and writes the results at the same positions in an output array. The
+ * range of elements is split in halves until it is small enough to be
+ * processed by a single task. This class is used by printers and readers
+ * to handle the elements of large collections in parallel.
+ * @author Sylvain Hallé
+ */
+abstract class ElementTask extends RecursiveAction
+{
+	/**
+	 * Dummy UID
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The elements to process
+	 */
+	protected final Object[] m_in;
+
+	/**
+	 * The array receiving the results
+	 */
+	protected final Object[] m_out;
+
+	/**
+	 * The position of the first element processed by this task
+	 */
+	protected final int m_from;
+
+	/**
+	 * The position after the last element processed by this task
+	 */
+	protected final int m_to;
+
+	/**
+	 * The maximum number of elements processed by a task without splitting
+	 * it further
+	 */
+	protected final int m_grain;
+
+	/**
+	 * Creates a new task.
+	 * @param in The elements to process
+	 * @param out The array receiving the results
+	 * @param from The position of the first element to process
+	 * @param to The position after the last element to process
+	 * @param grain The maximum number of elements processed by a task
+	 * without splitting it further
+	 */
+	protected ElementTask(Object[] in, Object[] out, int from, int to, int grain)
+	{
+		super();
+		m_in = in;
+		m_out = out;
+		m_from = from;
+		m_to = to;
+		m_grain = grain;
+	}
+
+	@Override
+	protected void compute()
+	{
+		if (m_to - m_from <= m_grain)
+		{
+			for (int i = m_from; i < m_to; i++)
+			{
+				try
+				{
+					m_out[i] = process(m_in[i]);
+				}
+				catch (RuntimeException e)
+				{
+					throw e;
+				}
+				catch (Exception e)
+				{
+					throw new TaskException(e);
+				}
+			}
+			return;
+		}
+		int mid = (m_from + m_to) >>> 1;
+		invokeAll(split(m_from, mid), split(mid, m_to));
+	}
+
+	/**
+	 * Processes a single element.
+	 * @param o The element
+	 * @return The result
+	 * @throws Exception Thrown if the element cannot be processed
+	 */
+	protected abstract Object process(Object o) throws Exception;
+
+	/**
+	 * Creates a task processing a part of the same elements.
+	 * @param from The position of the first element to process
+	 * @param to The position after the last element to process
+	 * @return The task
+	 */
+	protected abstract ElementTask split(int from, int to);
+
+	/**
+	 * Runs a task to completion, either in the fork/join pool the calling
+	 * thread belongs to, or in a given pool.
+	 * @param task The task
+	 * @param pool The pool to use if the calling thread does not belong to
+	 * a pool, or <tt>null</tt> to use the common pool
+	 * @throws Exception The first checked exception thrown while processing
+	 * an element, if any
+	 */
+	static void run(ElementTask task, ForkJoinPool pool) throws Exception
+	{
+		try
+		{
+			if (ForkJoinTask.inForkJoinPool())
+			{
+				task.invoke();
+			}
+			else
+			{
+				(pool == null ? ForkJoinPool.commonPool() : pool).invoke(task);
+			}
+		}
+		catch (TaskException e)
+		{
+			throw (Exception) e.getCause();
+		}
+	}
+
+	/**
+	 * Computes a suitable grain for a number of elements, so that each
+	 * thread of a pool receives a few tasks to balance the load.
+	 * @param size The number of elements
+	 * @param pool The pool, or <tt>null</tt> for the common pool
+	 * @return The grain
+	 */
+	static int getGrain(int size, ForkJoinPool pool)
+	{
+		int parallelism = (pool == null ? ForkJoinPool.commonPool() : pool).getParallelism();
+		return Math.max(1, size / (parallelism * 4));
+	}
+
+	/**
+	 * Unchecked exception carrying the checked exception thrown while
+	 * processing an element out of the task.
+	 */
+	static class TaskException extends RuntimeException
+	{
+		/**
+		 * Dummy UID
+		 */
+		private static final long serialVersionUID = 1L;
+
+		TaskException(Exception cause)
+		{
+			super(cause);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pending print whose parts are the entries of a map: the key and then the
+ * value of each entry or, if the keys are not printed, only the values. If
+ * the printer prints a map of this size in parallel, the keys and the
+ * values are all printed through
+ * {@link ObjectPrinter#printAll(java.util.Collection)} when the pending
+ * print is closed.
+ * @author Sylvain Hallé
+ *
+ * @param <T> The type to which objects are printed
+ */
+public abstract class EntryPrint<T> extends PendingPrint<T>
+{
+	/**
+	 * The printer printing the entries
+	 */
+	private final ObjectPrinter<T> m_entryPrinter;
+
+	/**
+	 * The map
+	 */
+	private final Map<?,?> m_map;
+
+	/**
+	 * An iterator over the entries of the map, or <tt>null</tt> if they are
+	 * printed in parallel
+	 */
+	private final Iterator<? extends Map.Entry<?,?>> m_iterator;
+
+	/**
+	 * The printed keys, or <tt>null</tt> if the keys are not printed
+	 */
+	private final List<T> m_keys;
+
+	/**
+	 * The printed values
+	 */
+	private final List<T> m_values;
+
+	/**
+	 * The entry whose value is the next part, or <tt>null</tt> if the next
+	 * part is a key
+	 */
+	private Map.Entry<?,?> m_entry;
+
+	/**
+	 * Whether the last part handed out is a key
+	 */
+	private boolean m_onKey = false;
+
+	/**
+	 * Creates a new entry print.
+	 * @param printer The printer printing the entries
+	 * @param map The map
+	 * @param keys <tt>true</tt> to print the keys and the values,
+	 * <tt>false</tt> to only print the values
+	 */
+	public EntryPrint(ObjectPrinter<T> printer, Map<?,?> map, boolean keys)
+	{
+		super();
+		m_entryPrinter = printer;
+		m_map = map;
+		m_iterator = printer.parallelizes(map.size()) ? null : map.entrySet().iterator();
+		m_keys = keys ? new ArrayList<T>(map.size()) : null;
+		m_values = new ArrayList<T>(map.size());
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return m_entry != null || (m_iterator != null && m_iterator.hasNext());
+	}
+
+	@Override
+	public Object next()
+	{
+		if (m_entry != null)
+		{
+			Map.Entry<?,?> entry = m_entry;
+			m_entry = null;
+			m_onKey = false;
+			return entry.getValue();
+		}
+		Map.Entry<?,?> entry = m_iterator.next();
+		if (m_keys == null)
+		{
+			return entry.getValue();
+		}
+		m_entry = entry;
+		m_onKey = true;
+		return entry.getKey();
+	}
+
+	@Override
+	public void add(T t)
+	{
+		if (m_onKey)
+		{
+			m_keys.add(t);
+		}
+		else
+		{
+			m_values.add(t);
+		}
+	}
+
+	@Override
+	public T close() throws PrintException
+	{
+		if (m_iterator == null)
+		{
+			if (m_keys != null)
+			{
+				m_keys.addAll(m_entryPrinter.printAll(m_map.keySet()));
+			}
+			m_values.addAll(m_entryPrinter.printAll(m_map.values()));
+		}
+		return combine(m_keys, m_values);
+	}
+
+	/**
+	 * Produces the printed map from its printed keys and values.
+	 * @param keys The printed keys, in the iteration order of the map, or
+	 * <tt>null</tt> if the keys are not printed
+	 * @param values The printed values, in the same order
+	 * @return The printed map
+	 * @throws PrintException Thrown if the map cannot be printed
+	 */
+	protected abstract T combine(List<T> keys, List<T> values) throws PrintException;
+}
@@ -0,0 +1,128 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pending read whose parts are the serialized entries of a map: the key and
+ * then the value of each entry. If the reader reads a map of this size in
+ * parallel, the keys and the values are all read through
+ * {@link ObjectReader#readAll(java.util.Collection)} when the pending read
+ * is closed.
+ * @author Sylvain Hallé
+ */
+public abstract class EntryRead extends PendingRead
+{
+	/**
+	 * The reader reading the entries
+	 */
+	private final ObjectReader<?> m_entryReader;
+
+	/**
+	 * The serialized keys
+	 */
+	private final List<?> m_serializedKeys;
+
+	/**
+	 * The serialized values, at the same positions as their keys
+	 */
+	private final List<?> m_serializedValues;
+
+	/**
+	 * The keys read
+	 */
+	private final List<Object> m_keys;
+
+	/**
+	 * The values read
+	 */
+	private final List<Object> m_values;
+
+	/**
+	 * The number of parts handed out so far, or -1 if the entries are read
+	 * in parallel
+	 */
+	private int m_parts;
+
+	/**
+	 * Creates a new entry read.
+	 * @param reader The reader reading the entries
+	 * @param keys The serialized keys
+	 * @param values The serialized values, at the same positions as their
+	 * keys; both lists must have the same size
+	 */
+	public EntryRead(ObjectReader<?> reader, List<?> keys, List<?> values)
+	{
+		super();
+		m_entryReader = reader;
+		m_serializedKeys = keys;
+		m_serializedValues = values;
+		m_parts = reader.parallelizes(keys.size()) ? -1 : 0;
+		m_keys = new ArrayList<Object>(keys.size());
+		m_values = new ArrayList<Object>(keys.size());
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return m_parts >= 0 && m_parts < 2 * m_serializedKeys.size();
+	}
+
+	@Override
+	public Object next()
+	{
+		int i = m_parts++;
+		return i % 2 == 0 ? m_serializedKeys.get(i / 2) : m_serializedValues.get(i / 2);
+	}
+
+	@Override
+	public void add(Object o)
+	{
+		if (m_parts % 2 == 1)
+		{
+			m_keys.add(o);
+		}
+		else
+		{
+			m_values.add(o);
+		}
+	}
+
+	@Override
+	public Object close() throws ReadException
+	{
+		if (m_parts < 0)
+		{
+			m_keys.addAll(m_entryReader.readAll(m_serializedKeys));
+			m_values.addAll(m_entryReader.readAll(m_serializedValues));
+		}
+		return combine(m_keys, m_values);
+	}
+
+	/**
+	 * Produces the map from the keys and values read.
+	 * @param keys The keys, in the order of their serialized versions
+	 * @param values The values, at the same positions as their keys
+	 * @return The map
+	 * @throws ReadException Thrown if the map cannot be created
+	 */
+	protected abstract Object combine(List<Object> keys, List<Object> values) throws ReadException;
+}
@@ -0,0 +1,54 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the constructor used to create instances of a class that has no
+ * no-argument constructor. The value of the annotation gives, for each
+ * parameter of the constructor and in the same order, the name of the
+ * field whose deserialized value it receives. For example:
+ * <pre>
+ * &#64;FieldConstructor({"m_x", "m_y"})
+ * public Point(int x, int y) { ... }
+ * </pre>
+ * The constructor must store each of its arguments unchanged into the
+ * corresponding field; otherwise, reading an object would not produce
+ * a copy of the object that was printed. Records do not need this
+ * annotation, as their canonical constructor is used.
+ * @author Sylvain Hallé
+ * @see Instantiator
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.CONSTRUCTOR)
+public @interface FieldConstructor
+{
+	/**
+	 * The names of the fields passed to the constructor, in the order of
+	 * its parameters.
+	 * @return The names of the fields
+	 */
+	String[] value();
+}
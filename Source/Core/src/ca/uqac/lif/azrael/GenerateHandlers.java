@@ -0,0 +1,48 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for which a {@link CompiledSerializer} should be generated
+ * at build time. When the <tt>azrael-processor</tt> jar is on the class
+ * path of <tt>javac</tt>, a class named <tt><i>C</i>_AzraelSerializer</tt>
+ * is generated next to each annotated class <i>C</i>, and listed in the
+ * <tt>META-INF/services</tt> index read by {@link CompiledSerializers}.
+ * <p>
+ * The generated serializer reads and writes the fields of the class
+ * directly, without reflection. For this reason, the annotated class must
+ * have a non-private no-argument constructor, and its serialized fields
+ * (all the fields that are neither <tt>static</tt> nor <tt>transient</tt>,
+ * including those of its ancestors) must be neither <tt>private</tt> nor
+ * <tt>final</tt>.
+ * @author Sylvain Hallé
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateHandlers
+{
+	// Marker annotation
+}
@@ -0,0 +1,495 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Creates instances of a class. An instantiator looks up once the
+ * constructors that can be used to create an object of a given class, and
+ * keeps them as method handles. Three kinds of constructors are considered:
+ * <ul>
+ * <li>the no-argument constructor, which produces an "empty" object whose
+ * fields are then populated one by one;</li>
+ * <li>for a few common collections of the JDK (<tt>ArrayList</tt>,
+ * <tt>HashMap</tt>, <tt>HashSet</tt>, etc.), the constructor taking an
+ * initial capacity, so that a collection whose number of elements is known
+ * can be created with the proper size;</li>
+ * <li>the <em>canonical</em> constructor, for classes that have no
+ * no-argument constructor. For a record, it is the constructor taking all
+ * the record's components; for another class, it is the constructor
+ * annotated with {@link FieldConstructor}, which names the field passed
+ * to each of its parameters. An object created this way receives the
+ * values of its fields in a single call. A class that is not a record and
+ * has neither a no-argument constructor nor an annotated constructor cannot
+ * be instantiated.</li>
+ * </ul>
+ * Instantiators are obtained through {@link #forClass(Class)}, which
+ * computes them only once per class.
+ * @author Sylvain Hallé
+ */
+public class Instantiator
+{
+	/**
+	 * The cache of instantiators, one per class
+	 */
+	private static final ClassValue<Instantiator> s_instantiators = new ClassValue<Instantiator>()
+	{
+		@Override
+		protected Instantiator computeValue(Class<?> type)
+		{
+			return new Instantiator(type);
+		}
+	};
+
+	/**
+	 * The JDK collections whose constructor taking an initial capacity is
+	 * used when the number of elements is known
+	 */
+	private static final Class<?>[] s_sizedClasses = {ArrayList.class,
+			ArrayDeque.class, HashMap.class, LinkedHashMap.class, HashSet.class,
+			LinkedHashSet.class};
+
+	/**
+	 * The JDK collections whose capacity must account for a load factor
+	 */
+	private static final Class<?>[] s_hashedClasses = {HashMap.class,
+			LinkedHashMap.class, HashSet.class, LinkedHashSet.class};
+
+	/**
+	 * The method <tt>Class.isRecord()</tt>, or <tt>null</tt> if the running
+	 * JVM does not support records. The method is looked up by its name, as
+	 * it only exists in Java 16+.
+	 */
+	private static final Method s_isRecord = getClassMethod("isRecord");
+
+	/**
+	 * The method <tt>Class.getRecordComponents()</tt>, or <tt>null</tt> if
+	 * the running JVM does not support records
+	 */
+	private static final Method s_getRecordComponents = getClassMethod("getRecordComponents");
+
+	/**
+	 * The class whose instances are created
+	 */
+	protected final Class<?> m_class;
+
+	/**
+	 * A handle to the no-argument constructor of the class, or <tt>null</tt>
+	 * if there is no such constructor
+	 */
+	protected MethodHandle m_constructor;
+
+	/**
+	 * A handle to the constructor taking an initial capacity, or
+	 * <tt>null</tt> if this instantiator does not presize instances
+	 */
+	protected MethodHandle m_sizedConstructor;
+
+	/**
+	 * Whether the initial capacity passed to {@link #m_sizedConstructor}
+	 * must account for the 0.75 load factor of a hash table
+	 */
+	protected boolean m_hashed;
+
+	/**
+	 * A handle to the canonical constructor of the class, or <tt>null</tt>
+	 * if the class has no such constructor
+	 */
+	protected MethodHandle m_canonicalConstructor;
+
+	/**
+	 * The names of the fields passed to the canonical constructor, in the
+	 * order of its parameters
+	 */
+	protected String[] m_parameterNames;
+
+	/**
+	 * The types of the parameters of the canonical constructor
+	 */
+	protected Class<?>[] m_parameterTypes;
+
+	/**
+	 * The exception that prevented the no-argument constructor from being
+	 * looked up, if any
+	 */
+	protected Exception m_error;
+
+	/**
+	 * Gets the instantiator of a class, computing it on the first call.
+	 * @param clazz The class
+	 * @return The instantiator
+	 */
+	public static Instantiator forClass(/*@ non_null @*/ Class<?> clazz)
+	{
+		return s_instantiators.get(clazz);
+	}
+
+	/**
+	 * Creates a new instantiator. Use {@link #forClass(Class)} to obtain
+	 * instantiators instead of this constructor.
+	 * @param clazz The class whose instances are created
+	 */
+	protected Instantiator(Class<?> clazz)
+	{
+		super();
+		m_class = clazz;
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try
+		{
+			Constructor<?> c = clazz.getDeclaredConstructor();
+			c.setAccessible(true);
+			m_constructor = lookup.unreflectConstructor(c).asType(MethodType.methodType(Object.class));
+		}
+		catch (ReflectiveOperationException e)
+		{
+			m_error = e;
+		}
+		catch (RuntimeException e)
+		{
+			m_error = e;
+		}
+		if (m_constructor != null && contains(s_sizedClasses, clazz))
+		{
+			try
+			{
+				m_sizedConstructor = lookup.findConstructor(clazz, MethodType.methodType(void.class, int.class)).asType(MethodType.methodType(Object.class, int.class));
+				m_hashed = contains(s_hashedClasses, clazz);
+			}
+			catch (ReflectiveOperationException e)
+			{
+				// Not a problem: use the no-argument constructor
+			}
+		}
+		if (m_constructor == null)
+		{
+			findCanonicalConstructor(lookup);
+		}
+	}
+
+	/**
+	 * Gets the class whose instances this instantiator creates.
+	 * @return The class
+	 */
+	public Class<?> getInstantiatedClass()
+	{
+		return m_class;
+	}
+
+	/**
+	 * Determines if objects of this class must be created through their
+	 * canonical constructor, using {@link #newInstance(Map)}.
+	 * @return <tt>true</tt> if a canonical constructor must be used,
+	 * <tt>false</tt> otherwise
+	 */
+	public boolean isCanonical()
+	{
+		return m_constructor == null && m_canonicalConstructor != null;
+	}
+
+	/**
+	 * Gets the names of the fields passed to the canonical constructor.
+	 * @return The names, in the order of the constructor's parameters, or
+	 * <tt>null</tt> if the class has no canonical constructor
+	 */
+	public String[] getParameterNames()
+	{
+		return m_parameterNames;
+	}
+
+	/**
+	 * Gets the types of the parameters of the canonical constructor.
+	 * @return The types, or <tt>null</tt> if the class has no canonical
+	 * constructor
+	 */
+	public Class<?>[] getParameterTypes()
+	{
+		return m_parameterTypes;
+	}
+
+	/**
+	 * Gets the exception that prevented the no-argument constructor of the
+	 * class from being used, if any.
+	 * @return The exception, or <tt>null</tt> if the constructor is available
+	 */
+	public Exception getError()
+	{
+		return m_error;
+	}
+
+	/**
+	 * Creates a new "empty" instance of the class using its no-argument
+	 * constructor.
+	 * @return The instance
+	 * @throws ReadException Thrown if the class has no usable no-argument
+	 * constructor, or if the constructor throws an exception
+	 */
+	public Object newInstance() throws ReadException
+	{
+		if (m_constructor == null)
+		{
+			throw new ReadException(m_error);
+		}
+		try
+		{
+			return m_constructor.invokeExact();
+		}
+		catch (Throwable t)
+		{
+			throw new ReadException(t);
+		}
+	}
+
+	/**
+	 * Creates a new "empty" instance of the class, intended to receive a
+	 * known number of elements. For the collections of the JDK that support
+	 * it, the instance is created with an initial capacity suitable for this
+	 * number of elements; otherwise, this is the same as calling
+	 * {@link #newInstance()}.
+	 * @param size The number of elements
+	 * @return The instance
+	 * @throws ReadException Thrown if the instance cannot be created
+	 */
+	public Object newInstance(int size) throws ReadException
+	{
+		if (m_sizedConstructor == null || size < 0)
+		{
+			return newInstance();
+		}
+		int capacity = m_hashed ? (int) (size / 0.75f) + 1 : size;
+		try
+		{
+			return m_sizedConstructor.invokeExact(capacity);
+		}
+		catch (Throwable t)
+		{
+			throw new ReadException(t);
+		}
+	}
+
+	/**
+	 * Creates a new instance of the class by passing the values of its fields
+	 * to its canonical constructor. Fields absent from the map receive
+	 * <tt>null</tt>, or the default value of their type if it is primitive.
+	 * @param values A map associating field names to their values
+	 * @return The instance
+	 * @throws ReadException Thrown if the class has no canonical constructor,
+	 * or if the constructor throws an exception
+	 */
+	public Object newInstance(Map<String,Object> values) throws ReadException
+	{
+		if (m_canonicalConstructor == null)
+		{
+			throw new ReadException("Class " + m_class.getName() + " has no canonical constructor");
+		}
+		Object[] args = new Object[m_parameterNames.length];
+		for (int i = 0; i < args.length; i++)
+		{
+			Object v = values.get(m_parameterNames[i]);
+			if (v == null && m_parameterTypes[i].isPrimitive())
+			{
+				v = getDefaultValue(m_parameterTypes[i]);
+			}
+			args[i] = v;
+		}
+		try
+		{
+			return m_canonicalConstructor.invokeWithArguments(args);
+		}
+		catch (Throwable t)
+		{
+			throw new ReadException(t);
+		}
+	}
+
+	/**
+	 * Looks for the canonical constructor of the class and, if it exists,
+	 * fills {@link #m_canonicalConstructor}, {@link #m_parameterNames} and
+	 * {@link #m_parameterTypes}.
+	 * @param lookup The lookup object used to create method handles
+	 */
+	protected void findCanonicalConstructor(MethodHandles.Lookup lookup)
+	{
+		if (!isRecord(m_class))
+		{
+			// The order of the declared fields is unspecified, and a constructor
+			// may transform its arguments: only an explicit mapping is trusted
+			for (Constructor<?> c : m_class.getDeclaredConstructors())
+			{
+				FieldConstructor fc = c.getAnnotation(FieldConstructor.class);
+				if (fc != null && fc.value().length == c.getParameterCount())
+				{
+					setCanonicalConstructor(lookup, c, fc.value(), c.getParameterTypes());
+					return;
+				}
+			}
+			return;
+		}
+		try
+		{
+			Object[] components = (Object[]) s_getRecordComponents.invoke(m_class);
+			String[] names = new String[components.length];
+			Class<?>[] types = new Class<?>[components.length];
+			for (int i = 0; i < components.length; i++)
+			{
+				Class<?> rc = components[i].getClass();
+				names[i] = (String) rc.getMethod("getName").invoke(components[i]);
+				types[i] = (Class<?>) rc.getMethod("getType").invoke(components[i]);
+			}
+			setCanonicalConstructor(lookup, m_class.getDeclaredConstructor(types), names, types);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			// No canonical constructor
+		}
+	}
+
+	/**
+	 * Sets the canonical constructor of the class.
+	 * @param lookup The lookup object used to create method handles
+	 * @param c The constructor
+	 * @param names The names of the fields passed to the constructor
+	 * @param types The types of the parameters of the constructor
+	 */
+	protected void setCanonicalConstructor(MethodHandles.Lookup lookup, Constructor<?> c, String[] names, Class<?>[] types)
+	{
+		try
+		{
+			c.setAccessible(true);
+			m_canonicalConstructor = lookup.unreflectConstructor(c);
+			m_parameterNames = names;
+			m_parameterTypes = types;
+		}
+		catch (IllegalAccessException e)
+		{
+			// Constructor is not accessible
+		}
+		catch (RuntimeException e)
+		{
+			// Constructor is not accessible
+		}
+	}
+
+	/**
+	 * Determines if a class is a record.
+	 * @param clazz The class
+	 * @return <tt>true</tt> if the class is a record, <tt>false</tt> otherwise
+	 * (including when the running JVM does not support records)
+	 */
+	public static boolean isRecord(Class<?> clazz)
+	{
+		if (s_isRecord == null)
+		{
+			return false;
+		}
+		try
+		{
+			return (Boolean) s_isRecord.invoke(clazz);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the default value of a primitive type.
+	 * @param type The type
+	 * @return The default value
+	 */
+	protected static Object getDefaultValue(Class<?> type)
+	{
+		if (type == boolean.class)
+		{
+			return false;
+		}
+		if (type == char.class)
+		{
+			return '\0';
+		}
+		if (type == byte.class)
+		{
+			return (byte) 0;
+		}
+		if (type == short.class)
+		{
+			return (short) 0;
+		}
+		if (type == int.class)
+		{
+			return 0;
+		}
+		if (type == long.class)
+		{
+			return 0L;
+		}
+		if (type == float.class)
+		{
+			return 0f;
+		}
+		return 0d;
+	}
+
+	/**
+	 * Gets a public method of class {@link Class} by its name.
+	 * @param name The name of the method
+	 * @return The method, or <tt>null</tt> if it does not exist
+	 */
+	private static Method getClassMethod(String name)
+	{
+		try
+		{
+			return Class.class.getMethod(name);
+		}
+		catch (NoSuchMethodException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Checks if an array of classes contains a given class.
+	 * @param classes The array
+	 * @param clazz The class
+	 * @return <tt>true</tt> if the class is in the array, <tt>false</tt>
+	 * otherwise
+	 */
+	private static boolean contains(Class<?>[] classes, Class<?> clazz)
+	{
+		for (Class<?> c : classes)
+		{
+			if (c == clazz)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
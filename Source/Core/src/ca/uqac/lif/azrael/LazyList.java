@@ -0,0 +1,137 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * A list whose contents are only deserialized the first time it is
+ * accessed. The list keeps the serialized contents and the reader that
+ * should read them until then; afterwards, all operations are delegated to
+ * the list produced by the reader.
+ * <p>
+ * As the methods of a list cannot throw checked exceptions, a
+ * {@link ReadException} occurring when the contents are read is thrown as
+ * the cause of an {@link IllegalStateException}.
+ * @author Sylvain Hallé
+ *
+ * @param <E> The type of the elements of the list
+ * @see ObjectReader#useLazyCollections(boolean)
+ */
+public class LazyList<E> extends AbstractList<E>
+{
+	/**
+	 * The reader used to read the contents of the list, or <tt>null</tt>
+	 * once they have been read
+	 */
+	protected ObjectReader<?> m_reader;
+
+	/**
+	 * The serialized contents of the list, or <tt>null</tt> once they have
+	 * been read
+	 */
+	protected Object m_contents;
+
+	/**
+	 * The deserialized list, or <tt>null</tt> if it has not been read yet
+	 */
+	protected List<E> m_list;
+
+	/**
+	 * Creates a new lazy list.
+	 * @param reader The reader used to read the contents of the list
+	 * @param contents The serialized contents of the list
+	 */
+	public LazyList(/*@ non_null @*/ ObjectReader<?> reader, Object contents)
+	{
+		super();
+		m_reader = reader;
+		m_contents = contents;
+	}
+
+	/**
+	 * Determines if the contents of the list have been read.
+	 * @return <tt>true</tt> if the contents have been read, <tt>false</tt>
+	 * otherwise
+	 */
+	public synchronized boolean isLoaded()
+	{
+		return m_list != null;
+	}
+
+	/**
+	 * Gets the deserialized list, reading it on the first call.
+	 * @return The list
+	 */
+	@SuppressWarnings("unchecked")
+	protected synchronized List<E> getList()
+	{
+		if (m_list == null)
+		{
+			try
+			{
+				m_list = (List<E>) m_reader.read(m_contents);
+			}
+			catch (ReadException e)
+			{
+				throw new IllegalStateException(e);
+			}
+			m_reader = null;
+			m_contents = null;
+		}
+		return m_list;
+	}
+
+	@Override
+	public E get(int index)
+	{
+		return getList().get(index);
+	}
+
+	@Override
+	public int size()
+	{
+		return getList().size();
+	}
+
+	@Override
+	public E set(int index, E element)
+	{
+		return getList().set(index, element);
+	}
+
+	@Override
+	public void add(int index, E element)
+	{
+		getList().add(index, element);
+	}
+
+	@Override
+	public E remove(int index)
+	{
+		return getList().remove(index);
+	}
+
+	@Override
+	public void clear()
+	{
+		getList().clear();
+	}
+}
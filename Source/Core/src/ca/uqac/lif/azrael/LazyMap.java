@@ -0,0 +1,145 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map whose contents are only deserialized the first time it is
+ * accessed. The map keeps the serialized contents and the reader that
+ * should read them until then; afterwards, all operations are delegated to
+ * the map produced by the reader.
+ * <p>
+ * As the methods of a map cannot throw checked exceptions, a
+ * {@link ReadException} occurring when the contents are read is thrown as
+ * the cause of an {@link IllegalStateException}.
+ * @author Sylvain Hallé
+ *
+ * @param <K> The type of the keys of the map
+ * @param <V> The type of the values of the map
+ * @see ObjectReader#useLazyCollections(boolean)
+ */
+public class LazyMap<K,V> extends AbstractMap<K,V>
+{
+	/**
+	 * The reader used to read the contents of the map, or <tt>null</tt>
+	 * once they have been read
+	 */
+	protected ObjectReader<?> m_reader;
+
+	/**
+	 * The serialized contents of the map, or <tt>null</tt> once they have
+	 * been read
+	 */
+	protected Object m_contents;
+
+	/**
+	 * The deserialized map, or <tt>null</tt> if it has not been read yet
+	 */
+	protected Map<K,V> m_map;
+
+	/**
+	 * Creates a new lazy map.
+	 * @param reader The reader used to read the contents of the map
+	 * @param contents The serialized contents of the map
+	 */
+	public LazyMap(/*@ non_null @*/ ObjectReader<?> reader, Object contents)
+	{
+		super();
+		m_reader = reader;
+		m_contents = contents;
+	}
+
+	/**
+	 * Determines if the contents of the map have been read.
+	 * @return <tt>true</tt> if the contents have been read, <tt>false</tt>
+	 * otherwise
+	 */
+	public synchronized boolean isLoaded()
+	{
+		return m_map != null;
+	}
+
+	/**
+	 * Gets the deserialized map, reading it on the first call.
+	 * @return The map
+	 */
+	@SuppressWarnings("unchecked")
+	protected synchronized Map<K,V> getMap()
+	{
+		if (m_map == null)
+		{
+			try
+			{
+				m_map = (Map<K,V>) m_reader.read(m_contents);
+			}
+			catch (ReadException e)
+			{
+				throw new IllegalStateException(e);
+			}
+			m_reader = null;
+			m_contents = null;
+		}
+		return m_map;
+	}
+
+	@Override
+	public Set<Map.Entry<K,V>> entrySet()
+	{
+		return getMap().entrySet();
+	}
+
+	@Override
+	public int size()
+	{
+		return getMap().size();
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return getMap().containsKey(key);
+	}
+
+	@Override
+	public V get(Object key)
+	{
+		return getMap().get(key);
+	}
+
+	@Override
+	public V put(K key, V value)
+	{
+		return getMap().put(key, value);
+	}
+
+	@Override
+	public V remove(Object key)
+	{
+		return getMap().remove(key);
+	}
+
+	@Override
+	public void clear()
+	{
+		getMap().clear();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+/**
+ * Encodes numbers as strings that preserve their exact type. The string
+ * representation of the number is followed by a one-letter suffix
+ * designating its class: <tt>I</tt> for an <tt>Integer</tt>, <tt>L</tt>
+ * for a <tt>Long</tt>, <tt>F</tt> for a <tt>Float</tt> and <tt>D</tt> for
+ * a <tt>Double</tt>. Other numbers have no suffix. This encoding is shared
+ * by the printers that write numbers as text, whether they build a
+ * structure or write a stream of events.
+ * @author Sylvain Hallé
+ */
+public class NumberEncoding
+{
+	/**
+	 * Private constructor, as this class only has static methods
+	 */
+	private NumberEncoding()
+	{
+		super();
+	}
+
+	/**
+	 * Encodes a number.
+	 * @param n The number
+	 * @return The encoded number
+	 */
+	public static String encode(Number n)
+	{
+		return n.toString() + getSuffix(n);
+	}
+
+	/**
+	 * Gets the suffix designating the class of a number.
+	 * @param n The number
+	 * @return The suffix, or the empty string if the class of the number
+	 * has no suffix
+	 */
+	public static String getSuffix(Number n)
+	{
+		if (n instanceof Integer)
+		{
+			return "I";
+		}
+		if (n instanceof Long)
+		{
+			return "L";
+		}
+		if (n instanceof Float)
+		{
+			return "F";
+		}
+		if (n instanceof Double)
+		{
+			return "D";
+		}
+		return "";
+	}
+}
@@ -0,0 +1,147 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes the position of an object inside the structure being printed,
+ * for the messages of the exceptions thrown by printers. The position is
+ * found after the fact, by looking in each object of the path for the
+ * field, element or entry that holds the next one; it therefore costs
+ * nothing until a description is actually requested.
+ * @author Sylvain Hallé
+ */
+class ObjectPath
+{
+	/**
+	 * Private constructor, as this class only has static methods
+	 */
+	private ObjectPath()
+	{
+		super();
+	}
+
+	/**
+	 * Describes a path of objects, each contained in the previous one. The
+	 * description starts with the simple name of the class of the first
+	 * object, followed by a field name (<tt>.m_x</tt>), an index
+	 * (<tt>[3]</tt>) or a map key (<tt>[foo]</tt>) for each following
+	 * object. An object whose position in its parent cannot be found is
+	 * designated by the simple name of its class.
+	 * @param path The objects, starting from the top-level object
+	 * @return The description
+	 */
+	static String describe(List<Object> path)
+	{
+		StringBuilder out = new StringBuilder();
+		for (int i = 0; i < path.size(); i++)
+		{
+			Object o = path.get(i);
+			String step = i == 0 ? null : describeStep(path.get(i - 1), o);
+			if (step == null)
+			{
+				if (i > 0)
+				{
+					out.append("/");
+				}
+				out.append(o == null ? "null" : o.getClass().getSimpleName());
+			}
+			else
+			{
+				out.append(step);
+			}
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Describes the position of an object in its parent.
+	 * @param parent The parent
+	 * @param child The object
+	 * @return The description, or <tt>null</tt> if the object cannot be
+	 * found in its parent
+	 */
+	protected static String describeStep(Object parent, Object child)
+	{
+		if (parent == null)
+		{
+			return null;
+		}
+		if (parent instanceof Map)
+		{
+			for (Map.Entry<?,?> e : ((Map<?,?>) parent).entrySet())
+			{
+				if (e.getValue() == child || e.getKey() == child)
+				{
+					return "[" + e.getKey() + "]";
+				}
+			}
+			return null;
+		}
+		if (parent instanceof Collection)
+		{
+			int index = 0;
+			for (Object e : (Collection<?>) parent)
+			{
+				if (e == child)
+				{
+					return "[" + index + "]";
+				}
+				index++;
+			}
+			return null;
+		}
+		if (parent.getClass().isArray())
+		{
+			for (int index = 0; index < Array.getLength(parent); index++)
+			{
+				if (Array.get(parent, index) == child)
+				{
+					return "[" + index + "]";
+				}
+			}
+			return null;
+		}
+		ClassDescriptor desc = ClassDescriptor.forClass(parent.getClass());
+		for (Field f : desc.getFields())
+		{
+			if (desc.getAccessError(f) != null)
+			{
+				continue;
+			}
+			try
+			{
+				if (f.get(parent) == child)
+				{
+					return "." + f.getName();
+				}
+			}
+			catch (IllegalAccessException e)
+			{
+				// Ignore this field
+			}
+		}
+		return null;
+	}
+}
@@ -18,11 +18,29 @@
  */
 package ca.uqac.lif.azrael;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import ca.uqac.lif.azrael.metrics.PrintEvent;
+import ca.uqac.lif.azrael.metrics.SerializationObserver;
 
 /**
  * Prints the content of an object to a given format.
+ * <p>
+ * A printer separates its configuration (its handlers and the options
+ * set through its methods) from the state of the print operations in
+ * progress, which is kept separately for each thread. Once configured, a
+ * printer can therefore be shared by any number of threads and used
+ * concurrently, so that the caches it fills are also shared. The
+ * configuration itself should not be modified while the printer is in use.
  * @author Sylvain Hallé
  *
  * @param <T> The format used to print the object's contents
@@ -30,73 +48,1194 @@ import java.util.List;
 public abstract class ObjectPrinter<T> implements AzraelPrinter<T>
 {
 	/**
-	 * A list of objects that handle the printing of objects of various
-	 * types
+	 * A list of objects that handle the printing of objects of various
+	 * types
+	 */
+	protected List<PrintHandler<T>> m_handlers;
+
+	/**
+	 * The default handler to use when no other handler accepts an object
+	 */
+	protected ReflectionPrintHandler<T> m_reflectionHandler = new ReflectionPrintHandler<T>(this);
+
+	/**
+	 * Whether to use the {@link Readable} interface when an object
+	 * implements it
+	 */
+	protected boolean m_usePrintable = true;
+
+	/**
+	 * The minimum number of elements a collection must have for its elements
+	 * to be printed in parallel, or 0 if elements are always printed
+	 * sequentially
+	 */
+	protected int m_parallelThreshold = 0;
+
+	/**
+	 * The maximum nesting depth of the objects printed, or 0 for no limit
+	 */
+	protected int m_maxDepth = 0;
+
+	/**
+	 * The maximum number of objects visited by a single call to
+	 * {@link #print(Object)}, or 0 for no limit
+	 */
+	protected long m_maxNodes = 0;
+
+	/**
+	 * The maximum size of the printed contents of any object, as measured
+	 * by {@link #getOutputSize(Object)}, or 0 for no limit
+	 */
+	protected long m_maxSize = 0;
+
+	/**
+	 * The maximum duration of a single call to {@link #print(Object)}, in
+	 * milliseconds, or 0 for no limit
+	 */
+	protected long m_timeLimit = 0;
+
+	/**
+	 * Whether at least one limit is set on the printer
+	 */
+	protected boolean m_limited = false;
+
+	/**
+	 * Whether an object exceeding a limit is replaced by
+	 * {@link #m_truncationMarker}, rather than causing an exception
+	 */
+	protected boolean m_truncate = false;
+
+	/**
+	 * The object printed in place of an object exceeding a limit
+	 */
+	protected Object m_truncationMarker = null;
+
+	/**
+	 * The pool running the tasks that print elements in parallel, or
+	 * <tt>null</tt> to use the common pool
+	 */
+	protected ForkJoinPool m_pool = null;
+
+	/**
+	 * The observer notified of each object printed, or <tt>null</tt> if
+	 * there is none
+	 */
+	protected SerializationObserver m_observer = null;
+
+	/**
+	 * A cache associating classes to the position, in {@link #m_handlers},
+	 * where the search for a handler should start for objects of that class.
+	 * If the handler at this position is class-based, it is the one that
+	 * accepts these objects. A position equal to the number of handlers
+	 * designates the reflection handler.
+	 * @see PrintHandler#isClassBased()
+	 */
+	protected volatile DispatchCache m_dispatchCache;
+
+	/**
+	 * Whether the printer keeps track of the objects it has already
+	 * printed, and prints a reference to them when they are encountered
+	 * again
+	 */
+	protected boolean m_trackReferences = false;
+
+	/**
+	 * Whether the type declaration of field values is left out when the
+	 * declared type of the field is enough to recover it
+	 */
+	protected boolean m_elideTypes = false;
+
+	/**
+	 * The number of nested calls to {@link #print(Object)} in progress in
+	 * each thread, across all printers, while {@link PrintEvent}s are
+	 * enabled. Only the outermost call is recorded.
+	 */
+	private static final ThreadLocal<int[]> s_recordedDepth = new ThreadLocal<int[]>()
+	{
+		@Override
+		protected int[] initialValue()
+		{
+			return new int[1];
+		}
+	};
+
+	/**
+	 * The state of the print operation in progress in each thread
+	 */
+	protected final ThreadLocal<PrintState> m_state = new ThreadLocal<PrintState>()
+	{
+		@Override
+		protected PrintState initialValue()
+		{
+			return new PrintState();
+		}
+	};
+
+	/**
+	 * Creates a new object printer
+	 */
+	public ObjectPrinter()
+	{
+		super();
+		m_handlers = new CopyOnWriteArrayList<PrintHandler<T>>();
+		m_dispatchCache = new DispatchCache();
+	}
+	
+	/**
+	 * Sets whether the access checks should be ignored. This is due to the
+	 * fact that access methods can throw a <tt>InaccessibleObjectException</tt>
+	 * in Java 9 onwards.
+	 * @param b <tt>true</tt> to ignore access checks, <tt>false</tt> otherwise
+	 * (default)
+	 */
+	public void ignoreAccessChecks(boolean b)
+	{
+		m_reflectionHandler.ignoreAccessChecks(b);
+	}
+	
+	/**
+	 * Sets whether the printer keeps track of object identity. When this is
+	 * the case, each object (other than strings, numbers, Booleans and enum
+	 * constants) receives an identifier the first time it is printed; the
+	 * next occurrences of the same object, within the same call to
+	 * {@link #print(Object)}, are printed as a reference to this identifier.
+	 * Objects reachable through more than one path are then printed only
+	 * once, and cyclic object graphs can be printed.
+	 * <p>
+	 * The output must be read by an {@link ObjectReader} that also tracks
+	 * references. Printers for formats that do not support references throw
+	 * a {@link PrintException} when a reference must be printed.
+	 * @param b <tt>true</tt> to track references, <tt>false</tt> otherwise
+	 * (default)
+	 */
+	public void trackReferences(boolean b)
+	{
+		m_trackReferences = b;
+	}
+
+	/**
+	 * Determines whether the printer keeps track of object identity.
+	 * @return <tt>true</tt> if references are tracked, <tt>false</tt>
+	 * otherwise
+	 * @see #trackReferences(boolean)
+	 */
+	public boolean tracksReferences()
+	{
+		return m_trackReferences;
+	}
+
+	/**
+	 * Sets whether the printer leaves out the type declaration of the
+	 * values held in the fields of objects printed through reflection, when
+	 * this type can be recovered from the field itself. This is the case
+	 * when the class of the value is exactly the declared type of the field,
+	 * and this type is a concrete class whose instances are normally wrapped
+	 * (that is, not a string, a number, a boolean or an array).
+	 * <p>
+	 * The output must be read by an {@link ObjectReader} that also elides
+	 * types. Printers that cannot remove a type declaration from their
+	 * output leave it in place.
+	 * @param b <tt>true</tt> to elide types, <tt>false</tt> otherwise
+	 * (default)
+	 * @see ObjectReader#elideTypes(boolean)
+	 */
+	public void elideTypes(boolean b)
+	{
+		m_elideTypes = b;
+	}
+
+	/**
+	 * Determines whether the printer leaves out the type declaration of
+	 * field values.
+	 * @return <tt>true</tt> if types are elided, <tt>false</tt> otherwise
+	 * @see #elideTypes(boolean)
+	 */
+	public boolean elidesTypes()
+	{
+		return m_elideTypes;
+	}
+
+	/**
+	 * Sets the observer notified each time an object is printed. Observing
+	 * a printer adds two calls to <tt>System.nanoTime()</tt> for each
+	 * object; when no observer is set, the cost is that of a single test.
+	 * @param observer The observer, or <tt>null</tt> to remove the current
+	 * observer (default)
+	 */
+	public void setObserver(SerializationObserver observer)
+	{
+		m_observer = observer;
+	}
+
+	/**
+	 * Gets the observer notified each time an object is printed.
+	 * @return The observer, or <tt>null</tt> if there is none
+	 */
+	public SerializationObserver getObserver()
+	{
+		return m_observer;
+	}
+
+	/**
+	 * Sets the maximum nesting depth of the objects printed. An object
+	 * nested deeper than this depth causes a {@link PrintException}, rather
+	 * than a stack overflow.
+	 * @param depth The maximum depth, or 0 for no limit (default)
+	 */
+	public void setMaxDepth(int depth)
+	{
+		m_maxDepth = depth;
+		updateLimited();
+	}
+
+	/**
+	 * Gets the maximum nesting depth of the objects printed.
+	 * @return The maximum depth, or 0 if there is no limit
+	 */
+	public int getMaxDepth()
+	{
+		return m_maxDepth;
+	}
+
+	/**
+	 * Sets the maximum number of objects visited by a single call to
+	 * {@link #print(Object)}. Once this number is reached, the objects that
+	 * remain to be printed exceed the limit.
+	 * @param nodes The maximum number of objects, or 0 for no limit
+	 * (default)
+	 * @see #truncateOnLimit(boolean)
+	 */
+	public void setMaxNodes(long nodes)
+	{
+		m_maxNodes = nodes;
+		updateLimited();
+	}
+
+	/**
+	 * Sets the maximum size of the printed contents of an object. This
+	 * limit only applies to printers that can measure the size of their
+	 * output through {@link #getOutputSize(Object, Map)}; it is checked for
+	 * each object once it is printed, so that only the objects whose
+	 * contents are too large are truncated.
+	 * @param size The maximum size, or 0 for no limit (default)
+	 * @see #truncateOnLimit(boolean)
+	 */
+	public void setMaxSize(long size)
+	{
+		m_maxSize = size;
+		updateLimited();
+	}
+
+	/**
+	 * Sets the maximum duration of a single call to {@link #print(Object)}.
+	 * Once this duration has elapsed, the objects that remain to be printed
+	 * exceed the limit.
+	 * @param millis The maximum duration, in milliseconds, or 0 for no limit
+	 * (default)
+	 * @see #truncateOnLimit(boolean)
+	 */
+	public void setTimeLimit(long millis)
+	{
+		m_timeLimit = millis;
+		updateLimited();
+	}
+
+	/**
+	 * Sets what happens to an object whose printing exceeds one of the
+	 * limits set on this printer. By default, a {@link PrintException} is
+	 * thrown, whose message gives the path leading to the object from the
+	 * top-level object. Alternatively, the object and its contents can be
+	 * replaced by a marker, and the printing continues.
+	 * @param b <tt>true</tt> to replace the object by the marker,
+	 * <tt>false</tt> to throw an exception (default)
+	 * @see #setTruncationMarker(Object)
+	 */
+	public void truncateOnLimit(boolean b)
+	{
+		m_truncate = b;
+	}
+
+	/**
+	 * Sets the object printed in place of an object that exceeds a limit,
+	 * when such objects are truncated.
+	 * @param marker The marker (default <tt>null</tt>)
+	 * @see #truncateOnLimit(boolean)
+	 */
+	public void setTruncationMarker(Object marker)
+	{
+		m_truncationMarker = marker;
+	}
+
+	/**
+	 * Updates the flag telling whether at least one limit is set on the
+	 * printer.
+	 */
+	protected void updateLimited()
+	{
+		m_limited = m_maxDepth > 0 || m_maxNodes > 0 || m_maxSize > 0 || m_timeLimit > 0;
+	}
+
+	/**
+	 * Sets the size from which the elements of a collection are printed in
+	 * parallel. The elements of such a collection are divided among
+	 * fork/join tasks, and their printed versions are put back in the
+	 * original order. This is only worthwhile for large collections whose
+	 * elements are independent of each other; it is never done when
+	 * references are tracked, since the identifiers given to objects depend
+	 * on the order in which they are printed. Neither is it done when
+	 * limits are set on the printer, since the depth, the number of objects
+	 * and the deadline of a print operation are counted in the thread that
+	 * started it.
+	 * @param threshold The minimum number of elements, or 0 to always print
+	 * elements sequentially (default)
+	 * @see #printAll(Collection)
+	 */
+	public void setParallelThreshold(int threshold)
+	{
+		m_parallelThreshold = threshold;
+	}
+
+	/**
+	 * Gets the size from which the elements of a collection are printed in
+	 * parallel.
+	 * @return The minimum number of elements, or 0 if elements are always
+	 * printed sequentially
+	 */
+	public int getParallelThreshold()
+	{
+		return m_parallelThreshold;
+	}
+
+	/**
+	 * Sets the fork/join pool used to print elements in parallel.
+	 * @param pool The pool, or <tt>null</tt> to use the common pool
+	 * (default)
+	 */
+	public void setForkJoinPool(ForkJoinPool pool)
+	{
+		m_pool = pool;
+	}
+
+	/**
+	 * Determines if the elements of a collection of a given size are
+	 * printed in parallel.
+	 * @param size The number of elements
+	 * @return <tt>true</tt> if the elements are printed in parallel,
+	 * <tt>false</tt> otherwise
+	 */
+	public boolean parallelizes(int size)
+	{
+		return m_parallelThreshold > 0 && size >= m_parallelThreshold && !m_trackReferences && !m_limited;
+	}
+
+	/**
+	 * Prints each of the elements of a collection. Depending on the size of
+	 * the collection, the elements are printed one after the other, or in
+	 * parallel.
+	 * @param elements The elements
+	 * @return The printed elements, in the iteration order of the collection
+	 * @throws PrintException Thrown if one of the elements cannot be printed
+	 * @see #setParallelThreshold(int)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> printAll(Collection<?> elements) throws PrintException
+	{
+		if (!parallelizes(elements.size()))
+		{
+			List<T> out = new ArrayList<T>(elements.size());
+			for (Object o : elements)
+			{
+				out.add(print(o));
+			}
+			return out;
+		}
+		Object[] in = elements.toArray();
+		Object[] out = new Object[in.length];
+		try
+		{
+			ElementTask.run(new PrintTask(in, out, 0, in.length, ElementTask.getGrain(in.length, m_pool)), m_pool);
+		}
+		catch (PrintException e)
+		{
+			throw e;
+		}
+		catch (Exception e)
+		{
+			throw new PrintException(e);
+		}
+		return (List<T>) Arrays.asList(out);
+	}
+
+	/**
+	 * Serializes the contents of an object. If the object implements the
+	 * {@link Printable} interface, it is serialized by calling its
+	 * {@link Printable#print(ObjectPrinter) print()} method. Otherwise, the
+	 * serializer uses reflection to extract the object's fields and create
+	 * a key-value map of field names associated to their serialized contents.
+	 * In such a case, fields that are declared as <tt>transient</tt> in the
+	 * object are ignored. If references are tracked, an object that has
+	 * already been printed is replaced by a reference to its first
+	 * occurrence.
+	 * <p>
+	 * When Java Flight Recorder is recording {@link PrintEvent}s, a call to
+	 * this method that is not made from within another printer is recorded
+	 * as one such event.
+	 * @param o The object
+	 * @return The serialized contents
+	 * @throws PrintException Thrown if an error occurs during the
+	 * serialization
+	 */
+	@Override
+	public T print(Object o) throws PrintException
+	{
+		if (!PrintEvent.isRecorded())
+		{
+			return printTracked(o);
+		}
+		return printRecorded(o);
+	}
+
+	/**
+	 * Serializes an object that is part of a larger object being printed.
+	 * This does the same as {@link #print(Object)}, except that the object
+	 * is never recorded as a top-level {@link PrintEvent}, even if it is
+	 * printed in another thread than the one that called
+	 * {@link #print(Object)}.
+	 * @param o The object
+	 * @return The serialized contents
+	 * @throws PrintException Thrown if an error occurs during the
+	 * serialization
+	 */
+	protected T printNested(Object o) throws PrintException
+	{
+		if (!PrintEvent.isRecorded())
+		{
+			return printTracked(o);
+		}
+		int[] depth = s_recordedDepth.get();
+		depth[0]++;
+		try
+		{
+			return printTracked(o);
+		}
+		finally
+		{
+			depth[0]--;
+		}
+	}
+
+	/**
+	 * Serializes an object while a {@link PrintEvent} is enabled. The event
+	 * is only created for the outermost call in the current thread.
+	 * @param o The object
+	 * @return The serialized contents
+	 * @throws PrintException Thrown if an error occurs during the
+	 * serialization
+	 */
+	protected T printRecorded(Object o) throws PrintException
+	{
+		int[] depth = s_recordedDepth.get();
+		if (depth[0]++ > 0)
+		{
+			try
+			{
+				return printTracked(o);
+			}
+			finally
+			{
+				depth[0]--;
+			}
+		}
+		try
+		{
+			PrintEvent event = new PrintEvent();
+			event.begin();
+			T t = printTracked(o);
+			event.end();
+			if (event.shouldCommit())
+			{
+				event.setDetails(o == null ? null : o.getClass(), getClass(), getHandlerClass(o), getOutputSize(t));
+				event.commit();
+			}
+			return t;
+		}
+		finally
+		{
+			depth[0]--;
+		}
+	}
+
+	/**
+	 * Serializes the contents of an object, as described in
+	 * {@link #print(Object)}. Printers that do not delegate the work to
+	 * handlers override this method rather than {@link #print(Object)}.
+	 * @param o The object
+	 * @return The serialized contents
+	 * @throws PrintException Thrown if an error occurs during the
+	 * serialization
+	 */
+	@SuppressWarnings("unchecked")
+	protected T printTracked(Object o) throws PrintException
+	{
+		if (o instanceof PrintedElement)
+		{
+			return (T) ((PrintedElement) o).getContents();
+		}
+		if (o instanceof LazyList || o instanceof LazyMap)
+		{
+			o = getDecoded(o);
+		}
+		if (!m_trackReferences && !m_limited)
+		{
+			return printUntracked(o);
+		}
+		return printPending(new PartPrint<T>(o));
+	}
+
+	/**
+	 * Signals the beginning of a call to {@link #printTracked(Object)}, for
+	 * printers that must treat the outermost call of a print operation
+	 * differently from the others (for example, to surround its result
+	 * with a header). Calls are counted in the state of the operation, in
+	 * the thread performing it. Each call to this method must be followed by
+	 * a call to {@link #exitCall()}.
+	 * @return <tt>true</tt> if this call is the outermost one,
+	 * <tt>false</tt> otherwise
+	 */
+	protected boolean enterCall()
+	{
+		return m_state.get().m_calls++ == 0;
+	}
+
+	/**
+	 * Signals the end of a call to {@link #printTracked(Object)} counted by
+	 * {@link #enterCall()}.
+	 */
+	protected void exitCall()
+	{
+		m_state.get().m_calls--;
+	}
+
+	/**
+	 * Gets the collection decoded by a lazy list or map, reading it if this
+	 * has not been done yet. A lazy collection is printed as this collection,
+	 * so that its printed form names the class of the collection that was
+	 * originally printed, and can be read back without lazy collections.
+	 * @param o The lazy list or map
+	 * @return The decoded collection
+	 * @throws PrintException Thrown if the contents of the collection cannot
+	 * be read
+	 */
+	protected static Object getDecoded(Object o) throws PrintException
+	{
+		try
+		{
+			if (o instanceof LazyList)
+			{
+				return ((LazyList<?>) o).getList();
+			}
+			return ((LazyMap<?,?>) o).getMap();
+		}
+		catch (IllegalStateException e)
+		{
+			throw new PrintException(e.getCause() != null ? e.getCause() : e);
+		}
+	}
+
+	/**
+	 * Prints an object whose parts are described by a {@link PendingPrint},
+	 * such as the pending print returned by a {@link ContainerPrintHandler}.
+	 * The parts are printed one after the other; a part that is itself
+	 * handled by a container handler is opened in turn, and the pending
+	 * prints in progress are kept on an explicit stack. The stack of the
+	 * calling thread therefore does not grow with the depth of the printed
+	 * structure. Each part goes through the same steps as an object passed
+	 * to {@link #print(Object)}: references, limits and the observer apply
+	 * to it, and the result is the same as if the handlers printed the parts
+	 * through recursive calls.
+	 * <p>
+	 * Objects printed by other handlers, and objects implementing
+	 * {@link Printable}, are printed through a regular call.
+	 * @param pending The pending print of the object
+	 * @return The printed object
+	 * @throws PrintException Thrown if the object or one of its parts cannot
+	 * be printed
+	 */
+	public T printPending(PendingPrint<T> pending) throws PrintException
+	{
+		ArrayDeque<PrintFrame<T>> stack = new ArrayDeque<PrintFrame<T>>();
+		PrintFrame<T> frame = new PrintFrame<T>(null, null);
+		frame.m_pending = pending;
+		boolean done = false;
+		try
+		{
+			while (true)
+			{
+				PendingPrint<T> p = frame.m_pending;
+				if (p.hasNext())
+				{
+					Object part = p.next();
+					PrintFrame<T> child = printPart(part, p.isTracked(), p);
+					if (child != null)
+					{
+						stack.push(frame);
+						frame = child;
+					}
+					continue;
+				}
+				T t = closeFrame(frame);
+				if (stack.isEmpty())
+				{
+					done = true;
+					return t;
+				}
+				frame = stack.pop();
+				frame.m_pending.add(t);
+			}
+		}
+		finally
+		{
+			if (!done)
+			{
+				abortFrame(frame);
+				for (PrintFrame<T> f : stack)
+				{
+					abortFrame(f);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Prints one part of an object in {@link #printPending(PendingPrint)}.
+	 * If the part is handled by a {@link ContainerPrintHandler}, its pending
+	 * print is opened, and the frame holding it is returned; otherwise, the
+	 * part is printed at once and passed to the pending print it belongs
+	 * to.
+	 * @param o The part
+	 * @param tracked Whether the part is printed as by {@link #print(Object)}
+	 * or as by {@link #printUntracked(Object)}
+	 * @param parent The pending print the part belongs to
+	 * @return The frame of the part, or <tt>null</tt> if the part has been
+	 * printed
+	 * @throws PrintException Thrown if the part cannot be printed
+	 */
+	@SuppressWarnings("unchecked")
+	private PrintFrame<T> printPart(Object o, boolean tracked, PendingPrint<T> parent) throws PrintException
+	{
+		PrintState state = null;
+		if (tracked)
+		{
+			if (o instanceof PrintedElement)
+			{
+				parent.add((T) ((PrintedElement) o).getContents());
+				return null;
+			}
+			if (o instanceof LazyList || o instanceof LazyMap)
+			{
+				o = getDecoded(o);
+			}
+			if (m_trackReferences || m_limited)
+			{
+				state = m_state.get();
+				if (m_limited)
+				{
+					String violation = checkLimits(o, state);
+					if (violation != null)
+					{
+						parent.add(limitExceeded(o, state, violation));
+						return null;
+					}
+				}
+			}
+		}
+		PrintFrame<T> frame = new PrintFrame<T>(o, state);
+		if (state != null)
+		{
+			enterNode(frame);
+		}
+		boolean done = false;
+		try
+		{
+			T t;
+			if (state != null && m_trackReferences && isTrackable(o) && state.m_references.containsKey(o))
+			{
+				t = printReference(state.m_references.get(o));
+			}
+			else
+			{
+				if (state != null && m_trackReferences && isTrackable(o))
+				{
+					frame.m_id = state.m_nextId++;
+					state.m_references.put(o, frame.m_id);
+				}
+				PrintHandler<T> h = m_usePrintable && o instanceof Printable ? null : findHandler(o);
+				if (h instanceof ContainerPrintHandler)
+				{
+					if (m_observer != null)
+					{
+						enterObserved(frame, h.getClass());
+					}
+					frame.m_pending = ((ContainerPrintHandler<T>) h).open(o);
+					done = true;
+					return frame;
+				}
+				t = h == null || m_observer != null ? printUntracked(o) : h.handle(o);
+			}
+			done = true;
+			parent.add(exitFrame(frame, t));
+			return null;
+		}
+		finally
+		{
+			if (!done)
+			{
+				abortFrame(frame);
+			}
+		}
+	}
+
+	/**
+	 * Closes the pending print of a frame, and completes the printing of the
+	 * object it holds. If this fails, the caller must abort the frame.
+	 * @param frame The frame
+	 * @return The printed object
+	 * @throws PrintException Thrown if the object cannot be printed
+	 */
+	private T closeFrame(PrintFrame<T> frame) throws PrintException
+	{
+		T t = frame.m_pending.close();
+		if (frame.m_observed)
+		{
+			exitObserved(frame, t);
+		}
+		return exitFrame(frame, t);
+	}
+
+	/**
+	 * Completes the printing of the object held by a frame, once its
+	 * contents are printed: the printed object is tagged with its
+	 * identifier, and its size is checked.
+	 * @param frame The frame
+	 * @param t The printed contents of the object
+	 * @return The printed object
+	 * @throws PrintException Thrown if the object exceeds the maximum output
+	 * size, and the printer does not truncate objects
+	 */
+	private T exitFrame(PrintFrame<T> frame, T t) throws PrintException
+	{
+		PrintState state = frame.m_state;
+		if (state == null)
+		{
+			return t;
+		}
+		// The frame is left even if the steps below fail
+		frame.m_state = null;
+		Map<Object,Long> children = m_maxSize > 0 ? state.m_sizes.remove(state.m_sizes.size() - 1) : null;
+		try
+		{
+			if (frame.m_id >= 0 && !tagIdentity(t, frame.m_id))
+			{
+				// This element cannot be the target of a reference
+				state.m_references.remove(frame.m_object);
+			}
+			if (m_maxSize > 0)
+			{
+				t = measure(frame.m_object, state, t, children);
+			}
+			return t;
+		}
+		finally
+		{
+			leaveNode(state);
+		}
+	}
+
+	/**
+	 * Gives up the printing of the object held by a frame, after an error.
+	 * @param frame The frame
+	 */
+	private void abortFrame(PrintFrame<T> frame)
+	{
+		if (frame.m_observed)
+		{
+			frame.m_observed = false;
+			PrintState state = m_state.get();
+			state.m_childNanos = frame.m_outerNanos + (System.nanoTime() - frame.m_start);
+			state.m_observedDepth--;
+		}
+		PrintState state = frame.m_state;
+		if (state != null)
+		{
+			frame.m_state = null;
+			if (m_maxSize > 0)
+			{
+				state.m_sizes.remove(state.m_sizes.size() - 1);
+			}
+			leaveNode(state);
+		}
+	}
+
+	/**
+	 * Enters one more nesting level for the object held by a frame.
+	 * @param frame The frame
+	 */
+	private void enterNode(PrintFrame<T> frame)
+	{
+		PrintState state = frame.m_state;
+		state.m_depth++;
+		if (m_limited)
+		{
+			state.m_path.add(frame.m_object);
+		}
+		if (m_maxSize > 0)
+		{
+			state.m_sizes.add(null);
+		}
+	}
+
+	/**
+	 * Leaves the nesting level entered by {@link #enterNode(PrintFrame)}.
+	 * @param state The state of the print operation in progress
 	 */
-	protected List<PrintHandler<T>> m_handlers;
+	private void leaveNode(PrintState state)
+	{
+		state.m_depth--;
+		if (m_limited)
+		{
+			state.m_path.remove(state.m_path.size() - 1);
+		}
+		if (state.m_depth == 0)
+		{
+			state.m_references.clear();
+			state.m_nextId = 0;
+		}
+	}
 
 	/**
-	 * The default handler to use when no other handler accepts an object
+	 * Starts timing the printing of the object held by a frame, on behalf
+	 * of the observer.
+	 * @param frame The frame
+	 * @param handler The class of the handler printing the object
 	 */
-	protected ReflectionPrintHandler<T> m_reflectionHandler = new ReflectionPrintHandler<T>(this);
+	private void enterObserved(PrintFrame<T> frame, Class<?> handler)
+	{
+		PrintState state = m_state.get();
+		frame.m_observed = true;
+		frame.m_handler = handler;
+		frame.m_outerNanos = state.m_childNanos;
+		frame.m_observedDepth = state.m_observedDepth++;
+		state.m_childNanos = 0;
+		frame.m_start = System.nanoTime();
+	}
 
 	/**
-	 * Whether to use the {@link Readable} interface when an object
-	 * implements it
+	 * Notifies the observer that the object held by a frame is printed.
+	 * @param frame The frame
+	 * @param t The printed object
 	 */
-	protected boolean m_usePrintable = true;
+	private void exitObserved(PrintFrame<T> frame, T t)
+	{
+		frame.m_observed = false;
+		PrintState state = m_state.get();
+		long nanos = System.nanoTime() - frame.m_start;
+		try
+		{
+			Object o = frame.m_object;
+			m_observer.objectPrinted(o == null ? null : o.getClass(), frame.m_handler, frame.m_observedDepth, nanos, nanos - state.m_childNanos, getOutputSize(t));
+		}
+		finally
+		{
+			state.m_childNanos = frame.m_outerNanos + (System.nanoTime() - frame.m_start);
+			state.m_observedDepth--;
+		}
+	}
 
 	/**
-	 * Creates a new object printer
+	 * Checks the size of the printed contents of an object against the
+	 * maximum size set on this printer. The sizes of the objects printed
+	 * while serializing these contents are passed to
+	 * {@link #getOutputSize(Object, Map)}, so that each part of the output
+	 * is measured only once; the size of the contents is in turn made
+	 * available to the object that contains them.
+	 * @param o The object
+	 * @param state The state of the print operation in progress
+	 * @param t The printed contents of the object
+	 * @param children The sizes of the objects printed within these
+	 * contents, or <tt>null</tt> if there are none
+	 * @return The printed contents, or the printed truncation marker if
+	 * they are too large
+	 * @throws PrintException Thrown if the contents are too large and the
+	 * printer does not truncate objects
 	 */
-	public ObjectPrinter()
+	protected T measure(Object o, PrintState state, T t, Map<Object,Long> children) throws PrintException
 	{
-		super();
-		m_handlers = new ArrayList<PrintHandler<T>>();
+		List<Map<Object,Long>> sizes = state.m_sizes;
+		long size = getOutputSize(t, children == null ? Collections.<Object,Long>emptyMap() : children);
+		if (size > m_maxSize)
+		{
+			t = limitExceeded(o, state, "Maximum output size of " + m_maxSize + " exceeded");
+			size = getOutputSize(t, Collections.<Object,Long>emptyMap());
+		}
+		if (!sizes.isEmpty())
+		{
+			Map<Object,Long> siblings = sizes.get(sizes.size() - 1);
+			if (siblings == null)
+			{
+				siblings = new IdentityHashMap<Object,Long>();
+				sizes.set(sizes.size() - 1, siblings);
+			}
+			siblings.put(t, size);
+		}
+		return t;
 	}
-	
+
 	/**
-	 * Sets whether the access checks should be ignored. This is due to the
-	 * fact that access methods can throw a <tt>InaccessibleObjectException</tt>
-	 * in Java 9 onwards.
-	 * @param b <tt>true</tt> to ignore access checks, <tt>false</tt> otherwise
-	 * (default)
+	 * Checks whether printing one more object at the current nesting depth
+	 * would exceed one of the limits set on this printer. This counts the
+	 * object as visited. Values that cannot contain other objects (strings,
+	 * numbers, etc.) are not subject to the depth limit, so that the keys
+	 * and values of a map at the maximum depth are never truncated.
+	 * @param o The object about to be printed
+	 * @param state The state of the print operation in progress
+	 * @return A description of the limit that is exceeded, or <tt>null</tt>
+	 * if no limit is exceeded
 	 */
-	public void ignoreAccessChecks(boolean b)
+	protected String checkLimits(Object o, PrintState state)
 	{
-		m_reflectionHandler.ignoreAccessChecks(b);
+		if (state.m_depth == 0)
+		{
+			state.m_nodes = 0;
+			state.m_deadline = m_timeLimit > 0 ? System.nanoTime() + m_timeLimit * 1000000 : 0;
+		}
+		if (m_maxDepth > 0 && state.m_depth >= m_maxDepth && isTrackable(o))
+		{
+			return "Maximum nesting depth of " + m_maxDepth + " exceeded";
+		}
+		if (m_maxNodes > 0 && ++state.m_nodes > m_maxNodes)
+		{
+			return "Maximum number of " + m_maxNodes + " objects exceeded";
+		}
+		if (m_timeLimit > 0 && System.nanoTime() - state.m_deadline > 0)
+		{
+			return "Time limit of " + m_timeLimit + " ms exceeded";
+		}
+		return null;
 	}
 
 	/**
-	 * Serializes the contents of an object. If the object implements the
-	 * {@link Printable} interface, it is serialized by calling its
-	 * {@link Printable#print(ObjectPrinter) print()} method. Otherwise, the
-	 * serializer uses reflection to extract the object's fields and create
-	 * a key-value map of field names associated to their serialized contents.
-	 * In such a case, fields that are declared as <tt>transient</tt> in the
-	 * object are ignored.
+	 * Handles an object whose printing exceeds one of the limits set on
+	 * this printer. Depending on the settings of the printer, the object is
+	 * either replaced by the truncation marker, or a {@link PrintException}
+	 * is thrown.
+	 * @param o The object
+	 * @param state The state of the print operation in progress
+	 * @param violation A description of the limit that is exceeded
+	 * @return The printed truncation marker
+	 * @throws PrintException Thrown if the printer does not truncate
+	 * objects; the message gives the path leading to the object
+	 * @see #truncateOnLimit(boolean)
+	 */
+	protected T limitExceeded(Object o, PrintState state, String violation) throws PrintException
+	{
+		if (m_truncate)
+		{
+			return printUntracked(m_truncationMarker);
+		}
+		List<Object> path = new ArrayList<Object>(state.m_path);
+		if (path.isEmpty() || path.get(path.size() - 1) != o)
+		{
+			path.add(o);
+		}
+		throw new PrintException(violation + " at " + ObjectPath.describe(path));
+	}
+
+	/**
+	 * Serializes the contents of an object without giving it an identifier,
+	 * even if references are tracked. This is meant for objects that only
+	 * exist for the time of their serialization, such as the map of fields
+	 * created by the {@link ReflectionPrintHandler}; the objects they
+	 * contain are still printed by {@link #print(Object)}.
 	 * @param o The object
 	 * @return The serialized contents
 	 * @throws PrintException Thrown if an error occurs during the
 	 * serialization
 	 */
-	@Override
-	public T print(Object o) throws PrintException
+	public T printUntracked(Object o) throws PrintException
 	{
+		if (m_observer != null)
+		{
+			return printObserved(o);
+		}
 		if (m_usePrintable && o instanceof Printable)
 		{
-			@SuppressWarnings("unchecked")
-			T t = (T) ((Printable) o).print(this);
-			return wrap(o, t);
+			return printPrintable(o);
+		}
+		return findHandler(o).handle(o);
+	}
+
+	/**
+	 * Serializes an object through its {@link Printable} interface.
+	 * @param o The object
+	 * @return The serialized contents
+	 * @throws PrintException Thrown if an error occurs during the
+	 * serialization
+	 */
+	protected T printPrintable(Object o) throws PrintException
+	{
+		@SuppressWarnings("unchecked")
+		T t = (T) ((Printable) o).print(this);
+		return wrap(o, t);
+	}
+
+	/**
+	 * Serializes an object, and notifies the observer of the handler used
+	 * and of the time it took.
+	 * @param o The object
+	 * @return The serialized contents
+	 * @throws PrintException Thrown if an error occurs during the
+	 * serialization
+	 */
+	protected T printObserved(Object o) throws PrintException
+	{
+		SerializationObserver observer = m_observer;
+		PrintState state = m_state.get();
+		long outer_nanos = state.m_childNanos;
+		int depth = state.m_observedDepth++;
+		state.m_childNanos = 0;
+		long start = System.nanoTime();
+		try
+		{
+			Class<?> handler;
+			T t;
+			if (m_usePrintable && o instanceof Printable)
+			{
+				handler = Printable.class;
+				t = printPrintable(o);
+			}
+			else
+			{
+				PrintHandler<T> h = findHandler(o);
+				handler = h.getClass();
+				t = h.handle(o);
+			}
+			long nanos = System.nanoTime() - start;
+			observer.objectPrinted(o == null ? null : o.getClass(), handler, depth, nanos, nanos - state.m_childNanos, getOutputSize(t));
+			return t;
+		}
+		finally
+		{
+			state.m_childNanos = outer_nanos + (System.nanoTime() - start);
+			state.m_observedDepth--;
+		}
+	}
+
+	/**
+	 * Finds the handler that prints a given object.
+	 * @param o The object
+	 * @return The handler; this is the reflection handler if no other
+	 * handler accepts the object
+	 */
+	protected PrintHandler<T> findHandler(Object o)
+	{
+		int start = 0;
+		if (o != null)
+		{
+			Class<?> clazz = o.getClass();
+			DispatchCache cache = m_dispatchCache;
+			int pos = cache.get(clazz);
+			if (pos < 0)
+			{
+				pos = findDispatchPosition(o);
+				cache.put(clazz, pos);
+			}
+			start = pos;
+			if (start < m_handlers.size())
+			{
+				PrintHandler<T> handler = m_handlers.get(start);
+				if (handler.isClassBased())
+				{
+					return handler;
+				}
+			}
 		}
-		for (PrintHandler<T> handler : m_handlers)
+		for (int i = start; i < m_handlers.size(); i++)
 		{
+			PrintHandler<T> handler = m_handlers.get(i);
 			if (handler.canHandle(o))
 			{
-				return handler.handle(o);
+				return handler;
+			}
+		}
+		return m_reflectionHandler;
+	}
+
+	/**
+	 * Gets the class of the handler that prints a given object, as reported
+	 * in {@link PrintEvent}s.
+	 * @param o The object
+	 * @return The class of the handler, or <tt>Printable.class</tt> if the
+	 * object prints itself
+	 */
+	protected Class<?> getHandlerClass(Object o)
+	{
+		if (m_usePrintable && o instanceof Printable)
+		{
+			return Printable.class;
+		}
+		return findHandler(o).getClass();
+	}
+
+	/**
+	 * Gets the size of the printed contents of an object, as reported to
+	 * the observer and in {@link PrintEvent}s. The default implementation returns -1; printers whose
+	 * output has a size that is cheap to compute can override it.
+	 * @param t The printed contents
+	 * @return The size, or -1 if it is unknown
+	 */
+	protected long getOutputSize(T t)
+	{
+		return -1;
+	}
+
+	/**
+	 * Gets the size of the printed contents of an object, knowing the sizes
+	 * of the printed contents of the objects it contains. A printer whose
+	 * output is a tree can override this method to avoid visiting these
+	 * parts of the tree again. By default, the sizes are ignored, and this
+	 * method calls {@link #getOutputSize(Object)}.
+	 * @param t The printed contents
+	 * @param children A map associating the printed contents of the
+	 * objects contained in this object to their size; contents are compared
+	 * by identity
+	 * @return The size, or -1 if the printer does not measure it
+	 */
+	protected long getOutputSize(T t, Map<Object,Long> children)
+	{
+		return getOutputSize(t);
+	}
+
+	/**
+	 * Finds the position in the list of handlers where the search for a
+	 * handler should start for all objects of the same class as a given
+	 * object. This is either the position of the first class-based handler
+	 * that accepts the object, or the position of the first handler that
+	 * is not class-based (whose decision cannot be remembered), whichever
+	 * comes first.
+	 * @param o The object, which must not be null
+	 * @return The position
+	 */
+	protected int findDispatchPosition(Object o)
+	{
+		for (int i = 0; i < m_handlers.size(); i++)
+		{
+			PrintHandler<T> handler = m_handlers.get(i);
+			if (!handler.isClassBased() || handler.canHandle(o))
+			{
+				return i;
 			}
 		}
-		return m_reflectionHandler.handle(o);
+		return m_handlers.size();
 	}
 
 	/**
@@ -110,10 +1249,114 @@ public abstract class ObjectPrinter<T> implements AzraelPrinter<T>
 	public abstract T wrap(Object o, T t) throws PrintException;
 
 	/**
-	 * Resets the state of the printer
+	 * Prints the contents of an object, such as the map of its fields, and
+	 * wraps them into a structure that contains the object's type
+	 * declaration. Handlers call this method rather than
+	 * {@link #wrap(Object, Object)} when the contents are not printed yet,
+	 * which lets printers that write their output as they go declare the
+	 * type before the contents.
+	 * @param o The object
+	 * @param contents The contents of the object
+	 * @return The printed structure
+	 * @throws PrintException Thrown if the print operation caused an error
+	 */
+	public T printWrapped(Object o, Object contents) throws PrintException
+	{
+		return printPending(openWrapped(o, contents));
+	}
+
+	/**
+	 * Opens the printing of the contents of an object and of their wrapping
+	 * into a structure that contains the object's type declaration, as done
+	 * by {@link #printWrapped(Object, Object)}. The contents are the only
+	 * part of the pending print, and are printed as by
+	 * {@link #printUntracked(Object)}.
+	 * @param o The object
+	 * @param contents The contents of the object
+	 * @return The pending print
+	 * @throws PrintException Thrown if the print operation caused an error
+	 */
+	public PendingPrint<T> openWrapped(final Object o, Object contents) throws PrintException
+	{
+		return new PartPrint<T>(contents)
+		{
+			@Override
+			public boolean isTracked()
+			{
+				return false;
+			}
+
+			@Override
+			public T close() throws PrintException
+			{
+				return wrap(o, super.close());
+			}
+		};
+	}
+
+	/**
+	 * Removes the type declaration from a structure produced by
+	 * {@link #wrap(Object, Object)}. The default implementation returns
+	 * <tt>null</tt>; printers that support type elision must override it.
+	 * @param t The printed structure
+	 * @return The printed contents of the object, or <tt>null</tt> if the
+	 * structure is not wrapped, or its type declaration cannot be removed
+	 * @see #elideTypes(boolean)
+	 */
+	protected T unwrap(T t)
+	{
+		return null;
+	}
+
+	/**
+	 * Prints a reference to an object that has already been printed. This
+	 * method is only called when references are tracked; formats that
+	 * support references must override it.
+	 * @param id The identifier given to the object
+	 * @return The printed reference
+	 * @throws PrintException Thrown if the format does not support
+	 * references
+	 */
+	protected T printReference(int id) throws PrintException
+	{
+		throw new PrintException("This printer does not support references");
+	}
+
+	/**
+	 * Attaches an identifier to the printed contents of an object, so that
+	 * references to this object can be resolved when reading. The default
+	 * implementation does nothing; formats that support references must
+	 * override it.
+	 * @param t The printed contents of the object
+	 * @param id The identifier given to the object
+	 * @return <tt>true</tt> if the identifier could be attached,
+	 * <tt>false</tt> otherwise
+	 */
+	protected boolean tagIdentity(T t, int id)
+	{
+		return false;
+	}
+
+	/**
+	 * Determines if an object can be the target of a reference. Strings,
+	 * numbers, characters, Booleans and enum constants are values, and are
+	 * always printed in full.
+	 * @param o The object
+	 * @return <tt>true</tt> if the object can be referenced, <tt>false</tt>
+	 * otherwise
+	 */
+	protected static boolean isTrackable(Object o)
+	{
+		return o != null && !(o instanceof String || o instanceof Number
+				|| o instanceof Boolean || o instanceof Character || o instanceof Enum);
+	}
+
+	/**
+	 * Resets the state of the printer for the calling thread
 	 */
 	public void reset()
 	{
+		m_state.remove();
 		for (PrintHandler<?> h : m_handlers)
 		{
 			h.reset();
@@ -150,6 +1393,21 @@ public abstract class ObjectPrinter<T> implements AzraelPrinter<T>
 	public void addHandler(PrintHandler<T> h)
 	{
 		m_handlers.add(h);
+		m_dispatchCache = new DispatchCache();
+	}
+
+	/**
+	 * Adds a handler for each of the {@link CompiledSerializer}s generated
+	 * at build time and listed in the service index. Objects of these
+	 * classes are then printed without reflection.
+	 * @see CompiledSerializers#getAll()
+	 */
+	protected void addCompiledHandlers()
+	{
+		for (CompiledSerializer<?> s : CompiledSerializers.getAll())
+		{
+			addHandler(new CompiledPrintHandler<T>(this, s));
+		}
 	}
 	
 	/**
@@ -162,4 +1420,225 @@ public abstract class ObjectPrinter<T> implements AzraelPrinter<T>
 	{
 	  m_usePrintable = b;
 	}
+
+	/**
+	 * The state of a print operation, which is specific to the thread
+	 * performing it.
+	 */
+	protected static class PrintState
+	{
+		/**
+		 * The identifiers given to the objects printed so far in the current
+		 * call to {@link ObjectPrinter#print(Object)}, when references are
+		 * tracked
+		 */
+		protected final Map<Object,Integer> m_references = new IdentityHashMap<Object,Integer>();
+
+		/**
+		 * The identifier to give to the next object printed, when references
+		 * are tracked
+		 */
+		protected int m_nextId = 0;
+
+		/**
+		 * The number of nested calls to {@link ObjectPrinter#print(Object)}
+		 * currently executing, when references are tracked or the depth is
+		 * limited
+		 */
+		protected int m_depth = 0;
+
+		/**
+		 * The number of calls to {@link ObjectPrinter#printTracked(Object)}
+		 * in progress, counted by printers that treat the outermost of these
+		 * calls differently
+		 * @see ObjectPrinter#enterCall()
+		 */
+		protected int m_calls = 0;
+
+		/**
+		 * The nesting depth of the object being printed, when the printer is
+		 * observed
+		 */
+		protected int m_observedDepth = 0;
+
+		/**
+		 * The time spent so far printing the objects contained in the
+		 * object being printed, when the printer is observed
+		 */
+		protected long m_childNanos = 0;
+
+		/**
+		 * The number of objects visited so far in the current call to
+		 * {@link ObjectPrinter#print(Object)}, when limits are set
+		 */
+		protected long m_nodes = 0;
+
+		/**
+		 * The value of {@link System#nanoTime()} after which the current call
+		 * to {@link ObjectPrinter#print(Object)} exceeds its time limit
+		 */
+		protected long m_deadline = 0;
+
+		/**
+		 * The objects being printed, from the top-level object to the
+		 * innermost one, when limits are set
+		 */
+		protected final List<Object> m_path = new ArrayList<Object>();
+
+		/**
+		 * For each object being printed, from the top-level object to the
+		 * innermost one, the sizes of the printed contents of the objects it
+		 * contains, when the size is limited. An entry is <tt>null</tt> until
+		 * the first of these objects has been printed.
+		 */
+		protected final List<Map<Object,Long>> m_sizes = new ArrayList<Map<Object,Long>>();
+	}
+
+	/**
+	 * An object in the course of being printed by
+	 * {@link ObjectPrinter#printPending(PendingPrint)}, along with the steps
+	 * to undo once it is printed.
+	 * @param <T> The type to which objects are printed
+	 */
+	private static class PrintFrame<T>
+	{
+		/**
+		 * The object
+		 */
+		final Object m_object;
+
+		/**
+		 * The pending print of the object
+		 */
+		PendingPrint<T> m_pending;
+
+		/**
+		 * The state of the print operation, if the object counts as one
+		 * nesting level, <tt>null</tt> otherwise
+		 */
+		PrintState m_state;
+
+		/**
+		 * The identifier given to the object, or -1 if it has none
+		 */
+		int m_id = -1;
+
+		/**
+		 * Whether the printing of the object is being timed for the observer
+		 */
+		boolean m_observed = false;
+
+		/**
+		 * The class of the handler printing the object, when observed
+		 */
+		Class<?> m_handler;
+
+		/**
+		 * The nesting depth of the object, when observed
+		 */
+		int m_observedDepth;
+
+		/**
+		 * The time the printing of the object started, when observed
+		 */
+		long m_start;
+
+		/**
+		 * The time spent printing the siblings of the object, when observed
+		 */
+		long m_outerNanos;
+
+		PrintFrame(Object o, PrintState state)
+		{
+			super();
+			m_object = o;
+			m_state = state;
+		}
+	}
+
+	/**
+	 * Pending print made of a single part, which it returns unchanged once
+	 * printed.
+	 * @param <T> The type to which objects are printed
+	 */
+	protected static class PartPrint<T> extends PendingPrint<T>
+	{
+		/**
+		 * The part
+		 */
+		private final Object m_part;
+
+		/**
+		 * Whether the part has been handed out
+		 */
+		private boolean m_done = false;
+
+		/**
+		 * The printed part
+		 */
+		private T m_printed;
+
+		/**
+		 * Creates a new part print.
+		 * @param part The part
+		 */
+		public PartPrint(Object part)
+		{
+			super();
+			m_part = part;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return !m_done;
+		}
+
+		@Override
+		public Object next()
+		{
+			m_done = true;
+			return m_part;
+		}
+
+		@Override
+		public void add(T t)
+		{
+			m_printed = t;
+		}
+
+		@Override
+		public T close() throws PrintException
+		{
+			return m_printed;
+		}
+	}
+
+	/**
+	 * Task printing a range of elements.
+	 */
+	private class PrintTask extends ElementTask
+	{
+		/**
+		 * Dummy UID
+		 */
+		private static final long serialVersionUID = 1L;
+
+		PrintTask(Object[] in, Object[] out, int from, int to, int grain)
+		{
+			super(in, out, from, to, grain);
+		}
+
+		@Override
+		protected Object process(Object o) throws PrintException
+		{
+			return printNested(o);
+		}
+
+		@Override
+		protected ElementTask split(int from, int to)
+		{
+			return new PrintTask(m_in, m_out, from, to, m_grain);
+		}
+	}
 }
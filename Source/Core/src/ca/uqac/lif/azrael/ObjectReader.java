@@ -18,17 +18,33 @@
  */
 package ca.uqac.lif.azrael;
 
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ForkJoinPool;
+
+import ca.uqac.lif.azrael.metrics.ReadEvent;
+import ca.uqac.lif.azrael.metrics.SerializationObserver;
 
 /**
  * Reads the content of an object in a given format, to recreate the
  * corresponding instance.
+ * <p>
+ * As for an {@link ObjectPrinter}, the state of the read operations in
+ * progress is kept separately for each thread. A reader whose handlers,
+ * class loaders and options have been set can thus be shared and used
+ * concurrently by multiple threads; its class and dispatch caches then
+ * benefit all of them.
  * @author Sylvain Hallé
  *
  * @param <T> The format to which the object has been written
@@ -36,75 +52,1067 @@ import java.util.Set;
 public abstract class ObjectReader<T> implements AzraelReader<T>
 {
 	/**
-	 * Additional class loaders
+	 * Additional class loaders
+	 */
+	protected Set<ClassLoader> m_classLoaders;
+
+	/**
+	 * A list of objects that handle the printing of objects of various
+	 * types
+	 */
+	protected List<ReadHandler<T>> m_handlers;
+
+	/**
+	 * The default handler to use when no other accepts an object
+	 */
+	protected ReflectionReadHandler<T> m_reflectionHandler = new ReflectionReadHandler<T>(this);
+
+	/**
+	 * A cache associating class names to the class they designate. Names
+	 * that could not be resolved are associated to {@link UnknownClass}, so
+	 * that the lookup is not attempted again.
+	 */
+	protected Map<String,Class<?>> m_classCache;
+
+	/**
+	 * A cache associating the type declared by a wrapped element to the
+	 * position, in {@link #m_handlers}, where the search for a handler
+	 * should start for elements declaring that type. If the handler at this
+	 * position is type-based, it is the one that accepts these elements. A
+	 * position equal to the number of handlers designates the reflection
+	 * handler.
+	 * @see ReadHandler#isTypeBased()
+	 */
+	protected volatile DispatchCache m_dispatchCache;
+
+	/**
+	 * Whether the reader resolves the references to objects produced by a
+	 * printer that tracks object identity
+	 * @see ObjectPrinter#trackReferences(boolean)
+	 */
+	protected boolean m_trackReferences = false;
+
+	/**
+	 * Whether the type of field values is recovered from the declared type
+	 * of the field when the serialized value does not declare it
+	 */
+	protected boolean m_elideTypes = false;
+
+	/**
+	 * The minimum number of elements a collection must have for its elements
+	 * to be read in parallel, or 0 if elements are always read sequentially
+	 */
+	protected int m_parallelThreshold = 0;
+
+	/**
+	 * The maximum nesting depth of the objects read, or 0 for no limit
+	 */
+	protected int m_maxDepth = 0;
+
+	/**
+	 * The pool running the tasks that read elements in parallel, or
+	 * <tt>null</tt> to use the common pool
+	 */
+	protected ForkJoinPool m_pool = null;
+
+	/**
+	 * The observer notified of each object read, or <tt>null</tt> if there
+	 * is none
+	 */
+	protected SerializationObserver m_observer = null;
+
+	/**
+	 * The number of nested calls to {@link #read(Object)} in progress in
+	 * each thread, across all readers, while {@link ReadEvent}s are
+	 * enabled. Only the outermost call is recorded.
+	 */
+	private static final ThreadLocal<int[]> s_recordedDepth = new ThreadLocal<int[]>()
+	{
+		@Override
+		protected int[] initialValue()
+		{
+			return new int[1];
+		}
+	};
+
+	/**
+	 * The state of the read operation in progress in each thread
+	 */
+	protected final ThreadLocal<ReadState> m_state = new ThreadLocal<ReadState>()
+	{
+		@Override
+		protected ReadState initialValue()
+		{
+			return new ReadState();
+		}
+	};
+
+	/**
+	 * Creates a new object reader
+	 */
+	public ObjectReader()
+	{
+		super();
+		m_handlers = new CopyOnWriteArrayList<ReadHandler<T>>();
+		m_classLoaders = new CopyOnWriteArraySet<ClassLoader>();
+		m_classCache = new ConcurrentHashMap<String,Class<?>>();
+		m_dispatchCache = new DispatchCache();
+	}
+	
+	/**
+	 * Sets whether the access checks should be ignored. This is due to the
+	 * fact that access methods can throw a <tt>InaccessibleObjectException</tt>
+	 * in Java 9 onwards.
+	 * @param b <tt>true</tt> to ignore access checks, <tt>false</tt> otherwise
+	 * (default)
+	 */
+	public void ignoreAccessChecks(boolean b)
+	{
+		m_reflectionHandler.ignoreAccessChecks(b);
+	}
+	
+	/**
+	 * Sets whether the lists and maps held in the fields of objects handled
+	 * through reflection are only read when they are first accessed. When
+	 * such a list or map is printed again, it is printed as the collection
+	 * it decodes to.
+	 * @param b <tt>true</tt> to read lists and maps lazily, <tt>false</tt>
+	 * to read them immediately (default)
+	 * @see ReflectionReadHandler#useLazyCollections(boolean)
+	 */
+	public void useLazyCollections(boolean b)
+	{
+		m_reflectionHandler.useLazyCollections(b);
+	}
+
+	/**
+	 * Sets whether the reader resolves references to objects. This must be
+	 * enabled to read the output of a printer that tracks object identity.
+	 * @param b <tt>true</tt> to resolve references, <tt>false</tt> otherwise
+	 * (default)
+	 * @see ObjectPrinter#trackReferences(boolean)
+	 */
+	public void trackReferences(boolean b)
+	{
+		m_trackReferences = b;
+	}
+
+	/**
+	 * Determines whether the reader resolves references to objects.
+	 * @return <tt>true</tt> if references are resolved, <tt>false</tt>
+	 * otherwise
+	 * @see #trackReferences(boolean)
+	 */
+	public boolean tracksReferences()
+	{
+		return m_trackReferences;
+	}
+
+	/**
+	 * Sets whether the reader recovers the type of the values held in the
+	 * fields of objects read through reflection from the declared type of
+	 * these fields, when the values do not declare it. This must be enabled
+	 * to read the output of a printer that elides types. Readers that
+	 * cannot add a type declaration to an element throw a
+	 * {@link ReadException} when they encounter such a value.
+	 * @param b <tt>true</tt> to recover elided types, <tt>false</tt>
+	 * otherwise (default)
+	 * @see ObjectPrinter#elideTypes(boolean)
+	 */
+	public void elideTypes(boolean b)
+	{
+		m_elideTypes = b;
+	}
+
+	/**
+	 * Determines whether the reader recovers elided types.
+	 * @return <tt>true</tt> if elided types are recovered, <tt>false</tt>
+	 * otherwise
+	 * @see #elideTypes(boolean)
+	 */
+	public boolean elidesTypes()
+	{
+		return m_elideTypes;
+	}
+
+	/**
+	 * Sets the observer notified each time an object is read.
+	 * @param observer The observer, or <tt>null</tt> to remove the current
+	 * observer (default)
+	 * @see ObjectPrinter#setObserver(SerializationObserver)
+	 */
+	public void setObserver(SerializationObserver observer)
+	{
+		m_observer = observer;
+	}
+
+	/**
+	 * Gets the observer notified each time an object is read.
+	 * @return The observer, or <tt>null</tt> if there is none
+	 */
+	public SerializationObserver getObserver()
+	{
+		return m_observer;
+	}
+
+	/**
+	 * Sets the maximum nesting depth of the objects read. An object
+	 * nested deeper than this depth causes a {@link ReadException}, rather
+	 * than a stack overflow.
+	 * @param depth The maximum depth, or 0 for no limit (default)
+	 */
+	public void setMaxDepth(int depth)
+	{
+		m_maxDepth = depth;
+	}
+
+	/**
+	 * Gets the maximum nesting depth of the objects read.
+	 * @return The maximum depth, or 0 if there is no limit
+	 */
+	public int getMaxDepth()
+	{
+		return m_maxDepth;
+	}
+
+	/**
+	 * Sets the size from which the elements of a collection are read in
+	 * parallel, by dividing them among fork/join tasks. As for printing,
+	 * this is never done when references are tracked or the nesting depth
+	 * is limited.
+	 * @param threshold The minimum number of elements, or 0 to always read
+	 * elements sequentially (default)
+	 * @see #readAll(Collection)
+	 * @see ObjectPrinter#setParallelThreshold(int)
+	 */
+	public void setParallelThreshold(int threshold)
+	{
+		m_parallelThreshold = threshold;
+	}
+
+	/**
+	 * Gets the size from which the elements of a collection are read in
+	 * parallel.
+	 * @return The minimum number of elements, or 0 if elements are always
+	 * read sequentially
+	 */
+	public int getParallelThreshold()
+	{
+		return m_parallelThreshold;
+	}
+
+	/**
+	 * Sets the fork/join pool used to read elements in parallel.
+	 * @param pool The pool, or <tt>null</tt> to use the common pool
+	 * (default)
+	 */
+	public void setForkJoinPool(ForkJoinPool pool)
+	{
+		m_pool = pool;
+	}
+
+	/**
+	 * Determines if the elements of a collection of a given size are read
+	 * in parallel.
+	 * @param size The number of elements
+	 * @return <tt>true</tt> if the elements are read in parallel,
+	 * <tt>false</tt> otherwise
+	 */
+	public boolean parallelizes(int size)
+	{
+		return m_parallelThreshold > 0 && size >= m_parallelThreshold && !m_trackReferences && m_maxDepth == 0;
+	}
+
+	/**
+	 * Reads each of the serialized elements of a collection. Depending on
+	 * the number of elements, they are read one after the other, or in
+	 * parallel.
+	 * @param elements The serialized elements
+	 * @return The objects read, in the iteration order of the collection
+	 * @throws ReadException Thrown if one of the elements cannot be read
+	 * @see #setParallelThreshold(int)
+	 */
+	public List<Object> readAll(Collection<?> elements) throws ReadException
+	{
+		if (!parallelizes(elements.size()))
+		{
+			List<Object> out = new ArrayList<Object>(elements.size());
+			for (Object t : elements)
+			{
+				out.add(read(t));
+			}
+			return out;
+		}
+		Object[] in = elements.toArray();
+		Object[] out = new Object[in.length];
+		try
+		{
+			ElementTask.run(new ReadTask(in, out, 0, in.length, ElementTask.getGrain(in.length, m_pool)), m_pool);
+		}
+		catch (ReadException e)
+		{
+			throw e;
+		}
+		catch (Exception e)
+		{
+			throw new ReadException(e);
+		}
+		return Arrays.asList(out);
+	}
+
+	/**
+	 * Deserializes the content of an object. If references are tracked,
+	 * a reference is replaced by the object read from the element it
+	 * designates.
+	 * <p>
+	 * When Java Flight Recorder is recording {@link ReadEvent}s, a call to
+	 * this method that is not made from within another reader is recorded
+	 * as one such event.
+	 * @param t The serialized contents of the object
+	 * @return The deserialized object
+	 * @throws ReadException Thrown if deserialization produced an error
+	 */
+	@Override
+	public Object read(Object t) throws ReadException
+	{
+		if (!ReadEvent.isRecorded())
+		{
+			return readTracked(t);
+		}
+		return readRecorded(t);
+	}
+
+	/**
+	 * Deserializes the content of an object that is part of a larger object
+	 * being read. This does the same as {@link #read(Object)}, except that
+	 * the object is never recorded as a top-level {@link ReadEvent}, even if
+	 * it is read in another thread than the one that called
+	 * {@link #read(Object)}.
+	 * @param t The serialized contents of the object
+	 * @return The deserialized object
+	 * @throws ReadException Thrown if deserialization produced an error
+	 */
+	protected Object readNested(Object t) throws ReadException
+	{
+		if (!ReadEvent.isRecorded())
+		{
+			return readTracked(t);
+		}
+		int[] depth = s_recordedDepth.get();
+		depth[0]++;
+		try
+		{
+			return readTracked(t);
+		}
+		finally
+		{
+			depth[0]--;
+		}
+	}
+
+	/**
+	 * Deserializes the content of an object while a {@link ReadEvent} is
+	 * enabled. The event is only created for the outermost call in the
+	 * current thread.
+	 * @param t The serialized contents of the object
+	 * @return The deserialized object
+	 * @throws ReadException Thrown if deserialization produced an error
+	 */
+	@SuppressWarnings("unchecked")
+	protected Object readRecorded(Object t) throws ReadException
+	{
+		int[] depth = s_recordedDepth.get();
+		if (depth[0]++ > 0)
+		{
+			try
+			{
+				return readTracked(t);
+			}
+			finally
+			{
+				depth[0]--;
+			}
+		}
+		try
+		{
+			ReadEvent event = new ReadEvent();
+			event.begin();
+			Object o = readTracked(t);
+			event.end();
+			if (event.shouldCommit())
+			{
+				Class<?> clazz = t != null && isWrapped(t) ? unwrapType(t) : null;
+				Class<?> type = clazz != null ? clazz : (o == null ? null : o.getClass());
+				event.setDetails(type, getClass(), getHandlerClass(t, clazz), getInputSize((T) t));
+				event.commit();
+			}
+			return o;
+		}
+		finally
+		{
+			depth[0]--;
+		}
+	}
+
+	/**
+	 * Deserializes the content of an object, as described in
+	 * {@link #read(Object)}. Readers that do not delegate the work to
+	 * handlers override this method rather than {@link #read(Object)}.
+	 * @param t The serialized contents of the object
+	 * @return The deserialized object
+	 * @throws ReadException Thrown if deserialization produced an error
+	 */
+	protected Object readTracked(Object t) throws ReadException
+	{
+		if (!m_trackReferences && m_maxDepth == 0)
+		{
+			return readUntracked(t);
+		}
+		return readPending(new PartRead(t));
+	}
+
+	/**
+	 * Reads an object whose parts are described by a {@link PendingRead},
+	 * such as the pending read returned by a {@link ContainerReadHandler}.
+	 * The parts are read one after the other; a part that is itself handled
+	 * by a container handler is opened in turn, and the pending reads in
+	 * progress are kept on an explicit stack. The stack of the calling
+	 * thread therefore does not grow with the depth of the structure being
+	 * read. Each part goes through the same steps as contents passed to
+	 * {@link #read(Object)}: references, the depth limit and the observer
+	 * apply to it, and the result is the same as if the handlers read the
+	 * parts through recursive calls.
+	 * <p>
+	 * Contents read by other handlers, and objects implementing
+	 * {@link Readable}, are read through a regular call.
+	 * @param pending The pending read of the object
+	 * @return The object
+	 * @throws ReadException Thrown if the object or one of its parts cannot
+	 * be read
+	 */
+	public Object readPending(PendingRead pending) throws ReadException
+	{
+		ArrayDeque<ReadFrame> stack = new ArrayDeque<ReadFrame>();
+		ReadFrame frame = new ReadFrame(null, null);
+		frame.m_pending = pending;
+		boolean done = false;
+		try
+		{
+			while (true)
+			{
+				PendingRead p = frame.m_pending;
+				if (p.hasNext())
+				{
+					ReadFrame child = readPart(p.next(), p);
+					if (child != null)
+					{
+						stack.push(frame);
+						frame = child;
+					}
+					continue;
+				}
+				Object o = closeFrame(frame);
+				if (stack.isEmpty())
+				{
+					done = true;
+					return o;
+				}
+				frame = stack.pop();
+				frame.m_pending.add(o);
+			}
+		}
+		finally
+		{
+			if (!done)
+			{
+				abortFrame(frame);
+				for (ReadFrame f : stack)
+				{
+					abortFrame(f);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads one part of an object in {@link #readPending(PendingRead)}. If
+	 * the part is handled by a {@link ContainerReadHandler}, its pending read
+	 * is opened, and the frame holding it is returned; otherwise, the part
+	 * is read at once and passed to the pending read it belongs to.
+	 * @param t The serialized contents of the part
+	 * @param parent The pending read the part belongs to
+	 * @return The frame of the part, or <tt>null</tt> if the part has been
+	 * read
+	 * @throws ReadException Thrown if the part cannot be read
+	 */
+	@SuppressWarnings("unchecked")
+	private ReadFrame readPart(Object t, PendingRead parent) throws ReadException
+	{
+		ReadState state = null;
+		if (m_trackReferences || m_maxDepth > 0)
+		{
+			state = m_state.get();
+			if (m_maxDepth > 0 && state.m_depth >= m_maxDepth)
+			{
+				throw new ReadException("Maximum nesting depth of " + m_maxDepth + " exceeded");
+			}
+		}
+		ReadFrame frame = new ReadFrame(t, state);
+		if (state != null)
+		{
+			frame.m_previousId = state.m_pendingId;
+			state.m_depth++;
+		}
+		boolean done = false;
+		try
+		{
+			Object o;
+			Integer ref = state != null && m_trackReferences && t != null ? getReference(t) : null;
+			if (ref != null)
+			{
+				if (!state.m_references.containsKey(ref))
+				{
+					throw new ReadException("Unresolved reference to object " + ref);
+				}
+				o = state.m_references.get(ref);
+			}
+			else
+			{
+				if (state != null && m_trackReferences)
+				{
+					frame.m_id = t == null ? null : getIdentity(t);
+					state.m_pendingId = frame.m_id;
+				}
+				Class<?> clazz = t != null && isWrapped(t) ? unwrapType(t) : null;
+				ReadHandler<T> h = clazz != null && Readable.class.isAssignableFrom(clazz) ? null : findHandler(t, clazz);
+				if (h instanceof ContainerReadHandler)
+				{
+					if (m_observer != null)
+					{
+						enterObserved(frame, clazz, h.getClass());
+					}
+					frame.m_pending = ((ContainerReadHandler<T>) h).open((T) t);
+					done = true;
+					return frame;
+				}
+				if (m_observer != null)
+				{
+					o = readObserved(t, clazz);
+				}
+				else
+				{
+					o = h == null ? readReadable(t, clazz) : h.handle((T) t);
+				}
+			}
+			done = true;
+			parent.add(exitFrame(frame, o));
+			return null;
+		}
+		finally
+		{
+			if (!done)
+			{
+				abortFrame(frame);
+			}
+		}
+	}
+
+	/**
+	 * Closes the pending read of a frame, and completes the reading of the
+	 * object it holds. If this fails, the caller must abort the frame.
+	 * @param frame The frame
+	 * @return The object
+	 * @throws ReadException Thrown if the object cannot be read
+	 */
+	private Object closeFrame(ReadFrame frame) throws ReadException
+	{
+		Object o = frame.m_pending.close();
+		if (frame.m_observed)
+		{
+			exitObserved(frame, o);
+		}
+		return exitFrame(frame, o);
+	}
+
+	/**
+	 * Completes the reading of the object held by a frame: the object is
+	 * registered if the handler did not do it, and the nesting level of the
+	 * frame is left.
+	 * @param frame The frame
+	 * @param o The object
+	 * @return The object
+	 */
+	private Object exitFrame(ReadFrame frame, Object o)
+	{
+		ReadState state = frame.m_state;
+		if (state == null)
+		{
+			return o;
+		}
+		if (frame.m_id != null && state.m_pendingId != null)
+		{
+			// The handler did not register the object itself
+			register(o);
+		}
+		leaveNode(frame);
+		return o;
+	}
+
+	/**
+	 * Gives up the reading of the object held by a frame, after an error.
+	 * @param frame The frame
+	 */
+	private void abortFrame(ReadFrame frame)
+	{
+		if (frame.m_observed)
+		{
+			frame.m_observed = false;
+			ReadState state = m_state.get();
+			state.m_childNanos = frame.m_outerNanos + (System.nanoTime() - frame.m_start);
+			state.m_observedDepth--;
+		}
+		if (frame.m_state != null)
+		{
+			leaveNode(frame);
+		}
+	}
+
+	/**
+	 * Leaves the nesting level entered for the object held by a frame.
+	 * @param frame The frame
+	 */
+	private void leaveNode(ReadFrame frame)
+	{
+		ReadState state = frame.m_state;
+		frame.m_state = null;
+		state.m_pendingId = frame.m_previousId;
+		state.m_depth--;
+		if (state.m_depth == 0)
+		{
+			state.m_references.clear();
+		}
+	}
+
+	/**
+	 * Starts timing the reading of the object held by a frame, on behalf of
+	 * the observer.
+	 * @param frame The frame
+	 * @param clazz The type declared by the contents, or <tt>null</tt> if
+	 * they are not wrapped
+	 * @param handler The class of the handler reading the object
+	 */
+	private void enterObserved(ReadFrame frame, Class<?> clazz, Class<?> handler)
+	{
+		ReadState state = m_state.get();
+		frame.m_observed = true;
+		frame.m_clazz = clazz;
+		frame.m_handler = handler;
+		frame.m_outerNanos = state.m_childNanos;
+		frame.m_observedDepth = state.m_observedDepth++;
+		state.m_childNanos = 0;
+		frame.m_start = System.nanoTime();
+	}
+
+	/**
+	 * Notifies the observer that the object held by a frame is read.
+	 * @param frame The frame
+	 * @param o The object
+	 */
+	@SuppressWarnings("unchecked")
+	private void exitObserved(ReadFrame frame, Object o)
+	{
+		frame.m_observed = false;
+		ReadState state = m_state.get();
+		long nanos = System.nanoTime() - frame.m_start;
+		try
+		{
+			Class<?> type = frame.m_clazz != null ? frame.m_clazz : (o == null ? null : o.getClass());
+			m_observer.objectRead(type, frame.m_handler, frame.m_observedDepth, nanos, nanos - state.m_childNanos, getInputSize((T) frame.m_contents));
+		}
+		finally
+		{
+			state.m_childNanos = frame.m_outerNanos + (System.nanoTime() - frame.m_start);
+			state.m_observedDepth--;
+		}
+	}
+
+	/**
+	 * Deserializes only some of the fields of an object. The values of the
+	 * other fields are skipped without being read, and these fields are
+	 * left to the value given to them by the constructor of the object (or
+	 * to their default value, for objects created through their canonical
+	 * constructor).
+	 * <p>
+	 * Only objects handled through reflection can be projected. Any other
+	 * object, such as a collection or an object that implements
+	 * {@link Readable}, is read completely. This is also the case if
+	 * references are tracked, as a skipped field may contain the first
+	 * occurrence of an object referred to elsewhere.
+	 * @param t The serialized contents of the object
+	 * @param p The projection designating the fields to read
+	 * @return The deserialized object
+	 * @throws ReadException Thrown if deserialization produced an error
+	 */
+	@SuppressWarnings("unchecked")
+	public Object readProjected(Object t, /*@ non_null @*/ Projection p) throws ReadException
+	{
+		if (m_trackReferences || t == null || !isWrapped(t))
+		{
+			return read(t);
+		}
+		Class<?> clazz = unwrapType(t);
+		if (Readable.class.isAssignableFrom(clazz) || findHandler(t, clazz) != m_reflectionHandler)
+		{
+			return read(t);
+		}
+		return m_reflectionHandler.handle((T) t, p);
+	}
+
+	/**
+	 * Reads serialized contents into an existing object, reusing this
+	 * object and the objects it contains instead of allocating new ones
+	 * whenever possible. More precisely:
+	 * <ul>
+	 * <li>if the target is a collection (respectively a map) of the same
+	 * class as the serialized one, it is refilled with the serialized
+	 * elements (respectively entries), which are all read before the
+	 * target is cleared; if reading fails, the target keeps its previous
+	 * elements. Each element of a list
+	 * is read into the element previously at the same position, and each
+	 * value of a map is read into the value previously associated to the
+	 * same key;</li>
+	 * <li>if the target is an object of the same class as the serialized
+	 * one, and is handled through reflection, its fields are overwritten;
+	 * the value of each field is read into the object previously held by
+	 * the field;</li>
+	 * <li>in all other cases, the contents are read as by
+	 * {@link #read(Object)}, and the target is not modified.</li>
+	 * </ul>
+	 * Objects cannot be reused if references are tracked; in such a case,
+	 * this method is equivalent to {@link #read(Object)}.
+	 * @param target The object to reuse, or <tt>null</tt> if there is none
+	 * @param t The serialized contents of the object
+	 * @return The deserialized object; this is the target if it could be
+	 * reused
+	 * @throws ReadException Thrown if deserialization produced an error
+	 */
+	@SuppressWarnings("unchecked")
+	public Object readInto(Object target, Object t) throws ReadException
+	{
+		if (target == null || t == null || m_trackReferences || !isWrapped(t) || unwrapType(t) != target.getClass())
+		{
+			return read(t);
+		}
+		if (target instanceof Collection)
+		{
+			List<T> elements = getSerializedElements((T) t);
+			if (elements == null)
+			{
+				return read(t);
+			}
+			Collection<Object> coll = (Collection<Object>) target;
+			List<Object> previous = target instanceof List ? (List<Object>) target : null;
+			List<Object> n_elements = new ArrayList<Object>(elements.size());
+			for (int i = 0; i < elements.size(); i++)
+			{
+				Object old = previous != null && i < previous.size() ? previous.get(i) : null;
+				n_elements.add(readInto(old, elements.get(i)));
+			}
+			coll.clear();
+			coll.addAll(n_elements);
+			return target;
+		}
+		if (target instanceof Map)
+		{
+			List<Map.Entry<T,T>> entries = getSerializedEntries((T) t);
+			if (entries == null)
+			{
+				return read(t);
+			}
+			Map<Object,Object> map = (Map<Object,Object>) target;
+			Map<Object,Object> n_map = new LinkedHashMap<Object,Object>(entries.size() * 2);
+			for (Map.Entry<T,T> e : entries)
+			{
+				Object key = read(e.getKey());
+				n_map.put(key, readInto(map.get(key), e.getValue()));
+			}
+			map.clear();
+			map.putAll(n_map);
+			return target;
+		}
+		if (target instanceof Readable || findHandler(t, target.getClass()) != m_reflectionHandler)
+		{
+			return read(t);
+		}
+		return m_reflectionHandler.handleInto(target, (T) t);
+	}
+
+	/**
+	 * Gets the serialized elements of a collection, without reading them.
+	 * The default implementation returns <tt>null</tt>; readers for formats
+	 * where the serialized elements can be accessed separately should
+	 * override it.
+	 * @param t The serialized collection
+	 * @return The list of serialized elements, or <tt>null</tt> if the
+	 * contents are not a collection or cannot be separated
+	 * @throws ReadException Thrown if the contents are not a valid
+	 * serialized collection
 	 */
-	protected Set<ClassLoader> m_classLoaders;
+	protected List<T> getSerializedElements(T t) throws ReadException
+	{
+		return null;
+	}
 
 	/**
-	 * A list of objects that handle the printing of objects of various
-	 * types
+	 * Gets the serialized keys and values of a map, without reading them.
+	 * The default implementation returns <tt>null</tt>; readers for formats
+	 * where the serialized entries can be accessed separately should
+	 * override it.
+	 * @param t The serialized map
+	 * @return The list of serialized entries, or <tt>null</tt> if the
+	 * contents are not a map or cannot be separated
+	 * @throws ReadException Thrown if the contents are not a valid
+	 * serialized map
 	 */
-	protected List<ReadHandler<T>> m_handlers;
+	protected List<Map.Entry<T,T>> getSerializedEntries(T t) throws ReadException
+	{
+		return null;
+	}
 
 	/**
-	 * The default handler to use when no other accepts an object
+	 * Gets the serialized values of the fields of an object, without
+	 * reading them. This is used to read only some of these fields in
+	 * {@link #readProjected(Object, Projection)}. The default implementation
+	 * reads the keys of the entries returned by
+	 * {@link #getSerializedEntries(Object)}.
+	 * @param contents The serialized map of the fields of an object, as
+	 * produced by the {@link ReflectionPrintHandler}
+	 * @return A map associating field names to their serialized values, or
+	 * <tt>null</tt> if the fields cannot be separated without reading them
+	 * @throws ReadException Thrown if the contents are not a valid
+	 * serialized map
 	 */
-	protected ReflectionReadHandler<T> m_reflectionHandler = new ReflectionReadHandler<T>(this);
+	protected Map<String,T> getSerializedFields(T contents) throws ReadException
+	{
+		List<Map.Entry<T,T>> entries = getSerializedEntries(contents);
+		if (entries == null)
+		{
+			return null;
+		}
+		Map<String,T> fields = new HashMap<String,T>(entries.size() * 2);
+		for (Map.Entry<T,T> e : entries)
+		{
+			fields.put(String.valueOf(read(e.getKey())), e.getValue());
+		}
+		return fields;
+	}
 
 	/**
-	 * Creates a new object reader
+	 * Associates an object to the identifier declared by the element it is
+	 * being read from, so that references appearing inside this element
+	 * can be resolved. Handlers that create an object before reading its
+	 * contents should call this method as soon as the object is created;
+	 * otherwise, the object is only registered once it is completely read,
+	 * and a cycle leading back to it cannot be resolved. This method does
+	 * nothing if references are not tracked, or if the element does not
+	 * declare an identifier.
+	 * @param o The object
 	 */
-	public ObjectReader()
+	public void register(Object o)
 	{
-		super();
-		m_handlers = new ArrayList<ReadHandler<T>>();
-		m_classLoaders = new HashSet<ClassLoader>();
+		if (!m_trackReferences)
+		{
+			return;
+		}
+		ReadState state = m_state.get();
+		if (state.m_pendingId != null)
+		{
+			state.m_references.put(state.m_pendingId, o);
+			state.m_pendingId = null;
+		}
 	}
-	
+
 	/**
-	 * Sets whether the access checks should be ignored. This is due to the
-	 * fact that access methods can throw a <tt>InaccessibleObjectException</tt>
-	 * in Java 9 onwards.
-	 * @param b <tt>true</tt> to ignore access checks, <tt>false</tt> otherwise
-	 * (default)
+	 * Deserializes the content of an object, without resolving references.
+	 * @param t The serialized contents of the object
+	 * @return The deserialized object
+	 * @throws ReadException Thrown if deserialization produced an error
 	 */
-	public void ignoreAccessChecks(boolean b)
+	@SuppressWarnings("unchecked")
+	protected Object readUntracked(Object t) throws ReadException
 	{
-		m_reflectionHandler.ignoreAccessChecks(b);
+		Class<?> clazz = t != null && isWrapped(t) ? unwrapType(t) : null;
+		if (m_observer != null)
+		{
+			return readObserved(t, clazz);
+		}
+		if (clazz != null && Readable.class.isAssignableFrom(clazz))
+		{
+			return readReadable(t, clazz);
+		}
+		return findHandler(t, clazz).handle((T) t);
+	}
+
+	/**
+	 * Deserializes an object through its {@link Readable} interface.
+	 * @param t The serialized contents of the object
+	 * @param clazz The class of the object
+	 * @return The deserialized object
+	 * @throws ReadException Thrown if deserialization produced an error
+	 */
+	protected Object readReadable(Object t, Class<?> clazz) throws ReadException
+	{
+		Object o = unwrapContents(t);
+		Readable r = (Readable) getInstance(clazz);
+		return r.read(this, o);
 	}
 
 	/**
-	 * Deserializes the content of an object.
+	 * Deserializes an object, and notifies the observer of the handler used
+	 * and of the time it took.
 	 * @param t The serialized contents of the object
+	 * @param clazz The type declared by the contents, or <tt>null</tt> if
+	 * they are not wrapped
 	 * @return The deserialized object
 	 * @throws ReadException Thrown if deserialization produced an error
 	 */
 	@SuppressWarnings("unchecked")
-	@Override
-	public Object read(Object t) throws ReadException
+	protected Object readObserved(Object t, Class<?> clazz) throws ReadException
+	{
+		SerializationObserver observer = m_observer;
+		ReadState state = m_state.get();
+		long outer_nanos = state.m_childNanos;
+		int depth = state.m_observedDepth++;
+		state.m_childNanos = 0;
+		long start = System.nanoTime();
+		try
+		{
+			Class<?> handler;
+			Object o;
+			if (clazz != null && Readable.class.isAssignableFrom(clazz))
+			{
+				handler = Readable.class;
+				o = readReadable(t, clazz);
+			}
+			else
+			{
+				ReadHandler<T> h = findHandler(t, clazz);
+				handler = h.getClass();
+				o = h.handle((T) t);
+			}
+			long nanos = System.nanoTime() - start;
+			Class<?> type = clazz != null ? clazz : (o == null ? null : o.getClass());
+			observer.objectRead(type, handler, depth, nanos, nanos - state.m_childNanos, getInputSize((T) t));
+			return o;
+		}
+		finally
+		{
+			state.m_childNanos = outer_nanos + (System.nanoTime() - start);
+			state.m_observedDepth--;
+		}
+	}
+
+	/**
+	 * Finds the handler that reads given serialized contents.
+	 * @param t The serialized contents
+	 * @param clazz The type declared by the contents, or <tt>null</tt> if
+	 * they are not wrapped
+	 * @return The handler; this is the reflection handler if no other
+	 * handler accepts the contents
+	 * @throws ReadException Thrown if no handler accepts the contents and
+	 * they are null
+	 */
+	@SuppressWarnings("unchecked")
+	protected ReadHandler<T> findHandler(Object t, Class<?> clazz) throws ReadException
 	{
-		if (t != null && isWrapped(t))
+		int start = 0;
+		if (clazz != null)
 		{
-			Class<?> clazz = unwrapType(t);
-			if (Readable.class.isAssignableFrom(clazz))
+			DispatchCache cache = m_dispatchCache;
+			int pos = cache.get(clazz);
+			if (pos < 0)
+			{
+				pos = findDispatchPosition((T) t);
+				cache.put(clazz, pos);
+			}
+			start = pos;
+			if (start == m_handlers.size())
+			{
+				return m_reflectionHandler;
+			}
+			ReadHandler<T> handler = m_handlers.get(start);
+			if (handler.isTypeBased())
 			{
-				Object o = unwrapContents(t);
-				Readable r = (Readable) getInstance(clazz);
-				return r.read(this, o);
+				return handler;
 			}
 		}
-		for (ReadHandler<T> handler : m_handlers)
+		for (int i = start; i < m_handlers.size(); i++)
 		{
+			ReadHandler<T> handler = m_handlers.get(i);
 			if (handler.canHandle((T) t))
 			{
-				return handler.handle((T) t);
+				return handler;
 			}
 		}
 		if (t == null)
 		{
 			throw new ReadException("Cannot deserialize from null");
 		}
-		return m_reflectionHandler.handle((T) t);
+		return m_reflectionHandler;
+	}
+
+	/**
+	 * Gets the class of the handler that reads given serialized contents, as
+	 * reported in {@link ReadEvent}s.
+	 * @param t The serialized contents
+	 * @param clazz The type declared by the contents, or <tt>null</tt> if
+	 * they are not wrapped
+	 * @return The class of the handler, or <tt>Readable.class</tt> if the
+	 * object reads itself
+	 * @throws ReadException Thrown if no handler accepts the contents
+	 */
+	protected Class<?> getHandlerClass(Object t, Class<?> clazz) throws ReadException
+	{
+		if (clazz != null && Readable.class.isAssignableFrom(clazz))
+		{
+			return Readable.class;
+		}
+		return findHandler(t, clazz).getClass();
+	}
+
+	/**
+	 * Gets the size of the serialized contents of an object, as reported to
+	 * the observer and in {@link ReadEvent}s. The default implementation returns -1; readers whose
+	 * input has a size that is cheap to compute can override it.
+	 * @param t The serialized contents
+	 * @return The size, or -1 if it is unknown
+	 */
+	protected long getInputSize(T t)
+	{
+		return -1;
+	}
+	
+	/**
+	 * Finds the position in the list of handlers where the search for a
+	 * handler should start for all the wrapped elements declaring the same
+	 * type as a given element. This is either the position of the first
+	 * type-based handler that accepts the element, or the position of the
+	 * first handler that is not type-based, whichever comes first.
+	 * @param t A wrapped element
+	 * @return The position
+	 * @throws ReadException Thrown if a handler cannot examine the element
+	 */
+	protected int findDispatchPosition(T t) throws ReadException
+	{
+		for (int i = 0; i < m_handlers.size(); i++)
+		{
+			ReadHandler<T> handler = m_handlers.get(i);
+			if (!handler.isTypeBased() || handler.canHandle(t))
+			{
+				return i;
+			}
+		}
+		return m_handlers.size();
 	}
 	
 	protected abstract String getWrappedTypeName(Object t) throws ReadException;
@@ -115,71 +1123,91 @@ public abstract class ObjectReader<T> implements AzraelReader<T>
 
 	protected abstract boolean isWrapped(Object t);
 
+	/**
+	 * Adds a type declaration to serialized contents whose type has been
+	 * elided. This is the reverse of {@link ObjectPrinter#unwrap(Object)}.
+	 * The default implementation throws an exception; readers that support
+	 * type elision must override it.
+	 * @param clazz The type of the contents
+	 * @param t The serialized contents
+	 * @return The wrapped element, or the contents themselves if they stand
+	 * for a null value
+	 * @throws ReadException Thrown if the reader does not support type
+	 * elision
+	 * @see #elideTypes(boolean)
+	 */
+	protected Object wrap(Class<?> clazz, Object t) throws ReadException
+	{
+		throw new ReadException("This reader does not support type elision");
+	}
+
+	/**
+	 * Gets the identifier of the object designated by an element, if this
+	 * element is a reference. The default implementation returns
+	 * <tt>null</tt>; formats that support references must override it.
+	 * @param t The element
+	 * @return The identifier, or <tt>null</tt> if the element is not a
+	 * reference
+	 * @throws ReadException Thrown if the identifier is malformed
+	 */
+	protected Integer getReference(Object t) throws ReadException
+	{
+		return null;
+	}
+
+	/**
+	 * Gets the identifier declared by an element for the object it
+	 * contains. The default implementation returns <tt>null</tt>; formats
+	 * that support references must override it.
+	 * @param t The element
+	 * @return The identifier, or <tt>null</tt> if the element does not
+	 * declare one
+	 * @throws ReadException Thrown if the identifier is malformed
+	 */
+	protected Integer getIdentity(Object t) throws ReadException
+	{
+		return null;
+	}
+
 	/**
 	 * Produces an instance of an object based on its deserialized contents
 	 * and a target class. This method implements the default technique
 	 * for obtaining an instance of an object:
-	 * just ask for an instance based on the class, using the
-	 * <code>newInstance()</code> method.
+	 * just ask for an instance based on the class, using its no-argument
+	 * constructor. The constructor is looked up only once per class, through
+	 * an {@link Instantiator}.
 	 * @param clazz The target class for the object
 	 * @return An instance of the object
 	 * @throws ReadException If the operation cannot be carried on
 	 */
 	public Object getInstance(Class<?> clazz) throws ReadException
+	{
+		return getInstance(clazz, -1);
+	}
+
+	/**
+	 * Produces an instance of an object that is intended to receive a known
+	 * number of elements. For the collections of the JDK that support it,
+	 * the instance is created with a suitable initial capacity.
+	 * @param clazz The target class for the object
+	 * @param size The number of elements, or a negative value if it is
+	 * unknown
+	 * @return An instance of the object
+	 * @throws ReadException If the operation cannot be carried on
+	 */
+	public Object getInstance(Class<?> clazz, int size) throws ReadException
 	{
 		if (clazz == null)
 		{
 			return null;
 		}
-		// Instantiate "empty" object of the target class
-		Object o = null;
-
-		try
-		{
-			Class<?>[] params = new Class[0];
-			Constructor<?> c = clazz.getDeclaredConstructor(params);
-			c.setAccessible(true);
-			Object[] args = new Object[0];
-			o = c.newInstance(args);
-			//o = clazz.newInstance();
-		} 
-		catch (InstantiationException ex)
-		{
-			throw new ReadException(ex);
-		} 
-		catch (IllegalAccessException ex)
-		{
-			throw new ReadException(ex);
-		} 
-		catch (NoSuchMethodException ex) 
-		{
-			throw new ReadException(ex);
-		}
-		catch (SecurityException ex)
-		{
-			throw new ReadException(ex);
-		}
-		catch (IllegalArgumentException ex)
+		Instantiator inst = Instantiator.forClass(clazz);
+		Exception error = inst.getError();
+		if (error instanceof RuntimeException && ClassDescriptor.isInaccessibleObjectException((RuntimeException) error) && m_reflectionHandler.ignoresAccessChecks())
 		{
-			throw new ReadException(ex);
-		}
-		catch (InvocationTargetException ex)
-		{
-			throw new ReadException(ex);
-		}
-		catch (RuntimeException e)
-		{
-			// Must check exception by its name, as the actual class only exists in Java 9+
-			if (e.getClass().getSimpleName().contains("InaccessibleObjectException") && m_reflectionHandler.ignoresAccessChecks())
-			{
-				// Do nothing
-			}
-			else
-			{
-				throw new ReadException(e);
-			}
+			return null;
 		}
-		return o;
+		return inst.newInstance(size);
 	}
 
 	/**
@@ -189,6 +1217,37 @@ public abstract class ObjectReader<T> implements AzraelReader<T>
 	public void addClassLoader(ClassLoader cl)
 	{
 		m_classLoaders.add(cl);
+		m_classCache.clear();
+	}
+
+	/**
+	 * Resolves a class name into the corresponding class. Results, including
+	 * failed lookups, are cached, so that {@link #findClass(String)} is only
+	 * called once for each distinct name.
+	 * @param class_name The name of the class
+	 * @return The class
+	 * @throws ReadException Thrown if the class could not be found
+	 */
+	public Class<?> resolveClass(String class_name) throws ReadException
+	{
+		Class<?> clazz = m_classCache.get(class_name);
+		if (clazz == null)
+		{
+			try
+			{
+				clazz = findClass(class_name);
+			}
+			catch (ClassNotFoundException e)
+			{
+				clazz = UnknownClass.class;
+			}
+			m_classCache.put(class_name, clazz);
+		}
+		if (clazz == UnknownClass.class)
+		{
+			throw new ReadException(new ClassNotFoundException("Class " + class_name + " not found"));
+		}
+		return clazz;
 	}
 
 	/**
@@ -209,6 +1268,18 @@ public abstract class ObjectReader<T> implements AzraelReader<T>
 		{
 			// Do nothing
 		}
+		if (candidate == null)
+		{
+			// Then with the class loader that loaded this reader
+			try
+			{
+				candidate = Class.forName(class_name, true, getClass().getClassLoader());
+			}
+			catch (ClassNotFoundException e)
+			{
+				// Do nothing
+			}
+		}
 		for (ClassLoader cl : m_classLoaders)
 		{
 			// Go through all other class loaders, if any
@@ -245,15 +1316,20 @@ public abstract class ObjectReader<T> implements AzraelReader<T>
 		{
 			return;
 		}
-		try
+		ClassDescriptor desc = ClassDescriptor.forClass(o.getClass());
+		Field fld = desc.getField(field_name);
+		if (fld == null)
 		{
-			Field fld = ReflectionPrintHandler.getFromAllFields(field_name, o.getClass());
-			fld.setAccessible(true);
-			fld.set(o, value);
+			throw new ReadException(new NoSuchFieldException(field_name));
 		}
-		catch (NoSuchFieldException e)
+		try
 		{
-			throw new ReadException(e);
+			RuntimeException access_error = desc.getAccessError(fld);
+			if (access_error != null)
+			{
+				throw access_error;
+			}
+			fld.set(o, value);
 		}
 		catch (IllegalArgumentException e)
 		{
@@ -284,5 +1360,228 @@ public abstract class ObjectReader<T> implements AzraelReader<T>
 	public void addHandler(ReadHandler<T> h)
 	{
 		m_handlers.add(h);
+		m_dispatchCache = new DispatchCache();
+	}
+
+	/**
+	 * Adds a handler for each of the {@link CompiledSerializer}s generated
+	 * at build time and listed in the service index. Objects of these
+	 * classes are then created and populated without reflection.
+	 * @see CompiledSerializers#getAll()
+	 */
+	protected void addCompiledHandlers()
+	{
+		for (CompiledSerializer<?> s : CompiledSerializers.getAll())
+		{
+			addHandler(new CompiledReadHandler<T>(this, s));
+		}
+	}
+	
+	/**
+	 * Placeholder class used in the class cache to mark class names that
+	 * could not be resolved.
+	 */
+	protected static final class UnknownClass
+	{
+		private UnknownClass()
+		{
+			super();
+		}
+	}
+
+	/**
+	 * The state of a read operation, which is specific to the thread
+	 * performing it.
+	 */
+	protected static class ReadState
+	{
+		/**
+		 * The objects read so far in the current call to
+		 * {@link ObjectReader#read(Object)}, associated to the identifier
+		 * declared by their element
+		 */
+		protected final Map<Integer,Object> m_references = new HashMap<Integer,Object>();
+
+		/**
+		 * The identifier declared by the element being read, if the object
+		 * created for this element has not been registered yet
+		 * @see ObjectReader#register(Object)
+		 */
+		protected Integer m_pendingId = null;
+
+		/**
+		 * The number of nested calls to {@link ObjectReader#read(Object)}
+		 * currently executing, when references are tracked or the depth is
+		 * limited
+		 */
+		protected int m_depth = 0;
+
+		/**
+		 * The nesting depth of the object being read, when the reader is
+		 * observed
+		 */
+		protected int m_observedDepth = 0;
+
+		/**
+		 * The time spent so far reading the objects contained in the object
+		 * being read, when the reader is observed
+		 */
+		protected long m_childNanos = 0;
+	}
+
+	/**
+	 * An object in the course of being read by
+	 * {@link ObjectReader#readPending(PendingRead)}, along with the steps to
+	 * undo once it is read.
+	 */
+	private static class ReadFrame
+	{
+		/**
+		 * The serialized contents of the object
+		 */
+		final Object m_contents;
+
+		/**
+		 * The pending read of the object
+		 */
+		PendingRead m_pending;
+
+		/**
+		 * The state of the read operation, if the object counts as one
+		 * nesting level, <tt>null</tt> otherwise
+		 */
+		ReadState m_state;
+
+		/**
+		 * The identifier pending when the reading of the object started
+		 */
+		Integer m_previousId = null;
+
+		/**
+		 * The identifier declared by the contents, if any
+		 */
+		Integer m_id = null;
+
+		/**
+		 * Whether the reading of the object is being timed for the observer
+		 */
+		boolean m_observed = false;
+
+		/**
+		 * The type declared by the contents, when observed
+		 */
+		Class<?> m_clazz;
+
+		/**
+		 * The class of the handler reading the object, when observed
+		 */
+		Class<?> m_handler;
+
+		/**
+		 * The nesting depth of the object, when observed
+		 */
+		int m_observedDepth;
+
+		/**
+		 * The time the reading of the object started, when observed
+		 */
+		long m_start;
+
+		/**
+		 * The time spent reading the siblings of the object, when observed
+		 */
+		long m_outerNanos;
+
+		ReadFrame(Object t, ReadState state)
+		{
+			super();
+			m_contents = t;
+			m_state = state;
+		}
+	}
+
+	/**
+	 * Pending read made of a single part, which it returns unchanged once
+	 * read.
+	 */
+	protected static class PartRead extends PendingRead
+	{
+		/**
+		 * The part
+		 */
+		private final Object m_part;
+
+		/**
+		 * Whether the part has been handed out
+		 */
+		private boolean m_done = false;
+
+		/**
+		 * The part, once read
+		 */
+		private Object m_read;
+
+		/**
+		 * Creates a new part read.
+		 * @param part The serialized contents of the part
+		 */
+		public PartRead(Object part)
+		{
+			super();
+			m_part = part;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return !m_done;
+		}
+
+		@Override
+		public Object next()
+		{
+			m_done = true;
+			return m_part;
+		}
+
+		@Override
+		public void add(Object o)
+		{
+			m_read = o;
+		}
+
+		@Override
+		public Object close()
+		{
+			return m_read;
+		}
+	}
+
+	/**
+	 * Task reading a range of elements.
+	 */
+	private class ReadTask extends ElementTask
+	{
+		/**
+		 * Dummy UID
+		 */
+		private static final long serialVersionUID = 1L;
+
+		ReadTask(Object[] in, Object[] out, int from, int to, int grain)
+		{
+			super(in, out, from, to, grain);
+		}
+
+		@Override
+		protected Object process(Object t) throws ReadException
+		{
+			return readNested(t);
+		}
+
+		@Override
+		protected ElementTask split(int from, int to)
+		{
+			return new ReadTask(m_in, m_out, from, to, m_grain);
+		}
 	}
 }
@@ -0,0 +1,82 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+/**
+ * The printing of an object that contains other objects, carried out one
+ * part at a time. Rather than printing the parts of an object by calling
+ * {@link ObjectPrinter#print(Object)} itself, a
+ * {@link ContainerPrintHandler} returns such a pending print. The printer
+ * then asks it for each part in turn, prints it, and passes the printed
+ * part back through {@link #add(Object) add()}; once there are no more
+ * parts, {@link #close()} produces the printed object.
+ * <p>
+ * The printer keeps the pending prints of the objects in progress on a
+ * stack of its own, so that the depth of the structures it can print does
+ * not depend on the size of the stack of the calling thread.
+ * @author Sylvain Hallé
+ *
+ * @param <T> The type to which objects are printed
+ * @see ObjectPrinter#printPending(PendingPrint)
+ */
+public abstract class PendingPrint<T>
+{
+	/**
+	 * Determines if some part of the object remains to be printed.
+	 * @return <tt>true</tt> if there is a part to print, <tt>false</tt>
+	 * otherwise
+	 */
+	public abstract boolean hasNext();
+
+	/**
+	 * Gets the next part of the object to print.
+	 * @return The part
+	 * @throws PrintException Thrown if the part cannot be obtained
+	 */
+	public abstract Object next() throws PrintException;
+
+	/**
+	 * Determines how the part returned by the last call to {@link #next()}
+	 * is printed. By default, parts are printed as by
+	 * {@link ObjectPrinter#print(Object)}; a part that only exists for the
+	 * time of the printing, such as the map of the fields of an object, can
+	 * instead be printed as by {@link ObjectPrinter#printUntracked(Object)}.
+	 * @return <tt>true</tt> to print the part as by <tt>print()</tt>,
+	 * <tt>false</tt> to print it as by <tt>printUntracked()</tt>
+	 */
+	public boolean isTracked()
+	{
+		return true;
+	}
+
+	/**
+	 * Receives the printed version of the part returned by the last call to
+	 * {@link #next()}.
+	 * @param t The printed part
+	 * @throws PrintException Thrown if the part cannot be added
+	 */
+	public abstract void add(T t) throws PrintException;
+
+	/**
+	 * Produces the printed object, once all its parts have been printed.
+	 * @return The printed object
+	 * @throws PrintException Thrown if the object cannot be printed
+	 */
+	public abstract T close() throws PrintException;
+}
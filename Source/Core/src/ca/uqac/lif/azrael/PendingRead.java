@@ -0,0 +1,67 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+/**
+ * The reading of an object that contains other objects, carried out one
+ * part at a time. Rather than reading the parts of an object by calling
+ * {@link ObjectReader#read(Object)} itself, a {@link ContainerReadHandler}
+ * returns such a pending read. The reader then asks it for each serialized
+ * part in turn, reads it, and passes the object read back through
+ * {@link #add(Object) add()}; once there are no more parts,
+ * {@link #close()} produces the object.
+ * <p>
+ * The reader keeps the pending reads of the objects in progress on a stack
+ * of its own, so that the depth of the structures it can read does not
+ * depend on the size of the stack of the calling thread.
+ * @author Sylvain Hallé
+ * @see ObjectReader#readPending(PendingRead)
+ */
+public abstract class PendingRead
+{
+	/**
+	 * Determines if some part of the object remains to be read.
+	 * @return <tt>true</tt> if there is a part to read, <tt>false</tt>
+	 * otherwise
+	 */
+	public abstract boolean hasNext();
+
+	/**
+	 * Gets the next serialized part of the object to read. The part is
+	 * read as by {@link ObjectReader#read(Object)}.
+	 * @return The serialized part
+	 * @throws ReadException Thrown if the part cannot be obtained
+	 */
+	public abstract Object next() throws ReadException;
+
+	/**
+	 * Receives the object read from the part returned by the last call to
+	 * {@link #next()}.
+	 * @param o The object read
+	 * @throws ReadException Thrown if the object cannot be added
+	 */
+	public abstract void add(Object o) throws ReadException;
+
+	/**
+	 * Produces the object, once all its parts have been read.
+	 * @return The object
+	 * @throws ReadException Thrown if the object cannot be created
+	 */
+	public abstract Object close() throws ReadException;
+}
@@ -47,4 +47,18 @@ public interface PrintHandler<T>
 	 * Resets the internal state of the handler
 	 */
 	public void reset();
+	
+	/**
+	 * Indicates whether the decision taken by {@link #canHandle(Object)} for
+	 * a non-null object only depends on the object's class. When this is the
+	 * case, an {@link ObjectPrinter} can remember the handler chosen for a
+	 * class and skip the calls to <tt>canHandle</tt> for the next objects of
+	 * that class.
+	 * @return <tt>true</tt> if the decision only depends on the class,
+	 * <tt>false</tt> otherwise (default)
+	 */
+	public default boolean isClassBased()
+	{
+		return false;
+	}
 }
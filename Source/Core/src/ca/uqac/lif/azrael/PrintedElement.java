@@ -0,0 +1,54 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+/**
+ * Contents that have already been printed, placed among the objects that
+ * a printer is asked to print. Printing such an object simply returns the
+ * contents it holds. This class is used by the {@link ReflectionPrintHandler}
+ * to give the map of the fields of an object values that it has printed
+ * itself, such as values whose type declaration has been left out.
+ * @author Sylvain Hallé
+ */
+class PrintedElement
+{
+	/**
+	 * The printed contents
+	 */
+	private final Object m_contents;
+
+	/**
+	 * Creates a new printed element.
+	 * @param contents The printed contents
+	 */
+	PrintedElement(Object contents)
+	{
+		super();
+		m_contents = contents;
+	}
+
+	/**
+	 * Gets the printed contents.
+	 * @return The contents
+	 */
+	Object getContents()
+	{
+		return m_contents;
+	}
+}
@@ -0,0 +1,130 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A selection of the fields of an object to be deserialized, designated by
+ * their paths. A path is a sequence of field names separated by periods;
+ * for example, the path <tt>m_owner.m_name</tt> designates the field
+ * <tt>m_name</tt> of the object found in field <tt>m_owner</tt>. Selecting
+ * a field without going further in its path selects its complete value.
+ * <p>
+ * A projection is immutable; it is meant to be created once and passed to
+ * {@link ObjectReader#readProjected(Object, Projection)} for each object to
+ * read.
+ * @author Sylvain Hallé
+ */
+public class Projection
+{
+	/**
+	 * The separator between the field names of a path
+	 */
+	public static final char SEPARATOR = '.';
+
+	/**
+	 * A map associating the selected field names to the projection that
+	 * applies to their value. This projection is <tt>null</tt> for fields
+	 * whose value is selected completely.
+	 */
+	protected final Map<String,Projection> m_fields;
+
+	/**
+	 * Creates a new projection.
+	 * @param paths The paths of the selected fields
+	 */
+	public Projection(String ... paths)
+	{
+		this(Arrays.asList(paths));
+	}
+
+	/**
+	 * Creates a new projection.
+	 * @param paths The paths of the selected fields
+	 */
+	public Projection(Collection<String> paths)
+	{
+		super();
+		Map<String,Collection<String>> sub_paths = new LinkedHashMap<String,Collection<String>>();
+		for (String path : paths)
+		{
+			int pos = path.indexOf(SEPARATOR);
+			String name = pos < 0 ? path : path.substring(0, pos);
+			Collection<String> subs = sub_paths.get(name);
+			if (pos < 0)
+			{
+				// The complete value is selected, whatever the other paths say
+				sub_paths.put(name, null);
+			}
+			else if (subs != null || !sub_paths.containsKey(name))
+			{
+				if (subs == null)
+				{
+					subs = new ArrayList<String>();
+					sub_paths.put(name, subs);
+				}
+				subs.add(path.substring(pos + 1));
+			}
+		}
+		Map<String,Projection> fields = new LinkedHashMap<String,Projection>();
+		for (Map.Entry<String,Collection<String>> e : sub_paths.entrySet())
+		{
+			fields.put(e.getKey(), e.getValue() == null ? null : new Projection(e.getValue()));
+		}
+		m_fields = Collections.unmodifiableMap(fields);
+	}
+
+	/**
+	 * Gets the names of the selected fields.
+	 * @return The names
+	 */
+	public Set<String> getFields()
+	{
+		return m_fields.keySet();
+	}
+
+	/**
+	 * Determines if a field is selected.
+	 * @param name The name of the field
+	 * @return <tt>true</tt> if the field is selected, <tt>false</tt>
+	 * otherwise
+	 */
+	public boolean contains(String name)
+	{
+		return m_fields.containsKey(name);
+	}
+
+	/**
+	 * Gets the projection that applies to the value of a selected field.
+	 * @param name The name of the field
+	 * @return The projection, or <tt>null</tt> if the value of the field is
+	 * selected completely (or if the field is not selected)
+	 */
+	public Projection get(String name)
+	{
+		return m_fields.get(name);
+	}
+}
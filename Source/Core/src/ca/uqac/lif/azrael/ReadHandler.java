@@ -43,4 +43,18 @@ public interface ReadHandler<T>
 	 * @throws ReadException Thrown if the object cannot be read
 	 */
 	public Object handle(T t) throws ReadException;
+	
+	/**
+	 * Indicates whether the decision taken by {@link #canHandle(Object)} for
+	 * a wrapped element only depends on the type declared by this element.
+	 * When this is the case, an {@link ObjectReader} can remember the handler
+	 * chosen for a type and send the next elements declaring that type
+	 * directly to it.
+	 * @return <tt>true</tt> if the decision only depends on the declared type,
+	 * <tt>false</tt> otherwise (default)
+	 */
+	public default boolean isTypeBased()
+	{
+		return false;
+	}
 }
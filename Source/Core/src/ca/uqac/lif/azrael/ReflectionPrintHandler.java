@@ -20,10 +20,9 @@ package ca.uqac.lif.azrael;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -33,7 +32,7 @@ import java.util.Map;
  *
  * @param <T> The type to which objects are serialized
  */
-public class ReflectionPrintHandler<T> implements PrintHandler<T>
+public class ReflectionPrintHandler<T> implements ContainerPrintHandler<T>
 {
 	/**
 	 * The internal object printer
@@ -94,8 +93,26 @@ public class ReflectionPrintHandler<T> implements PrintHandler<T>
 	@Override
 	public T handle(Object o) throws PrintException
 	{
+		return m_printer.printPending(open(o));
+	}
+
+	/**
+	 * Starts printing an object. The values of the fields whose type is
+	 * elided are the first parts of the pending print; the map of fields is
+	 * then printed as given by {@link #openFields(Object, Map)}.
+	 * @param o The object
+	 * @return The pending print of the object
+	 * @throws PrintException Thrown if the fields of the object cannot be
+	 * read
+	 */
+	@Override
+	public PendingPrint<T> open(Object o) throws PrintException
+	{
+		ClassDescriptor desc = ClassDescriptor.forClass(o.getClass());
 		Map<String,Object> contents = new HashMap<String,Object>();
-		for (Field field : getAllFields(o.getClass()))
+		boolean elide = m_printer.elidesTypes();
+		List<String> elided = null;
+		for (Field field : desc.getFields())
 		{
 			// Is this field declared as transient?
 			if (m_ignoreTransient && Modifier.isTransient(field.getModifiers()))
@@ -103,25 +120,30 @@ public class ReflectionPrintHandler<T> implements PrintHandler<T>
 				// Yes: don't serialize this field
 				continue; 
 			}
-			try
-			{
-				field.setAccessible(true);
-			}
-			catch (RuntimeException e)
+			RuntimeException access_error = desc.getAccessError(field);
+			if (access_error != null)
 			{
-				// Must check exception by its name, as the actual class only exists in Java 9+
-				if (e.getClass().getSimpleName().contains("InaccessibleObjectException") && m_ignoreAccessChecks)
+				if (ClassDescriptor.isInaccessibleObjectException(access_error) && m_ignoreAccessChecks)
 				{
 					continue;
 				}
 				else
 				{
-					throw new PrintException(e);
+					throw new PrintException(access_error);
 				}
 			}
 			try
 			{
-				contents.put(field.getName(), field.get(o));
+				Object value = field.get(o);
+				if (elide && value != null && value.getClass() == field.getType() && isElidable(field.getType()))
+				{
+					if (elided == null)
+					{
+						elided = new ArrayList<String>();
+					}
+					elided.add(field.getName());
+				}
+				contents.put(field.getName(), value);
 			} 
 			catch (IllegalArgumentException e)
 			{
@@ -132,12 +154,53 @@ public class ReflectionPrintHandler<T> implements PrintHandler<T>
 				throw new PrintException(e);
 			}
 		}
-		return encapsulateFields(o, contents);
+		if (elided == null)
+		{
+			return openFields(o, contents);
+		}
+		return new FieldPrint(o, contents, elided);
+	}
+
+	/**
+	 * Determines if the type declaration of the value of a field can be
+	 * left out, given the declared type of this field. Types that are not
+	 * elided are those that cannot be instantiated, those whose instances
+	 * are printed without a type declaration in the first place, and those
+	 * whose printed contents may themselves be mistaken for a declaration
+	 * of a subtype (<tt>Object</tt> and classes that print themselves).
+	 * @param type The declared type of the field
+	 * @return <tt>true</tt> if the type can be elided, <tt>false</tt>
+	 * otherwise
+	 */
+	protected static boolean isElidable(Class<?> type)
+	{
+		if (type.isPrimitive() || type.isArray() || type.isInterface() || Modifier.isAbstract(type.getModifiers()))
+		{
+			return false;
+		}
+		return type != Object.class && type != String.class && type != Boolean.class && type != Character.class
+				&& !Number.class.isAssignableFrom(type) && !Printable.class.isAssignableFrom(type)
+				&& !Readable.class.isAssignableFrom(type);
 	}
 
 	protected T encapsulateFields(Object o, Map<String,Object> contents) throws PrintException
 	{
-		return m_printer.wrap(o, m_printer.print(contents));
+		return m_printer.printPending(openFields(o, contents));
+	}
+
+	/**
+	 * Starts printing the map of the fields of an object, and wrapping it
+	 * into the printed object.
+	 * @param o The object
+	 * @param contents The map associating the names of the fields of the
+	 * object to their values
+	 * @return The pending print
+	 * @throws PrintException Thrown if the fields cannot be printed
+	 * @see ObjectPrinter#openWrapped(Object, Object)
+	 */
+	protected PendingPrint<T> openFields(Object o, Map<String,Object> contents) throws PrintException
+	{
+		return m_printer.openWrapped(o, contents);
 	}
 
 	protected static List<Field> getAllFields(List<Field> fields, Class<?> type)
@@ -150,32 +213,33 @@ public class ReflectionPrintHandler<T> implements PrintHandler<T>
 		return fields;
 	}
 
+	/**
+	 * Gets the fields of a class and of all its ancestors. The list is taken
+	 * from the {@link ClassDescriptor} of the class, and hence is only
+	 * computed once.
+	 * @param type The class
+	 * @return The unmodifiable list of fields
+	 */
 	protected static List<Field> getAllFields(Class<?> type)
 	{
-		List<Field> fields = getAllFields(new LinkedList<Field>(), type);
-		Iterator<Field> it = fields.iterator();
-		while (it.hasNext())
-		{
-			Field f = it.next();
-			if (f.getClass().isEnum() || f.getName().startsWith("$") || f.getName().startsWith(("!")))
-			{
-				it.remove();
-			}
-		}
-		return fields;
+		return ClassDescriptor.forClass(type).getFields();
 	}
 
+	/**
+	 * Gets a field of a class or of one of its ancestors by its name.
+	 * @param name The name of the field
+	 * @param type The class
+	 * @return The field
+	 * @throws NoSuchFieldException Thrown if no such field exists
+	 */
 	protected static Field getFromAllFields(String name, Class<?> type) throws NoSuchFieldException
 	{
-		List<Field> fields = getAllFields(type);
-		for (Field f : fields)
+		Field f = ClassDescriptor.forClass(type).getField(name);
+		if (f == null)
 		{
-			if (f.getName().compareTo(name) == 0)
-			{
-				return f;
-			}
+			throw new NoSuchFieldException(name);
 		}
-		throw new NoSuchFieldException();
+		return f;
 	}
 
 	@Override
@@ -183,4 +247,94 @@ public class ReflectionPrintHandler<T> implements PrintHandler<T>
 	{
 		// Nothing to do
 	}
+
+	/**
+	 * Pending print of an object having fields whose type is elided. The
+	 * values of these fields are printed first; each of them is replaced in
+	 * the map of fields by its printed contents, without the type
+	 * declaration. The map of fields is then printed as given by
+	 * {@link ReflectionPrintHandler#openFields(Object, Map)}.
+	 * @see ObjectPrinter#elideTypes(boolean)
+	 */
+	private class FieldPrint extends PendingPrint<T>
+	{
+		/**
+		 * The object
+		 */
+		private final Object m_object;
+
+		/**
+		 * The map of fields of the object
+		 */
+		private final Map<String,Object> m_contents;
+
+		/**
+		 * The names of the fields whose type is elided
+		 */
+		private final List<String> m_elided;
+
+		/**
+		 * The number of elided fields handed out so far
+		 */
+		private int m_position = 0;
+
+		/**
+		 * The pending print of the map of fields, once all elided fields are
+		 * printed
+		 */
+		private PendingPrint<T> m_fields;
+
+		FieldPrint(Object o, Map<String,Object> contents, List<String> elided)
+		{
+			super();
+			m_object = o;
+			m_contents = contents;
+			m_elided = elided;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			// The map of fields is opened once all elided values are printed
+			return m_fields == null || m_fields.hasNext();
+		}
+
+		@Override
+		public Object next() throws PrintException
+		{
+			if (m_fields == null)
+			{
+				return m_contents.get(m_elided.get(m_position++));
+			}
+			return m_fields.next();
+		}
+
+		@Override
+		public boolean isTracked()
+		{
+			return m_fields == null || m_fields.isTracked();
+		}
+
+		@Override
+		public void add(T t) throws PrintException
+		{
+			if (m_fields != null)
+			{
+				m_fields.add(t);
+				return;
+			}
+			T contents = m_printer.unwrap(t);
+			m_contents.put(m_elided.get(m_position - 1), new PrintedElement(contents != null ? contents : t));
+			if (m_position == m_elided.size())
+			{
+				m_fields = openFields(m_object, m_contents);
+			}
+		}
+
+		@Override
+		public T close() throws PrintException
+		{
+			return m_fields.close();
+		}
+	}
 }
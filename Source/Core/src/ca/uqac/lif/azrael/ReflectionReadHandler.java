@@ -19,6 +19,9 @@
 package ca.uqac.lif.azrael;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -28,7 +31,7 @@ import java.util.Map;
  *
  * @param <T> The type from which objects are deserialized
  */
-public class ReflectionReadHandler<T> implements ReadHandler<T>
+public class ReflectionReadHandler<T> implements ContainerReadHandler<T>
 {
 	/**
 	 * The internal object reader
@@ -42,6 +45,12 @@ public class ReflectionReadHandler<T> implements ReadHandler<T>
 	 */
 	protected boolean m_ignoreAccessChecks = false;
 
+	/**
+	 * Whether fields holding lists and maps receive a {@link LazyList} or a
+	 * {@link LazyMap}, rather than their deserialized value
+	 */
+	protected boolean m_lazyCollections = false;
+
 	/**
 	 * Creates a new reflection read handler
 	 * @param reader The internal object reader
@@ -75,21 +84,392 @@ public class ReflectionReadHandler<T> implements ReadHandler<T>
 		return m_ignoreAccessChecks;
 	}
 
+	/**
+	 * Sets whether fields holding lists and maps are read lazily. When this
+	 * is the case, a field whose declared type is an interface implemented
+	 * by {@link LazyList} (respectively {@link LazyMap}), and whose
+	 * serialized value is a list (respectively a map), receives a lazy list
+	 * (respectively map) that only reads this value when it is first
+	 * accessed. Other fields are read as usual. Fields are never read lazily
+	 * if references are tracked, or if the reader cannot separate the
+	 * serialized fields of an object.
+	 * @param b <tt>true</tt> to read lists and maps lazily, <tt>false</tt>
+	 * otherwise (default)
+	 * @see ObjectReader#getSerializedFields(Object)
+	 */
+	public void useLazyCollections(boolean b)
+	{
+		m_lazyCollections = b;
+	}
+
+	/**
+	 * Determines whether fields holding lists and maps are read lazily.
+	 * @return <tt>true</tt> if lists and maps are read lazily, <tt>false</tt>
+	 * otherwise
+	 */
+	public boolean usesLazyCollections()
+	{
+		return m_lazyCollections;
+	}
+
 	@Override
 	public boolean canHandle(T o) throws ReadException 
 	{
 		return true;
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public Object handle(T o) throws ReadException 
+	{
+		return m_reader.readPending(open(o));
+	}
+
+	/**
+	 * Starts reading an object. If the object is not created through a
+	 * canonical constructor, it is created and registered at once, so that
+	 * its fields can refer to it. The parts of the pending read are the
+	 * values of the fields of the object; lists and maps are read lazily if
+	 * this handler is configured to do so, and values whose type has been
+	 * elided are given the declared type of their field. If the reader
+	 * cannot separate the fields, the serialized map of fields is the only
+	 * part.
+	 * @param o The serialized object
+	 * @return The pending read of the object
+	 * @throws ReadException If the operation cannot be carried on
+	 * @see #useLazyCollections(boolean)
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public PendingRead open(T o) throws ReadException
+	{
+		Class<?> clazz = m_reader.unwrapType(o);
+		T contents = (T) m_reader.unwrapContents(o);
+		FieldRead read = newRead(clazz);
+		boolean lazy = m_lazyCollections && !m_reader.tracksReferences();
+		if (lazy || m_reader.elidesTypes())
+		{
+			Map<String,T> fields = m_reader.getSerializedFields(contents);
+			if (fields != null)
+			{
+				ClassDescriptor desc = ClassDescriptor.forClass(clazz);
+				read.m_fields = new HashMap<String,Object>(fields.size() * 2);
+				read.m_names = new ArrayList<String>(fields.size());
+				read.m_values = new ArrayList<Object>(fields.size());
+				for (Map.Entry<String,T> e : fields.entrySet())
+				{
+					Field fld = desc.getField(e.getKey());
+					T value = restoreType(fld, e.getValue());
+					Object lazy_value = lazy ? toLazy(fld, value) : null;
+					if (lazy_value != null)
+					{
+						read.m_fields.put(e.getKey(), lazy_value);
+					}
+					else
+					{
+						read.m_names.add(e.getKey());
+						read.m_values.add(value);
+					}
+				}
+				return read;
+			}
+		}
+		read.m_values = new ArrayList<Object>(1);
+		read.m_values.add(contents);
+		return read;
+	}
+
+	/**
+	 * Starts reading an object whose fields are serialized by position,
+	 * rather than as a map associating field names to values. The value at
+	 * each position is read into the field at the same position; unless the
+	 * object is created through a canonical constructor, it is set directly,
+	 * without going through a map of fields. Lazy collections and elided
+	 * types are handled as in {@link #open(Object)}.
+	 * @param clazz The class of the object
+	 * @param fields The fields of the object, in the order of their values
+	 * @param values The serialized values of the fields
+	 * @return The pending read of the object
+	 * @throws ReadException If the operation cannot be carried on
+	 */
+	protected PendingRead openPositional(Class<?> clazz, Field[] fields, List<T> values) throws ReadException
+	{
+		if (fields.length != values.size())
+		{
+			throw new ReadException("Expected " + fields.length + " field values for class " + clazz.getName() + ", got " + values.size());
+		}
+		FieldRead read = newRead(clazz);
+		read.m_descriptor = ClassDescriptor.forClass(clazz);
+		read.m_slots = new ArrayList<Field>(fields.length);
+		read.m_values = new ArrayList<Object>(fields.length);
+		if (read.m_canonical)
+		{
+			read.m_fields = new HashMap<String,Object>(fields.length * 2);
+		}
+		boolean lazy = m_lazyCollections && !m_reader.tracksReferences();
+		for (int i = 0; i < fields.length; i++)
+		{
+			T value = restoreType(fields[i], values.get(i));
+			Object lazy_value = lazy ? toLazy(fields[i], value) : null;
+			if (lazy_value != null)
+			{
+				read.set(fields[i], lazy_value);
+			}
+			else
+			{
+				read.m_slots.add(fields[i]);
+				read.m_values.add(value);
+			}
+		}
+		return read;
+	}
+
+	/**
+	 * Creates the pending read of an object. If the object is not created
+	 * through a canonical constructor, it is created and registered at
+	 * once, so that its fields can refer to it.
+	 * @param clazz The class of the object
+	 * @return The pending read
+	 * @throws ReadException If the object cannot be created
+	 */
+	private FieldRead newRead(Class<?> clazz) throws ReadException
+	{
+		FieldRead read = new FieldRead(clazz, Instantiator.forClass(clazz).isCanonical());
+		if (!read.m_canonical)
+		{
+			read.m_instance = m_reader.getInstance(clazz);
+			// Register the instance before reading fields that may refer to it
+			m_reader.register(read.m_instance);
+		}
+		return read;
+	}
+
+	/**
+	 * Overwrites the fields of an existing object with deserialized
+	 * contents. The value of each field is read into the object previously
+	 * held by this field, so that it can be reused.
+	 * @param target The object to populate; it must be an instance of the
+	 * class declared by the serialized object
+	 * @param o The serialized object
+	 * @return The target object, or a new object if the target cannot be
+	 * populated (such as an object created through its canonical
+	 * constructor)
+	 * @throws ReadException If the operation cannot be carried on
+	 * @see ObjectReader#readInto(Object, Object)
+	 */
+	@SuppressWarnings("unchecked")
+	public Object handleInto(Object target, T o) throws ReadException
+	{
+		Class<?> clazz = m_reader.unwrapType(o);
+		if (Instantiator.forClass(clazz).isCanonical())
+		{
+			return handle(o);
+		}
+		T contents = (T) m_reader.unwrapContents(o);
+		Map<String,T> fields = m_reader.getSerializedFields(contents);
+		if (fields == null)
+		{
+			return populateObject(target, (Map<String,Object>) m_reader.read(contents), clazz);
+		}
+		ClassDescriptor desc = ClassDescriptor.forClass(clazz);
+		Map<String,Object> contents_map = new HashMap<String,Object>(fields.size() * 2);
+		for (Map.Entry<String,T> e : fields.entrySet())
+		{
+			Field fld = desc.getField(e.getKey());
+			Object previous = null;
+			if (fld != null && desc.getAccessError(fld) == null)
+			{
+				try
+				{
+					previous = fld.get(target);
+				}
+				catch (IllegalAccessException ex)
+				{
+					throw new ReadException(ex);
+				}
+			}
+			contents_map.put(e.getKey(), m_reader.readInto(previous, restoreType(fld, e.getValue())));
+		}
+		return populateObject(target, contents_map, clazz);
+	}
+
+	/**
+	 * Gives back its type declaration to the serialized value of a field,
+	 * if the reader recovers elided types and this declaration has been
+	 * left out. A value is considered to have an elided type if the
+	 * declared type of the field can be elided, and the value is neither a
+	 * reference nor an element declaring the field's type or one of its
+	 * subtypes.
+	 * @param fld The field, or <tt>null</tt> if the object has no field with
+	 * this name
+	 * @param value The serialized value
+	 * @return The serialized value with its type declaration
+	 * @throws ReadException If the operation cannot be carried on
+	 * @see ObjectReader#elideTypes(boolean)
+	 */
+	@SuppressWarnings("unchecked")
+	protected T restoreType(Field fld, T value) throws ReadException
+	{
+		if (!m_reader.elidesTypes() || fld == null || value == null || !ReflectionPrintHandler.isElidable(fld.getType()))
+		{
+			return value;
+		}
+		if (m_reader.getReference(value) != null)
+		{
+			return value;
+		}
+		if (m_reader.isWrapped(value) && fld.getType().isAssignableFrom(m_reader.unwrapType(value)))
+		{
+			return value;
+		}
+		return (T) m_reader.wrap(fld.getType(), value);
+	}
+
+	/**
+	 * Wraps the value of a field into a {@link LazyList} or a
+	 * {@link LazyMap}, if the field can receive one.
+	 * @param fld The field, or <tt>null</tt> if the object has no field with
+	 * this name
+	 * @param value The serialized value
+	 * @return The lazy collection, or <tt>null</tt> if the value must be read
+	 * as usual
+	 * @throws ReadException If the operation cannot be carried on
+	 */
+	protected Object toLazy(Field fld, T value) throws ReadException
+	{
+		if (fld != null && fld.getType().isInterface() && m_reader.isWrapped(value))
+		{
+			Class<?> type = m_reader.unwrapType(value);
+			if (List.class.isAssignableFrom(type) && fld.getType().isAssignableFrom(LazyList.class))
+			{
+				return new LazyList<Object>(m_reader, value);
+			}
+			if (Map.class.isAssignableFrom(type) && fld.getType().isAssignableFrom(LazyMap.class))
+			{
+				return new LazyMap<Object,Object>(m_reader, value);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Deserializes some of the fields of an object, and leaves the other
+	 * fields to their initial value.
+	 * @param o The serialized object
+	 * @param p The projection designating the fields to read
+	 * @return The deserialized object
+	 * @throws ReadException If the operation cannot be carried on
+	 * @see ObjectReader#readProjected(Object, Projection)
+	 */
+	@SuppressWarnings("unchecked")
+	public Object handle(T o, Projection p) throws ReadException
 	{
 		Class<?> clazz = m_reader.unwrapType(o);
 		T contents = (T) m_reader.unwrapContents(o);
-		Map<String,Object> contents_map = (Map<String,Object>) m_reader.read(contents);
-		Object instance = m_reader.getInstance(clazz);
-		return populateObject(instance, contents_map, clazz);
+		Map<String,T> fields = m_reader.getSerializedFields(contents);
+		Map<String,Object> contents_map = new HashMap<String,Object>();
+		if (fields == null)
+		{
+			// The fields cannot be separated; read them all and keep the selected ones
+			Map<String,Object> all_fields = (Map<String,Object>) m_reader.read(contents);
+			for (String name : p.getFields())
+			{
+				if (all_fields.containsKey(name))
+				{
+					contents_map.put(name, all_fields.get(name));
+				}
+			}
+			return createObject(clazz, contents_map);
+		}
+		for (String name : p.getFields())
+		{
+			if (!fields.containsKey(name))
+			{
+				continue;
+			}
+			Projection sub = p.get(name);
+			T value = restoreType(ClassDescriptor.forClass(clazz).getField(name), fields.get(name));
+			contents_map.put(name, sub == null ? m_reader.read(value) : m_reader.readProjected(value, sub));
+		}
+		return createObject(clazz, contents_map);
+	}
+
+	/**
+	 * Creates an instance of an object from its member fields, once these
+	 * fields have been deserialized. The object is created either through
+	 * the canonical constructor of its class, if it has one, or through its
+	 * no-argument constructor followed by the population of its fields.
+	 * @param clazz The class this object should be an instance of
+	 * @param contents The deserialized member fields of the object
+	 * @return The new instance
+	 * @throws ReadException If the operation cannot be carried on
+	 */
+	public Object createObject(Class<?> clazz, Map<String,Object> contents) throws ReadException
+	{
+		Instantiator inst = Instantiator.forClass(clazz);
+		if (inst.isCanonical())
+		{
+			return createObject(inst, contents, clazz);
+		}
+		return populateObject(m_reader.getInstance(clazz), contents, clazz);
+	}
+
+	/**
+	 * Creates an instance of an object by passing its deserialized contents
+	 * to the canonical constructor of its class. Fields that are not
+	 * parameters of this constructor (such as fields declared by a
+	 * superclass) are then populated as usual.
+	 * @param inst The instantiator for the object's class
+	 * @param contents The deserialized member fields of the object
+	 * @param clazz The class this object should be an instance of
+	 * @return The new instance
+	 * @throws ReadException If the operation cannot be carried on
+	 */
+	protected Object createObject(Instantiator inst, Map<String,Object> contents, Class<?> clazz) throws ReadException
+	{
+		ClassDescriptor desc = ClassDescriptor.forClass(clazz);
+		String[] names = inst.getParameterNames();
+		Map<String,Object> args = new HashMap<String,Object>(contents);
+		for (String name : names)
+		{
+			Field fld = desc.getField(name);
+			if (fld != null && args.containsKey(name))
+			{
+				args.put(name, convertValue(fld, args.get(name)));
+			}
+		}
+		Object o = inst.newInstance(args);
+		for (String name : names)
+		{
+			args.remove(name);
+		}
+		if (args.isEmpty())
+		{
+			return o;
+		}
+		return populateObject(o, args, clazz);
+	}
+
+	/**
+	 * Converts the deserialized value of a field into the type expected by
+	 * that field. Currently, this only turns the name of an enum constant
+	 * into the constant itself, if it is not already that constant.
+	 * @param fld The field
+	 * @param value The deserialized value
+	 * @return The converted value
+	 * @throws ReadException If the value cannot be converted
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected Object convertValue(Field fld, Object value) throws ReadException
+	{
+		if (fld.getType().isEnum() && !fld.getType().isInstance(value))
+		{
+			if (!(value instanceof String))
+			{
+				throw new ReadException("The deserialized value of an enum field should be a string");
+			}
+			return Enum.valueOf((Class<Enum>) fld.getType(), (String) value);
+		}
+		return value;
 	}
 
 	/**
@@ -103,43 +483,180 @@ public class ReflectionReadHandler<T> implements ReadHandler<T>
 	 *   be a different instance than the one passed through <code>o</code>.
 	 * @throws ReadException If the operation cannot be carried on
 	 */
-	@SuppressWarnings({ "unchecked", "rawtypes" })
 	protected Object populateObject(Object o, Map<String,Object> contents, Class<?> clazz) throws ReadException
 	{
 		if (o == null)
 		{
 			return null;
 		}
-		for (String attribute : contents.keySet())
+		ClassDescriptor desc = ClassDescriptor.forClass(clazz);
+		for (Map.Entry<String,Object> entry : contents.entrySet())
 		{
-			try
+			String attribute = entry.getKey();
+			// Get the field associated with the map key and its declared type
+			Field fld = desc.getField(attribute);
+			if (fld == null)
 			{
-				// Get the field associated with the map key and its declared type
-				Field fld = ReflectionPrintHandler.getFromAllFields(attribute, clazz);
-				fld.setAccessible(true);
-				Object value_o = contents.get(attribute);
-				if (fld.getType().isEnum())
-				{
-					if (!(value_o instanceof String))
-					{
-						throw new ReadException("The deserialized value of an enum field should be a string");
-					}
-					fld.set(o, Enum.valueOf((Class<Enum>) fld.getType(), (String) value_o));
-				}
-				else
-				{
-					fld.set(o, value_o);
-				}
+				throw new ReadException(new NoSuchFieldException(attribute));
+			}
+			setField(o, desc, fld, entry.getValue());
+		}
+		return o;
+	}
+
+	/**
+	 * Sets a field of an object to its deserialized value. A field that
+	 * cannot be accessed is skipped if access checks are ignored.
+	 * @param o The object
+	 * @param desc The descriptor of the class of the object
+	 * @param fld The field
+	 * @param value The deserialized value of the field
+	 * @throws ReadException If the field cannot be set
+	 */
+	protected void setField(Object o, ClassDescriptor desc, Field fld, Object value) throws ReadException
+	{
+		RuntimeException access_error = desc.getAccessError(fld);
+		if (access_error != null)
+		{
+			if (ClassDescriptor.isInaccessibleObjectException(access_error) && m_ignoreAccessChecks)
+			{
+				return;
 			}
-			catch (NoSuchFieldException ex)
+			throw new ReadException(access_error);
+		}
+		try
+		{
+			fld.set(o, convertValue(fld, value));
+		}
+		catch (IllegalAccessException ex)
+		{
+			throw new ReadException(ex);
+		}
+	}
+
+	/**
+	 * Pending read of an object whose fields are read through reflection.
+	 */
+	private class FieldRead extends PendingRead
+	{
+		/**
+		 * The class of the object
+		 */
+		private final Class<?> m_class;
+
+		/**
+		 * Whether the object is created through its canonical constructor
+		 */
+		final boolean m_canonical;
+
+		/**
+		 * The instance to populate, if the object is not created through its
+		 * canonical constructor
+		 */
+		Object m_instance = null;
+
+		/**
+		 * The deserialized fields, or <tt>null</tt> if the serialized map of
+		 * fields is read as a whole
+		 */
+		Map<String,Object> m_fields = null;
+
+		/**
+		 * The names of the fields to read, or <tt>null</tt> if the serialized
+		 * map of fields is read as a whole or the fields are read by position
+		 */
+		List<String> m_names = null;
+
+		/**
+		 * The fields to read, if they are read by position, <tt>null</tt>
+		 * otherwise
+		 */
+		List<Field> m_slots = null;
+
+		/**
+		 * The descriptor of the class of the object, if its fields are read by
+		 * position
+		 */
+		ClassDescriptor m_descriptor = null;
+
+		/**
+		 * The serialized values of the fields to read, or the serialized map
+		 * of fields
+		 */
+		List<Object> m_values;
+
+		/**
+		 * The number of parts handed out so far
+		 */
+		private int m_position = 0;
+
+		FieldRead(Class<?> clazz, boolean canonical)
+		{
+			super();
+			m_class = clazz;
+			m_canonical = canonical;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return m_position < m_values.size();
+		}
+
+		@Override
+		public Object next()
+		{
+			return m_values.get(m_position++);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public void add(Object o) throws ReadException
+		{
+			if (m_slots != null)
 			{
-				throw new ReadException(ex);
+				set(m_slots.get(m_position - 1), o);
 			}
-			catch (IllegalAccessException ex)
+			else if (m_names == null)
 			{
-				throw new ReadException(ex);
+				m_fields = (Map<String,Object>) o;
+			}
+			else
+			{
+				m_fields.put(m_names.get(m_position - 1), o);
 			}
 		}
-		return o;
+
+		/**
+		 * Gives its value to a field read by position.
+		 * @param fld The field
+		 * @param o The deserialized value
+		 * @throws ReadException If the field cannot be set
+		 */
+		void set(Field fld, Object o) throws ReadException
+		{
+			if (m_canonical)
+			{
+				m_fields.put(fld.getName(), o);
+			}
+			else if (m_instance != null)
+			{
+				setField(m_instance, m_descriptor, fld, o);
+			}
+		}
+
+		@Override
+		public Object close() throws ReadException
+		{
+			if (m_canonical)
+			{
+				return createObject(m_class, m_fields);
+			}
+			if (m_slots != null)
+			{
+				return m_instance;
+			}
+			return populateObject(m_instance, m_fields, m_class);
+		}
 	}
 }
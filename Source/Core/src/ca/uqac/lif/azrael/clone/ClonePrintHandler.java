@@ -34,4 +34,15 @@ public abstract class ClonePrintHandler implements PrintHandler<Object>
 		super();
 		m_printer = printer;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Clone handlers only look at the type of an object.
+	 */
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
 }
@@ -34,4 +34,10 @@ public abstract class CloneReadHandler implements ReadHandler<Object>
 		super();
 		m_reader = reader;
 	}
+
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
 }
@@ -18,6 +18,9 @@
  */
 package ca.uqac.lif.azrael.clone;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import ca.uqac.lif.azrael.ObjectReader;
 import ca.uqac.lif.azrael.ReadException;
 
@@ -59,6 +62,31 @@ public class CloneReader extends ObjectReader<Object>
 		return ((WrappedObject) t).getInnerObject();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The fields are the entries of the map of contents, if its keys are
+	 * all strings.
+	 */
+	@Override
+	protected Map<String,Object> getSerializedFields(Object contents) throws ReadException
+	{
+		if (!(contents instanceof Map))
+		{
+			return null;
+		}
+		Map<String,Object> fields = new HashMap<String,Object>();
+		for (Map.Entry<?,?> e : ((Map<?,?>) contents).entrySet())
+		{
+			if (!(e.getKey() instanceof String))
+			{
+				return null;
+			}
+			fields.put((String) e.getKey(), e.getValue());
+		}
+		return fields;
+	}
+
 	@Override
 	protected boolean isWrapped(Object t) 
 	{
@@ -34,6 +34,12 @@ public class IdentityPrintHandler implements PrintHandler<Object>
 		return true;
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public Object handle(Object o) throws PrintException 
 	{
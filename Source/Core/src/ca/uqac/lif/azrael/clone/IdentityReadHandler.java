@@ -38,4 +38,10 @@ public class IdentityReadHandler implements ReadHandler<Object>
 	{
 		return o;
 	}
+
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
 }
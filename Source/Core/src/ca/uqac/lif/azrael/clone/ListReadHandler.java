@@ -45,7 +45,7 @@ public class ListReadHandler extends CloneReadHandler
 	public List<?> handle(Object o) throws ReadException 
 	{
 		List<Object> in_list =  (List<Object>) o;
-		List<Object> list = (List<Object>) m_reader.getInstance(o.getClass());
+		List<Object> list = (List<Object>) m_reader.getInstance(o.getClass(), in_list.size());
 		list.addAll(in_list);
 		return list;
 	}
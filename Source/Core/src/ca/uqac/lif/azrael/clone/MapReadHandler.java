@@ -45,7 +45,7 @@ public class MapReadHandler extends CloneReadHandler
 	public Object handle(Object o) throws ReadException 
 	{
 		Map<Object,Object> in_map =  (Map<Object,Object>) o;
-		Map<Object,Object> map = (Map<Object,Object>) m_reader.getInstance(o.getClass());
+		Map<Object,Object> map = (Map<Object,Object>) m_reader.getInstance(o.getClass(), in_map.size());
 		for (Map.Entry<?,?> entry : in_map.entrySet())
 		{
 			map.put((Object) entry.getKey(), (Object) entry.getValue());
@@ -45,7 +45,7 @@ public class QueueReadHandler extends CloneReadHandler
 	public Queue<?> handle(Object o) throws ReadException 
 	{
 		Queue<Object> in_queue =  (Queue<Object>) o;
-		Queue<Object> queue = (Queue<Object>) m_reader.getInstance(o.getClass());
+		Queue<Object> queue = (Queue<Object>) m_reader.getInstance(o.getClass(), in_queue.size());
 		queue.addAll(in_queue);
 		return queue;
 	}
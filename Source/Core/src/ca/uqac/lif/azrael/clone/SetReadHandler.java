@@ -45,7 +45,7 @@ public class SetReadHandler extends CloneReadHandler
 	public Set<?> handle(Object o) throws ReadException 
 	{
 		Set<Object> in_set =  (Set<Object>) o;
-		Set<Object> set = (Set<Object>) m_reader.getInstance(o.getClass());
+		Set<Object> set = (Set<Object>) m_reader.getInstance(o.getClass(), in_set.size());
 		set.addAll(in_set);
 		return set;
 	}
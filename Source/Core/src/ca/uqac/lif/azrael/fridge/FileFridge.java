@@ -22,8 +22,10 @@ import ca.uqac.lif.azrael.ObjectPrinter;
 import ca.uqac.lif.azrael.ObjectReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
 import java.io.PrintStream;
-import java.util.Scanner;
+import java.io.Reader;
 
 /**
  * Fridge that stores an object as a serialized string into a text file. 
@@ -49,6 +51,17 @@ public class FileFridge extends SerializeFridge<String>
     m_filename = filename;
   }
   
+  /**
+   * {@inheritDoc}
+   * <p>
+   * This is the length of the file.
+   */
+  @Override
+  protected long getStoredSize()
+  {
+    return new File(m_filename).length();
+  }
+  
   @Override
   public void save(String s) throws FridgeException
   {
@@ -64,22 +77,36 @@ public class FileFridge extends SerializeFridge<String>
     }
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The file is read in blocks of characters into a builder sized after
+   * the length of the file, and its contents are returned unchanged.
+   */
   @Override
   public String load() throws FridgeException
   {
-    StringBuilder builder = new StringBuilder();
+    File f = new File(m_filename);
+    StringBuilder builder = new StringBuilder((int) Math.min(f.length(), Integer.MAX_VALUE - 8));
+    char[] buffer = new char[8192];
     try
     {
-      Scanner scanner = new Scanner(new File(m_filename));
-      while (scanner.hasNextLine())
+      Reader r = new FileReader(f);
+      try
       {
-        builder.append(scanner.nextLine()).append("\n");
+        int n;
+        while ((n = r.read(buffer)) >= 0)
+        {
+          builder.append(buffer, 0, n);
+        }
       }
-      String o_s = builder.toString();
-      scanner.close();
-      return o_s;
+      finally
+      {
+        r.close();
+      }
+      return builder.toString();
     }
-    catch (FileNotFoundException e)
+    catch (IOException e)
     {
       throw new FridgeException(e);
     }
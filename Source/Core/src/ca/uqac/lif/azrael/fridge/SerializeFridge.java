@@ -22,6 +22,8 @@ import ca.uqac.lif.azrael.ObjectPrinter;
 import ca.uqac.lif.azrael.ObjectReader;
 import ca.uqac.lif.azrael.PrintException;
 import ca.uqac.lif.azrael.ReadException;
+import ca.uqac.lif.azrael.metrics.FridgeFetchEvent;
+import ca.uqac.lif.azrael.metrics.FridgeStoreEvent;
 
 /**
  * A fridge that sends the object to save into an object printer.
@@ -40,8 +42,72 @@ public abstract class SerializeFridge<T> implements Fridge
     m_reader = reader;
   }
   
+  /**
+   * Stores an object. When Java Flight Recorder is recording
+   * {@link FridgeStoreEvent}s, the call is recorded as one such event.
+   * @param o The object
+   * @throws FridgeException Thrown if the object cannot be stored
+   */
   @Override
   public void store(Object o) throws FridgeException
+  {
+    FridgeStoreEvent event = new FridgeStoreEvent();
+    if (!event.isEnabled())
+    {
+      storeObject(o);
+      return;
+    }
+    event.begin();
+    storeObject(o);
+    event.end();
+    if (event.shouldCommit())
+    {
+      event.setDetails(o == null ? null : o.getClass(), getClass(), getStoredSize());
+      event.commit();
+    }
+  }
+  
+  /**
+   * Fetches an object. When Java Flight Recorder is recording
+   * {@link FridgeFetchEvent}s, the call is recorded as one such event.
+   * @return The object
+   * @throws FridgeException Thrown if the object cannot be fetched
+   */
+  @Override
+  public Object fetch() throws FridgeException
+  {
+    FridgeFetchEvent event = new FridgeFetchEvent();
+    if (!event.isEnabled())
+    {
+      return fetchObject();
+    }
+    event.begin();
+    Object o = fetchObject();
+    event.end();
+    if (event.shouldCommit())
+    {
+      event.setDetails(o == null ? null : o.getClass(), getClass(), getStoredSize());
+      event.commit();
+    }
+    return o;
+  }
+  
+  /**
+   * Gets the number of bytes occupied by the stored object, as reported in
+   * fridge events. The default implementation returns -1.
+   * @return The number of bytes, or -1 if it is unknown
+   */
+  protected long getStoredSize()
+  {
+    return -1;
+  }
+  
+  /**
+   * Serializes an object and saves it.
+   * @param o The object
+   * @throws FridgeException Thrown if the object cannot be stored
+   */
+  protected void storeObject(Object o) throws FridgeException
   {
     try
     {
@@ -55,8 +121,12 @@ public abstract class SerializeFridge<T> implements Fridge
     m_printer.reset();
   }
   
-  @Override
-  public Object fetch() throws FridgeException
+  /**
+   * Loads a serialized object and reads it.
+   * @return The object
+   * @throws FridgeException Thrown if the object cannot be fetched
+   */
+  protected Object fetchObject() throws FridgeException
   {
     T s_o = load();
     try
@@ -0,0 +1,76 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for an object stored into or fetched from
+ * a {@link ca.uqac.lif.azrael.fridge.Fridge Fridge}.
+ * @author Sylvain Hallé
+ */
+@Category("Azrael")
+@StackTrace(false)
+public abstract class FridgeEvent extends Event
+{
+	/**
+	 * The class of the object stored or fetched
+	 */
+	@Name("objectClass")
+	@Label("Object Class")
+	protected Class<?> m_objectClass;
+
+	/**
+	 * The class of the fridge
+	 */
+	@Name("fridgeClass")
+	@Label("Fridge Class")
+	protected Class<?> m_fridgeClass;
+
+	/**
+	 * The number of bytes occupied by the object in the fridge
+	 */
+	@Name("size")
+	@Label("Size")
+	@Description("The number of bytes occupied by the object in the fridge, or -1 if it is unknown")
+	@DataAmount
+	protected long m_size;
+
+	/**
+	 * Sets the details of the event. This should only be done once the
+	 * event is known to be committed.
+	 * @param object_class The class of the object stored or fetched, or
+	 * <tt>null</tt> for the null object
+	 * @param fridge_class The class of the fridge
+	 * @param size The number of bytes occupied by the object in the fridge,
+	 * or -1 if it is unknown
+	 */
+	public void setDetails(Class<?> object_class, Class<?> fridge_class, long size)
+	{
+		m_objectClass = object_class;
+		m_fridgeClass = fridge_class;
+		m_size = size;
+	}
+}
@@ -0,0 +1,41 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A Java Flight Recorder event for a call to
+ * {@link ca.uqac.lif.azrael.fridge.Fridge#store(Object) Fridge.store()}. By
+ * default, only the calls taking at least 10 ms are recorded; the threshold
+ * can be changed in the recording settings, under the name
+ * <tt>ca.uqac.lif.azrael.FridgeStore</tt>.
+ * @author Sylvain Hallé
+ */
+@Name("ca.uqac.lif.azrael.FridgeStore")
+@Label("Azrael Fridge Store")
+@Description("An object stored into a fridge")
+@Threshold("10 ms")
+public class FridgeStoreEvent extends FridgeEvent
+{
+	
+}
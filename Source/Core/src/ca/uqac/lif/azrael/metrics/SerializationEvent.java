@@ -0,0 +1,90 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for a top-level call to a printer or a
+ * reader. Calls made by handlers for the objects contained in the top-level
+ * object are not recorded as separate events.
+ * <p>
+ * Printers and readers check whether the event is enabled through the
+ * static <tt>isRecorded()</tt> method of each descendant, and only create
+ * an instance for the outermost call.
+ * @author Sylvain Hallé
+ */
+@Category("Azrael")
+@StackTrace(false)
+public abstract class SerializationEvent extends Event
+{
+	/**
+	 * The class of the object printed or read
+	 */
+	@Name("objectClass")
+	@Label("Object Class")
+	protected Class<?> m_objectClass;
+
+	/**
+	 * The class of the printer or the reader
+	 */
+	@Name("serializerClass")
+	@Label("Serializer Class")
+	@Description("The class of the printer or the reader")
+	protected Class<?> m_serializerClass;
+
+	/**
+	 * The class of the handler that took care of the top-level object
+	 */
+	@Name("handlerClass")
+	@Label("Handler Class")
+	@Description("The class of the handler that took care of the top-level object")
+	protected Class<?> m_handlerClass;
+
+	/**
+	 * The size of the serialized object
+	 */
+	@Name("size")
+	@Label("Size")
+	@Description("The size of the serialized object, in a unit that depends on the serializer, or -1 if it is unknown")
+	protected long m_size;
+
+	/**
+	 * Sets the details of the event. This should only be done once the
+	 * event is known to be committed.
+	 * @param object_class The class of the object printed or read, or
+	 * <tt>null</tt> for the null object
+	 * @param serializer_class The class of the printer or the reader
+	 * @param handler_class The class of the handler that took care of the
+	 * object
+	 * @param size The size of the serialized object, or -1 if it is unknown
+	 */
+	public void setDetails(Class<?> object_class, Class<?> serializer_class, Class<?> handler_class, long size)
+	{
+		m_objectClass = object_class;
+		m_serializerClass = serializer_class;
+		m_handlerClass = handler_class;
+		m_size = size;
+	}
+}
@@ -0,0 +1,69 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.metrics;
+
+/**
+ * Receives a notification each time a printer or a reader handles an
+ * object. Notifications are made from the thread doing the work, possibly
+ * from several threads at once; implementations must therefore be
+ * thread-safe, and should return quickly.
+ * <p>
+ * The handler reported for an object is the class of the
+ * {@link ca.uqac.lif.azrael.PrintHandler PrintHandler} or
+ * {@link ca.uqac.lif.azrael.ReadHandler ReadHandler} that processed it.
+ * When the object printed or read itself, through the
+ * {@link ca.uqac.lif.azrael.Printable Printable} or
+ * {@link ca.uqac.lif.azrael.Readable Readable} interface, the handler is
+ * reported as <tt>Printable.class</tt> or <tt>Readable.class</tt>.
+ * @author Sylvain Hallé
+ */
+public interface SerializationObserver
+{
+	/**
+	 * Notifies the observer that an object has been printed.
+	 * @param type The class of the object, or <tt>null</tt> for the null
+	 * object
+	 * @param handler The class of the handler that printed the object
+	 * @param depth The nesting depth of the object, 0 being an object passed
+	 * directly to the printer
+	 * @param nanos The time spent printing the object, including its
+	 * contents, in nanoseconds
+	 * @param self_nanos The time spent printing the object, excluding the
+	 * time spent printing the other objects it contains, in nanoseconds
+	 * @param size The size of the printed object, in a unit that depends on
+	 * the printer, or -1 if the printer does not measure it
+	 */
+	public void objectPrinted(Class<?> type, Class<?> handler, int depth, long nanos, long self_nanos, long size);
+
+	/**
+	 * Notifies the observer that an object has been read.
+	 * @param type The class of the object, or <tt>null</tt> for the null
+	 * object
+	 * @param handler The class of the handler that read the object
+	 * @param depth The nesting depth of the object, 0 being an object read
+	 * directly from the input given to the reader
+	 * @param nanos The time spent reading the object, including its
+	 * contents, in nanoseconds
+	 * @param self_nanos The time spent reading the object, excluding the
+	 * time spent reading the other objects it contains, in nanoseconds
+	 * @param size The size of the serialized object, in a unit that depends
+	 * on the reader, or -1 if the reader does not measure it
+	 */
+	public void objectRead(Class<?> type, Class<?> handler, int depth, long nanos, long self_nanos, long size);
+}
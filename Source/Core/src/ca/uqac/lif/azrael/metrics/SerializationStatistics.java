@@ -0,0 +1,362 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.metrics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import ca.uqac.lif.azrael.ReflectionPrintHandler;
+import ca.uqac.lif.azrael.ReflectionReadHandler;
+
+/**
+ * Observer that aggregates the notifications it receives per class and
+ * per handler: number of objects, cumulated time (with and without the
+ * objects they contain), maximum nesting depth and cumulated size. The
+ * counters are updated without locking, so that a single instance can
+ * observe many printers and readers used concurrently with little
+ * overhead. The statistics can be obtained at any time with
+ * {@link #getEntries()}, or written as a table with
+ * {@link #dump(PrintStream)}. Typical usage:
+ * <pre>
+ * SerializationStatistics stats = new SerializationStatistics();
+ * printer.setObserver(stats);
+ * ...
+ * stats.dump(System.out);
+ * </pre>
+ * @author Sylvain Hallé
+ */
+public class SerializationStatistics implements SerializationObserver
+{
+	/**
+	 * The operations for which statistics are kept
+	 */
+	public static enum Operation {PRINT, READ}
+
+	/**
+	 * The statistics about printed objects, indexed by class and then by
+	 * handler
+	 */
+	protected final ConcurrentHashMap<Class<?>,ConcurrentHashMap<Class<?>,Entry>> m_printStats;
+
+	/**
+	 * The statistics about read objects, indexed by class and then by
+	 * handler
+	 */
+	protected final ConcurrentHashMap<Class<?>,ConcurrentHashMap<Class<?>,Entry>> m_readStats;
+
+	/**
+	 * Creates a new empty set of statistics.
+	 */
+	public SerializationStatistics()
+	{
+		super();
+		m_printStats = new ConcurrentHashMap<Class<?>,ConcurrentHashMap<Class<?>,Entry>>();
+		m_readStats = new ConcurrentHashMap<Class<?>,ConcurrentHashMap<Class<?>,Entry>>();
+	}
+
+	@Override
+	public void objectPrinted(Class<?> type, Class<?> handler, int depth, long nanos, long self_nanos, long size)
+	{
+		getEntry(m_printStats, Operation.PRINT, type, handler).add(depth, nanos, self_nanos, size);
+	}
+
+	@Override
+	public void objectRead(Class<?> type, Class<?> handler, int depth, long nanos, long self_nanos, long size)
+	{
+		getEntry(m_readStats, Operation.READ, type, handler).add(depth, nanos, self_nanos, size);
+	}
+
+	/**
+	 * Gets the statistics for each combination of operation, class and
+	 * handler observed so far.
+	 * @return The list of entries, sorted in decreasing order of the time
+	 * spent on the objects themselves
+	 */
+	public List<Entry> getEntries()
+	{
+		List<Entry> entries = new ArrayList<Entry>();
+		for (ConcurrentHashMap<Class<?>,Entry> m : m_printStats.values())
+		{
+			entries.addAll(m.values());
+		}
+		for (ConcurrentHashMap<Class<?>,Entry> m : m_readStats.values())
+		{
+			entries.addAll(m.values());
+		}
+		Collections.sort(entries, new Comparator<Entry>()
+		{
+			@Override
+			public int compare(Entry e1, Entry e2)
+			{
+				return Long.compare(e2.getSelfNanos(), e1.getSelfNanos());
+			}
+		});
+		return entries;
+	}
+
+	/**
+	 * Gets the classes whose instances have been printed or read by
+	 * reflection, for lack of a more specific handler.
+	 * @return The set of classes
+	 */
+	public Set<Class<?>> getReflectionFallbacks()
+	{
+		Set<Class<?>> classes = new HashSet<Class<?>>();
+		for (Entry e : getEntries())
+		{
+			if (ReflectionPrintHandler.class.isAssignableFrom(e.getHandler())
+					|| ReflectionReadHandler.class.isAssignableFrom(e.getHandler()))
+			{
+				classes.add(e.getType());
+			}
+		}
+		return classes;
+	}
+
+	/**
+	 * Discards all the statistics collected so far.
+	 */
+	public void reset()
+	{
+		m_printStats.clear();
+		m_readStats.clear();
+	}
+
+	/**
+	 * Writes the statistics as a table, one line per entry, in the order
+	 * given by {@link #getEntries()}. Times are given in microseconds.
+	 * @param ps The stream to write to
+	 */
+	public void dump(PrintStream ps)
+	{
+		ps.println("Op\tClass\tHandler\tCount\tTotal (us)\tSelf (us)\tMax depth\tSize");
+		for (Entry e : getEntries())
+		{
+			ps.println(e);
+		}
+	}
+
+	/**
+	 * Gets the entry for a combination of class and handler, creating it if
+	 * it does not exist.
+	 * @param stats The statistics for an operation
+	 * @param op The operation
+	 * @param type The class of the object, or <tt>null</tt>
+	 * @param handler The class of the handler
+	 * @return The entry
+	 */
+	protected static Entry getEntry(ConcurrentHashMap<Class<?>,ConcurrentHashMap<Class<?>,Entry>> stats, Operation op, Class<?> type, Class<?> handler)
+	{
+		if (type == null)
+		{
+			type = Void.class;
+		}
+		ConcurrentHashMap<Class<?>,Entry> by_handler = stats.get(type);
+		if (by_handler == null)
+		{
+			by_handler = new ConcurrentHashMap<Class<?>,Entry>();
+			ConcurrentHashMap<Class<?>,Entry> existing = stats.putIfAbsent(type, by_handler);
+			if (existing != null)
+			{
+				by_handler = existing;
+			}
+		}
+		Entry e = by_handler.get(handler);
+		if (e == null)
+		{
+			e = new Entry(op, type, handler);
+			Entry existing = by_handler.putIfAbsent(handler, e);
+			if (existing != null)
+			{
+				e = existing;
+			}
+		}
+		return e;
+	}
+
+	/**
+	 * The statistics for one combination of operation, class and handler.
+	 */
+	public static class Entry
+	{
+		/**
+		 * The operation
+		 */
+		protected final Operation m_operation;
+
+		/**
+		 * The class of the objects; the null object is counted under
+		 * <tt>Void.class</tt>
+		 */
+		protected final Class<?> m_type;
+
+		/**
+		 * The class of the handler
+		 */
+		protected final Class<?> m_handler;
+
+		/**
+		 * The number of objects
+		 */
+		protected final LongAdder m_count = new LongAdder();
+
+		/**
+		 * The cumulated time, including contained objects
+		 */
+		protected final LongAdder m_nanos = new LongAdder();
+
+		/**
+		 * The cumulated time, excluding contained objects
+		 */
+		protected final LongAdder m_selfNanos = new LongAdder();
+
+		/**
+		 * The cumulated size of the objects whose size is known
+		 */
+		protected final LongAdder m_size = new LongAdder();
+
+		/**
+		 * The maximum nesting depth
+		 */
+		protected volatile int m_maxDepth = 0;
+
+		/**
+		 * Creates a new entry.
+		 * @param op The operation
+		 * @param type The class of the objects
+		 * @param handler The class of the handler
+		 */
+		protected Entry(Operation op, Class<?> type, Class<?> handler)
+		{
+			super();
+			m_operation = op;
+			m_type = type;
+			m_handler = handler;
+		}
+
+		/**
+		 * Adds an observation to the entry.
+		 * @param depth The nesting depth
+		 * @param nanos The time, including contained objects
+		 * @param self_nanos The time, excluding contained objects
+		 * @param size The size, or -1 if unknown
+		 */
+		protected void add(int depth, long nanos, long self_nanos, long size)
+		{
+			m_count.increment();
+			m_nanos.add(nanos);
+			m_selfNanos.add(self_nanos);
+			if (size >= 0)
+			{
+				m_size.add(size);
+			}
+			if (depth > m_maxDepth)
+			{
+				// Racing updates may lose a value; the maximum is only indicative
+				m_maxDepth = depth;
+			}
+		}
+
+		/**
+		 * Gets the operation.
+		 * @return The operation
+		 */
+		public Operation getOperation()
+		{
+			return m_operation;
+		}
+
+		/**
+		 * Gets the class of the objects.
+		 * @return The class
+		 */
+		public Class<?> getType()
+		{
+			return m_type;
+		}
+
+		/**
+		 * Gets the class of the handler.
+		 * @return The class
+		 */
+		public Class<?> getHandler()
+		{
+			return m_handler;
+		}
+
+		/**
+		 * Gets the number of objects.
+		 * @return The number
+		 */
+		public long getCount()
+		{
+			return m_count.sum();
+		}
+
+		/**
+		 * Gets the cumulated time, including contained objects.
+		 * @return The time in nanoseconds
+		 */
+		public long getNanos()
+		{
+			return m_nanos.sum();
+		}
+
+		/**
+		 * Gets the cumulated time, excluding contained objects.
+		 * @return The time in nanoseconds
+		 */
+		public long getSelfNanos()
+		{
+			return m_selfNanos.sum();
+		}
+
+		/**
+		 * Gets the cumulated size of the objects whose size is known.
+		 * @return The size
+		 */
+		public long getSize()
+		{
+			return m_size.sum();
+		}
+
+		/**
+		 * Gets the maximum nesting depth at which an object was found.
+		 * @return The depth
+		 */
+		public int getMaxDepth()
+		{
+			return m_maxDepth;
+		}
+
+		@Override
+		public String toString()
+		{
+			return m_operation + "\t" + m_type.getName() + "\t" + m_handler.getSimpleName() + "\t" + getCount()
+					+ "\t" + getNanos() / 1000 + "\t" + getSelfNanos() / 1000 + "\t" + m_maxDepth + "\t" + getSize();
+		}
+	}
+}
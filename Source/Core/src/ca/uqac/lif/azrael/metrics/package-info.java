@@ -0,0 +1,32 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/**
+ * Observation of the work done by printers and readers.
+ * <p>
+ * An {@link SerializationObserver} attached to an
+ * {@link ca.uqac.lif.azrael.ObjectPrinter ObjectPrinter} or an
+ * {@link ca.uqac.lif.azrael.ObjectReader ObjectReader} is notified each
+ * time an object is printed or read, with the handler that took care of it
+ * and the time it took. The {@link SerializationStatistics} observer
+ * aggregates these notifications per class and per handler; it is cheap
+ * enough to be left enabled in production, and can be dumped at any time to
+ * find the classes that are the most costly to serialize, or that are
+ * handled through reflection.
+ */
+package ca.uqac.lif.azrael.metrics;
@@ -0,0 +1,90 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.stream;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+import ca.uqac.lif.azrael.ContainerPrintHandler;
+import ca.uqac.lif.azrael.PendingPrint;
+import ca.uqac.lif.azrael.PrintException;
+
+/**
+ * Prints lists, sets and queues as a list of their elements, along with their class.
+ * @author Sylvain Hallé
+ */
+public class CollectionPrintHandler extends StreamPrintHandler implements ContainerPrintHandler<Void>
+{
+	public CollectionPrintHandler(StreamPrinter printer)
+	{
+		super(printer);
+	}
+
+	@Override
+	public boolean canHandle(Object o)
+	{
+		return o instanceof List || o instanceof Set || o instanceof Queue;
+	}
+
+	@Override
+	public Void handle(Object o) throws PrintException
+	{
+		return m_printer.printPending(open(o));
+	}
+
+	@Override
+	public PendingPrint<Void> open(Object o) throws PrintException
+	{
+		Collection<?> c = (Collection<?>) o;
+		m_sink.beginObject(o.getClass().getName());
+		m_sink.beginList(c.size());
+		final Iterator<?> it = c.iterator();
+		return new PendingPrint<Void>()
+		{
+			@Override
+			public boolean hasNext()
+			{
+				return it.hasNext();
+			}
+
+			@Override
+			public Object next()
+			{
+				return it.next();
+			}
+
+			@Override
+			public void add(Void t)
+			{
+				// The element has been written to the sink
+			}
+
+			@Override
+			public Void close() throws PrintException
+			{
+				m_sink.endList();
+				m_sink.endObject();
+				return null;
+			}
+		};
+	}
+}
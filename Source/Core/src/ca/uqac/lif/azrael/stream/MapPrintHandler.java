@@ -0,0 +1,135 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.stream;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import ca.uqac.lif.azrael.ContainerPrintHandler;
+import ca.uqac.lif.azrael.PendingPrint;
+import ca.uqac.lif.azrael.PrintException;
+
+/**
+ * Prints maps, along with their class.
+ * @author Sylvain Hallé
+ */
+public class MapPrintHandler extends StreamPrintHandler implements ContainerPrintHandler<Void>
+{
+	public MapPrintHandler(StreamPrinter printer)
+	{
+		super(printer);
+	}
+
+	@Override
+	public boolean canHandle(Object o)
+	{
+		return o instanceof Map;
+	}
+
+	@Override
+	public Void handle(Object o) throws PrintException
+	{
+		return m_printer.printPending(open(o));
+	}
+
+	@Override
+	public PendingPrint<Void> open(Object o) throws PrintException
+	{
+		final Map<?,?> map = (Map<?,?>) o;
+		m_sink.beginObject(o.getClass().getName());
+		m_sink.beginMap(map.size());
+		if (m_sink.groupsMapKeys())
+		{
+			// Two passes over the map; they enumerate entries in the same order
+			return new MapPrint()
+			{
+				private final Iterator<?> m_keys = map.keySet().iterator();
+
+				private final Iterator<?> m_values = map.values().iterator();
+
+				@Override
+				public boolean hasNext()
+				{
+					return m_keys.hasNext() || m_values.hasNext();
+				}
+
+				@Override
+				public Object next() throws PrintException
+				{
+					if (m_keys.hasNext())
+					{
+						m_sink.entryKey();
+						return m_keys.next();
+					}
+					m_sink.entryValue();
+					return m_values.next();
+				}
+			};
+		}
+		return new MapPrint()
+		{
+			private final Iterator<? extends Map.Entry<?,?>> m_entries = map.entrySet().iterator();
+
+			private Map.Entry<?,?> m_entry = null;
+
+			@Override
+			public boolean hasNext()
+			{
+				return m_entry != null || m_entries.hasNext();
+			}
+
+			@Override
+			public Object next() throws PrintException
+			{
+				if (m_entry != null)
+				{
+					Object v = m_entry.getValue();
+					m_entry = null;
+					m_sink.entryValue();
+					return v;
+				}
+				m_entry = m_entries.next();
+				m_sink.entryKey();
+				return m_entry.getKey();
+			}
+		};
+	}
+
+	/**
+	 * Pending print of a map, whose parts are its keys and values. These
+	 * parts are written to the sink as they are printed; closing the pending
+	 * print ends the map.
+	 */
+	protected abstract class MapPrint extends PendingPrint<Void>
+	{
+		@Override
+		public void add(Void t)
+		{
+			// The key or value has been written to the sink
+		}
+
+		@Override
+		public Void close() throws PrintException
+		{
+			m_sink.endMap();
+			m_sink.endObject();
+			return null;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.stream;
+
+import ca.uqac.lif.azrael.PrintException;
+
+/**
+ * Receives the events produced by a {@link StreamPrinter} while it
+ * traverses an object. The events follow the structure of the trees built
+ * by the other printers:
+ * <ul>
+ * <li>an object whose type must be preserved is enclosed between
+ * {@link #beginObject(String)} and {@link #endObject()}, with its
+ * contents (a single value) in between;</li>
+ * <li>a list is enclosed between {@link #beginList(int)} and
+ * {@link #endList()}, with its elements in between;</li>
+ * <li>a map is enclosed between {@link #beginMap(int)} and
+ * {@link #endMap()}; each key is preceded by {@link #entryKey()}, and each
+ * value by {@link #entryValue()};</li>
+ * <li>all other values are scalars, passed to one of the
+ * <tt>value</tt> methods.</li>
+ * </ul>
+ * A sink is typically a writer that produces text in a given format as it
+ * receives the events.
+ * @author Sylvain Hallé
+ */
+public interface ObjectSink
+{
+	/**
+	 * Signals the beginning of an object whose type must be preserved.
+	 * @param type The name of the object's class
+	 * @throws PrintException Thrown if the event cannot be written
+	 */
+	public void beginObject(String type) throws PrintException;
+
+	/**
+	 * Signals the end of an object whose type must be preserved.
+	 * @throws PrintException Thrown if the event cannot be written
+	 */
+	public void endObject() throws PrintException;
+
+	/**
+	 * Signals the beginning of a list.
+	 * @param size The number of elements of the list
+	 * @throws PrintException Thrown if the event cannot be written
+	 */
+	public void beginList(int size) throws PrintException;
+
+	/**
+	 * Signals the end of a list.
+	 * @throws PrintException Thrown if the event cannot be written
+	 */
+	public void endList() throws PrintException;
+
+	/**
+	 * Signals the beginning of a map.
+	 * @param size The number of entries of the map
+	 * @throws PrintException Thrown if the event cannot be written
+	 */
+	public void beginMap(int size) throws PrintException;
+
+	/**
+	 * Signals that the next value is the key of a map entry.
+	 * @throws PrintException Thrown if the event cannot be written
+	 */
+	public void entryKey() throws PrintException;
+
+	/**
+	 * Signals that the next value is the value of a map entry.
+	 * @throws PrintException Thrown if the event cannot be written
+	 */
+	public void entryValue() throws PrintException;
+
+	/**
+	 * Signals the end of a map.
+	 * @throws PrintException Thrown if the event cannot be written
+	 */
+	public void endMap() throws PrintException;
+
+	/**
+	 * Indicates in which order the keys and values of a map must be sent
+	 * to this sink.
+	 * @return <tt>true</tt> if all the keys of a map must be sent before
+	 * all its values (in the same order), <tt>false</tt> if each key must be
+	 * immediately followed by its value
+	 */
+	public boolean groupsMapKeys();
+
+	/**
+	 * Receives a null value.
+	 * @throws PrintException Thrown if the value cannot be written
+	 */
+	public void nullValue() throws PrintException;
+
+	/**
+	 * Receives a Boolean value.
+	 * @param b The value
+	 * @throws PrintException Thrown if the value cannot be written
+	 */
+	public void value(boolean b) throws PrintException;
+
+	/**
+	 * Receives a number.
+	 * @param n The number
+	 * @throws PrintException Thrown if the value cannot be written
+	 */
+	public void value(Number n) throws PrintException;
+
+	/**
+	 * Receives a string.
+	 * @param s The string
+	 * @throws PrintException Thrown if the value cannot be written
+	 */
+	public void value(String s) throws PrintException;
+}
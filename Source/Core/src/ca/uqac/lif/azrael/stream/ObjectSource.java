@@ -0,0 +1,141 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.stream;
+
+import ca.uqac.lif.azrael.ReadException;
+
+/**
+ * Produces, on demand, the events describing a serialized object. This is
+ * the pull-based counterpart of an {@link ObjectSink}: the events have the
+ * same structure, but it is the {@link StreamReader} that asks for them
+ * one at a time while it builds the object. A source for a given format
+ * is typically a tokenizer reading text from a file or a socket, so that
+ * the serialized document never needs to be completely in memory.
+ * <p>
+ * In a map, keys and values may be produced in any order compatible with
+ * the format (for example, all the keys followed by all the values); the
+ * <i>n</i>-th key is associated with the <i>n</i>-th value.
+ * @author Sylvain Hallé
+ */
+public interface ObjectSource
+{
+	/**
+	 * The events produced by a source.
+	 */
+	public static enum Event
+	{
+		/**
+		 * Beginning of an object whose type is preserved; the name of its
+		 * class is given by {@link ObjectSource#getType()}
+		 */
+		BEGIN_OBJECT,
+		/**
+		 * End of an object whose type is preserved
+		 */
+		END_OBJECT,
+		/**
+		 * Beginning of a list
+		 */
+		BEGIN_LIST,
+		/**
+		 * End of a list
+		 */
+		END_LIST,
+		/**
+		 * Beginning of a map
+		 */
+		BEGIN_MAP,
+		/**
+		 * The next value is the key of a map entry
+		 */
+		ENTRY_KEY,
+		/**
+		 * The next value is the value of a map entry
+		 */
+		ENTRY_VALUE,
+		/**
+		 * End of a map
+		 */
+		END_MAP,
+		/**
+		 * The null value
+		 */
+		NULL,
+		/**
+		 * A Boolean, given by {@link ObjectSource#getBoolean()}
+		 */
+		BOOLEAN,
+		/**
+		 * A number, given by {@link ObjectSource#getNumber()}
+		 */
+		NUMBER,
+		/**
+		 * A string, given by {@link ObjectSource#getString()}
+		 */
+		STRING,
+		/**
+		 * There are no more events
+		 */
+		END_DOCUMENT
+	}
+
+	/**
+	 * Consumes the next event.
+	 * @return The event
+	 * @throws ReadException Thrown if the underlying document is malformed
+	 * or cannot be read
+	 */
+	public Event next() throws ReadException;
+
+	/**
+	 * Gets the next event without consuming it. The next call to
+	 * {@link #next()} returns the same event. The values returned by the
+	 * getters of this interface are already those of the peeked event.
+	 * @return The event
+	 * @throws ReadException Thrown if the underlying document is malformed
+	 * or cannot be read
+	 */
+	public Event peek() throws ReadException;
+
+	/**
+	 * Gets the class name of the last {@link Event#BEGIN_OBJECT} event.
+	 * @return The class name
+	 */
+	public String getType();
+
+	/**
+	 * Gets the value of the last {@link Event#STRING} event. After a
+	 * {@link Event#NUMBER} event, gives the text of the number if the source
+	 * wrote it as a string, and <tt>null</tt> otherwise.
+	 * @return The string
+	 */
+	public String getString();
+
+	/**
+	 * Gets the value of the last {@link Event#NUMBER} event.
+	 * @return The number
+	 */
+	public Number getNumber();
+
+	/**
+	 * Gets the value of the last {@link Event#BOOLEAN} event.
+	 * @return The Boolean
+	 */
+	public boolean getBoolean();
+}
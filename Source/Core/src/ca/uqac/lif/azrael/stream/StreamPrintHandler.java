@@ -0,0 +1,68 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.stream;
+
+import ca.uqac.lif.azrael.PrintHandler;
+
+/**
+ * Handles the printing of objects of a specific type as a stream of
+ * events.
+ * @author Sylvain Hallé
+ */
+public abstract class StreamPrintHandler implements PrintHandler<Void>
+{
+	/**
+	 * The printer this handler belongs to
+	 */
+	protected StreamPrinter m_printer;
+
+	/**
+	 * The sink receiving the events
+	 */
+	protected ObjectSink m_sink;
+
+	/**
+	 * Creates a new stream print handler.
+	 * @param printer The printer this handler belongs to
+	 */
+	public StreamPrintHandler(/*@ non_null @*/ StreamPrinter printer)
+	{
+		super();
+		m_printer = printer;
+		m_sink = printer.getSink();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * As for the tree-building printers, the handlers of this package only
+	 * look at the type of an object.
+	 */
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
+	@Override
+	public void reset()
+	{
+		// Nothing to do
+	}
+}
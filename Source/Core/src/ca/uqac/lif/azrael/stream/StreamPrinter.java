@@ -0,0 +1,139 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.stream;
+
+import ca.uqac.lif.azrael.ObjectPrinter;
+import ca.uqac.lif.azrael.PendingPrint;
+import ca.uqac.lif.azrael.PrintException;
+import ca.uqac.lif.azrael.Printable;
+
+/**
+ * Printer that writes objects as a stream of events into an
+ * {@link ObjectSink}, without building their printed form in memory. The
+ * {@link #print(Object) print()} method always returns <tt>null</tt>; its
+ * output is the sequence of events received by the sink.
+ * <p>
+ * Objects implementing {@link Printable} are supported, provided that
+ * their <tt>print()</tt> method prints their contents with a single call
+ * to the printer it receives, as is usually the case. References to
+ * objects are not supported: when they are tracked, objects reachable
+ * through more than one path are printed more than once, and a cycle
+ * causes a {@link PrintException}.
+ * @author Sylvain Hallé
+ */
+public class StreamPrinter extends ObjectPrinter<Void>
+{
+	/**
+	 * The sink receiving the events
+	 */
+	protected ObjectSink m_sink;
+
+	/**
+	 * Creates a new stream printer.
+	 * @param sink The sink receiving the events
+	 */
+	public StreamPrinter(/*@ non_null @*/ ObjectSink sink)
+	{
+		super();
+		m_sink = sink;
+		m_handlers.add(new NullPrintHandler(this));
+		m_handlers.add(new BooleanPrintHandler(this));
+		m_handlers.add(new NumberPrintHandler(this));
+		m_handlers.add(new StringPrintHandler(this));
+		m_handlers.add(new EnumPrintHandler(this));
+		m_handlers.add(new CollectionPrintHandler(this));
+		m_handlers.add(new MapPrintHandler(this));
+		m_handlers.add(new ByteArrayPrintHandler(this));
+		addCompiledHandlers();
+	}
+
+	/**
+	 * Gets the sink receiving the events of this printer.
+	 * @return The sink
+	 */
+	public ObjectSink getSink()
+	{
+		return m_sink;
+	}
+
+	@Override
+	public Void printUntracked(Object o) throws PrintException
+	{
+		if (m_usePrintable && o instanceof Printable)
+		{
+			m_sink.beginObject(o.getClass().getName());
+			((Printable) o).print(this);
+			m_sink.endObject();
+			return null;
+		}
+		return super.printUntracked(o);
+	}
+
+	/**
+	 * Always returns <tt>false</tt>: a value is written to the sink as soon
+	 * as it is printed, and its type declaration can no longer be removed
+	 * afterwards. As stated in {@link #elideTypes(boolean)}, such a printer
+	 * leaves the declaration in place.
+	 */
+	@Override
+	public boolean elidesTypes()
+	{
+		return false;
+	}
+
+	/**
+	 * Encloses the events written for the contents of an object between
+	 * calls to {@link ObjectSink#beginObject(String)} and
+	 * {@link ObjectSink#endObject()}.
+	 */
+	@Override
+	public PendingPrint<Void> openWrapped(Object o, Object contents) throws PrintException
+	{
+		m_sink.beginObject(o.getClass().getName());
+		return new PartPrint<Void>(contents)
+		{
+			@Override
+			public boolean isTracked()
+			{
+				return false;
+			}
+
+			@Override
+			public Void close() throws PrintException
+			{
+				m_sink.endObject();
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Fails, as the contents of the object have already been written to the
+	 * sink when this method is called. The type declaration must come
+	 * first: handlers of this printer, including the reflection handler and
+	 * the {@link ca.uqac.lif.azrael.CompiledPrintHandler}, go through
+	 * {@link #printWrapped(Object, Object)} instead.
+	 * @throws PrintException Always thrown
+	 */
+	@Override
+	public Void wrap(Object o, Void t) throws PrintException
+	{
+		throw new PrintException("The contents of " + o.getClass().getName() + " were written before its type");
+	}
+}
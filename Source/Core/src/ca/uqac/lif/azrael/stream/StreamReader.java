@@ -0,0 +1,475 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.stream;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+import ca.uqac.lif.azrael.ObjectReader;
+import ca.uqac.lif.azrael.ReadException;
+import ca.uqac.lif.azrael.Readable;
+import ca.uqac.lif.azrael.stream.ObjectSource.Event;
+
+/**
+ * Reader that builds objects directly from the events pulled from an
+ * {@link ObjectSource}, without first building a tree for the whole
+ * serialized document. The argument of {@link #read(Object) read()} is
+ * the source itself; each call consumes the events of one complete value.
+ * <p>
+ * The method {@link #iterate(ObjectSource)} offers a further mode, where
+ * the elements of a top-level collection are read one at a time. Since
+ * each element can be discarded once it has been processed, a collection
+ * of arbitrary size can be read in constant memory.
+ * <p>
+ * Objects implementing {@link Readable} are supported: their
+ * <tt>read()</tt> method receives the source, positioned at the beginning
+ * of their contents. References to objects are not supported.
+ * @author Sylvain Hallé
+ */
+public class StreamReader extends ObjectReader<ObjectSource>
+{
+	/**
+	 * Creates a new stream reader.
+	 */
+	public StreamReader()
+	{
+		super();
+	}
+
+	/**
+	 * Reads the next complete value from a source.
+	 * @param t The source, which must be an instance of {@link ObjectSource}
+	 * @return The object
+	 * @throws ReadException Thrown if the events do not describe a valid
+	 * object
+	 */
+	@Override
+	protected Object readTracked(Object t) throws ReadException
+	{
+		if (!(t instanceof ObjectSource))
+		{
+			throw new ReadException("Expected an object source");
+		}
+		return readValue((ObjectSource) t);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This reader does not use handlers; it reports itself as the handler
+	 * of the objects it reads.
+	 */
+	@Override
+	protected Class<?> getHandlerClass(Object t, Class<?> clazz)
+	{
+		return getClass();
+	}
+
+	/**
+	 * Reads the elements of a top-level collection one at a time. The
+	 * collection may be wrapped with its type or not; in the former case,
+	 * the type is ignored. Elements are only read when they are requested
+	 * from the iterator.
+	 * <p>
+	 * As an {@link Iterator} cannot throw checked exceptions, a
+	 * {@link ReadException} occurring while reading an element is thrown
+	 * as the cause of an {@link IllegalStateException}.
+	 * @param source The source
+	 * @return An iterator over the elements of the collection
+	 * @throws ReadException Thrown if the source does not start with a
+	 * collection
+	 */
+	public Iterator<Object> iterate(ObjectSource source) throws ReadException
+	{
+		boolean wrapped = false;
+		if (source.peek() == Event.BEGIN_OBJECT)
+		{
+			source.next();
+			wrapped = true;
+		}
+		expect(source, Event.BEGIN_LIST);
+		return new ElementIterator(source, wrapped);
+	}
+
+	/**
+	 * Reads the next complete value from a source.
+	 * @param source The source
+	 * @return The object
+	 * @throws ReadException Thrown if the events do not describe a valid
+	 * object
+	 */
+	protected Object readValue(ObjectSource source) throws ReadException
+	{
+		Event e = source.next();
+		switch (e)
+		{
+		case NULL:
+			return null;
+		case BOOLEAN:
+			return source.getBoolean();
+		case NUMBER:
+			return source.getNumber();
+		case STRING:
+			return source.getString();
+		case BEGIN_LIST:
+		{
+			List<Object> list = new ArrayList<Object>();
+			readElements(source, list);
+			return list;
+		}
+		case BEGIN_MAP:
+		{
+			Map<Object,Object> map = new HashMap<Object,Object>();
+			readEntries(source, map);
+			return map;
+		}
+		case BEGIN_OBJECT:
+		{
+			Object o = readObject(source, resolveClass(source.getType()));
+			expect(source, Event.END_OBJECT);
+			return o;
+		}
+		default:
+			throw new ReadException("Unexpected event " + e);
+		}
+	}
+
+	/**
+	 * Reads the contents of an object whose type is known. The source is
+	 * positioned right after the {@link Event#BEGIN_OBJECT BEGIN_OBJECT}
+	 * event declaring this type.
+	 * @param source The source
+	 * @param clazz The class of the object
+	 * @return The object
+	 * @throws ReadException Thrown if the contents cannot be read as an
+	 * instance of this class
+	 */
+	@SuppressWarnings("unchecked")
+	protected Object readObject(ObjectSource source, Class<?> clazz) throws ReadException
+	{
+		if (Readable.class.isAssignableFrom(clazz))
+		{
+			Readable r = (Readable) getInstance(clazz);
+			return r.read(this, source);
+		}
+		Event e = source.peek();
+		switch (e)
+		{
+		case NUMBER:
+			if (!isText(clazz))
+			{
+				return readValue(source);
+			}
+			source.next();
+			// A string that the source took for a number, such as "NaND"
+			return source.getString() != null ? fromText(clazz, source.getString()) : source.getNumber();
+		case STRING:
+			source.next();
+			return fromText(clazz, source.getString());
+		case BEGIN_LIST:
+		{
+			source.next();
+			if (!Collection.class.isAssignableFrom(clazz))
+			{
+				throw new ReadException("Cannot read a list into an instance of " + clazz.getName());
+			}
+			Collection<Object> c = (Collection<Object>) getInstance(clazz);
+			readElements(source, c);
+			return c;
+		}
+		case BEGIN_MAP:
+		{
+			source.next();
+			if (Map.class.isAssignableFrom(clazz))
+			{
+				Map<Object,Object> map = (Map<Object,Object>) getInstance(clazz);
+				readEntries(source, map);
+				return map;
+			}
+			Map<Object,Object> fields = new HashMap<Object,Object>();
+			readEntries(source, fields);
+			return m_reflectionHandler.createObject(clazz, (Map<String,Object>) (Map<?,?>) fields);
+		}
+		default:
+		{
+			Object o = readValue(source);
+			if (o instanceof Map && !Map.class.isAssignableFrom(clazz))
+			{
+				// Fields enclosed in a wrapped map, as printed by a tree-based printer
+				return m_reflectionHandler.createObject(clazz, (Map<String,Object>) o);
+			}
+			return o;
+		}
+		}
+	}
+
+	/**
+	 * Reads the elements of a list until its end, and adds them to a
+	 * collection.
+	 * @param source The source, positioned after the beginning of the list
+	 * @param c The collection
+	 * @throws ReadException Thrown if an element cannot be read
+	 */
+	protected void readElements(ObjectSource source, Collection<Object> c) throws ReadException
+	{
+		while (source.peek() != Event.END_LIST)
+		{
+			c.add(readValue(source));
+		}
+		source.next();
+	}
+
+	/**
+	 * Reads the entries of a map until its end, and puts them into a map.
+	 * Keys and values are paired in the order they are read, which makes
+	 * this method independent of whether the source produces each key
+	 * before its value, or all keys before all values.
+	 * @param source The source, positioned after the beginning of the map
+	 * @param map The map
+	 * @throws ReadException Thrown if an entry cannot be read
+	 */
+	protected void readEntries(ObjectSource source, Map<Object,Object> map) throws ReadException
+	{
+		Queue<Object> keys = new ArrayDeque<Object>();
+		Queue<Object> values = new ArrayDeque<Object>();
+		while (true)
+		{
+			Event e = source.next();
+			if (e == Event.END_MAP)
+			{
+				break;
+			}
+			if (e == Event.ENTRY_KEY)
+			{
+				keys.add(new Holder(readValue(source)));
+			}
+			else if (e == Event.ENTRY_VALUE)
+			{
+				values.add(new Holder(readValue(source)));
+			}
+			else
+			{
+				throw new ReadException("Unexpected event " + e + " in a map");
+			}
+			while (!keys.isEmpty() && !values.isEmpty())
+			{
+				map.put(((Holder) keys.remove()).m_value, ((Holder) values.remove()).m_value);
+			}
+		}
+		if (!keys.isEmpty() || !values.isEmpty())
+		{
+			throw new ReadException("The number of keys and values of a map differ");
+		}
+	}
+
+	/**
+	 * Consumes the next event, and checks that it is the expected one.
+	 * @param source The source
+	 * @param expected The expected event
+	 * @throws ReadException Thrown if the event is not the expected one
+	 */
+	protected static void expect(ObjectSource source, Event expected) throws ReadException
+	{
+		Event e = source.next();
+		if (e != expected)
+		{
+			throw new ReadException("Expected " + expected + ", got " + e);
+		}
+	}
+
+	/**
+	 * Determines if the objects of a class are printed as a single string.
+	 * @param clazz The class
+	 * @return <tt>true</tt> if the class is <tt>String</tt>, an enum or an
+	 * array of bytes, <tt>false</tt> otherwise
+	 */
+	protected static boolean isText(Class<?> clazz)
+	{
+		return clazz == String.class || clazz.isEnum() || clazz == byte[].class;
+	}
+
+	/**
+	 * Gets an object from the string it is printed as.
+	 * @param clazz The class of the object
+	 * @param s The string
+	 * @return The object
+	 * @throws ReadException Thrown if the string does not designate an
+	 * object of this class
+	 */
+	protected static Object fromText(Class<?> clazz, String s) throws ReadException
+	{
+		if (clazz.isEnum())
+		{
+			return toEnum(clazz, s);
+		}
+		if (clazz == byte[].class)
+		{
+			return Base64.getDecoder().decode(s);
+		}
+		return s;
+	}
+
+	/**
+	 * Gets the constant of an enum with a given name.
+	 * @param clazz The enum class
+	 * @param name The name of the constant
+	 * @return The constant
+	 * @throws ReadException Thrown if the enum has no such constant
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected static Object toEnum(Class<?> clazz, String name) throws ReadException
+	{
+		try
+		{
+			return Enum.valueOf((Class<Enum>) clazz, name);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new ReadException(e);
+		}
+	}
+
+	/**
+	 * Not supported: a source has no wrapped elements.
+	 */
+	@Override
+	protected String getWrappedTypeName(Object t) throws ReadException
+	{
+		throw new ReadException("This reader does not read wrapped elements");
+	}
+
+	/**
+	 * Not supported: a source has no wrapped elements.
+	 */
+	@Override
+	protected Class<?> unwrapType(Object t) throws ReadException
+	{
+		throw new ReadException("This reader does not read wrapped elements");
+	}
+
+	/**
+	 * Not supported: a source has no wrapped elements.
+	 */
+	@Override
+	protected Object unwrapContents(Object t) throws ReadException
+	{
+		throw new ReadException("This reader does not read wrapped elements");
+	}
+
+	@Override
+	protected boolean isWrapped(Object t)
+	{
+		return false;
+	}
+
+	/**
+	 * Holds a key or a value waiting to be paired, since queues do not
+	 * accept <tt>null</tt>.
+	 */
+	protected static class Holder
+	{
+		protected final Object m_value;
+
+		protected Holder(Object value)
+		{
+			super();
+			m_value = value;
+		}
+	}
+
+	/**
+	 * Iterator over the elements of a top-level collection.
+	 */
+	protected class ElementIterator implements Iterator<Object>
+	{
+		/**
+		 * The source the elements are read from
+		 */
+		protected final ObjectSource m_source;
+
+		/**
+		 * Whether the collection is wrapped with its type
+		 */
+		protected final boolean m_wrapped;
+
+		/**
+		 * Whether the end of the collection has been reached
+		 */
+		protected boolean m_done = false;
+
+		protected ElementIterator(ObjectSource source, boolean wrapped)
+		{
+			super();
+			m_source = source;
+			m_wrapped = wrapped;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			if (m_done)
+			{
+				return false;
+			}
+			try
+			{
+				if (m_source.peek() != Event.END_LIST)
+				{
+					return true;
+				}
+				m_source.next();
+				if (m_wrapped)
+				{
+					expect(m_source, Event.END_OBJECT);
+				}
+				m_done = true;
+				return false;
+			}
+			catch (ReadException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public Object next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			try
+			{
+				return readValue(m_source);
+			}
+			catch (ReadException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
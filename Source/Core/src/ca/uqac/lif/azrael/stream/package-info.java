@@ -0,0 +1,33 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Printers that write objects as a stream of events, rather than as a
+ * tree.
+ * <p>
+ * The printers of the other packages build the complete printed form of an
+ * object in memory before it can be written anywhere. A
+ * {@link StreamPrinter} instead traverses the object and pushes events
+ * (beginning and end of an object, of a list or of a map, scalar values)
+ * into an {@link ObjectSink} as it goes. A sink for a given format can
+ * write these events directly to a file or a socket, so that the memory
+ * needed to print an object does not depend on its size, and the first
+ * bytes of the output are available before the traversal ends.
+ */
+package ca.uqac.lif.azrael.stream;
@@ -36,6 +36,12 @@ public class BooleanPrintHandler extends JsonPrintHandler
 		return o instanceof Boolean;
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public JsonElement handle(Object o) throws PrintException 
 	{
@@ -37,6 +37,12 @@ public class BooleanReadHandler extends JsonReadHandler
 		return o instanceof JsonTrue || o instanceof JsonFalse;
 	}
 
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
+
 	@Override
 	public Boolean handle(JsonElement o) throws ReadException
 	{
@@ -37,6 +37,12 @@ public class ByteArrayPrintHandler extends JsonPrintHandler
 		return o instanceof byte[];
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public JsonElement handle(Object o) throws PrintException 
 	{
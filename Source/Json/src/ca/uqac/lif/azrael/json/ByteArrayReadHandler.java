@@ -50,6 +50,12 @@ public class ByteArrayReadHandler extends JsonReadHandler
 		}
 	}
 
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
+
 	@Override
 	public byte[] handle(JsonElement o) throws ReadException
 	{
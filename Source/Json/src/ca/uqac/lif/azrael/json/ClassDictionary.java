@@ -0,0 +1,177 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.json;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ca.uqac.lif.azrael.ReadException;
+import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonList;
+import ca.uqac.lif.json.JsonMap;
+import ca.uqac.lif.json.JsonNumber;
+import ca.uqac.lif.json.JsonString;
+
+/**
+ * Replaces the class names declared by the wrapped elements of a JSON
+ * structure by indices in a table of names, and back. The table is printed
+ * under the key <tt>!d</tt> of the header surrounding the structure.
+ * <p>
+ * Both directions visit the structure iteratively, so that structures of
+ * arbitrary depth can be processed. The contents of elements wrapping a
+ * raw {@link JsonElement} are left untouched, as they are not produced by
+ * the printer.
+ * @author Sylvain Hallé
+ * @see JsonPrinter#useClassDictionary(boolean)
+ */
+class ClassDictionary
+{
+	/**
+	 * The prefix of the names of the classes of raw JSON elements
+	 */
+	protected static final String RAW_PREFIX = JsonElement.class.getPackage().getName() + ".";
+
+	/**
+	 * Private constructor, as this class only has static methods
+	 */
+	private ClassDictionary()
+	{
+		super();
+	}
+
+	/**
+	 * Replaces the class names of a structure by indices. The structure is
+	 * modified in place.
+	 * @param root The structure
+	 * @return The table of names
+	 */
+	static JsonList compress(JsonElement root)
+	{
+		Map<String,JsonNumber> indices = new HashMap<String,JsonNumber>();
+		JsonList names = new JsonList();
+		Deque<JsonElement> to_visit = new ArrayDeque<JsonElement>();
+		to_visit.push(root);
+		while (!to_visit.isEmpty())
+		{
+			JsonElement e = to_visit.pop();
+			if (e instanceof JsonList)
+			{
+				for (JsonElement child : (JsonList) e)
+				{
+					to_visit.push(child);
+				}
+				continue;
+			}
+			if (!(e instanceof JsonMap))
+			{
+				continue;
+			}
+			JsonMap map = (JsonMap) e;
+			JsonElement class_name = map.get(JsonPrinter.CLASS_KEY);
+			if (class_name instanceof JsonString)
+			{
+				String name = ((JsonString) class_name).stringValue();
+				JsonNumber index = indices.get(name);
+				if (index == null)
+				{
+					index = new JsonNumber(names.size());
+					indices.put(name, index);
+					names.add(class_name);
+				}
+				map.put(JsonPrinter.CLASS_KEY, index);
+				if (name.startsWith(RAW_PREFIX))
+				{
+					continue;
+				}
+			}
+			for (JsonElement child : map.values())
+			{
+				to_visit.push(child);
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Puts back the class names in a structure. The structure is modified
+	 * in place.
+	 * @param table The table of names
+	 * @param root The structure
+	 * @throws ReadException Thrown if the table is malformed, or if the
+	 * structure refers to an index that is not in the table
+	 */
+	static void expand(JsonElement table, JsonElement root) throws ReadException
+	{
+		if (!(table instanceof JsonList))
+		{
+			throw new ReadException("Invalid class dictionary");
+		}
+		List<JsonString> names = new ArrayList<JsonString>(((JsonList) table).size());
+		for (JsonElement name : (JsonList) table)
+		{
+			if (!(name instanceof JsonString))
+			{
+				throw new ReadException("Invalid class name in dictionary: " + name);
+			}
+			names.add((JsonString) name);
+		}
+		Deque<JsonElement> to_visit = new ArrayDeque<JsonElement>();
+		to_visit.push(root);
+		while (!to_visit.isEmpty())
+		{
+			JsonElement e = to_visit.pop();
+			if (e instanceof JsonList)
+			{
+				for (JsonElement child : (JsonList) e)
+				{
+					to_visit.push(child);
+				}
+				continue;
+			}
+			if (!(e instanceof JsonMap))
+			{
+				continue;
+			}
+			JsonMap map = (JsonMap) e;
+			JsonElement index = map.get(JsonPrinter.CLASS_KEY);
+			if (index instanceof JsonNumber)
+			{
+				int i = ((JsonNumber) index).numberValue().intValue();
+				if (i < 0 || i >= names.size())
+				{
+					throw new ReadException("Invalid class index: " + i);
+				}
+				JsonString name = names.get(i);
+				map.put(JsonPrinter.CLASS_KEY, name);
+				if (name.stringValue().startsWith(RAW_PREFIX))
+				{
+					continue;
+				}
+			}
+			for (JsonElement child : map.values())
+			{
+				to_visit.push(child);
+			}
+		}
+	}
+}
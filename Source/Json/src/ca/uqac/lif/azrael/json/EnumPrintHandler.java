@@ -20,6 +20,7 @@ package ca.uqac.lif.azrael.json;
 
 import ca.uqac.lif.azrael.PrintException;
 import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonString;
 
 public class EnumPrintHandler extends JsonPrintHandler
 {
@@ -34,9 +35,16 @@ public class EnumPrintHandler extends JsonPrintHandler
 		return o.getClass().isEnum();
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public JsonElement handle(Object o) throws PrintException 
 	{
-		return m_printer.wrap(o, m_printer.print(o.toString()));
+		// The name is never wrapped again, even if it looks like a number
+		return m_printer.wrap(o, new JsonString(o.toString()));
 	}
 }
@@ -41,6 +41,12 @@ public class EnumReadHandler extends JsonReadHandler
 		return clazz.isEnum();
 	}
 
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
+
 	@Override
 	public String handle(JsonElement o) throws ReadException
 	{
@@ -0,0 +1,247 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.json;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+
+import ca.uqac.lif.azrael.ReadException;
+import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonList;
+import ca.uqac.lif.json.JsonMap;
+import ca.uqac.lif.json.JsonString;
+
+/**
+ * Collects the layouts of the objects printed with positional fields in a
+ * JSON structure, and gives these objects back their layout when the
+ * structure is read. The layouts are printed under the key <tt>!l</tt> of
+ * the header surrounding the structure, once per class.
+ * <p>
+ * Both directions visit the structure iteratively, so that structures of
+ * arbitrary depth can be processed.
+ * @author Sylvain Hallé
+ * @see JsonPrinter#usePositionalFields(boolean)
+ */
+class FieldLayouts
+{
+	/**
+	 * The name of the class of the map of fields of an object, as printed
+	 * by the {@link ca.uqac.lif.azrael.ReflectionPrintHandler}
+	 */
+	protected static final JsonString MAP_CLASS = new JsonString(HashMap.class.getName());
+
+	/**
+	 * Private constructor, as this class only has static methods
+	 */
+	private FieldLayouts()
+	{
+		super();
+	}
+
+	/**
+	 * Collects the layouts of the classes of the objects printed with
+	 * positional fields in a structure.
+	 * @param root The structure
+	 * @param handler The handler that printed these objects
+	 * @return A map associating class names to layouts
+	 */
+	static JsonMap collect(JsonElement root, JsonReflectionHandler handler)
+	{
+		JsonMap layouts = new JsonMap();
+		Deque<JsonElement> to_visit = new ArrayDeque<JsonElement>();
+		to_visit.push(root);
+		while (!to_visit.isEmpty())
+		{
+			JsonElement e = to_visit.pop();
+			if (e instanceof JsonList)
+			{
+				for (JsonElement child : (JsonList) e)
+				{
+					to_visit.push(child);
+				}
+				continue;
+			}
+			if (!(e instanceof JsonMap))
+			{
+				continue;
+			}
+			JsonMap map = (JsonMap) e;
+			JsonElement class_name = map.get(JsonPrinter.CLASS_KEY);
+			if (class_name instanceof JsonString)
+			{
+				String name = ((JsonString) class_name).stringValue();
+				if (name.startsWith(ClassDictionary.RAW_PREFIX))
+				{
+					continue;
+				}
+				if (map.containsKey(JsonPrinter.FIELDS_KEY) && !layouts.containsKey(name))
+				{
+					layouts.put(name, handler.getLayout(name));
+				}
+			}
+			for (JsonElement child : map.values())
+			{
+				to_visit.push(child);
+			}
+		}
+		return layouts;
+	}
+
+	/**
+	 * Attaches to each object printed with positional fields in a structure
+	 * the layout of its class, under the key <tt>!l</tt>. All the objects of
+	 * the same class share the same layout. The structure is modified in
+	 * place; the layouts are not.
+	 * @param layouts The map associating class names to layouts
+	 * @param root The structure
+	 * @throws ReadException Thrown if the layouts are malformed, or if an
+	 * object has no layout or does not match its layout
+	 * @see JsonReflectionReadHandler
+	 */
+	static void expand(JsonElement layouts, JsonElement root) throws ReadException
+	{
+		if (!(layouts instanceof JsonMap))
+		{
+			throw new ReadException("Invalid field layouts");
+		}
+		Deque<JsonElement> to_visit = new ArrayDeque<JsonElement>();
+		to_visit.push(root);
+		while (!to_visit.isEmpty())
+		{
+			JsonElement e = to_visit.pop();
+			if (e instanceof JsonList)
+			{
+				for (JsonElement child : (JsonList) e)
+				{
+					to_visit.push(child);
+				}
+				continue;
+			}
+			if (!(e instanceof JsonMap))
+			{
+				continue;
+			}
+			JsonMap map = (JsonMap) e;
+			JsonElement class_name = map.get(JsonPrinter.CLASS_KEY);
+			if (class_name instanceof JsonString && ((JsonString) class_name).stringValue().startsWith(ClassDictionary.RAW_PREFIX))
+			{
+				continue;
+			}
+			JsonElement values = map.get(JsonPrinter.FIELDS_KEY);
+			if (values != null)
+			{
+				JsonElement layout = class_name instanceof JsonString ? ((JsonMap) layouts).get(((JsonString) class_name).stringValue()) : null;
+				if (!isLayout(layout) || !(values instanceof JsonList) || ((JsonList) layout).size() != ((JsonList) values).size())
+				{
+					throw new ReadException("No valid field layout for class " + class_name);
+				}
+				map.put(JsonPrinter.LAYOUT_KEY, layout);
+				to_visit.push(values);
+				continue;
+			}
+			for (JsonElement child : map.values())
+			{
+				to_visit.push(child);
+			}
+		}
+	}
+
+	/**
+	 * Gets the values of the fields of an object printed with positional
+	 * fields, once its layout has been attached by
+	 * {@link #expand(JsonElement, JsonElement)}.
+	 * @param e The element
+	 * @return The list of values, or <tt>null</tt> if the element is not an
+	 * object printed with positional fields
+	 */
+	static JsonList getValues(JsonElement e)
+	{
+		if (!(e instanceof JsonMap))
+		{
+			return null;
+		}
+		JsonElement values = ((JsonMap) e).get(JsonPrinter.FIELDS_KEY);
+		if (!(values instanceof JsonList))
+		{
+			return null;
+		}
+		return (JsonList) values;
+	}
+
+	/**
+	 * Gets the layout attached to an object printed with positional fields.
+	 * @param map The object
+	 * @return The layout
+	 * @throws ReadException Thrown if the object has no layout
+	 */
+	static JsonList getLayout(JsonMap map) throws ReadException
+	{
+		JsonElement layout = map.get(JsonPrinter.LAYOUT_KEY);
+		if (!(layout instanceof JsonList))
+		{
+			throw new ReadException("No valid field layout for class " + map.get(JsonPrinter.CLASS_KEY));
+		}
+		return (JsonList) layout;
+	}
+
+	/**
+	 * Turns an object printed with positional fields into the wrapped map of
+	 * fields that the {@link ca.uqac.lif.azrael.ReflectionPrintHandler}
+	 * prints otherwise. This is only used by the operations that need to
+	 * look up fields by name, such as projections; the object itself is
+	 * left unchanged.
+	 * @param map The object
+	 * @return The wrapped map of fields
+	 * @throws ReadException Thrown if the object has no layout
+	 */
+	static JsonMap toFields(JsonMap map) throws ReadException
+	{
+		JsonMap fields = new JsonMap();
+		fields.put(MapPrintHandler.KEY_NAME, getLayout(map));
+		fields.put(MapPrintHandler.KEY_VALUE, map.get(JsonPrinter.FIELDS_KEY));
+		JsonMap contents = new JsonMap();
+		contents.put(JsonPrinter.CLASS_KEY, MAP_CLASS);
+		contents.put(JsonPrinter.CONTENT_KEY, fields);
+		return contents;
+	}
+
+	/**
+	 * Determines if an element is a valid layout, that is, a list of field
+	 * names.
+	 * @param e The element
+	 * @return <tt>true</tt> if the element is a layout, <tt>false</tt>
+	 * otherwise
+	 */
+	private static boolean isLayout(JsonElement e)
+	{
+		if (!(e instanceof JsonList))
+		{
+			return false;
+		}
+		for (JsonElement name : (JsonList) e)
+		{
+			if (!(name instanceof JsonString))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
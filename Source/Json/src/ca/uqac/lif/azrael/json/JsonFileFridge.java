@@ -1,6 +1,6 @@
 /*
     Azrael, a serializer for Java objects
-    Copyright (C) 2016-2019 Sylvain Hallé
+    Copyright (C) 2016-2025 Sylvain Hallé
     Laboratoire d'informatique formelle
     Université du Québec à Chicoutimi, Canada
 
@@ -18,20 +18,378 @@
  */
 package ca.uqac.lif.azrael.json;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Iterator;
+
+import ca.uqac.lif.azrael.ObjectPrinter;
+import ca.uqac.lif.azrael.ObjectReader;
+import ca.uqac.lif.azrael.PrintException;
+import ca.uqac.lif.azrael.ReadException;
 import ca.uqac.lif.azrael.fridge.FileFridge;
+import ca.uqac.lif.azrael.fridge.FridgeException;
+import ca.uqac.lif.azrael.stream.StreamPrinter;
+import ca.uqac.lif.azrael.stream.StreamReader;
 
 /**
  * Fridge that stores an object as a local JSON file.
+ * <p>
+ * Objects are printed and read by the printer and reader of the fridge.
+ * When these are a {@link JsonStringPrinter} and a {@link JsonStringReader},
+ * as is the case by default, the JSON text is written directly to the file
+ * and tokenized directly from it, without being held in memory as a
+ * string; the parsed tree of the stored object is still built in memory
+ * before the object is read from it.
+ * <p>
+ * Optionally, objects can instead be written and read as streams of events,
+ * using a {@link StreamPrinter} with a {@link JsonSink} and a
+ * {@link StreamReader} with a {@link JsonSource}; neither the JSON text nor
+ * its parsed tree is then ever held in memory. This mode ignores the
+ * settings of the printer and reader of the fridge, and does not support
+ * references between objects.
+ * <p>
+ * When the stored object is a collection, {@link #iterate()} reads its
+ * elements one at a time, provided that the file can be read as a stream of
+ * events: this is the case in streaming mode, and when the printer of the
+ * fridge is a {@link JsonStringPrinter} that uses none of references, a
+ * class dictionary, positional fields and type elision. Otherwise, the
+ * whole collection is read first, and the iterator goes through it.
+ * <p>
+ * An object is first written to a temporary file in the same directory,
+ * which replaces the previous file only once the object has been written
+ * in full. If printing fails, the object stored before is left untouched.
  * @author Sylvain Hallé
  */
 public class JsonFileFridge extends FileFridge
 {
+	/**
+	 * Whether objects are written and read as streams of events
+	 */
+	protected boolean m_streaming = false;
+
 	/**
 	 * Creates a new JSON file fridge.
 	 * @param filename The name of the file where the object will be stored
 	 */
 	public JsonFileFridge(String filename) 
 	{
-		super(new JsonStringPrinter(), new JsonStringReader(), filename);
+		this(new JsonStringPrinter(), new JsonStringReader(), filename);
+	}
+
+	/**
+	 * Creates a new JSON file fridge with a specific printer and reader.
+	 * @param printer The printer used to serialize the objects
+	 * @param reader The reader used to deserialize the objects
+	 * @param filename The name of the file where the object will be stored
+	 */
+	public JsonFileFridge(/*@ non_null @*/ ObjectPrinter<String> printer, 
+			/*@ non_null @*/ ObjectReader<String> reader, /*@ non_null @*/ String filename)
+	{
+		super(printer, reader, filename);
+	}
+
+	/**
+	 * Sets whether objects are written and read as streams of events,
+	 * instead of going through the printer and reader of the fridge.
+	 * @param b <tt>true</tt> to use streams of events, <tt>false</tt>
+	 * otherwise (default)
+	 */
+	public void useStreaming(boolean b)
+	{
+		m_streaming = b;
+	}
+
+	/**
+	 * Determines if objects are written and read as streams of events.
+	 * @return <tt>true</tt> if streams of events are used, <tt>false</tt>
+	 * otherwise
+	 * @see #useStreaming(boolean)
+	 */
+	public boolean usesStreaming()
+	{
+		return m_streaming;
+	}
+
+	@Override
+	protected void storeObject(Object o) throws FridgeException
+	{
+		if (!m_streaming && !(m_printer instanceof JsonStringPrinter))
+		{
+			super.storeObject(o);
+			return;
+		}
+		File target = new File(m_filename).getAbsoluteFile();
+		File temp = null;
+		try
+		{
+			temp = File.createTempFile(target.getName(), ".tmp", target.getParentFile());
+			OutputStream os = new FileOutputStream(temp);
+			try
+			{
+				if (m_streaming)
+				{
+					new StreamPrinter(new JsonSink(os)).print(o);
+				}
+				else
+				{
+					((JsonStringPrinter) m_printer).print(o, os);
+				}
+			}
+			finally
+			{
+				os.close();
+			}
+			replace(temp, target);
+			temp = null;
+		}
+		catch (PrintException e)
+		{
+			throw new FridgeException(e);
+		}
+		catch (IOException e)
+		{
+			throw new FridgeException(e);
+		}
+		finally
+		{
+			if (temp != null)
+			{
+				temp.delete();
+			}
+		}
+		m_printer.reset();
+	}
+
+	/**
+	 * Replaces a file by another one, atomically if the file system allows
+	 * it.
+	 * @param source The file to move
+	 * @param target The file to replace
+	 * @throws IOException Thrown if the file cannot be moved
+	 */
+	protected static void replace(File source, File target) throws IOException
+	{
+		try
+		{
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException e)
+		{
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Unless streaming mode is enabled, the stored object is read by the
+	 * reader of the fridge, which builds the parsed tree of the whole file
+	 * in memory; when this reader is a {@link JsonStringReader}, only the
+	 * string holding the text of the file is avoided.
+	 */
+	@Override
+	protected Object fetchObject() throws FridgeException
+	{
+		if (!m_streaming && !(m_reader instanceof JsonStringReader))
+		{
+			return super.fetchObject();
+		}
+		JsonSource source = open();
+		try
+		{
+			if (m_streaming)
+			{
+				return new StreamReader().read(source);
+			}
+			return ((JsonStringReader) m_reader).readSource(source);
+		}
+		catch (ReadException e)
+		{
+			throw new FridgeException(e);
+		}
+		finally
+		{
+			close(source);
+		}
+	}
+
+	/**
+	 * Reads the elements of the collection stored in the file one at a
+	 * time, as a stream of events. The file is closed once the last element
+	 * has been read, or when the iterator is closed; an iterator that is
+	 * abandoned before the end should therefore be closed, for example with
+	 * a <tt>try</tt>-with-resources statement.
+	 * <p>
+	 * If the file cannot be read as a stream of events (see
+	 * {@link #isStreamable()}), the collection is read in full through the
+	 * reader of the fridge, and the iterator goes through its elements.
+	 * @return An iterator over the elements of the collection
+	 * @throws FridgeException Thrown if the file cannot be opened, or if
+	 * it does not contain a collection
+	 * @see StreamReader#iterate(ca.uqac.lif.azrael.stream.ObjectSource)
+	 */
+	public ElementIterator iterate() throws FridgeException
+	{
+		if (!isStreamable())
+		{
+			Object o = fetchObject();
+			if (!(o instanceof Collection))
+			{
+				throw new FridgeException("The stored object is not a collection");
+			}
+			return new ElementIterator(null, ((Collection<?>) o).iterator());
+		}
+		JsonSource source = open();
+		try
+		{
+			return new ElementIterator(source, new StreamReader().iterate(source));
+		}
+		catch (ReadException e)
+		{
+			close(source);
+			throw new FridgeException(e);
+		}
+	}
+
+	/**
+	 * Determines if the file written by this fridge can be read as a stream
+	 * of events by a {@link StreamReader}. This is not the case if the
+	 * printer is not a {@link JsonStringPrinter}, or if it produces
+	 * references, a class dictionary, positional fields or elided types,
+	 * which the events do not represent.
+	 * @return <tt>true</tt> if the file can be read as a stream of events,
+	 * <tt>false</tt> otherwise
+	 */
+	protected boolean isStreamable()
+	{
+		if (m_streaming)
+		{
+			return true;
+		}
+		if (!(m_printer instanceof JsonStringPrinter))
+		{
+			return false;
+		}
+		JsonPrinter printer = ((JsonStringPrinter) m_printer).m_printer;
+		return !printer.tracksReferences() && !printer.usesClassDictionary()
+				&& !printer.usesPositionalFields() && !printer.elidesTypes();
+	}
+
+	/**
+	 * Opens the file for reading.
+	 * @return A source reading the contents of the file
+	 * @throws FridgeException Thrown if the file cannot be opened
+	 */
+	protected JsonSource open() throws FridgeException
+	{
+		try
+		{
+			return new JsonSource(new FileInputStream(m_filename));
+		}
+		catch (FileNotFoundException e)
+		{
+			throw new FridgeException(e);
+		}
+	}
+
+	/**
+	 * Closes the file, ignoring any error.
+	 * @param source The source reading the file
+	 */
+	protected static void close(JsonSource source)
+	{
+		if (source == null)
+		{
+			return;
+		}
+		try
+		{
+			source.close();
+		}
+		catch (IOException e)
+		{
+			// Nothing to do
+		}
+	}
+
+	/**
+	 * Iterator over the elements of a collection stored in a file, which
+	 * keeps the file open until it is closed or the last element is read.
+	 * When the collection has been read in full, no file is kept open.
+	 */
+	public static class ElementIterator implements Iterator<Object>, Closeable
+	{
+		/**
+		 * The source reading the file, or <tt>null</tt> if the collection
+		 * has already been read
+		 */
+		protected final JsonSource m_source;
+
+		/**
+		 * The iterator producing the elements
+		 */
+		protected final Iterator<?> m_iterator;
+
+		/**
+		 * Whether the file has been closed
+		 */
+		protected boolean m_closed = false;
+
+		/**
+		 * Creates a new element iterator.
+		 * @param source The source reading the file, or <tt>null</tt> if the
+		 * collection has already been read
+		 * @param it The iterator producing the elements
+		 */
+		protected ElementIterator(JsonSource source, Iterator<?> it)
+		{
+			super();
+			m_source = source;
+			m_iterator = it;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			if (m_closed)
+			{
+				return false;
+			}
+			if (m_iterator.hasNext())
+			{
+				return true;
+			}
+			close();
+			return false;
+		}
+
+		@Override
+		public Object next()
+		{
+			return m_iterator.next();
+		}
+
+		/**
+		 * Closes the file, ignoring any error. Once closed, the iterator
+		 * produces no more elements.
+		 */
+		@Override
+		public void close()
+		{
+			if (!m_closed)
+			{
+				m_closed = true;
+				JsonFileFridge.close(m_source);
+			}
+		}
 	}
 }
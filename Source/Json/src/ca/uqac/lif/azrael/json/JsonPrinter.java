@@ -18,10 +18,16 @@
  */
 package ca.uqac.lif.azrael.json;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
 import ca.uqac.lif.azrael.ObjectPrinter;
 import ca.uqac.lif.azrael.PrintException;
 import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonList;
 import ca.uqac.lif.json.JsonMap;
+import ca.uqac.lif.json.JsonNumber;
 import ca.uqac.lif.json.JsonString;
 
 public class JsonPrinter extends ObjectPrinter<JsonElement>
@@ -30,9 +36,63 @@ public class JsonPrinter extends ObjectPrinter<JsonElement>
 
 	public static final transient String CONTENT_KEY = "!t";
 
+	/**
+	 * The key holding the identifier of a wrapped object, when references
+	 * are tracked
+	 */
+	public static final transient String ID_KEY = "!i";
+
+	/**
+	 * The key holding the identifier of the object designated by a
+	 * reference
+	 */
+	public static final transient String REF_KEY = "!r";
+
+	/**
+	 * The key holding the table of class names, when a class dictionary is
+	 * used
+	 */
+	public static final transient String DICTIONARY_KEY = "!d";
+
+	/**
+	 * The key holding the field layouts of classes, when positional fields
+	 * are used
+	 */
+	public static final transient String LAYOUT_KEY = "!l";
+
+	/**
+	 * The key holding the list of the values of the fields of an object,
+	 * when positional fields are used
+	 */
+	public static final transient String FIELDS_KEY = "!f";
+
+	/**
+	 * Whether the class names of the printed structure are replaced by
+	 * indices in a table of names
+	 */
+	protected boolean m_classDictionary = false;
+
+	/**
+	 * Whether the fields of objects printed through reflection are printed
+	 * as a list of values
+	 */
+	protected boolean m_positionalFields = false;
+
+	/**
+	 * Whether numbers are printed as native JSON numbers when their type can
+	 * be inferred
+	 */
+	protected boolean m_nativeNumbers = false;
+
+	/**
+	 * Whether maps whose keys are all strings are printed as JSON objects
+	 */
+	protected boolean m_nativeMaps = false;
+
 	public JsonPrinter()
 	{
 		super();
+		m_reflectionHandler = new JsonReflectionHandler(this);
 		m_handlers.add(new RawPrintHandler(this));
 		m_handlers.add(new NullPrintHandler(this));
 		m_handlers.add(new BooleanPrintHandler(this));
@@ -44,6 +104,251 @@ public class JsonPrinter extends ObjectPrinter<JsonElement>
 		m_handlers.add(new EnumPrintHandler(this));
 		m_handlers.add(new MapPrintHandler(this));
 		m_handlers.add(new ByteArrayPrintHandler(this));
+		addCompiledHandlers();
+	}
+
+	/**
+	 * Sets whether the printer replaces the class names declared by wrapped
+	 * elements by indices in a table of names. The table is printed once, in
+	 * a header surrounding the printed object; an object whose structure
+	 * mentions the same classes many times (such as a list of objects of the
+	 * same class) is then much shorter. The output can be read by any
+	 * {@link JsonReader}.
+	 * @param b <tt>true</tt> to use a class dictionary, <tt>false</tt>
+	 * otherwise (default)
+	 */
+	public void useClassDictionary(boolean b)
+	{
+		m_classDictionary = b;
+	}
+
+	/**
+	 * Determines whether the printer replaces class names by indices in a
+	 * table of names.
+	 * @return <tt>true</tt> if a class dictionary is used, <tt>false</tt>
+	 * otherwise
+	 * @see #useClassDictionary(boolean)
+	 */
+	public boolean usesClassDictionary()
+	{
+		return m_classDictionary;
+	}
+
+	/**
+	 * Sets whether the printer prints numbers as native JSON numbers. This
+	 * is only done for numbers whose type can be inferred when reading them
+	 * back: ints, longs that do not fit in an int, and doubles that are
+	 * not integers. Other numbers are printed as strings with a suffix
+	 * giving their type, as usual. The output can be read by any
+	 * {@link JsonReader}.
+	 * @param b <tt>true</tt> to print native numbers, <tt>false</tt>
+	 * otherwise (default)
+	 * @see NumberPrintHandler#isInferable(Number)
+	 */
+	public void useNativeNumbers(boolean b)
+	{
+		m_nativeNumbers = b;
+	}
+
+	/**
+	 * Determines whether the printer prints numbers as native JSON numbers.
+	 * @return <tt>true</tt> if native numbers are printed, <tt>false</tt>
+	 * otherwise
+	 * @see #useNativeNumbers(boolean)
+	 */
+	public boolean usesNativeNumbers()
+	{
+		return m_nativeNumbers;
+	}
+
+	/**
+	 * Sets whether the printer prints maps whose keys are all strings as
+	 * JSON objects, rather than as a list of keys and a list of values.
+	 * This includes the maps of the fields of objects printed through
+	 * reflection. Maps with other keys, or with strings that could be
+	 * mistaken for something else, are printed as usual. The output can be
+	 * read by any {@link JsonReader}.
+	 * @param b <tt>true</tt> to print maps as JSON objects, <tt>false</tt>
+	 * otherwise (default)
+	 * @see MapPrintHandler#isStringKeyed(java.util.Map)
+	 */
+	public void useNativeMaps(boolean b)
+	{
+		m_nativeMaps = b;
+	}
+
+	/**
+	 * Determines whether the printer prints maps with string keys as JSON
+	 * objects.
+	 * @return <tt>true</tt> if maps are printed as JSON objects,
+	 * <tt>false</tt> otherwise
+	 * @see #useNativeMaps(boolean)
+	 */
+	public boolean usesNativeMaps()
+	{
+		return m_nativeMaps;
+	}
+
+	/**
+	 * Sets whether the printer prints the fields of the objects it handles
+	 * through reflection as a list of values, rather than as a map
+	 * associating field names to values. The order of the values is given
+	 * by the <em>layout</em> of the object's class; the layouts of all the
+	 * classes are printed once, in a header surrounding the printed object.
+	 * Field names are then no longer repeated for every instance of a
+	 * class. The output can be read by any {@link JsonReader}.
+	 * <p>
+	 * Objects printed with positional fields keep their type declaration,
+	 * even if the printer {@linkplain #elideTypes(boolean) elides types}.
+	 * @param b <tt>true</tt> to use positional fields, <tt>false</tt>
+	 * otherwise (default)
+	 */
+	public void usePositionalFields(boolean b)
+	{
+		m_positionalFields = b;
+	}
+
+	/**
+	 * Determines whether the printer prints the fields of objects as a list
+	 * of values.
+	 * @return <tt>true</tt> if positional fields are used, <tt>false</tt>
+	 * otherwise
+	 * @see #usePositionalFields(boolean)
+	 */
+	public boolean usesPositionalFields()
+	{
+		return m_positionalFields;
+	}
+
+	@Override
+	protected JsonElement printTracked(Object o) throws PrintException
+	{
+		if (!m_classDictionary && !m_positionalFields)
+		{
+			return super.printTracked(o);
+		}
+		boolean outermost = enterCall();
+		try
+		{
+			JsonElement e = super.printTracked(o);
+			return outermost ? printHeader(e) : e;
+		}
+		finally
+		{
+			exitCall();
+		}
+	}
+
+	/**
+	 * Surrounds a printed object with a header holding the field layouts
+	 * and the table of class names it uses.
+	 * @param root The printed object
+	 * @return The header
+	 */
+	protected JsonElement printHeader(JsonElement root)
+	{
+		JsonMap header = new JsonMap();
+		if (m_positionalFields && m_reflectionHandler instanceof JsonReflectionHandler)
+		{
+			header.put(LAYOUT_KEY, FieldLayouts.collect(root, (JsonReflectionHandler) m_reflectionHandler));
+		}
+		if (m_classDictionary)
+		{
+			header.put(DICTIONARY_KEY, ClassDictionary.compress(root));
+		}
+		header.put(CONTENT_KEY, root);
+		return header;
+	}
+
+	@Override
+	protected JsonElement printNested(Object o) throws PrintException
+	{
+		if (!m_classDictionary && !m_positionalFields)
+		{
+			return super.printNested(o);
+		}
+		// Elements printed in parallel are never at the top level
+		enterCall();
+		try
+		{
+			return super.printNested(o);
+		}
+		finally
+		{
+			exitCall();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The size of an element is the number of characters of its compact
+	 * text, as written by a {@link JsonWriter}. When a class dictionary or
+	 * positional fields are used, the size is measured before the class
+	 * names and field names are replaced, and therefore overestimates the
+	 * size of the final text.
+	 */
+	@Override
+	protected long getOutputSize(JsonElement t, Map<Object,Long> children)
+	{
+		long size = 0;
+		Deque<JsonElement> to_visit = new ArrayDeque<JsonElement>();
+		to_visit.push(t);
+		while (!to_visit.isEmpty())
+		{
+			JsonElement e = to_visit.pop();
+			Long known = children.get(e);
+			if (known != null)
+			{
+				size += known;
+			}
+			else if (e instanceof JsonMap)
+			{
+				JsonMap map = (JsonMap) e;
+				// Braces, commas, and quotes and colon around each key
+				size += 2 + Math.max(0, map.size() - 1) + 3 * map.size();
+				for (Map.Entry<String,JsonElement> entry : map.entrySet())
+				{
+					size += JsonWriter.escapedLength(entry.getKey());
+					size += visit(entry.getValue(), to_visit);
+				}
+			}
+			else if (e instanceof JsonList)
+			{
+				JsonList list = (JsonList) e;
+				size += 2 + Math.max(0, list.size() - 1);
+				for (JsonElement child : list)
+				{
+					size += visit(child, to_visit);
+				}
+			}
+			else if (e instanceof JsonString)
+			{
+				size += JsonWriter.escapedLength(((JsonString) e).stringValue()) + 2;
+			}
+			else
+			{
+				size += e.toString().length();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Schedules an element to be measured by
+	 * {@link #getOutputSize(JsonElement, Map)}.
+	 * @param e The element
+	 * @param to_visit The elements that remain to be measured
+	 * @return The size of the element if it is <tt>null</tt>, 0 otherwise
+	 */
+	private static long visit(JsonElement e, Deque<JsonElement> to_visit)
+	{
+		if (e == null)
+		{
+			return 4;
+		}
+		to_visit.push(e);
+		return 0;
 	}
 
 	@Override
@@ -54,4 +359,44 @@ public class JsonPrinter extends ObjectPrinter<JsonElement>
 		map.put(CONTENT_KEY, t);
 		return map;
 	}
+
+	@Override
+	protected JsonElement unwrap(JsonElement t)
+	{
+		if (!(t instanceof JsonMap))
+		{
+			return null;
+		}
+		JsonMap map = (JsonMap) t;
+		if (map.size() != 2 || !map.containsKey(CLASS_KEY) || !map.containsKey(CONTENT_KEY))
+		{
+			// Not wrapped, or carries an identifier that must be kept
+			return null;
+		}
+		return map.get(CONTENT_KEY);
+	}
+
+	@Override
+	protected JsonElement printReference(int id)
+	{
+		JsonMap map = new JsonMap();
+		map.put(REF_KEY, new JsonNumber(id));
+		return map;
+	}
+
+	@Override
+	protected boolean tagIdentity(JsonElement t, int id)
+	{
+		if (!(t instanceof JsonMap))
+		{
+			return false;
+		}
+		JsonMap map = (JsonMap) t;
+		if (!map.containsKey(CLASS_KEY))
+		{
+			return false;
+		}
+		map.put(ID_KEY, new JsonNumber(id));
+		return true;
+	}
 }
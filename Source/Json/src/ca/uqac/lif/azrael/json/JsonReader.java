@@ -18,10 +18,22 @@
  */
 package ca.uqac.lif.azrael.json;
 
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
 import ca.uqac.lif.azrael.ObjectReader;
 import ca.uqac.lif.azrael.ReadException;
 import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonList;
 import ca.uqac.lif.json.JsonMap;
+import ca.uqac.lif.json.JsonNull;
+import ca.uqac.lif.json.JsonNumber;
+import ca.uqac.lif.json.JsonString;
 
 /**
  * Object reader that creates an object from a JSON element.
@@ -46,8 +58,126 @@ public class JsonReader extends ObjectReader<JsonElement>
 		m_handlers.add(new SetReadHandler(this));
 		m_handlers.add(new MapReadHandler(this));
 		m_handlers.add(new ByteArrayReadHandler(this));
+		m_reflectionHandler = new JsonReflectionReadHandler(this);
+		addCompiledHandlers();
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the element is a header produced by a printer that uses a class
+	 * dictionary or positional fields, the class names of the structure it
+	 * contains are first put back in place, and each object printed with
+	 * positional fields is given the layout of its class. This is done on a
+	 * copy of the structure; the element itself is left unchanged.
+	 * @see JsonPrinter#useClassDictionary(boolean)
+	 * @see JsonPrinter#usePositionalFields(boolean)
+	 */
+	@Override
+	protected Object readTracked(Object t) throws ReadException
+	{
+		if (isHeader(t))
+		{
+			JsonMap header = (JsonMap) t;
+			JsonElement root = copyTree(header.get(JsonPrinter.CONTENT_KEY));
+			if (header.containsKey(JsonPrinter.DICTIONARY_KEY))
+			{
+				ClassDictionary.expand(header.get(JsonPrinter.DICTIONARY_KEY), root);
+			}
+			if (header.containsKey(JsonPrinter.LAYOUT_KEY))
+			{
+				FieldLayouts.expand(header.get(JsonPrinter.LAYOUT_KEY), root);
+			}
+			return super.readTracked(root);
+		}
+		return super.readTracked(t);
+	}
+
+	/**
+	 * Copies the lists and maps of a JSON structure. The other elements are
+	 * immutable, and are shared by the structure and its copy.
+	 * @param e The root of the structure
+	 * @return The root of the copy
+	 */
+	protected static JsonElement copyTree(JsonElement e)
+	{
+		JsonElement root = copyContainer(e);
+		Deque<JsonElement> to_copy = new ArrayDeque<JsonElement>();
+		to_copy.push(e);
+		to_copy.push(root);
+		while (!to_copy.isEmpty())
+		{
+			JsonElement copy = to_copy.pop();
+			JsonElement original = to_copy.pop();
+			if (original instanceof JsonList)
+			{
+				for (JsonElement child : (JsonList) original)
+				{
+					JsonElement child_copy = copyContainer(child);
+					((JsonList) copy).add(child_copy);
+					if (child_copy != child)
+					{
+						to_copy.push(child);
+						to_copy.push(child_copy);
+					}
+				}
+			}
+			else if (original instanceof JsonMap)
+			{
+				for (Map.Entry<String,JsonElement> entry : ((JsonMap) original).entrySet())
+				{
+					JsonElement child = entry.getValue();
+					JsonElement child_copy = copyContainer(child);
+					((JsonMap) copy).put(entry.getKey(), child_copy);
+					if (child_copy != child)
+					{
+						to_copy.push(child);
+						to_copy.push(child_copy);
+					}
+				}
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * Creates an empty list or map for an element of a structure copied by
+	 * {@link #copyTree(JsonElement)}.
+	 * @param e The element
+	 * @return An empty list or map if the element is a list or a map, the
+	 * element itself otherwise
+	 */
+	private static JsonElement copyContainer(JsonElement e)
+	{
+		if (e instanceof JsonList)
+		{
+			return new JsonList();
+		}
+		if (e instanceof JsonMap)
+		{
+			return new JsonMap();
+		}
+		return e;
+	}
+
+	/**
+	 * Determines if an element is a header produced by
+	 * {@link JsonPrinter#printHeader(JsonElement)}.
+	 * @param t The element
+	 * @return <tt>true</tt> if the element is a header, <tt>false</tt>
+	 * otherwise
+	 */
+	protected static boolean isHeader(Object t)
+	{
+		if (!(t instanceof JsonMap))
+		{
+			return false;
+		}
+		JsonMap m = (JsonMap) t;
+		return m.containsKey(JsonPrinter.CONTENT_KEY) && !m.containsKey(JsonPrinter.CLASS_KEY)
+				&& (m.containsKey(JsonPrinter.DICTIONARY_KEY) || m.containsKey(JsonPrinter.LAYOUT_KEY));
+	}
+
 	@Override
 	protected String getWrappedTypeName(Object t) throws ReadException
 	{
@@ -66,14 +196,7 @@ public class JsonReader extends ObjectReader<JsonElement>
 	@Override
 	protected Class<?> unwrapType(Object t) throws ReadException
 	{
-		try 
-		{
-			return Class.forName(getWrappedTypeName(t));
-		} 
-		catch (ClassNotFoundException e) 
-		{
-			throw new ReadException(e);
-		}
+		return resolveClass(getWrappedTypeName(t));
 	}
 
 	@Override
@@ -86,11 +209,21 @@ public class JsonReader extends ObjectReader<JsonElement>
 		JsonMap m = (JsonMap) t;
 		if (!m.containsKey(JsonPrinter.CONTENT_KEY))
 		{
+			if (FieldLayouts.getValues(m) != null)
+			{
+				return FieldLayouts.toFields(m);
+			}
 			throw new ReadException("Incompatible element to deserialize from");
 		}
 		return m.get(JsonPrinter.CONTENT_KEY);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * An object printed with positional fields is wrapped, its contents
+	 * being its list of fields.
+	 */
 	@Override
 	protected boolean isWrapped(Object t)
 	{
@@ -99,7 +232,110 @@ public class JsonReader extends ObjectReader<JsonElement>
 			return false;
 		}
 		JsonMap m = (JsonMap) t;
-		return m.containsKey(JsonPrinter.CONTENT_KEY) && 
+		return (m.containsKey(JsonPrinter.CONTENT_KEY) || m.containsKey(JsonPrinter.FIELDS_KEY)) && 
 				m.containsKey(JsonPrinter.CLASS_KEY);
 	}
+
+	@Override
+	protected JsonElement wrap(Class<?> clazz, Object t) throws ReadException
+	{
+		if (!(t instanceof JsonElement))
+		{
+			throw new ReadException("Incompatible element to deserialize from");
+		}
+		if (t instanceof JsonNull)
+		{
+			return (JsonElement) t;
+		}
+		JsonMap map = new JsonMap();
+		map.put(JsonPrinter.CLASS_KEY, new JsonString(clazz.getName()));
+		map.put(JsonPrinter.CONTENT_KEY, (JsonElement) t);
+		return map;
+	}
+
+	@Override
+	protected List<JsonElement> getSerializedElements(JsonElement t) throws ReadException
+	{
+		if (!isWrapped(t) || !Collection.class.isAssignableFrom(unwrapType(t)))
+		{
+			return null;
+		}
+		JsonElement in_list = unwrapContents(t);
+		if (!(in_list instanceof JsonList))
+		{
+			throw new ReadException("Incompatible element to deserialize from");
+		}
+		return (JsonList) in_list;
+	}
+
+	@Override
+	protected List<Map.Entry<JsonElement,JsonElement>> getSerializedEntries(JsonElement t) throws ReadException
+	{
+		if (!isWrapped(t) || !Map.class.isAssignableFrom(unwrapType(t)))
+		{
+			return null;
+		}
+		JsonElement in_map = unwrapContents(t);
+		if (!(in_map instanceof JsonMap))
+		{
+			throw new ReadException("Incompatible element to deserialize from");
+		}
+		if (!MapReadHandler.isKeyValueLayout((JsonMap) in_map))
+		{
+			List<Map.Entry<JsonElement,JsonElement>> entries = new ArrayList<Map.Entry<JsonElement,JsonElement>>(((JsonMap) in_map).size());
+			for (Map.Entry<String,JsonElement> e : ((JsonMap) in_map).entrySet())
+			{
+				entries.add(new AbstractMap.SimpleEntry<JsonElement,JsonElement>(new JsonString(e.getKey()), e.getValue()));
+			}
+			return entries;
+		}
+		JsonList l_keys = (JsonList) ((JsonMap) in_map).get(MapPrintHandler.KEY_NAME);
+		JsonList l_values = (JsonList) ((JsonMap) in_map).get(MapPrintHandler.KEY_VALUE);
+		int size = Math.min(l_keys.size(), l_values.size());
+		List<Map.Entry<JsonElement,JsonElement>> entries = new ArrayList<Map.Entry<JsonElement,JsonElement>>(size);
+		for (int i = 0; i < size; i++)
+		{
+			entries.add(new AbstractMap.SimpleEntry<JsonElement,JsonElement>(l_keys.get(i), l_values.get(i)));
+		}
+		return entries;
+	}
+
+	@Override
+	protected Integer getReference(Object t) throws ReadException
+	{
+		return getIdentifier(t, JsonPrinter.REF_KEY);
+	}
+
+	@Override
+	protected Integer getIdentity(Object t) throws ReadException
+	{
+		return getIdentifier(t, JsonPrinter.ID_KEY);
+	}
+
+	/**
+	 * Gets the object identifier stored under a given key of a JSON map.
+	 * @param t The element
+	 * @param key The key
+	 * @return The identifier, or <tt>null</tt> if the element is not a map
+	 * or has no such key
+	 * @throws ReadException Thrown if the value under the key is not a
+	 * number
+	 */
+	protected static Integer getIdentifier(Object t, String key) throws ReadException
+	{
+		if (!(t instanceof JsonMap))
+		{
+			return null;
+		}
+		JsonElement e = ((JsonMap) t).get(key);
+		if (e == null)
+		{
+			return null;
+		}
+		if (!(e instanceof JsonNumber))
+		{
+			throw new ReadException("Invalid object identifier: " + e);
+		}
+		return ((JsonNumber) e).numberValue().intValue();
+	}
 }
@@ -0,0 +1,135 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.json;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ca.uqac.lif.azrael.ClassDescriptor;
+import ca.uqac.lif.azrael.ElementPrint;
+import ca.uqac.lif.azrael.PendingPrint;
+import ca.uqac.lif.azrael.PrintException;
+import ca.uqac.lif.azrael.ReflectionPrintHandler;
+import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonList;
+import ca.uqac.lif.json.JsonMap;
+import ca.uqac.lif.json.JsonString;
+
+/**
+ * Reflection handler of the {@link JsonPrinter}. When the printer uses
+ * positional fields, the fields of an object are printed as a list of
+ * values, in the order given by the <em>layout</em> of the object's class,
+ * rather than as a map associating field names to values.
+ * @author Sylvain Hallé
+ * @see JsonPrinter#usePositionalFields(boolean)
+ */
+public class JsonReflectionHandler extends ReflectionPrintHandler<JsonElement>
+{
+	/**
+	 * The JSON printer using this handler
+	 */
+	protected JsonPrinter m_jsonPrinter;
+
+	/**
+	 * The layouts of the classes printed so far, indexed by class name. A
+	 * layout is the list of the names of the fields that are printed for
+	 * an instance of the class.
+	 */
+	protected final Map<String,JsonList> m_layouts = new ConcurrentHashMap<String,JsonList>();
+
+	/**
+	 * Creates a new reflection handler.
+	 * @param printer The JSON printer using this handler
+	 */
+	public JsonReflectionHandler(JsonPrinter printer)
+	{
+		super(printer);
+		m_jsonPrinter = printer;
+	}
+
+	@Override
+	protected PendingPrint<JsonElement> openFields(final Object o, Map<String,Object> contents) throws PrintException
+	{
+		if (!m_jsonPrinter.usesPositionalFields())
+		{
+			return super.openFields(o, contents);
+		}
+		JsonList layout = getLayout(o.getClass(), contents);
+		List<Object> fields = new ArrayList<Object>(layout.size());
+		for (JsonElement name : layout)
+		{
+			fields.add(contents.get(((JsonString) name).stringValue()));
+		}
+		return new ElementPrint<JsonElement>(m_printer, fields)
+		{
+			@Override
+			protected JsonElement combine(List<JsonElement> elements)
+			{
+				JsonList values = new JsonList();
+				values.addAll(elements);
+				JsonMap map = new JsonMap();
+				map.put(JsonPrinter.CLASS_KEY, new JsonString(o.getClass().getName()));
+				map.put(JsonPrinter.FIELDS_KEY, values);
+				return map;
+			}
+		};
+	}
+
+	/**
+	 * Gets the layout of a class. The layout lists the fields of the class
+	 * in the order of its {@link ClassDescriptor}; it is computed for the
+	 * first instance of the class, and then reused.
+	 * @param clazz The class
+	 * @param contents The fields of an instance of this class
+	 * @return The layout
+	 */
+	protected JsonList getLayout(Class<?> clazz, Map<String,Object> contents)
+	{
+		JsonList layout = m_layouts.get(clazz.getName());
+		if (layout != null && layout.size() == contents.size())
+		{
+			return layout;
+		}
+		layout = new JsonList();
+		for (Field f : ClassDescriptor.forClass(clazz).getFields())
+		{
+			JsonString name = new JsonString(f.getName());
+			if (contents.containsKey(f.getName()) && !layout.contains(name))
+			{
+				layout.add(name);
+			}
+		}
+		m_layouts.put(clazz.getName(), layout);
+		return layout;
+	}
+
+	/**
+	 * Gets the layout of a class that has already been printed.
+	 * @param class_name The name of the class
+	 * @return The layout, or <tt>null</tt> if no instance of this class has
+	 * been printed with positional fields
+	 */
+	public JsonList getLayout(String class_name)
+	{
+		return m_layouts.get(class_name);
+	}
+}
@@ -0,0 +1,133 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.json;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ca.uqac.lif.azrael.ClassDescriptor;
+import ca.uqac.lif.azrael.PendingRead;
+import ca.uqac.lif.azrael.ReadException;
+import ca.uqac.lif.azrael.ReflectionReadHandler;
+import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonList;
+import ca.uqac.lif.json.JsonMap;
+import ca.uqac.lif.json.JsonString;
+
+/**
+ * Reflection handler of the {@link JsonReader}. An object printed with
+ * positional fields is read by giving each value of its list of fields to
+ * the field at the same position in the layout of its class, without
+ * first associating the values to the names of the fields.
+ * @author Sylvain Hallé
+ * @see JsonPrinter#usePositionalFields(boolean)
+ */
+public class JsonReflectionReadHandler extends ReflectionReadHandler<JsonElement>
+{
+	/**
+	 * The JSON reader using this handler
+	 */
+	protected JsonReader m_jsonReader;
+
+	/**
+	 * The fields designated by the last layout read for each class
+	 */
+	protected final Map<Class<?>,ResolvedLayout> m_resolved = new ConcurrentHashMap<Class<?>,ResolvedLayout>();
+
+	/**
+	 * Creates a new reflection handler.
+	 * @param reader The JSON reader using this handler
+	 */
+	public JsonReflectionReadHandler(JsonReader reader)
+	{
+		super(reader);
+		m_jsonReader = reader;
+	}
+
+	@Override
+	public PendingRead open(JsonElement o) throws ReadException
+	{
+		JsonList values = FieldLayouts.getValues(o);
+		if (values == null)
+		{
+			return super.open(o);
+		}
+		Class<?> clazz = m_jsonReader.unwrapType(o);
+		return openPositional(clazz, getFields(clazz, FieldLayouts.getLayout((JsonMap) o)), values);
+	}
+
+	/**
+	 * Gets the fields designated by a layout. The fields are looked up for
+	 * the first object of a class read with this layout, and then reused.
+	 * @param clazz The class
+	 * @param layout The layout, a list of field names
+	 * @return The fields, in the order of the layout
+	 * @throws ReadException Thrown if the class has no field of some name
+	 */
+	protected Field[] getFields(Class<?> clazz, JsonList layout) throws ReadException
+	{
+		ResolvedLayout resolved = m_resolved.get(clazz);
+		if (resolved != null && resolved.m_layout == layout)
+		{
+			return resolved.m_fields;
+		}
+		ClassDescriptor desc = ClassDescriptor.forClass(clazz);
+		Field[] fields = new Field[layout.size()];
+		for (int i = 0; i < fields.length; i++)
+		{
+			String name = ((JsonString) layout.get(i)).stringValue();
+			fields[i] = desc.getField(name);
+			if (fields[i] == null)
+			{
+				throw new ReadException(new NoSuchFieldException(name));
+			}
+		}
+		m_resolved.put(clazz, new ResolvedLayout(layout, fields));
+		return fields;
+	}
+
+	/**
+	 * A layout, along with the fields it designates in a class.
+	 */
+	protected static class ResolvedLayout
+	{
+		/**
+		 * The layout
+		 */
+		protected final JsonList m_layout;
+
+		/**
+		 * The fields, in the order of the layout
+		 */
+		protected final Field[] m_fields;
+
+		/**
+		 * Creates a new resolved layout.
+		 * @param layout The layout
+		 * @param fields The fields, in the order of the layout
+		 */
+		protected ResolvedLayout(JsonList layout, Field[] fields)
+		{
+			super();
+			m_layout = layout;
+			m_fields = fields;
+		}
+	}
+}
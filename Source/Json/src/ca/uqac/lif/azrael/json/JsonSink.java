@@ -0,0 +1,354 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import ca.uqac.lif.azrael.NumberEncoding;
+import ca.uqac.lif.azrael.PrintException;
+import ca.uqac.lif.azrael.stream.ObjectSink;
+import ca.uqac.lif.azrael.stream.StreamPrinter;
+
+/**
+ * Sink that writes the events of a {@link StreamPrinter} as JSON text.
+ * The text is the same as the one obtained by printing an object with a
+ * {@link JsonPrinter} and converting the resulting element into a string;
+ * it can therefore be read back with a {@link JsonStringReader}. However,
+ * it is written piece by piece to an {@link Appendable} (such as a
+ * {@link java.io.Writer}) as the object is traversed, instead of being
+ * built in memory first. The text goes through a {@link JsonWriter}, which
+ * buffers it and escapes strings in the same way as for a printed element.
+ * Typical usage:
+ * <pre>
+ * try (Writer w = new FileWriter("out.json"))
+ * {
+ *   new StreamPrinter(new JsonSink(w)).print(o);
+ * }
+ * </pre>
+ * The output is flushed each time a top-level value has been written.
+ * @author Sylvain Hallé
+ */
+public class JsonSink implements ObjectSink
+{
+	/**
+	 * The writer producing the JSON text
+	 */
+	protected JsonWriter m_out;
+
+	/**
+	 * The containers (wrapped objects, lists and maps) currently open,
+	 * the innermost one at the head of the deque
+	 */
+	protected Deque<Container> m_containers;
+
+	/**
+	 * Creates a new JSON sink.
+	 * @param out The destination of the JSON text
+	 */
+	public JsonSink(/*@ non_null @*/ Appendable out)
+	{
+		this(new JsonWriter(out));
+	}
+
+	/**
+	 * Creates a new JSON sink writing to an output stream, encoded in
+	 * UTF-8.
+	 * @param os The output stream
+	 */
+	public JsonSink(/*@ non_null @*/ OutputStream os)
+	{
+		this(new JsonWriter(os));
+	}
+
+	/**
+	 * Creates a new JSON sink writing through a JSON writer.
+	 * @param out The writer
+	 */
+	public JsonSink(/*@ non_null @*/ JsonWriter out)
+	{
+		super();
+		m_out = out;
+		m_containers = new ArrayDeque<Container>();
+	}
+
+	@Override
+	public void beginObject(String type) throws PrintException
+	{
+		beforeValue();
+		write("{\"" + JsonPrinter.CLASS_KEY + "\":");
+		writeString(type);
+		write(",\"" + JsonPrinter.CONTENT_KEY + "\":");
+		m_containers.push(new Container(Container.OBJECT));
+	}
+
+	@Override
+	public void endObject() throws PrintException
+	{
+		m_containers.pop();
+		write("}");
+		afterValue();
+	}
+
+	@Override
+	public void beginList(int size) throws PrintException
+	{
+		beforeValue();
+		write("[");
+		m_containers.push(new Container(Container.LIST));
+	}
+
+	@Override
+	public void endList() throws PrintException
+	{
+		m_containers.pop();
+		write("]");
+		afterValue();
+	}
+
+	@Override
+	public void beginMap(int size) throws PrintException
+	{
+		beforeValue();
+		write("{\"" + MapPrintHandler.KEY_NAME + "\":[");
+		m_containers.push(new Container(Container.MAP_KEYS));
+	}
+
+	@Override
+	public void entryKey() throws PrintException
+	{
+		Container c = m_containers.peek();
+		if (c.m_count++ > 0)
+		{
+			write(",");
+		}
+	}
+
+	@Override
+	public void entryValue() throws PrintException
+	{
+		Container c = m_containers.peek();
+		if (c.m_kind == Container.MAP_KEYS)
+		{
+			startValues(c);
+		}
+		if (c.m_count++ > 0)
+		{
+			write(",");
+		}
+	}
+
+	@Override
+	public void endMap() throws PrintException
+	{
+		Container c = m_containers.pop();
+		if (c.m_kind == Container.MAP_KEYS)
+		{
+			startValues(c);
+		}
+		write("]}");
+		afterValue();
+	}
+
+	/**
+	 * Always returns <tt>true</tt>, as a map is written as a list of keys
+	 * followed by a list of values.
+	 */
+	@Override
+	public boolean groupsMapKeys()
+	{
+		return true;
+	}
+
+	@Override
+	public void nullValue() throws PrintException
+	{
+		beforeValue();
+		write("null");
+		afterValue();
+	}
+
+	@Override
+	public void value(boolean b) throws PrintException
+	{
+		beforeValue();
+		write(b ? "true" : "false");
+		afterValue();
+	}
+
+	@Override
+	public void value(Number n) throws PrintException
+	{
+		// Same encoding as the NumberPrintHandler
+		beforeValue();
+		writeString(NumberEncoding.encode(n));
+		afterValue();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * As with the {@link StringPrintHandler}, a string that reads like a
+	 * number is written wrapped with its type, unless it already is the
+	 * contents of a wrapped object.
+	 */
+	@Override
+	public void value(String s) throws PrintException
+	{
+		Container c = m_containers.peek();
+		if ((c == null || c.m_kind != Container.OBJECT) && NumberReadHandler.scan(s) != 0)
+		{
+			beginObject(String.class.getName());
+			value(s);
+			endObject();
+			return;
+		}
+		beforeValue();
+		writeString(s);
+		afterValue();
+	}
+
+	/**
+	 * Closes the list of keys of a map and opens its list of values.
+	 * @param c The container representing the map
+	 * @throws PrintException Thrown if the text cannot be written
+	 */
+	protected void startValues(Container c) throws PrintException
+	{
+		write("],\"" + MapPrintHandler.KEY_VALUE + "\":[");
+		c.m_kind = Container.MAP_VALUES;
+		c.m_count = 0;
+	}
+
+	/**
+	 * Writes the separator that must precede a value in its container, if
+	 * any.
+	 * @throws PrintException Thrown if the text cannot be written
+	 */
+	protected void beforeValue() throws PrintException
+	{
+		Container c = m_containers.peek();
+		if (c != null && c.m_kind == Container.LIST && c.m_count++ > 0)
+		{
+			write(",");
+		}
+	}
+
+	/**
+	 * Flushes the output once a top-level value has been written.
+	 * @throws PrintException Thrown if the output cannot be flushed
+	 */
+	protected void afterValue() throws PrintException
+	{
+		if (m_containers.isEmpty())
+		{
+			try
+			{
+				m_out.flush();
+			}
+			catch (IOException e)
+			{
+				throw new PrintException(e);
+			}
+		}
+	}
+
+	/**
+	 * Writes a string as a quoted and escaped JSON string. The string is
+	 * escaped directly into the output, without being copied first.
+	 * @param s The string
+	 * @throws PrintException Thrown if the text cannot be written
+	 */
+	protected void writeString(String s) throws PrintException
+	{
+		try
+		{
+			m_out.writeString(s);
+		}
+		catch (IOException e)
+		{
+			throw new PrintException(e);
+		}
+	}
+
+	/**
+	 * Writes text to the output.
+	 * @param s The text
+	 * @throws PrintException Thrown if the text cannot be written
+	 */
+	protected void write(CharSequence s) throws PrintException
+	{
+		try
+		{
+			m_out.append(s);
+		}
+		catch (IOException e)
+		{
+			throw new PrintException(e);
+		}
+	}
+
+	/**
+	 * A JSON structure that has been opened but not yet closed.
+	 */
+	protected static class Container
+	{
+		/**
+		 * A wrapped object, whose content is a single value
+		 */
+		protected static final int OBJECT = 0;
+
+		/**
+		 * A list
+		 */
+		protected static final int LIST = 1;
+
+		/**
+		 * A map whose keys are being written
+		 */
+		protected static final int MAP_KEYS = 2;
+
+		/**
+		 * A map whose values are being written
+		 */
+		protected static final int MAP_VALUES = 3;
+
+		/**
+		 * The kind of structure
+		 */
+		protected int m_kind;
+
+		/**
+		 * The number of elements written so far in this structure
+		 */
+		protected int m_count = 0;
+
+		/**
+		 * Creates a new container.
+		 * @param kind The kind of structure
+		 */
+		protected Container(int kind)
+		{
+			super();
+			m_kind = kind;
+		}
+	}
+}
@@ -0,0 +1,1046 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import ca.uqac.lif.azrael.ReadException;
+import ca.uqac.lif.azrael.stream.ObjectSource;
+import ca.uqac.lif.azrael.stream.StreamReader;
+import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonFalse;
+import ca.uqac.lif.json.JsonList;
+import ca.uqac.lif.json.JsonMap;
+import ca.uqac.lif.json.JsonNull;
+import ca.uqac.lif.json.JsonNumber;
+import ca.uqac.lif.json.JsonString;
+import ca.uqac.lif.json.JsonTrue;
+
+/**
+ * Source that produces events by tokenizing JSON text, in the format
+ * written by a {@link JsonPrinter} or a {@link JsonSink}. The text is read
+ * from a {@link Reader}, an {@link InputStream} or a {@link ByteBuffer}
+ * through a buffer of fixed size, and only the structures currently open
+ * are kept in memory. Used together with a
+ * {@link StreamReader}, it makes it possible to read a document much larger
+ * than the available memory:
+ * <pre>
+ * try (JsonSource source = new JsonSource(new FileInputStream("in.json")))
+ * {
+ *   Iterator&lt;Object&gt; it = new StreamReader().iterate(source);
+ *   ...
+ * }
+ * </pre>
+ * The key holding the class of a wrapped object is expected before the key
+ * holding its contents, which is always the case for text written by a
+ * {@link JsonSink}. When the contents come first, they are held in memory
+ * until the class is read. Other JSON objects are read as maps from strings
+ * to values. References between objects are not supported.
+ * <p>
+ * Alternately, {@link #readElement()} reads a complete value as a
+ * {@link JsonElement}, keeping all its keys; this is how a
+ * {@link JsonStringReader} reads text that does not come as a string. The
+ * element is then held in memory in full, but can be in any of the formats
+ * produced by a {@link JsonPrinter}, including those that the events cannot
+ * represent (headers, references and positional fields).
+ * @author Sylvain Hallé
+ */
+public class JsonSource implements ObjectSource, Closeable
+{
+	/**
+	 * The size of the buffer holding the characters read in advance
+	 */
+	protected static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * The text to tokenize, or <tt>null</tt> if the text is decoded from
+	 * a byte buffer
+	 */
+	protected Reader m_in;
+
+	/**
+	 * The bytes to decode into the text to tokenize, or <tt>null</tt> if
+	 * the text is read from a {@link Reader}
+	 */
+	protected ByteBuffer m_bytes;
+
+	/**
+	 * The decoder turning {@link #m_bytes} into characters
+	 */
+	protected CharsetDecoder m_decoder;
+
+	/**
+	 * The characters read in advance from the input
+	 */
+	protected final char[] m_buffer = new char[BUFFER_SIZE];
+
+	/**
+	 * The position of the next character to read in {@link #m_buffer}
+	 */
+	protected int m_position = 0;
+
+	/**
+	 * The number of characters available in {@link #m_buffer}
+	 */
+	protected int m_limit = 0;
+
+	/**
+	 * A character read in advance, or -2 if there is none
+	 */
+	protected int m_pushedBack = -2;
+
+	/**
+	 * The structures currently open, the innermost one at the head of the
+	 * deque
+	 */
+	protected Deque<Frame> m_frames;
+
+	/**
+	 * The event returned by {@link #peek()} and not yet consumed
+	 */
+	protected Event m_peeked;
+
+	/**
+	 * The class name of the last object
+	 */
+	protected String m_type;
+
+	/**
+	 * The value of the last string, or the text of the last number if it was
+	 * written as a string
+	 */
+	protected String m_string;
+
+	/**
+	 * The value of the last number
+	 */
+	protected Number m_number;
+
+	/**
+	 * The value of the last Boolean
+	 */
+	protected boolean m_boolean;
+
+	/**
+	 * Creates a new JSON source.
+	 * @param in The reader providing the text
+	 */
+	public JsonSource(/*@ non_null @*/ Reader in)
+	{
+		super();
+		m_in = in;
+		m_frames = new ArrayDeque<Frame>();
+	}
+
+	/**
+	 * Creates a new JSON source reading from an input stream, encoded in
+	 * UTF-8.
+	 * @param is The input stream
+	 */
+	public JsonSource(/*@ non_null @*/ InputStream is)
+	{
+		this(new InputStreamReader(is, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Creates a new JSON source reading from a byte buffer, encoded in
+	 * UTF-8. The bytes are decoded as they are needed, from the current
+	 * position of the buffer up to its limit.
+	 * @param bytes The byte buffer
+	 */
+	public JsonSource(/*@ non_null @*/ ByteBuffer bytes)
+	{
+		super();
+		m_bytes = bytes;
+		m_decoder = StandardCharsets.UTF_8.newDecoder();
+		m_frames = new ArrayDeque<Frame>();
+	}
+
+	/**
+	 * Creates a new JSON source reading from a string.
+	 * @param s The string
+	 */
+	public JsonSource(/*@ non_null @*/ String s)
+	{
+		this(new StringReader(s));
+	}
+
+	@Override
+	public Event next() throws ReadException
+	{
+		if (m_peeked != null)
+		{
+			Event e = m_peeked;
+			m_peeked = null;
+			return e;
+		}
+		return nextEvent();
+	}
+
+	@Override
+	public Event peek() throws ReadException
+	{
+		if (m_peeked == null)
+		{
+			m_peeked = nextEvent();
+		}
+		return m_peeked;
+	}
+
+	@Override
+	public String getType()
+	{
+		return m_type;
+	}
+
+	@Override
+	public String getString()
+	{
+		return m_string;
+	}
+
+	@Override
+	public Number getNumber()
+	{
+		return m_number;
+	}
+
+	@Override
+	public boolean getBoolean()
+	{
+		return m_boolean;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if (m_in != null)
+		{
+			m_in.close();
+		}
+	}
+
+	/**
+	 * Reads the next complete value as a JSON element. Contrary to the
+	 * events returned by {@link #next()}, the element keeps all the keys of
+	 * the objects in the text, including those holding identifiers and
+	 * references. Numbers written with a type suffix are left as strings.
+	 * The element is built iteratively, so that values of arbitrary depth
+	 * can be read.
+	 * @return The element
+	 * @throws ReadException Thrown if the text is not valid, or if this
+	 * method is called while a structure is open
+	 */
+	public JsonElement readElement() throws ReadException
+	{
+		if (m_peeked != null || !m_frames.isEmpty())
+		{
+			throw new ReadException("Cannot read an element inside a structure");
+		}
+		return readTree();
+	}
+
+	/**
+	 * Reads the value starting at the current position as a JSON element.
+	 * @return The element
+	 * @throws ReadException Thrown if the text is not valid
+	 * @see #readElement()
+	 */
+	protected JsonElement readTree() throws ReadException
+	{
+		Deque<JsonElement> open = new ArrayDeque<JsonElement>();
+		Deque<String> keys = new ArrayDeque<String>();
+		JsonElement root = null;
+		while (true)
+		{
+			JsonElement e;
+			boolean first = false;
+			switch (peekChar())
+			{
+			case '{':
+				readChar();
+				e = new JsonMap();
+				first = true;
+				break;
+			case '[':
+				readChar();
+				e = new JsonList();
+				first = true;
+				break;
+			default:
+				e = readScalarElement();
+			}
+			JsonElement parent = open.peek();
+			if (parent == null)
+			{
+				root = e;
+			}
+			else if (parent instanceof JsonMap)
+			{
+				((JsonMap) parent).put(keys.pop(), e);
+			}
+			else
+			{
+				((JsonList) parent).add(e);
+			}
+			if (first)
+			{
+				open.push(e);
+			}
+			// Close structures until the position of the next value is reached
+			while (true)
+			{
+				parent = open.peek();
+				if (parent == null)
+				{
+					return root;
+				}
+				boolean map = parent instanceof JsonMap;
+				if (peekChar() == (map ? '}' : ']'))
+				{
+					readChar();
+					open.pop();
+					first = false;
+					continue;
+				}
+				if (!first)
+				{
+					expect(',');
+				}
+				if (map)
+				{
+					keys.push(readKey(null));
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Reads a value that is not a list or an object as a JSON element.
+	 * @return The element
+	 * @throws ReadException Thrown if the text is not valid
+	 */
+	protected JsonElement readScalarElement() throws ReadException
+	{
+		int c = peekChar();
+		switch (c)
+		{
+		case '"':
+			readChar();
+			return new JsonString(readString());
+		case 't':
+			readLiteral("true");
+			return JsonTrue.instance;
+		case 'f':
+			readLiteral("false");
+			return JsonFalse.instance;
+		case 'n':
+			readLiteral("null");
+			return JsonNull.instance;
+		case -1:
+			throw new ReadException("Unexpected end of input");
+		default:
+			if (c == '-' || (c >= '0' && c <= '9'))
+			{
+				return new JsonNumber(readNativeNumber());
+			}
+			throw new ReadException("Unexpected character '" + (char) c + "'");
+		}
+	}
+
+	/**
+	 * Reads the text up to the next event.
+	 * @return The event
+	 * @throws ReadException Thrown if the text is not valid
+	 */
+	protected Event nextEvent() throws ReadException
+	{
+		Frame f = m_frames.peek();
+		if (f == null)
+		{
+			if (peekChar() == -1)
+			{
+				return Event.END_DOCUMENT;
+			}
+			return valueEvent();
+		}
+		switch (f.m_kind)
+		{
+		case Frame.LIST:
+			if (peekChar() == ']')
+			{
+				readChar();
+				m_frames.pop();
+				return Event.END_LIST;
+			}
+			if (f.m_count++ > 0)
+			{
+				expect(',');
+			}
+			return valueEvent();
+		case Frame.OBJECT:
+			if (f.m_replay != null)
+			{
+				Event e = f.m_replay.next();
+				if (e != Event.END_DOCUMENT)
+				{
+					m_type = f.m_replay.m_type;
+					m_string = f.m_replay.m_string;
+					m_number = f.m_replay.m_number;
+					m_boolean = f.m_replay.m_boolean;
+					return e;
+				}
+				// The keys following the contents have already been read
+				f.m_replay = null;
+				f.m_state = 1;
+			}
+			if (f.m_state == 0)
+			{
+				f.m_state = 1;
+				return valueEvent();
+			}
+			while (peekChar() == ',')
+			{
+				readChar();
+				readKey(JsonPrinter.ID_KEY);
+				skipScalar();
+			}
+			expect('}');
+			m_frames.pop();
+			return Event.END_OBJECT;
+		case Frame.MAP_KEYS:
+		case Frame.MAP_VALUES:
+			if (f.m_state == 1)
+			{
+				f.m_state = 0;
+				return valueEvent();
+			}
+			if (peekChar() == ']')
+			{
+				readChar();
+				if (f.m_secondList)
+				{
+					expect('}');
+					m_frames.pop();
+					return Event.END_MAP;
+				}
+				// Move on to the other list, in whichever order they appear
+				expect(',');
+				readKey(f.m_kind == Frame.MAP_KEYS ? MapPrintHandler.KEY_VALUE : MapPrintHandler.KEY_NAME);
+				expect('[');
+				f.m_kind = f.m_kind == Frame.MAP_KEYS ? Frame.MAP_VALUES : Frame.MAP_KEYS;
+				f.m_secondList = true;
+				f.m_count = 0;
+				return nextEvent();
+			}
+			if (f.m_count++ > 0)
+			{
+				expect(',');
+			}
+			f.m_state = 1;
+			return f.m_kind == Frame.MAP_KEYS ? Event.ENTRY_KEY : Event.ENTRY_VALUE;
+		default:
+			// A plain JSON object
+			switch (f.m_state)
+			{
+			case 4:
+				f.m_state = 1;
+				return Event.ENTRY_KEY;
+			case 1:
+				f.m_state = 2;
+				m_string = f.m_key;
+				return Event.STRING;
+			case 2:
+				f.m_state = 3;
+				return Event.ENTRY_VALUE;
+			case 3:
+				f.m_state = 0;
+				return valueEvent();
+			default:
+				if (peekChar() == '}')
+				{
+					readChar();
+					m_frames.pop();
+					return Event.END_MAP;
+				}
+				expect(',');
+				f.m_key = readKey(null);
+				f.m_state = 1;
+				return Event.ENTRY_KEY;
+			}
+		}
+	}
+
+	/**
+	 * Reads the beginning of a value.
+	 * @return The event corresponding to this value
+	 * @throws ReadException Thrown if the text is not valid
+	 */
+	protected Event valueEvent() throws ReadException
+	{
+		int c = peekChar();
+		switch (c)
+		{
+		case '"':
+		{
+			readChar();
+			String s = readString();
+			m_string = s;
+			if (NumberReadHandler.scan(s) != 0)
+			{
+				m_number = parseNumber(s);
+				return Event.NUMBER;
+			}
+			return Event.STRING;
+		}
+		case '[':
+			readChar();
+			m_frames.push(new Frame(Frame.LIST));
+			return Event.BEGIN_LIST;
+		case '{':
+			readChar();
+			return objectEvent();
+		case 't':
+			readLiteral("true");
+			m_boolean = true;
+			return Event.BOOLEAN;
+		case 'f':
+			readLiteral("false");
+			m_boolean = false;
+			return Event.BOOLEAN;
+		case 'n':
+			readLiteral("null");
+			return Event.NULL;
+		case -1:
+			throw new ReadException("Unexpected end of input");
+		default:
+			if (c == '-' || (c >= '0' && c <= '9'))
+			{
+				m_number = readNativeNumber();
+				m_string = null;
+				return Event.NUMBER;
+			}
+			throw new ReadException("Unexpected character '" + (char) c + "'");
+		}
+	}
+
+	/**
+	 * Reads the beginning of a JSON object, and determines whether it is a
+	 * wrapped object, a map or a plain object from its first key.
+	 * @return The event corresponding to this object
+	 * @throws ReadException Thrown if the text is not valid
+	 */
+	protected Event objectEvent() throws ReadException
+	{
+		if (peekChar() == '}')
+		{
+			Frame f = new Frame(Frame.PLAIN);
+			m_frames.push(f);
+			return Event.BEGIN_MAP;
+		}
+		String key = readKey(null);
+		while (key.compareTo(JsonPrinter.ID_KEY) == 0)
+		{
+			skipScalar();
+			expect(',');
+			key = readKey(null);
+		}
+		if (key.compareTo(JsonPrinter.CLASS_KEY) == 0)
+		{
+			expect('"');
+			m_type = readString();
+			expect(',');
+			key = readKey(null);
+			while (key.compareTo(JsonPrinter.ID_KEY) == 0)
+			{
+				skipScalar();
+				expect(',');
+				key = readKey(null);
+			}
+			if (key.compareTo(JsonPrinter.CONTENT_KEY) != 0)
+			{
+				throw new ReadException("Expected the key " + JsonPrinter.CONTENT_KEY + ", got " + key);
+			}
+			m_frames.push(new Frame(Frame.OBJECT));
+			return Event.BEGIN_OBJECT;
+		}
+		if (key.compareTo(JsonPrinter.CONTENT_KEY) == 0)
+		{
+			return replayedObjectEvent();
+		}
+		if (key.compareTo(JsonPrinter.REF_KEY) == 0)
+		{
+			throw new ReadException("References to objects are not supported");
+		}
+		if (key.compareTo(MapPrintHandler.KEY_NAME) == 0 || key.compareTo(MapPrintHandler.KEY_VALUE) == 0)
+		{
+			expect('[');
+			m_frames.push(new Frame(key.compareTo(MapPrintHandler.KEY_NAME) == 0 ? Frame.MAP_KEYS : Frame.MAP_VALUES));
+			return Event.BEGIN_MAP;
+		}
+		Frame f = new Frame(Frame.PLAIN);
+		f.m_key = key;
+		f.m_state = 4;
+		m_frames.push(f);
+		return Event.BEGIN_MAP;
+	}
+
+	/**
+	 * Reads the beginning of a wrapped object whose contents are written
+	 * before its class. As the events for the contents can only be produced
+	 * once the class is known, the contents are first read as a JSON
+	 * element; their events are then produced from this element. Only the
+	 * contents of such an object are held in memory.
+	 * @return The event corresponding to this object
+	 * @throws ReadException Thrown if the text is not valid
+	 */
+	protected Event replayedObjectEvent() throws ReadException
+	{
+		JsonElement contents = readTree();
+		String type = null;
+		while (peekChar() == ',')
+		{
+			readChar();
+			String key = readKey(null);
+			if (key.compareTo(JsonPrinter.CLASS_KEY) == 0)
+			{
+				expect('"');
+				type = readString();
+			}
+			else if (key.compareTo(JsonPrinter.ID_KEY) == 0)
+			{
+				skipScalar();
+			}
+			else
+			{
+				throw new ReadException("Unexpected key " + key + " in a wrapped object");
+			}
+		}
+		if (type == null)
+		{
+			throw new ReadException("No class given for a wrapped object");
+		}
+		StringBuilder text = new StringBuilder();
+		try
+		{
+			JsonWriter w = new JsonWriter(text);
+			w.write(contents);
+			w.flush();
+		}
+		catch (IOException e)
+		{
+			throw new ReadException(e);
+		}
+		m_type = type;
+		Frame f = new Frame(Frame.OBJECT);
+		f.m_replay = new JsonSource(text.toString());
+		m_frames.push(f);
+		return Event.BEGIN_OBJECT;
+	}
+
+	/**
+	 * Reads a key of a JSON object, including the colon that follows it.
+	 * @param expected The expected key, or <tt>null</tt> to accept any key
+	 * @return The key
+	 * @throws ReadException Thrown if the text is not valid, or if the key is
+	 * not the expected one
+	 */
+	protected String readKey(String expected) throws ReadException
+	{
+		expect('"');
+		String key = readString();
+		if (expected != null && key.compareTo(expected) != 0)
+		{
+			throw new ReadException("Expected the key " + expected + ", got " + key);
+		}
+		expect(':');
+		return key;
+	}
+
+	/**
+	 * Reads and discards a value that is not a list or an object.
+	 * @throws ReadException Thrown if the text is not valid
+	 */
+	protected void skipScalar() throws ReadException
+	{
+		int c = peekChar();
+		if (c == '[' || c == '{')
+		{
+			throw new ReadException("Expected a scalar value");
+		}
+		valueEvent();
+	}
+
+	/**
+	 * Reads the rest of a string, whose opening quote has already been read,
+	 * and decodes its escape sequences.
+	 * @return The string
+	 * @throws ReadException Thrown if the string is not terminated
+	 */
+	protected String readString() throws ReadException
+	{
+		StringBuilder sb = new StringBuilder();
+		while (true)
+		{
+			int c = read();
+			if (c == -1)
+			{
+				throw new ReadException("Unterminated string");
+			}
+			if (c == '"')
+			{
+				return sb.toString();
+			}
+			if (c != '\\')
+			{
+				sb.append((char) c);
+				continue;
+			}
+			c = read();
+			switch (c)
+			{
+			case 'b':
+				sb.append('\b');
+				break;
+			case 'f':
+				sb.append('\f');
+				break;
+			case 'n':
+				sb.append('\n');
+				break;
+			case 'r':
+				sb.append('\r');
+				break;
+			case 't':
+				sb.append('\t');
+				break;
+			case 'u':
+			{
+				int code = 0;
+				for (int i = 0; i < 4; i++)
+				{
+					int d = Character.digit(read(), 16);
+					if (d < 0)
+					{
+						throw new ReadException("Invalid escape sequence");
+					}
+					code = code * 16 + d;
+				}
+				sb.append((char) code);
+				break;
+			}
+			case -1:
+				throw new ReadException("Unterminated string");
+			default:
+				sb.append((char) c);
+			}
+		}
+	}
+
+	/**
+	 * Reads a number written as a JSON number, rather than as a string
+	 * with a type suffix. Integers are read as an {@link Integer}, or as a
+	 * {@link Long} if they do not fit; other numbers are read as a
+	 * {@link Double}.
+	 * @return The number
+	 * @throws ReadException Thrown if the number is not valid
+	 */
+	protected Number readNativeNumber() throws ReadException
+	{
+		StringBuilder sb = new StringBuilder();
+		boolean integer = true;
+		while (true)
+		{
+			int c = m_pushedBack;
+			if (c == -2)
+			{
+				c = read();
+				m_pushedBack = c;
+			}
+			if ((c >= '0' && c <= '9') || c == '-' || c == '+')
+			{
+				sb.append((char) c);
+			}
+			else if (c == '.' || c == 'e' || c == 'E')
+			{
+				sb.append((char) c);
+				integer = false;
+			}
+			else
+			{
+				break;
+			}
+			m_pushedBack = -2;
+		}
+		try
+		{
+			if (integer)
+			{
+				long l = Long.parseLong(sb.toString());
+				if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE)
+				{
+					return (int) l;
+				}
+				return l;
+			}
+			return Double.parseDouble(sb.toString());
+		}
+		catch (NumberFormatException e)
+		{
+			throw new ReadException(e);
+		}
+	}
+
+	/**
+	 * Parses a string representing a number with a type suffix.
+	 * @param s The string
+	 * @return The number
+	 * @throws ReadException Thrown if the number is not valid
+	 */
+	protected static Number parseNumber(String s) throws ReadException
+	{
+		String beginning = s.substring(0, s.length() - 1);
+		try
+		{
+			switch (s.charAt(s.length() - 1))
+			{
+			case 'L':
+				return Long.parseLong(beginning);
+			case 'I':
+				return Integer.parseInt(beginning);
+			case 'F':
+				return Float.parseFloat(beginning);
+			default:
+				return Double.parseDouble(beginning);
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			throw new ReadException(e);
+		}
+	}
+
+	/**
+	 * Reads a literal such as <tt>true</tt> or <tt>null</tt>.
+	 * @param literal The expected literal
+	 * @throws ReadException Thrown if the text does not contain this literal
+	 */
+	protected void readLiteral(String literal) throws ReadException
+	{
+		readChar();
+		for (int i = 1; i < literal.length(); i++)
+		{
+			if (read() != literal.charAt(i))
+			{
+				throw new ReadException("Expected " + literal);
+			}
+		}
+	}
+
+	/**
+	 * Skips whitespace, and reads the next character, which must be the
+	 * expected one.
+	 * @param expected The expected character
+	 * @throws ReadException Thrown if the character is not the expected one
+	 */
+	protected void expect(char expected) throws ReadException
+	{
+		int c = readChar();
+		if (c != expected)
+		{
+			throw new ReadException("Expected '" + expected + "', got " + (c == -1 ? "end of input" : "'" + (char) c + "'"));
+		}
+	}
+
+	/**
+	 * Skips whitespace, and gets the next character without consuming it.
+	 * @return The character, or -1 at the end of the input
+	 * @throws ReadException Thrown if the input cannot be read
+	 */
+	protected int peekChar() throws ReadException
+	{
+		int c = readChar();
+		m_pushedBack = c;
+		return c;
+	}
+
+	/**
+	 * Skips whitespace, and reads the next character.
+	 * @return The character, or -1 at the end of the input
+	 * @throws ReadException Thrown if the input cannot be read
+	 */
+	protected int readChar() throws ReadException
+	{
+		int c = read();
+		while (c == ' ' || c == '\n' || c == '\r' || c == '\t')
+		{
+			c = read();
+		}
+		return c;
+	}
+
+	/**
+	 * Reads the next character, taking into account a character read in
+	 * advance.
+	 * @return The character, or -1 at the end of the input
+	 * @throws ReadException Thrown if the input cannot be read
+	 */
+	protected int read() throws ReadException
+	{
+		if (m_pushedBack != -2)
+		{
+			int c = m_pushedBack;
+			m_pushedBack = -2;
+			return c;
+		}
+		if (m_position == m_limit && !fill())
+		{
+			return -1;
+		}
+		return m_buffer[m_position++];
+	}
+
+	/**
+	 * Reads the next characters of the input into the buffer, replacing
+	 * the characters it contains.
+	 * @return <tt>true</tt> if at least one character was read,
+	 * <tt>false</tt> at the end of the input
+	 * @throws ReadException Thrown if the input cannot be read or decoded
+	 */
+	protected boolean fill() throws ReadException
+	{
+		m_position = 0;
+		m_limit = 0;
+		try
+		{
+			if (m_in == null)
+			{
+				CharBuffer out = CharBuffer.wrap(m_buffer);
+				CoderResult r = m_decoder.decode(m_bytes, out, true);
+				if (r.isError())
+				{
+					r.throwException();
+				}
+				m_limit = out.position();
+				return m_limit > 0;
+			}
+			int n = 0;
+			while (n == 0)
+			{
+				n = m_in.read(m_buffer, 0, m_buffer.length);
+			}
+			if (n < 0)
+			{
+				return false;
+			}
+			m_limit = n;
+			return true;
+		}
+		catch (IOException e)
+		{
+			throw new ReadException(e);
+		}
+	}
+
+	/**
+	 * A JSON structure that has been opened but not yet closed.
+	 */
+	protected static class Frame
+	{
+		/**
+		 * A list
+		 */
+		protected static final int LIST = 0;
+
+		/**
+		 * A wrapped object
+		 */
+		protected static final int OBJECT = 1;
+
+		/**
+		 * A map whose list of keys is being read
+		 */
+		protected static final int MAP_KEYS = 2;
+
+		/**
+		 * A map whose list of values is being read
+		 */
+		protected static final int MAP_VALUES = 3;
+
+		/**
+		 * A JSON object that is neither a wrapped object nor a map
+		 */
+		protected static final int PLAIN = 4;
+
+		/**
+		 * The kind of structure
+		 */
+		protected int m_kind;
+
+		/**
+		 * The number of elements read so far in the current list
+		 */
+		protected int m_count = 0;
+
+		/**
+		 * The position within the current element, whose meaning depends on
+		 * the kind of structure
+		 */
+		protected int m_state = 0;
+
+		/**
+		 * For a map, whether the list being read is the second one
+		 */
+		protected boolean m_secondList = false;
+
+		/**
+		 * For a plain object, the key of the current entry
+		 */
+		protected String m_key;
+
+		/**
+		 * For a wrapped object whose contents come before its class, the
+		 * source producing the events of the contents
+		 */
+		protected JsonSource m_replay;
+
+		/**
+		 * Creates a new frame.
+		 * @param kind The kind of structure
+		 */
+		protected Frame(int kind)
+		{
+			super();
+			m_kind = kind;
+		}
+	}
+}
@@ -18,16 +18,45 @@
  */
 package ca.uqac.lif.azrael.json;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
 import ca.uqac.lif.azrael.ObjectPrinter;
 import ca.uqac.lif.azrael.PrintException;
+import ca.uqac.lif.azrael.metrics.SerializationObserver;
 import ca.uqac.lif.json.JsonElement;
 
 /**
  * Object printer that prints an object into a JSON <em>string</em>.
+ * <p>
+ * The JSON text can also be written to a {@link Writer} or an
+ * {@link OutputStream} with {@link #print(Object, Writer)} and
+ * {@link #print(Object, OutputStream)}. These methods avoid building the
+ * string of the text, but not the {@link JsonElement} of the object, which
+ * is produced in full by the underlying {@link JsonPrinter} before being
+ * written. Printing with bounded memory requires a
+ * {@link ca.uqac.lif.azrael.stream.StreamPrinter} with a {@link JsonSink}
+ * instead.
  * @author Sylvain Hallé
  */
 public class JsonStringPrinter extends ObjectPrinter<String>
 {
+	/**
+	 * A printer with default settings, shared by all the calls to
+	 * {@link #toJson(Object)}
+	 */
+	protected static final JsonStringPrinter s_defaultPrinter = new JsonStringPrinter();
+
+	/**
+	 * The writer receiving the text of the object being printed by
+	 * {@link #print(Object, Writer)} in each thread, if any
+	 */
+	protected final ThreadLocal<JsonWriter> m_output = new ThreadLocal<JsonWriter>();
+
 	/**
 	 * Prints an object into a JSON string using default settings.
 	 * @param o The object to print
@@ -37,8 +66,7 @@ public class JsonStringPrinter extends ObjectPrinter<String>
 	 */
 	public static String toJson(Object o) throws PrintException
 	{
-		JsonStringPrinter jsp = new JsonStringPrinter();
-		return jsp.print(o);
+		return s_defaultPrinter.print(o);
 	}
 	
 	/**
@@ -56,10 +84,271 @@ public class JsonStringPrinter extends ObjectPrinter<String>
 	}
 	
 	@Override
-	public String print(Object o) throws PrintException
+	public void trackReferences(boolean b)
+	{
+		super.trackReferences(b);
+		m_printer.trackReferences(b);
+	}
+
+	/**
+	 * Sets whether the printer replaces class names by indices in a table
+	 * of names.
+	 * @param b <tt>true</tt> to use a class dictionary, <tt>false</tt>
+	 * otherwise (default)
+	 * @see JsonPrinter#useClassDictionary(boolean)
+	 */
+	public void useClassDictionary(boolean b)
+	{
+		m_printer.useClassDictionary(b);
+	}
+
+	/**
+	 * Sets whether the printer prints the fields of objects as a list of
+	 * values.
+	 * @param b <tt>true</tt> to use positional fields, <tt>false</tt>
+	 * otherwise (default)
+	 * @see JsonPrinter#usePositionalFields(boolean)
+	 */
+	public void usePositionalFields(boolean b)
+	{
+		m_printer.usePositionalFields(b);
+	}
+
+	/**
+	 * Sets whether the printer prints numbers as native JSON numbers.
+	 * @param b <tt>true</tt> to print native numbers, <tt>false</tt>
+	 * otherwise (default)
+	 * @see JsonPrinter#useNativeNumbers(boolean)
+	 */
+	public void useNativeNumbers(boolean b)
+	{
+		m_printer.useNativeNumbers(b);
+	}
+
+	/**
+	 * Sets whether the printer prints maps with string keys as JSON
+	 * objects.
+	 * @param b <tt>true</tt> to print maps as JSON objects, <tt>false</tt>
+	 * otherwise (default)
+	 * @see JsonPrinter#useNativeMaps(boolean)
+	 */
+	public void useNativeMaps(boolean b)
+	{
+		m_printer.useNativeMaps(b);
+	}
+
+	@Override
+	public void elideTypes(boolean b)
+	{
+		super.elideTypes(b);
+		m_printer.elideTypes(b);
+	}
+
+	@Override
+	public void setMaxDepth(int depth)
+	{
+		super.setMaxDepth(depth);
+		m_printer.setMaxDepth(depth);
+	}
+
+	@Override
+	public void setMaxNodes(long nodes)
+	{
+		super.setMaxNodes(nodes);
+		m_printer.setMaxNodes(nodes);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The limit is enforced by the underlying {@link JsonPrinter} as the
+	 * object is traversed, so that only the parts of the object whose text
+	 * is too long are truncated.
+	 */
+	@Override
+	public void setMaxSize(long size)
+	{
+		super.setMaxSize(size);
+		m_printer.setMaxSize(size);
+	}
+
+	@Override
+	public void setTimeLimit(long millis)
+	{
+		super.setTimeLimit(millis);
+		m_printer.setTimeLimit(millis);
+	}
+
+	@Override
+	public void truncateOnLimit(boolean b)
 	{
+		super.truncateOnLimit(b);
+		m_printer.truncateOnLimit(b);
+	}
+
+	@Override
+	public void setTruncationMarker(Object marker)
+	{
+		super.setTruncationMarker(marker);
+		m_printer.setTruncationMarker(marker);
+	}
+
+	@Override
+	public void setParallelThreshold(int threshold)
+	{
+		super.setParallelThreshold(threshold);
+		m_printer.setParallelThreshold(threshold);
+	}
+
+	@Override
+	public void setForkJoinPool(ForkJoinPool pool)
+	{
+		super.setForkJoinPool(pool);
+		m_printer.setForkJoinPool(pool);
+	}
+
+	@Override
+	public void setObserver(SerializationObserver observer)
+	{
+		super.setObserver(observer);
+		m_printer.setObserver(observer);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If an observer is set, it is notified of the objects printed by the
+	 * underlying {@link JsonPrinter}. In addition, it is notified of the
+	 * object passed to this method with this class as the handler; the
+	 * time excluding contained objects is then the time taken to convert
+	 * the JSON element into a string, and the size is the length of this
+	 * string.
+	 */
+	@Override
+	protected String printTracked(Object o) throws PrintException
+	{
+		JsonWriter w = m_output.get();
+		if (w != null)
+		{
+			printTo(o, w);
+			return null;
+		}
+		SerializationObserver observer = m_observer;
+		if (observer == null)
+		{
+			return m_printer.print(o).toString();
+		}
+		long start = System.nanoTime();
 		JsonElement je = m_printer.print(o);
-		return je.toString();
+		long printed = System.nanoTime();
+		String s = je.toString();
+		long end = System.nanoTime();
+		observer.objectPrinted(o == null ? null : o.getClass(), getClass(), 0, end - start, end - printed, s.length());
+		return s;
+	}
+
+	/**
+	 * Prints an object as JSON text to a writer. The element of the object
+	 * is first produced in full by the underlying {@link JsonPrinter}, and
+	 * then written by a {@link JsonWriter} as it is traversed, instead of
+	 * being converted into a string. The text is meant to be the same as
+	 * the string returned by {@link #print(Object)}; since the latter is
+	 * produced by json-lif, this holds only as long as {@link JsonWriter}
+	 * formats elements the way json-lif does. The writer is flushed, but
+	 * not closed.
+	 * @param o The object to print
+	 * @param out The writer
+	 * @throws PrintException Thrown if the object cannot be printed, or if
+	 * the text cannot be written
+	 */
+	public void print(Object o, Writer out) throws PrintException
+	{
+		// Go through print(), so that the call is recorded and observed as
+		// any other top-level call
+		m_output.set(new JsonWriter(out));
+		try
+		{
+			print(o);
+		}
+		finally
+		{
+			m_output.remove();
+		}
+	}
+
+	/**
+	 * Prints an object as JSON text to a JSON writer, and flushes it. If an
+	 * observer is set, it is notified as in {@link #printTracked(Object)},
+	 * the time excluding contained objects being the time taken to write
+	 * the text.
+	 * @param o The object to print
+	 * @param w The writer
+	 * @throws PrintException Thrown if the object cannot be printed, or if
+	 * the text cannot be written
+	 */
+	protected void printTo(Object o, JsonWriter w) throws PrintException
+	{
+		try
+		{
+			SerializationObserver observer = m_observer;
+			long start = System.nanoTime();
+			JsonElement je = m_printer.print(o);
+			long printed = System.nanoTime();
+			w.write(je);
+			w.flush();
+			if (observer != null)
+			{
+				long end = System.nanoTime();
+				observer.objectPrinted(o == null ? null : o.getClass(), getClass(), 0, end - start, end - printed, w.getCount());
+			}
+		}
+		catch (IOException e)
+		{
+			throw new PrintException(e);
+		}
+	}
+
+	/**
+	 * Prints an object as JSON text directly to an output stream, encoded in
+	 * UTF-8. The stream is flushed, but not closed.
+	 * @param o The object to print
+	 * @param os The output stream
+	 * @throws PrintException Thrown if the object cannot be printed, or if
+	 * the text cannot be written
+	 * @see #print(Object, Writer)
+	 */
+	public void print(Object o, OutputStream os) throws PrintException
+	{
+		print(o, new OutputStreamWriter(os, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This printer reports itself as the handler of the objects it prints.
+	 */
+	@Override
+	protected Class<?> getHandlerClass(Object o)
+	{
+		return getClass();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The size of a string is its number of characters. When the text is
+	 * written by {@link #print(Object, Writer)} instead of being returned,
+	 * the size is the number of characters written.
+	 */
+	@Override
+	protected long getOutputSize(String t)
+	{
+		if (t == null)
+		{
+			JsonWriter w = m_output.get();
+			return w == null ? 0 : w.getCount();
+		}
+		return t.length();
 	}
 
 	@Override
@@ -18,8 +18,15 @@
  */
 package ca.uqac.lif.azrael.json;
 
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
 import ca.uqac.lif.azrael.ObjectReader;
+import ca.uqac.lif.azrael.Projection;
 import ca.uqac.lif.azrael.ReadException;
+import ca.uqac.lif.azrael.metrics.SerializationObserver;
 import ca.uqac.lif.json.JsonElement;
 import ca.uqac.lif.json.JsonParser;
 import ca.uqac.lif.json.JsonParser.JsonParseException;
@@ -27,10 +34,25 @@ import ca.uqac.lif.json.JsonParser.JsonParseException;
 /**
  * Object reader that reads a JSON <em>string</em> and recreates an object
  * from it.
+ * <p>
+ * The JSON text can also be read from a {@link Reader}, an
+ * {@link InputStream} or a {@link ByteBuffer}. These methods are
+ * conveniences that spare the caller from first building a string: the
+ * text is tokenized by a {@link JsonSource}, but the complete
+ * {@link JsonElement} of the value is still built in memory before the
+ * object is read from it. Reading with bounded memory requires a
+ * {@link ca.uqac.lif.azrael.stream.StreamReader} on a {@link JsonSource}
+ * instead.
  * @author Sylvain Hallé
  */
 public class JsonStringReader extends ObjectReader<String>
 {
+	/**
+	 * A reader with default settings, shared by all the calls to
+	 * {@link #fromJson(String)}
+	 */
+	protected static final JsonStringReader s_defaultReader = new JsonStringReader();
+
 	/**
 	 * Reads an object from a JSON string using default settings.
 	 * @param s The JSON string to read from
@@ -40,8 +62,7 @@ public class JsonStringReader extends ObjectReader<String>
 	 */
 	public static Object fromJson(String s) throws ReadException
 	{
-		JsonStringReader jsr = new JsonStringReader();
-		return jsr.read(s);
+		return s_defaultReader.read(s);
 	}
 	
 	/**
@@ -50,9 +71,17 @@ public class JsonStringReader extends ObjectReader<String>
 	JsonReader m_reader;
 	
 	/**
-	 * The parser used to parse the JSON string
+	 * The parser used to parse the JSON string, one for each thread using
+	 * this reader
 	 */
-	JsonParser m_parser;
+	ThreadLocal<JsonParser> m_parser = new ThreadLocal<JsonParser>()
+	{
+		@Override
+		protected JsonParser initialValue()
+		{
+			return new JsonParser();
+		}
+	};
 	
 	/**
 	 * Creates a new JSON string reader
@@ -61,11 +90,68 @@ public class JsonStringReader extends ObjectReader<String>
 	{
 		super();
 		m_reader = new JsonReader();
-		m_parser = new JsonParser();
 	}
 	
 	@Override
-	public Object read(Object o) throws ReadException
+	public void trackReferences(boolean b)
+	{
+		super.trackReferences(b);
+		m_reader.trackReferences(b);
+	}
+
+	@Override
+	public void elideTypes(boolean b)
+	{
+		super.elideTypes(b);
+		m_reader.elideTypes(b);
+	}
+
+	@Override
+	public void useLazyCollections(boolean b)
+	{
+		super.useLazyCollections(b);
+		m_reader.useLazyCollections(b);
+	}
+
+	@Override
+	public void setMaxDepth(int depth)
+	{
+		super.setMaxDepth(depth);
+		m_reader.setMaxDepth(depth);
+	}
+
+	@Override
+	public void setParallelThreshold(int threshold)
+	{
+		super.setParallelThreshold(threshold);
+		m_reader.setParallelThreshold(threshold);
+	}
+
+	@Override
+	public void setForkJoinPool(ForkJoinPool pool)
+	{
+		super.setForkJoinPool(pool);
+		m_reader.setForkJoinPool(pool);
+	}
+
+	@Override
+	public void setObserver(SerializationObserver observer)
+	{
+		super.setObserver(observer);
+		m_reader.setObserver(observer);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If an observer is set, it is notified of the objects read by the
+	 * underlying {@link JsonReader}. In addition, it is notified of the
+	 * object read by this method with this class as the handler; the
+	 * time excluding contained objects is then the time taken to parse the
+	 * string, and the size is the length of this string.
+	 */
+	@Override
+	protected Object readTracked(Object o) throws ReadException
 	{
 		if (!(o instanceof String))
 		{
@@ -73,14 +159,162 @@ public class JsonStringReader extends ObjectReader<String>
 		}
 		try 
 		{
-			JsonElement e = m_parser.parse((String) o);
-			return m_reader.read(e);
+			SerializationObserver observer = m_observer;
+			if (observer == null)
+			{
+				return m_reader.read(m_parser.get().parse((String) o));
+			}
+			long start = System.nanoTime();
+			JsonElement e = m_parser.get().parse((String) o);
+			long parsed = System.nanoTime();
+			Object obj = m_reader.read(e);
+			long end = System.nanoTime();
+			observer.objectRead(obj == null ? null : obj.getClass(), getClass(), 0, end - start, parsed - start, ((String) o).length());
+			return obj;
 		}
 		catch (JsonParseException e) 
 		{
 			throw new ReadException(e);
 		}
 	}
+
+	/**
+	 * Reads an object from JSON text provided by a reader. The text is
+	 * tokenized as it is read, without first being copied into a string.
+	 * However, the tokens are not handed to the handlers of the underlying
+	 * {@link JsonReader} as they come: the complete {@link JsonElement} of
+	 * the value is built first, and then read as by {@link #read(Object)}.
+	 * This keeps every setting and format of the reader available (class
+	 * dictionaries, positional fields, references, elided types), at the
+	 * price of holding the element in memory. Values too large for this can
+	 * be read by a {@link ca.uqac.lif.azrael.stream.StreamReader} from a
+	 * {@link JsonSource}, which creates objects directly from the tokens but
+	 * supports none of these formats. The reader is not closed.
+	 * @param in The reader
+	 * @return The reconstructed object
+	 * @throws ReadException Thrown if the text cannot be read, or if the
+	 * object cannot be read from it
+	 */
+	public Object read(Reader in) throws ReadException
+	{
+		return readSource(new JsonSource(in));
+	}
+
+	/**
+	 * Reads an object from JSON text provided by an input stream, encoded in
+	 * UTF-8. The stream is not closed.
+	 * @param is The input stream
+	 * @return The reconstructed object
+	 * @throws ReadException Thrown if the text cannot be read, or if the
+	 * object cannot be read from it
+	 * @see #read(Reader)
+	 */
+	public Object read(InputStream is) throws ReadException
+	{
+		return readSource(new JsonSource(is));
+	}
+
+	/**
+	 * Reads an object from JSON text contained in a byte buffer, encoded in
+	 * UTF-8. The bytes are decoded as they are tokenized, from the current
+	 * position of the buffer up to its limit.
+	 * @param bytes The byte buffer
+	 * @return The reconstructed object
+	 * @throws ReadException Thrown if the text cannot be decoded, or if the
+	 * object cannot be read from it
+	 * @see #read(Reader)
+	 */
+	public Object read(ByteBuffer bytes) throws ReadException
+	{
+		return readSource(new JsonSource(bytes));
+	}
+
+	/**
+	 * Reads an object from the next complete value of a JSON source. If an
+	 * observer is set, it is notified in the same way as for a string,
+	 * except that the size of the input is unknown.
+	 * @param source The source
+	 * @return The reconstructed object
+	 * @throws ReadException Thrown if the text is not valid, or if the
+	 * object cannot be read from it
+	 */
+	protected Object readSource(JsonSource source) throws ReadException
+	{
+		SerializationObserver observer = m_observer;
+		if (observer == null)
+		{
+			return m_reader.read(source.readElement());
+		}
+		long start = System.nanoTime();
+		JsonElement e = source.readElement();
+		long parsed = System.nanoTime();
+		Object obj = m_reader.read(e);
+		long end = System.nanoTime();
+		observer.objectRead(obj == null ? null : obj.getClass(), getClass(), 0, end - start, parsed - start, -1);
+		return obj;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The string is parsed completely; only the conversion of the other
+	 * fields into objects is avoided.
+	 */
+	@Override
+	public Object readProjected(Object o, Projection p) throws ReadException
+	{
+		if (!(o instanceof String))
+		{
+			throw new ReadException("Expected a string");
+		}
+		try 
+		{
+			return m_reader.readProjected(m_parser.get().parse((String) o), p);
+		}
+		catch (JsonParseException e) 
+		{
+			throw new ReadException(e);
+		}
+	}
+
+	@Override
+	public Object readInto(Object target, Object o) throws ReadException
+	{
+		if (!(o instanceof String))
+		{
+			throw new ReadException("Expected a string");
+		}
+		try 
+		{
+			return m_reader.readInto(target, m_parser.get().parse((String) o));
+		}
+		catch (JsonParseException e) 
+		{
+			throw new ReadException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This reader reports itself as the handler of the objects it reads.
+	 */
+	@Override
+	protected Class<?> getHandlerClass(Object t, Class<?> clazz)
+	{
+		return getClass();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The size of a string is its number of characters.
+	 */
+	@Override
+	protected long getInputSize(String t)
+	{
+		return t == null ? -1 : t.length();
+	}
 	
 	@Override
 	protected String getWrappedTypeName(Object t) throws ReadException 
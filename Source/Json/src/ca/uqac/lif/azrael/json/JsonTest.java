@@ -20,24 +20,50 @@ package ca.uqac.lif.azrael.json;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import org.junit.Test;
 
+import ca.uqac.lif.azrael.CompiledPrintHandler;
+import ca.uqac.lif.azrael.CompiledReadHandler;
+import ca.uqac.lif.azrael.CompiledSerializer;
+import ca.uqac.lif.azrael.FieldConstructor;
+import ca.uqac.lif.azrael.LazyList;
+import ca.uqac.lif.azrael.LazyMap;
 import ca.uqac.lif.azrael.ObjectPrinter;
 import ca.uqac.lif.azrael.ObjectReader;
 import ca.uqac.lif.azrael.PrintException;
 import ca.uqac.lif.azrael.Printable;
+import ca.uqac.lif.azrael.Projection;
 import ca.uqac.lif.azrael.ReadException;
 import ca.uqac.lif.azrael.Readable;
+import ca.uqac.lif.azrael.fridge.FridgeException;
+import ca.uqac.lif.azrael.metrics.SerializationStatistics;
+import ca.uqac.lif.azrael.stream.StreamPrinter;
+import ca.uqac.lif.azrael.stream.StreamReader;
 import ca.uqac.lif.json.JsonElement;
 import ca.uqac.lif.json.JsonList;
 import ca.uqac.lif.json.JsonMap;
 import ca.uqac.lif.json.JsonNumber;
 import ca.uqac.lif.json.JsonString;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 public class JsonTest 
 {
@@ -120,6 +146,266 @@ public class JsonTest
 		assertEquals("bar", nco.m_objects.get(1).m_y);
 	}
 	
+	@Test
+	public void testPrimitiveFields() throws PrintException, ReadException
+	{
+		PrimitiveObject po = new PrimitiveObject();
+		po.m_int = -7;
+		po.m_long = 1L << 40;
+		po.m_double = 2.5;
+		po.m_boolean = true;
+		po.m_string = "foo";
+		JsonPrinter printer = new JsonPrinter();
+		JsonReader reader = new JsonReader();
+		PrimitiveObject n_po = (PrimitiveObject) reader.read(printer.print(po));
+		assertEquals(-7, n_po.m_int);
+		assertEquals(1L << 40, n_po.m_long);
+		assertEquals(2.5, n_po.m_double, 0);
+		assertTrue(n_po.m_boolean);
+		assertEquals("foo", n_po.m_string);
+		// Final fields are written as well
+		ImmutableObject n_io = (ImmutableObject) reader.read(printer.print(new ImmutableObject(3, "bar")));
+		assertEquals(3, n_io.m_x);
+		assertEquals("bar", n_io.m_y);
+	}
+
+	@Test
+	public void testStream() throws PrintException, ReadException
+	{
+		NonPrintableObject co = new NonPrintableObject();
+		co.add(new SimpleObject(3, "foo \"quoted\""));
+		co.add(new SimpleObject(5, "bar"));
+		EnumObject eo = new EnumObject();
+		eo.me = EnumObject.MyEnum.BAR;
+		Map<String,Object> map = new HashMap<String,Object>();
+		map.put("co", co);
+		map.put("eo", eo);
+		map.put("n", null);
+		StringBuilder out = new StringBuilder();
+		StreamPrinter printer = new StreamPrinter(new JsonSink(out));
+		assertNull(printer.print(map));
+		Object o = new JsonStringReader().read(out.toString());
+		assertTrue(o instanceof Map);
+		Map<?,?> n_map = (Map<?,?>) o;
+		assertEquals(3, n_map.size());
+		assertTrue(n_map.containsKey("n"));
+		assertNull(n_map.get("n"));
+		assertEquals(EnumObject.MyEnum.BAR, ((EnumObject) n_map.get("eo")).me);
+		NonPrintableObject nco = (NonPrintableObject) n_map.get("co");
+		assertEquals(2, nco.m_objects.size());
+		assertEquals(3, nco.m_objects.get(0).m_x);
+		assertEquals("foo \"quoted\"", nco.m_objects.get(0).m_y);
+		assertEquals("bar", nco.m_objects.get(1).m_y);
+	}
+	
+	@Test
+	public void testStreamRead() throws PrintException, ReadException
+	{
+		NonPrintableObject co = new NonPrintableObject();
+		co.add(new SimpleObject(3, "foo \"quoted\"\n"));
+		EnumObject eo = new EnumObject();
+		eo.me = EnumObject.MyEnum.BAR;
+		Map<String,Object> map = new HashMap<String,Object>();
+		map.put("co", co);
+		map.put("eo", eo);
+		map.put("n", null);
+		map.put("b", true);
+		StringBuilder out = new StringBuilder();
+		new StreamPrinter(new JsonSink(out)).print(map);
+		Object o = new StreamReader().read(new JsonSource(out.toString()));
+		assertTrue(o instanceof Map);
+		Map<?,?> n_map = (Map<?,?>) o;
+		assertEquals(4, n_map.size());
+		assertNull(n_map.get("n"));
+		assertEquals(true, n_map.get("b"));
+		assertEquals(EnumObject.MyEnum.BAR, ((EnumObject) n_map.get("eo")).me);
+		NonPrintableObject nco = (NonPrintableObject) n_map.get("co");
+		assertEquals(1, nco.m_objects.size());
+		assertEquals("foo \"quoted\"\n", nco.m_objects.get(0).m_y);
+		// Text produced by the tree-based printer can also be read
+		o = new StreamReader().read(new JsonSource(new JsonStringPrinter().print(eo)));
+		assertEquals(EnumObject.MyEnum.BAR, ((EnumObject) o).me);
+	}
+
+	@Test
+	public void testFridgeIterate() throws FridgeException, IOException
+	{
+		File f = File.createTempFile("azrael", ".json");
+		f.deleteOnExit();
+		List<SimpleObject> list = new ArrayList<SimpleObject>();
+		for (int i = 0; i < 100; i++)
+		{
+			list.add(new SimpleObject(i, "s" + i));
+		}
+		JsonFileFridge fridge = new JsonFileFridge(f.getPath());
+		fridge.store(list);
+		Object o = fridge.fetch();
+		assertTrue(o instanceof ArrayList);
+		assertEquals(100, ((List<?>) o).size());
+		Iterator<Object> it = fridge.iterate();
+		int count = 0;
+		while (it.hasNext())
+		{
+			SimpleObject so = (SimpleObject) it.next();
+			assertEquals(count, so.m_x);
+			assertEquals("s" + count, so.m_y);
+			count++;
+		}
+		assertEquals(100, count);
+		// An iterator abandoned before the end releases the file when closed
+		JsonFileFridge.ElementIterator e_it = fridge.iterate();
+		assertEquals(0, ((SimpleObject) e_it.next()).m_x);
+		e_it.close();
+		assertFalse(e_it.hasNext());
+	}
+
+	@Test
+	public void testFridgeSettings() throws FridgeException, IOException, PrintException
+	{
+		File f = File.createTempFile("azrael", ".json");
+		f.deleteOnExit();
+		Node a = new Node("a");
+		a.m_next = a;
+		JsonStringPrinter printer = new JsonStringPrinter();
+		printer.trackReferences(true);
+		JsonStringReader reader = new JsonStringReader();
+		reader.trackReferences(true);
+		// The printer and reader of the fridge are used by default
+		JsonFileFridge fridge = new JsonFileFridge(printer, reader, f.getPath());
+		fridge.store(a);
+		Node n = (Node) fridge.fetch();
+		assertSame(n, n.m_next);
+		// The file is the same as the string produced by the printer
+		assertEquals(printer.print(a), fridge.load());
+		fridge.useStreaming(true);
+		List<Object> list = new ArrayList<Object>();
+		list.add("foo");
+		fridge.store(list);
+		assertEquals(list, fridge.fetch());
+	}
+
+	@Test
+	public void testFridgeIterateSettings() throws FridgeException, IOException, PrintException
+	{
+		File f = File.createTempFile("azrael", ".json");
+		f.deleteOnExit();
+		SimpleObject so = new SimpleObject(3, "foo");
+		List<Object> list = new ArrayList<Object>();
+		list.add(so);
+		list.add(so);
+		Map<String,Object> map = new HashMap<String,Object>();
+		map.put("a", 1.5f);
+		list.add(map);
+		list.add(42L);
+		JsonStringPrinter printer = new JsonStringPrinter();
+		JsonStringReader reader = new JsonStringReader();
+		JsonFileFridge fridge = new JsonFileFridge(printer, reader, f.getPath());
+		printer.useNativeMaps(true);
+		printer.useNativeNumbers(true);
+		checkList(toList(fridge, list));
+		printer.trackReferences(true);
+		reader.trackReferences(true);
+		List<Object> n_list = toList(fridge, list);
+		checkList(n_list);
+		assertSame(n_list.get(0), n_list.get(1));
+		printer.trackReferences(false);
+		reader.trackReferences(false);
+		printer.useClassDictionary(true);
+		checkList(toList(fridge, list));
+		printer.useClassDictionary(false);
+		printer.usePositionalFields(true);
+		checkList(toList(fridge, list));
+		// Iterating over something else than a collection fails
+		fridge.store(so);
+		try
+		{
+			fridge.iterate();
+			fail("Expected a FridgeException");
+		}
+		catch (FridgeException e)
+		{
+			// Expected
+		}
+	}
+
+	/**
+	 * Checks the list read back in {@link #testFridgeIterateSettings()}.
+	 * @param list The list
+	 */
+	protected static void checkList(List<Object> list)
+	{
+		assertEquals(4, list.size());
+		for (int i = 0; i < 2; i++)
+		{
+			SimpleObject so = (SimpleObject) list.get(i);
+			assertEquals(3, so.m_x);
+			assertEquals("foo", so.m_y);
+		}
+		assertEquals(1.5f, ((Number) ((Map<?,?>) list.get(2)).get("a")).floatValue(), 0);
+		assertEquals(42L, list.get(3));
+	}
+
+	/**
+	 * Stores a list in a fridge, and reads it back element by element.
+	 * @param fridge The fridge
+	 * @param list The list
+	 * @return The list of elements read from the fridge
+	 */
+	protected static List<Object> toList(JsonFileFridge fridge, List<Object> list) throws FridgeException
+	{
+		fridge.store(list);
+		List<Object> n_list = new ArrayList<Object>();
+		JsonFileFridge.ElementIterator it = fridge.iterate();
+		while (it.hasNext())
+		{
+			n_list.add(it.next());
+		}
+		it.close();
+		return n_list;
+	}
+
+	@Test
+	public void testFridgeFailedStore() throws FridgeException, IOException
+	{
+		File dir = File.createTempFile("azrael", "");
+		dir.delete();
+		dir.mkdir();
+		dir.deleteOnExit();
+		File f = new File(dir, "fridge.json");
+		JsonStringPrinter printer = new JsonStringPrinter();
+		JsonFileFridge fridge = new JsonFileFridge(printer, new JsonStringReader(), f.getPath());
+		fridge.store(new SimpleObject(3, "foo"));
+		Node first = new Node("0");
+		first.m_next = new Node("1");
+		first.m_next.m_next = new Node("2");
+		printer.setMaxDepth(2);
+		try
+		{
+			fridge.store(first);
+			fail("Expected a FridgeException");
+		}
+		catch (FridgeException e)
+		{
+			// Expected
+		}
+		// The object stored before is still there, and nothing else
+		SimpleObject so = (SimpleObject) fridge.fetch();
+		assertEquals(3, so.m_x);
+		assertEquals("foo", so.m_y);
+		assertEquals(1, dir.list().length);
+		f.delete();
+	}
+
+	@Test
+	public void testSourceContentsFirst() throws ReadException
+	{
+		Object o = new StreamReader().read(new JsonSource("{\"!t\":[\"foo\",{\"!t\":{\"a\":1},\"!c\":\"java.util.HashMap\"}],\"!c\":\"java.util.ArrayList\"}"));
+		assertTrue(o instanceof ArrayList);
+		List<?> list = (List<?>) o;
+		assertEquals("foo", list.get(0));
+		assertTrue(list.get(1) instanceof HashMap);
+	}
+
 	@Test
 	public void testEnum1() throws PrintException, ReadException
 	{
@@ -149,6 +435,1055 @@ public class JsonTest
 		assertEquals(3, nco.length); 
 	}
 	
+	@Test
+	public void testUnknownClass() throws ReadException
+	{
+		JsonMap map = new JsonMap();
+		map.put(JsonPrinter.CLASS_KEY, new JsonString("foo.Bar"));
+		map.put(JsonPrinter.CONTENT_KEY, new JsonString("abc"));
+		JsonReader reader = new JsonReader();
+		for (int i = 0; i < 2; i++)
+		{
+			// The second failure comes from the reader's class cache
+			try
+			{
+				reader.read(map);
+				fail("Expected a ReadException");
+			}
+			catch (ReadException e)
+			{
+				// Expected
+			}
+		}
+	}
+	
+	@Test
+	public void testCanonicalConstructor() throws PrintException, ReadException
+	{
+		ImmutableObject io = new ImmutableObject(3, "foo");
+		JsonPrinter printer = new JsonPrinter();
+		JsonElement je = printer.print(io);
+		JsonReader reader = new JsonReader();
+		Object o = reader.read(je);
+		assertTrue(o instanceof ImmutableObject);
+		ImmutableObject nio = (ImmutableObject) o;
+		assertEquals(3, nio.m_x);
+		assertEquals("foo", nio.m_y);
+	}
+
+	@Test
+	public void testUnannotatedConstructor() throws PrintException
+	{
+		// Passing fields by position would swap them, or convert them twice
+		JsonElement je = new JsonPrinter().print(new Pair(1, 2));
+		try
+		{
+			new JsonReader().read(je);
+			fail("Pair has no usable constructor");
+		}
+		catch (ReadException e)
+		{
+			// Expected
+		}
+	}
+	
+	@Test
+	public void testProjection() throws PrintException, ReadException
+	{
+		Node a = new Node("a");
+		a.m_next = new Node("b");
+		a.m_next.m_next = new Node("c");
+		String s = new JsonStringPrinter().print(a);
+		JsonStringReader reader = new JsonStringReader();
+		Object o = reader.readProjected(s, new Projection("m_next.m_name", "m_next.m_next"));
+		assertTrue(o instanceof Node);
+		Node n_a = (Node) o;
+		assertEquals("", n_a.m_name);
+		assertEquals("b", n_a.m_next.m_name);
+		assertEquals("c", n_a.m_next.m_next.m_name);
+		ImmutableObject nio = (ImmutableObject) new JsonReader().readProjected(new JsonPrinter().print(new ImmutableObject(3, "foo")), new Projection("m_y"));
+		assertEquals(0, nio.m_x);
+		assertEquals("foo", nio.m_y);
+	}
+	
+	@Test
+	public void testElideTypes() throws PrintException, ReadException
+	{
+		Node a = new Node("a");
+		a.m_next = new Node("b");
+		a.m_next.m_next = new Node("c");
+		JsonStringPrinter printer = new JsonStringPrinter();
+		printer.elideTypes(true);
+		String s = printer.print(a);
+		assertEquals(s.indexOf(Node.class.getName()), s.lastIndexOf(Node.class.getName()));
+		assertTrue(s.length() < new JsonStringPrinter().print(a).length());
+		JsonStringReader reader = new JsonStringReader();
+		reader.elideTypes(true);
+		Node n_a = (Node) reader.read(s);
+		assertEquals("a", n_a.m_name);
+		assertEquals("b", n_a.m_next.m_name);
+		assertEquals("c", n_a.m_next.m_next.m_name);
+		assertNull(n_a.m_next.m_next.m_next);
+	}
+	
+	@Test
+	public void testElideTypesStream() throws PrintException, ReadException
+	{
+		Node a = new Node("a");
+		a.m_next = new Node("b");
+		a.m_next.m_next = new Node("c");
+		StringBuilder out = new StringBuilder();
+		StreamPrinter printer = new StreamPrinter(new JsonSink(out));
+		printer.elideTypes(true);
+		// A stream printer cannot remove a type it has already written
+		assertFalse(printer.elidesTypes());
+		printer.print(a);
+		assertEquals(new JsonStringPrinter().print(a), out.toString());
+		StreamReader reader = new StreamReader();
+		reader.elideTypes(true);
+		Node n_a = (Node) reader.read(new JsonSource(out.toString()));
+		assertEquals("a", n_a.m_name);
+		assertEquals("b", n_a.m_next.m_name);
+		assertEquals("c", n_a.m_next.m_next.m_name);
+		assertNull(n_a.m_next.m_next.m_next);
+	}
+	
+	@Test
+	public void testClassDictionary() throws PrintException, ReadException
+	{
+		List<SimpleObject> list = new ArrayList<SimpleObject>();
+		for (int i = 0; i < 10; i++)
+		{
+			list.add(new SimpleObject(i, "foo"));
+		}
+		JsonStringPrinter printer = new JsonStringPrinter();
+		printer.useClassDictionary(true);
+		printer.setParallelThreshold(4);
+		String s = printer.print(list);
+		assertEquals(s.indexOf(SimpleObject.class.getName()), s.lastIndexOf(SimpleObject.class.getName()));
+		assertTrue(s.length() < new JsonStringPrinter().print(list).length());
+		List<?> n_list = (List<?>) new JsonStringReader().read(s);
+		assertEquals(10, n_list.size());
+		assertEquals(7, ((SimpleObject) n_list.get(7)).m_x);
+		assertEquals("foo", ((SimpleObject) n_list.get(7)).m_y);
+	}
+	
+	@Test
+	public void testClassDictionaryChain() throws PrintException, ReadException
+	{
+		Node first = new Node("0");
+		Node n = first;
+		for (int i = 1; i < 20; i++)
+		{
+			n.m_next = new Node(Integer.toString(i));
+			n = n.m_next;
+		}
+		JsonPrinter printer = new JsonPrinter();
+		printer.useClassDictionary(true);
+		JsonElement je = printer.print(first);
+		String s = je.toString();
+		String key = "\"" + JsonPrinter.DICTIONARY_KEY + "\"";
+		assertTrue(s.indexOf(key) >= 0);
+		assertEquals(s.indexOf(key), s.lastIndexOf(key));
+		assertEquals(s.indexOf(Node.class.getName()), s.lastIndexOf(Node.class.getName()));
+		Node n_first = (Node) new JsonReader().read(je);
+		assertEquals(s, je.toString());
+		int count = 0;
+		for (n = n_first; n != null; n = n.m_next)
+		{
+			assertEquals(Integer.toString(count), n.m_name);
+			count++;
+		}
+		assertEquals(20, count);
+	}
+	
+	@Test
+	public void testPositionalFields() throws PrintException, ReadException
+	{
+		List<Node> list = new ArrayList<Node>();
+		for (int i = 0; i < 10; i++)
+		{
+			Node n = new Node("n" + i);
+			n.m_next = new Node("m" + i);
+			list.add(n);
+		}
+		JsonStringPrinter printer = new JsonStringPrinter();
+		printer.usePositionalFields(true);
+		String s = printer.print(list);
+		assertEquals(s.indexOf("m_next"), s.lastIndexOf("m_next"));
+		assertTrue(s.length() < new JsonStringPrinter().print(list).length());
+		printer.useClassDictionary(true);
+		printer.elideTypes(true);
+		String s_all = printer.print(list);
+		assertTrue(s_all.length() < s.length());
+		JsonStringReader reader = new JsonStringReader();
+		reader.elideTypes(true);
+		for (String json : new String[] {s, s_all})
+		{
+			List<?> n_list = (List<?>) reader.read(json);
+			assertEquals(10, n_list.size());
+			Node n = (Node) n_list.get(4);
+			assertEquals("n4", n.m_name);
+			assertEquals("m4", n.m_next.m_name);
+			assertNull(n.m_next.m_next);
+		}
+	}
+	
+	@Test
+	public void testPositionalFieldsChain() throws PrintException, ReadException
+	{
+		Node first = new Node("0");
+		Node n = first;
+		for (int i = 1; i < 20; i++)
+		{
+			n.m_next = new Node(Integer.toString(i));
+			n = n.m_next;
+		}
+		JsonPrinter printer = new JsonPrinter();
+		printer.usePositionalFields(true);
+		JsonElement je = printer.print(first);
+		String s = je.toString();
+		String key = "\"" + JsonPrinter.LAYOUT_KEY + "\"";
+		assertTrue(s.indexOf(key) >= 0);
+		assertEquals(s.indexOf(key), s.lastIndexOf(key));
+		assertEquals(s.indexOf("m_next"), s.lastIndexOf("m_next"));
+		Node n_first = (Node) new JsonReader().read(je);
+		assertEquals(s, je.toString());
+		int count = 0;
+		for (n = n_first; n != null; n = n.m_next)
+		{
+			assertEquals(Integer.toString(count), n.m_name);
+			count++;
+		}
+		assertEquals(20, count);
+	}
+	
+	@Test
+	public void testPositionalFieldsRead() throws PrintException, ReadException
+	{
+		Registry r = new Registry();
+		r.m_list.add(new SimpleObject(3, "foo"));
+		r.m_map.put("a", new SimpleObject(5, "bar"));
+		PrimitiveObject po = new PrimitiveObject();
+		po.m_int = 7;
+		po.m_double = 1.5;
+		po.m_string = "baz";
+		List<Object> list = new ArrayList<Object>();
+		list.add(r);
+		list.add(new ImmutableObject(3, "foo"));
+		list.add(po);
+		list.add(new ImmutableObject(4, "bar"));
+		JsonPrinter printer = new JsonPrinter();
+		printer.usePositionalFields(true);
+		JsonElement je = printer.print(list);
+		String s = je.toString();
+		JsonReader reader = new JsonReader();
+		reader.useLazyCollections(true);
+		List<?> n_list = (List<?>) reader.read(je);
+		assertEquals(s, je.toString());
+		Registry nr = (Registry) n_list.get(0);
+		assertTrue(nr.m_list instanceof LazyList);
+		assertTrue(nr.m_map instanceof LazyMap);
+		assertEquals("foo", nr.m_list.get(0).m_y);
+		assertEquals(5, nr.m_map.get("a").m_x);
+		assertEquals(3, ((ImmutableObject) n_list.get(1)).m_x);
+		assertEquals("bar", ((ImmutableObject) n_list.get(3)).m_y);
+		PrimitiveObject npo = (PrimitiveObject) n_list.get(2);
+		assertEquals(7, npo.m_int);
+		assertEquals(1.5, npo.m_double, 0);
+		assertEquals("baz", npo.m_string);
+		// Reading the same element again gives the same result
+		assertEquals(7, ((PrimitiveObject) ((List<?>) reader.read(je)).get(2)).m_int);
+		// A value is missing from an object
+		JsonMap header = (JsonMap) je;
+		((JsonList) ((JsonMap) ((JsonList) ((JsonMap) header.get(JsonPrinter.CONTENT_KEY)).get(JsonPrinter.CONTENT_KEY)).get(2)).get(JsonPrinter.FIELDS_KEY)).remove(0);
+		try
+		{
+			reader.read(je);
+			fail("Expected a ReadException");
+		}
+		catch (ReadException e)
+		{
+			// Expected
+		}
+	}
+
+	@Test
+	public void testNumbers() throws PrintException, ReadException
+	{
+		List<Object> list = new ArrayList<Object>();
+		list.add(42);
+		list.add(-7);
+		list.add(3L);
+		list.add(5000000000L);
+		list.add(-1.5);
+		list.add(2d);
+		list.add(1.25e-10);
+		list.add(0.5f);
+		list.add(Double.NaN);
+		list.add("12I");
+		list.add("1.5I");
+		list.add("abc");
+		JsonStringPrinter printer = new JsonStringPrinter();
+		JsonStringReader reader = new JsonStringReader();
+		String s = printer.print(list);
+		printer.useNativeNumbers(true);
+		String s_native = printer.print(list);
+		assertTrue(s_native.length() < s.length());
+		assertTrue(s_native.contains("5000000000,"));
+		List<?> n_list = (List<?>) reader.read(s_native);
+		assertEquals(list.subList(0, 9), ((List<?>) reader.read(s)).subList(0, 9));
+		assertEquals(list.subList(0, 9), n_list.subList(0, 9));
+		// A string that reads like a number stays a string
+		assertEquals("12I", n_list.get(9));
+		assertEquals("1.5I", n_list.get(10));
+		assertEquals("abc", n_list.get(11));
+	}
+	
+	@Test
+	public void testNumberLikeStrings() throws PrintException, ReadException
+	{
+		List<Object> list = new ArrayList<Object>();
+		list.add("-1L");
+		list.add("NaND");
+		list.add("-InfinityF");
+		list.add(-1L);
+		list.add(NumberObject.NaND);
+		list.add(Base64.getDecoder().decode("123I"));
+		Map<String,Object> map = new HashMap<String,Object>();
+		map.put("2.5D", "7I");
+		list.add(map);
+		JsonStringPrinter printer = new JsonStringPrinter();
+		printer.useNativeMaps(true);
+		String s = printer.print(list);
+		StringBuilder out = new StringBuilder();
+		new StreamPrinter(new JsonSink(out)).print(list);
+		Object[] read = new Object[] {new JsonStringReader().read(s),
+				new StreamReader().read(new JsonSource(s)),
+				new StreamReader().read(new JsonSource(out.toString()))};
+		for (Object o : read)
+		{
+			List<?> n_list = (List<?>) o;
+			assertEquals("-1L", n_list.get(0));
+			assertEquals("NaND", n_list.get(1));
+			assertEquals("-InfinityF", n_list.get(2));
+			assertEquals(-1L, n_list.get(3));
+			// The tree-based reader gives back the name of the constant
+			assertEquals("NaND", n_list.get(4).toString());
+			assertEquals("123I", Base64.getEncoder().encodeToString((byte[]) n_list.get(5)));
+			assertEquals("7I", ((Map<?,?>) n_list.get(6)).get("2.5D"));
+		}
+	}
+
+	@Test
+	public void testNativeMaps() throws PrintException, ReadException
+	{
+		Map<String,Object> map = new HashMap<String,Object>();
+		map.put("a", 1);
+		map.put("b", new Node("foo"));
+		Map<Object,Object> mixed = new HashMap<Object,Object>();
+		mixed.put(3, "x");
+		mixed.put("!c", "y");
+		map.put("c", mixed);
+		JsonStringPrinter printer = new JsonStringPrinter();
+		printer.useNativeMaps(true);
+		String s = printer.print(map);
+		assertTrue(s.contains("\"a\":"));
+		assertTrue(s.length() < new JsonStringPrinter().print(map).length());
+		JsonStringReader reader = new JsonStringReader();
+		Map<?,?> n_map = (Map<?,?>) reader.read(s);
+		assertEquals(3, n_map.size());
+		assertEquals(1, n_map.get("a"));
+		assertEquals("foo", ((Node) n_map.get("b")).m_name);
+		assertEquals(mixed, n_map.get("c"));
+		Node n = (Node) reader.readProjected(printer.print(map.get("b")), new Projection("m_name"));
+		assertEquals("foo", n.m_name);
+	}
+	
+	@Test
+	public void testWriter() throws PrintException, IOException
+	{
+		Map<String,Object> map = new HashMap<String,Object>();
+		map.put("a\"b", new Node("tab\there\u0001 \\ \u00e9t\u00e9"));
+		map.put("c", new NonPrintableObject());
+		JsonStringPrinter printer = new JsonStringPrinter();
+		String s = printer.print(map);
+		StringWriter sw = new StringWriter();
+		printer.print(map, sw);
+		assertEquals(s, sw.toString());
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		printer.print(map, bos);
+		assertEquals(s, new String(bos.toByteArray(), StandardCharsets.UTF_8));
+		// A buffer smaller than most tokens is emptied many times
+		JsonElement je = new JsonPrinter().print(map);
+		sw = new StringWriter();
+		JsonWriter w = new JsonWriter(sw, 3);
+		w.write(je);
+		w.flush();
+		assertEquals(je.toString(), sw.toString());
+		assertEquals(sw.toString().length(), w.getCount());
+	}
+
+	@Test
+	public void testWriterMatchesToString() throws PrintException
+	{
+		// The text written by JsonWriter must be the one produced by the
+		// toString() method of the elements of json-lif
+		Map<String,Object> inner = new HashMap<String,Object>();
+		inner.put("quote\"back\\slash", "line\nfeed\ttab\u0001\u001f/\u00e9");
+		inner.put("", new ArrayList<Object>());
+		Map<String,Object> map = new HashMap<String,Object>();
+		map.put("int", 42);
+		map.put("long", -7L);
+		map.put("double", 0.1);
+		map.put("float", 2.5f);
+		map.put("small", 1e-10);
+		map.put("large", 1e21);
+		map.put("inner", inner);
+		map.put("list", Arrays.asList(1, "\u2028", null, true));
+		for (boolean nat : new boolean[] {false, true})
+		{
+			JsonStringPrinter printer = new JsonStringPrinter();
+			printer.useNativeNumbers(nat);
+			printer.useNativeMaps(nat);
+			JsonPrinter jp = new JsonPrinter();
+			jp.useNativeNumbers(nat);
+			jp.useNativeMaps(nat);
+			String expected = jp.print(map).toString();
+			assertEquals(expected, printer.print(map));
+			StringWriter sw = new StringWriter();
+			printer.print(map, sw);
+			assertEquals(expected, sw.toString());
+		}
+	}
+
+	@Test
+	public void testWriterEscapes() throws PrintException, ReadException
+	{
+		StringBuilder text = new StringBuilder();
+		for (char c = 0; c < 0x20; c++)
+		{
+			text.append(c);
+		}
+		// Quotes, backslash, slash, DEL, accented and CJK characters, line
+		// separators and a supplementary character (a surrogate pair)
+		text.append("\"\\/\u007f caf\u00e9 \u65e5\u672c \u2028\u2029 \ud83d\ude00");
+		Node n = new Node(text.toString());
+		n.m_next = new Node("\u0000");
+		JsonStringPrinter printer = new JsonStringPrinter();
+		String s = printer.print(n);
+		StringWriter sw = new StringWriter();
+		printer.print(n, sw);
+		assertEquals(s, sw.toString());
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		printer.print(n, bos);
+		assertEquals(s, new String(bos.toByteArray(), StandardCharsets.UTF_8));
+		StringBuilder out = new StringBuilder();
+		new StreamPrinter(new JsonSink(out)).print(n);
+		JsonStringReader reader = new JsonStringReader();
+		for (String json : new String[] {s, out.toString()})
+		{
+			for (int i = 0; i < json.length(); i++)
+			{
+				// Control characters never appear unescaped
+				assertTrue(json.charAt(i) >= 0x20);
+			}
+			Node n_n = (Node) reader.read(json);
+			assertEquals(text.toString(), n_n.m_name);
+			assertEquals("\u0000", n_n.m_next.m_name);
+		}
+		Node n_n = (Node) reader.read(new ByteArrayInputStream(bos.toByteArray()));
+		assertEquals(text.toString(), n_n.m_name);
+	}
+	
+	@Test
+	public void testReadStream() throws PrintException, ReadException
+	{
+		Node n1 = new Node("caf\u00e9 \"x\"");
+		// Longer than the buffer of the tokenizer
+		Node n2 = new Node(new String(new char[20000]).replace('\0', 'b'));
+		n1.m_next = n2;
+		List<Object> list = new ArrayList<Object>();
+		list.add(n1);
+		list.add(n2);
+		list.add(-3);
+		list.add(2.5e-7);
+		JsonStringPrinter printer = new JsonStringPrinter();
+		printer.trackReferences(true);
+		printer.useClassDictionary(true);
+		String s = printer.print(list);
+		JsonStringReader reader = new JsonStringReader();
+		reader.trackReferences(true);
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		Object[] read = new Object[] {reader.read(new StringReader(s)),
+				reader.read(new ByteArrayInputStream(bytes)), reader.read(ByteBuffer.wrap(bytes))};
+		for (Object o : read)
+		{
+			List<?> n_list = (List<?>) o;
+			assertEquals(4, n_list.size());
+			Node n_n1 = (Node) n_list.get(0);
+			assertEquals("caf\u00e9 \"x\"", n_n1.m_name);
+			assertSame(n_n1.m_next, n_list.get(1));
+			assertEquals(-3, n_list.get(2));
+			assertEquals(2.5e-7, n_list.get(3));
+		}
+		// Negative numbers with a type suffix are recognized by the tokenizer
+		assertEquals(-3, new StreamReader().read(new JsonSource("\"-3I\"")));
+	}
+
+	@Test
+	public void testLazyCollections() throws PrintException, ReadException
+	{
+		NonPrintableObject co = new NonPrintableObject();
+		co.add(new SimpleObject(3, "foo"));
+		co.add(new SimpleObject(5, "bar"));
+		String s = new JsonStringPrinter().print(co);
+		JsonStringReader reader = new JsonStringReader();
+		reader.useLazyCollections(true);
+		NonPrintableObject nco = (NonPrintableObject) reader.read(s);
+		assertTrue(nco.m_objects instanceof LazyList);
+		LazyList<SimpleObject> list = (LazyList<SimpleObject>) nco.m_objects;
+		assertFalse(list.isLoaded());
+		assertEquals(2, list.size());
+		assertTrue(list.isLoaded());
+		assertEquals(3, list.get(0).m_x);
+		assertEquals("bar", list.get(1).m_y);
+	}
+
+	@Test
+	public void testLazyRoundTrip() throws PrintException, ReadException
+	{
+		Registry r = new Registry();
+		r.m_list.add(new SimpleObject(3, "foo"));
+		r.m_map.put("a", new SimpleObject(5, "bar"));
+		JsonStringPrinter printer = new JsonStringPrinter();
+		JsonStringReader lazy_reader = new JsonStringReader();
+		lazy_reader.useLazyCollections(true);
+		Registry lr = (Registry) lazy_reader.read(printer.print(r));
+		assertTrue(lr.m_list instanceof LazyList);
+		assertTrue(lr.m_map instanceof LazyMap);
+		// Store the modified object again, without loading the map first
+		lr.m_list.add(new SimpleObject(4, "baz"));
+		String s = printer.print(lr);
+		assertFalse(s.contains(LazyList.class.getName()));
+		assertFalse(s.contains(LazyMap.class.getName()));
+		Registry nr = (Registry) new JsonStringReader().read(s);
+		assertTrue(nr.m_list instanceof ArrayList);
+		assertTrue(nr.m_map instanceof HashMap);
+		assertEquals(2, nr.m_list.size());
+		assertEquals("baz", nr.m_list.get(1).m_y);
+		assertEquals(5, nr.m_map.get("a").m_x);
+		lr = (Registry) lazy_reader.read(s);
+		assertEquals(2, lr.m_list.size());
+	}
+	
+	@Test
+	public void testReadInto() throws PrintException, ReadException
+	{
+		NonPrintableObject co = new NonPrintableObject();
+		co.add(new SimpleObject(3, "foo"));
+		co.add(new SimpleObject(5, "bar"));
+		JsonStringPrinter printer = new JsonStringPrinter();
+		JsonStringReader reader = new JsonStringReader();
+		NonPrintableObject target = new NonPrintableObject();
+		List<SimpleObject> target_list = target.m_objects;
+		target.add(new SimpleObject(0, "baz"));
+		assertTrue(target == reader.readInto(target, printer.print(co)));
+		assertTrue(target_list == target.m_objects);
+		assertEquals(2, target.m_objects.size());
+		assertEquals("bar", target.m_objects.get(1).m_y);
+		// A list whose elements cannot all be read is left as it was
+		String bad = printer.print(co).replace(SimpleObject.class.getName(), "no.such.Class");
+		try
+		{
+			reader.readInto(target, bad);
+			fail("Expected a ReadException");
+		}
+		catch (ReadException e)
+		{
+			// Expected
+		}
+		assertEquals(2, target.m_objects.size());
+		assertEquals("foo", target.m_objects.get(0).m_y);
+		Node a = new Node("a");
+		a.m_next = new Node("b");
+		Node n_a = new Node("x");
+		Node n_b = new Node("y");
+		n_a.m_next = n_b;
+		assertTrue(n_a == reader.readInto(n_a, printer.print(a)));
+		assertTrue(n_b == n_a.m_next);
+		assertEquals("a", n_a.m_name);
+		assertEquals("b", n_b.m_name);
+	}
+	
+	@Test
+	public void testCompiledHandlers() throws PrintException, ReadException
+	{
+		CompiledObject co = new CompiledObject();
+		co.m_x = 3;
+		co.m_y = "foo";
+		CompiledObjectSerializer cos = new CompiledObjectSerializer();
+		JsonPrinter printer = new JsonPrinter();
+		printer.addHandler(new CompiledPrintHandler<JsonElement>(printer, cos));
+		JsonElement je = printer.print(co);
+		assertEquals(1, cos.m_printed);
+		JsonReader reader = new JsonReader();
+		reader.addHandler(new CompiledReadHandler<JsonElement>(reader, cos));
+		Object o = reader.read(je);
+		assertEquals(1, cos.m_created);
+		assertTrue(o instanceof CompiledObject);
+		CompiledObject nco = (CompiledObject) o;
+		assertEquals(3, nco.m_x);
+		assertEquals("foo", nco.m_y);
+		// The output is the same as with reflection
+		assertEquals(new JsonPrinter().print(co).toString(), je.toString());
+		// Including when the object is written as a stream
+		StringBuilder out = new StringBuilder();
+		StreamPrinter s_printer = new StreamPrinter(new JsonSink(out));
+		s_printer.addHandler(new CompiledPrintHandler<Void>(s_printer, cos));
+		s_printer.print(co);
+		assertEquals(2, cos.m_printed);
+		StringBuilder r_out = new StringBuilder();
+		new StreamPrinter(new JsonSink(r_out)).print(co);
+		assertEquals(r_out.toString(), out.toString());
+	}
+	
+	protected static class CompiledObject
+	{
+		int m_x;
+		
+		String m_y;
+	}
+	
+	/**
+	 * A serializer written by hand, in the same way as those generated by
+	 * the annotation processor
+	 */
+	protected static class CompiledObjectSerializer implements CompiledSerializer<CompiledObject>
+	{
+		int m_printed = 0;
+		
+		int m_created = 0;
+		
+		@Override
+		public Class<CompiledObject> getTargetClass()
+		{
+			return CompiledObject.class;
+		}
+
+		@Override
+		public Map<String,Object> getFields(CompiledObject o)
+		{
+			m_printed++;
+			Map<String,Object> fields = new HashMap<String,Object>();
+			fields.put("m_x", o.m_x);
+			fields.put("m_y", o.m_y);
+			return fields;
+		}
+
+		@Override
+		public CompiledObject create(Map<String,Object> fields) throws ReadException
+		{
+			m_created++;
+			CompiledObject o = new CompiledObject();
+			o.m_x = ((Number) fields.get("m_x")).intValue();
+			o.m_y = (String) fields.get("m_y");
+			return o;
+		}
+	}
+	
+	@Test
+	public void testSharedReference() throws PrintException, ReadException
+	{
+		Node shared = new Node("shared");
+		shared.m_next = shared;
+		List<Node> list = new ArrayList<Node>();
+		list.add(shared);
+		list.add(shared);
+		JsonPrinter printer = new JsonPrinter();
+		printer.trackReferences(true);
+		JsonElement je = printer.print(list);
+		JsonReader reader = new JsonReader();
+		reader.trackReferences(true);
+		List<?> n_list = (List<?>) reader.read(je);
+		assertEquals(2, n_list.size());
+		assertEquals("shared", ((Node) n_list.get(0)).m_name);
+		assertTrue(n_list.get(0) == n_list.get(1));
+		assertTrue(((Node) n_list.get(0)).m_next == n_list.get(0));
+	}
+	
+	@Test
+	public void testDeepChain() throws PrintException, ReadException
+	{
+		Node first = new Node("0");
+		Node n = first;
+		for (int i = 1; i < 20000; i++)
+		{
+			n.m_next = new Node(Integer.toString(i));
+			n = n.m_next;
+		}
+		JsonPrinter printer = new JsonPrinter();
+		JsonElement je = printer.print(first);
+		JsonReader reader = new JsonReader();
+		Node n_first = (Node) reader.read(je);
+		int count = 0;
+		for (n = n_first; n != null; n = n.m_next)
+		{
+			assertEquals(Integer.toString(count), n.m_name);
+			count++;
+		}
+		assertEquals(20000, count);
+	}
+	
+	@Test
+	public void testDeepChainSmallStack() throws Throwable
+	{
+		final Node first = new Node("0");
+		Node n = first;
+		for (int i = 1; i < 5000; i++)
+		{
+			n.m_next = new Node(Integer.toString(i));
+			n = n.m_next;
+		}
+		final Object[] result = new Object[1];
+		final Throwable[] error = new Throwable[1];
+		// References and limits are handled without recursive calls as well
+		Thread t = new Thread(null, new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					JsonPrinter printer = new JsonPrinter();
+					printer.trackReferences(true);
+					printer.setMaxNodes(100000);
+					printer.setMaxSize(100000000);
+					printer.setObserver(new SerializationStatistics());
+					JsonElement je = printer.print(first);
+					JsonReader reader = new JsonReader();
+					reader.trackReferences(true);
+					reader.setMaxDepth(100000);
+					result[0] = reader.read(je);
+				}
+				catch (Throwable e)
+				{
+					error[0] = e;
+				}
+			}
+		}, "small-stack", 256 * 1024);
+		t.start();
+		t.join();
+		if (error[0] != null)
+		{
+			throw error[0];
+		}
+		int count = 0;
+		for (n = (Node) result[0]; n != null; n = n.m_next)
+		{
+			assertEquals(Integer.toString(count), n.m_name);
+			count++;
+		}
+		assertEquals(5000, count);
+	}
+	
+	@Test(expected = PrintException.class)
+	public void testMaxDepth() throws PrintException
+	{
+		Node first = new Node("0");
+		first.m_next = new Node("1");
+		first.m_next.m_next = new Node("2");
+		JsonPrinter printer = new JsonPrinter();
+		printer.setMaxDepth(2);
+		printer.print(first);
+	}
+	
+	@Test
+	public void testMaxNodes()
+	{
+		Node first = new Node("0");
+		first.m_next = new Node("1");
+		first.m_next.m_next = new Node("2");
+		JsonPrinter printer = new JsonPrinter();
+		printer.setMaxNodes(5);
+		try
+		{
+			printer.print(first);
+			fail("Expected a PrintException");
+		}
+		catch (PrintException e)
+		{
+			assertTrue(e.getMessage().contains("Node.m_next"));
+		}
+	}
+	
+	@Test
+	public void testMaxNodesParallel()
+	{
+		List<SimpleObject> list = new ArrayList<SimpleObject>();
+		for (int i = 0; i < 1000; i++)
+		{
+			list.add(new SimpleObject(i, "s" + i));
+		}
+		JsonPrinter printer = new JsonPrinter();
+		printer.setParallelThreshold(10);
+		printer.setMaxNodes(100);
+		try
+		{
+			printer.print(list);
+			fail("Expected a PrintException");
+		}
+		catch (PrintException e)
+		{
+			assertTrue(e.getMessage().contains("100 objects"));
+		}
+	}
+	
+	@Test
+	public void testTruncate() throws PrintException, ReadException
+	{
+		Node first = new Node("0");
+		first.m_next = new Node("1");
+		first.m_next.m_next = new Node("2");
+		JsonStringPrinter printer = new JsonStringPrinter();
+		printer.setMaxDepth(2);
+		printer.truncateOnLimit(true);
+		String s = printer.print(first);
+		Node n = (Node) new JsonStringReader().read(s);
+		assertEquals("0", n.m_name);
+		assertEquals("1", n.m_next.m_name);
+		assertNull(n.m_next.m_next);
+		printer.setMaxDepth(0);
+		printer.setMaxSize(10);
+		assertEquals("null", printer.print(first));
+		// Only the part that is too long is replaced by the marker
+		first.m_next.m_name = new String(new char[500]).replace('\0', '\t');
+		printer.setMaxSize(200);
+		s = printer.print(first);
+		assertTrue(s.length() <= 200);
+		n = (Node) new JsonStringReader().read(s);
+		assertEquals("0", n.m_name);
+		assertNull(n.m_next);
+		// The size measured during the traversal is the length of the text
+		first.m_next.m_name = "\u0001\u00e9\"";
+		String full = new JsonStringPrinter().print(first);
+		printer.setMaxSize(full.length());
+		assertEquals(full, printer.print(first));
+		printer.setMaxSize(full.length() - 1);
+		assertEquals("null", printer.print(first));
+	}
+	
+	@Test
+	public void testCycle() throws PrintException, ReadException
+	{
+		Node a = new Node("a");
+		Node b = new Node("b");
+		a.m_next = b;
+		b.m_next = a;
+		JsonPrinter printer = new JsonPrinter();
+		printer.trackReferences(true);
+		JsonElement je = printer.print(a);
+		JsonReader reader = new JsonReader();
+		reader.trackReferences(true);
+		Node n_a = (Node) reader.read(je);
+		assertEquals("a", n_a.m_name);
+		assertEquals("b", n_a.m_next.m_name);
+		assertTrue(n_a.m_next.m_next == n_a);
+	}
+	
+	@Test
+	public void testConcurrent() throws InterruptedException
+	{
+		// A single printer and reader, shared by all the threads
+		final JsonStringPrinter printer = new JsonStringPrinter();
+		printer.trackReferences(true);
+		final JsonStringReader reader = new JsonStringReader();
+		reader.trackReferences(true);
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++)
+		{
+			final String name = "n" + i;
+			threads[i] = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						for (int j = 0; j < 200; j++)
+						{
+							Node a = new Node(name);
+							Node b = new Node(name + j);
+							a.m_next = b;
+							b.m_next = a;
+							Node n_a = (Node) reader.read(printer.print(a));
+							assertEquals(name, n_a.m_name);
+							assertEquals(name + j, n_a.m_next.m_name);
+							assertTrue(n_a.m_next.m_next == n_a);
+						}
+					}
+					catch (Throwable t)
+					{
+						synchronized (errors)
+						{
+							errors.add(t);
+						}
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread t : threads)
+		{
+			t.join();
+		}
+		assertTrue(errors.toString(), errors.isEmpty());
+	}
+	
+	protected static class Node
+	{
+		String m_name;
+		
+		Node m_next;
+		
+		protected Node()
+		{
+			this("");
+		}
+		
+		public Node(String name)
+		{
+			super();
+			m_name = name;
+		}
+	}
+	
+	@Test
+	public void testParallel() throws PrintException, ReadException
+	{
+		List<SimpleObject> list = new ArrayList<SimpleObject>();
+		Map<String,SimpleObject> map = new HashMap<String,SimpleObject>();
+		for (int i = 0; i < 2000; i++)
+		{
+			list.add(new SimpleObject(i, "s" + i));
+			map.put("k" + i, new SimpleObject(i, "m" + i));
+		}
+		List<Object> in = new ArrayList<Object>();
+		in.add(list);
+		in.add(map);
+		JsonPrinter printer = new JsonPrinter();
+		printer.setParallelThreshold(100);
+		JsonElement e = printer.print(in);
+		JsonReader reader = new JsonReader();
+		reader.setParallelThreshold(100);
+		List<?> out = (List<?>) reader.read(e);
+		List<?> n_list = (List<?>) out.get(0);
+		assertEquals(2000, n_list.size());
+		for (int i = 0; i < 2000; i++)
+		{
+			SimpleObject so = (SimpleObject) n_list.get(i);
+			assertEquals(i, so.m_x);
+			assertEquals("s" + i, so.m_y);
+		}
+		Map<?,?> n_map = (Map<?,?>) out.get(1);
+		assertEquals(2000, n_map.size());
+		assertEquals("m42", ((SimpleObject) n_map.get("k42")).m_y);
+		// The output is the same as when printing sequentially
+		assertEquals(new JsonPrinter().print(in).toString(), e.toString());
+	}
+
+	@Test
+	public void testObserver() throws PrintException, ReadException
+	{
+		SerializationStatistics stats = new SerializationStatistics();
+		NonPrintableObject co = new NonPrintableObject();
+		co.add(new SimpleObject(3, "foo"));
+		co.add(new SimpleObject(5, "bar"));
+		JsonStringPrinter printer = new JsonStringPrinter();
+		printer.setObserver(stats);
+		String s = printer.print(co);
+		JsonStringReader reader = new JsonStringReader();
+		reader.setObserver(stats);
+		reader.read(s);
+		assertTrue(stats.getReflectionFallbacks().contains(NonPrintableObject.class));
+		assertFalse(stats.getReflectionFallbacks().contains(SimpleObject.class));
+		boolean found_print = false, found_read = false, found_string = false;
+		for (SerializationStatistics.Entry e : stats.getEntries())
+		{
+			if (e.getType() == SimpleObject.class && e.getOperation() == SerializationStatistics.Operation.PRINT)
+			{
+				found_print = true;
+				assertEquals(Printable.class, e.getHandler());
+				assertEquals(2, e.getCount());
+				assertTrue(e.getMaxDepth() > 0);
+			}
+			if (e.getType() == SimpleObject.class && e.getOperation() == SerializationStatistics.Operation.READ)
+			{
+				found_read = true;
+				assertEquals(Readable.class, e.getHandler());
+				assertEquals(2, e.getCount());
+			}
+			if (e.getHandler() == JsonStringPrinter.class)
+			{
+				found_string = true;
+				assertEquals(s.length(), e.getSize());
+			}
+			assertTrue(e.getSelfNanos() <= e.getNanos());
+		}
+		assertTrue(found_print);
+		assertTrue(found_read);
+		assertTrue(found_string);
+	}
+
+	@Test
+	public void testFlightRecorder() throws PrintException, ReadException, IOException
+	{
+		NonPrintableObject co = new NonPrintableObject();
+		co.add(new SimpleObject(3, "foo"));
+		co.add(new SimpleObject(5, "bar"));
+		JsonStringPrinter printer = new JsonStringPrinter();
+		JsonStringReader reader = new JsonStringReader();
+		String s;
+		File f = File.createTempFile("azrael", ".jfr");
+		Recording rec = new Recording();
+		try
+		{
+			rec.enable("ca.uqac.lif.azrael.Print").withThreshold(Duration.ZERO);
+			rec.enable("ca.uqac.lif.azrael.Read").withThreshold(Duration.ZERO);
+			rec.start();
+			s = printer.print(co);
+			reader.read(s);
+			rec.stop();
+			rec.dump(f.toPath());
+			int prints = 0, reads = 0;
+			for (RecordedEvent e : RecordingFile.readAllEvents(f.toPath()))
+			{
+				String name = e.getEventType().getName();
+				if (name.equals("ca.uqac.lif.azrael.Print"))
+				{
+					prints++;
+					assertEquals(NonPrintableObject.class.getName(), e.getClass("objectClass").getName());
+					assertEquals(JsonStringPrinter.class.getName(), e.getClass("handlerClass").getName());
+					assertEquals(s.length(), e.getLong("size"));
+				}
+				if (name.equals("ca.uqac.lif.azrael.Read"))
+				{
+					reads++;
+					assertEquals(NonPrintableObject.class.getName(), e.getClass("objectClass").getName());
+				}
+			}
+			// Only the top-level calls are recorded
+			assertEquals(1, prints);
+			assertEquals(1, reads);
+		}
+		finally
+		{
+			rec.close();
+			f.delete();
+		}
+	}
+
 	protected static class SimpleObject implements Printable, Readable
 	{
 		int m_x;
@@ -247,6 +1582,60 @@ public class JsonTest
 		}
 	}
 	
+	protected static class Registry
+	{
+		List<SimpleObject> m_list = new ArrayList<SimpleObject>();
+
+		Map<String,SimpleObject> m_map = new HashMap<String,SimpleObject>();
+	}
+
+	protected static class ImmutableObject
+	{
+		final int m_x;
+		
+		final String m_y;
+		
+		/**
+		 * No no-args constructor: the object is created through this one
+		 */
+		@FieldConstructor({"m_x", "m_y"})
+		public ImmutableObject(int x, String y)
+		{
+			super();
+			m_x = x;
+			m_y = y;
+		}
+	}
+	
+	protected static class PrimitiveObject
+	{
+		int m_int;
+
+		long m_long;
+
+		double m_double;
+
+		boolean m_boolean;
+
+		String m_string;
+	}
+
+	protected static class Pair
+	{
+		int m_a;
+
+		int m_b;
+
+		public Pair(int b, int a)
+		{
+			super();
+			m_a = a;
+			m_b = b;
+		}
+	}
+
+	protected static enum NumberObject {NaND}
+
 	protected static class EnumObject
 	{
 		public static enum MyEnum {FOO, BAR}
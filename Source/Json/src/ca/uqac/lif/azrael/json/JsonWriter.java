@@ -0,0 +1,414 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.json;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+
+import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonList;
+import ca.uqac.lif.json.JsonMap;
+import ca.uqac.lif.json.JsonString;
+
+/**
+ * Writes JSON elements as text directly to a {@link Writer}, or to any
+ * other {@link Appendable}, without first converting them into a string.
+ * Maps, lists and strings are written by this class, and other elements
+ * through their <tt>toString()</tt> method; the text reproduces the
+ * formatting of the <tt>toString()</tt> method of json-lif elements.
+ * <p>
+ * Characters are accumulated in a buffer that is reused for the whole
+ * lifetime of the writer, and which is emptied into the underlying
+ * destination each time it is full; strings are escaped directly into
+ * this buffer. Elements are visited iteratively, so that elements of
+ * arbitrary depth can be written. Typical usage:
+ * <pre>
+ * JsonWriter w = new JsonWriter(new FileWriter("out.json"));
+ * w.write(element);
+ * w.flush();
+ * </pre>
+ * @author Sylvain Hallé
+ * @see JsonStringPrinter#print(Object, Writer)
+ * @see JsonSink
+ */
+public class JsonWriter implements Appendable, Flushable
+{
+	/**
+	 * The default size of the buffer, in characters
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/**
+	 * The hexadecimal digits used to write escaped control characters
+	 */
+	protected static final char[] s_hexDigits = "0123456789abcdef".toCharArray();
+
+	/**
+	 * The destination of the JSON text
+	 */
+	protected final Appendable m_out;
+
+	/**
+	 * The buffer accumulating the characters to write
+	 */
+	protected final char[] m_buffer;
+
+	/**
+	 * The number of characters currently in the buffer
+	 */
+	protected int m_length = 0;
+
+	/**
+	 * The total number of characters written so far
+	 */
+	protected long m_count = 0;
+
+	/**
+	 * Creates a new JSON writer with a buffer of default size.
+	 * @param out The destination of the JSON text
+	 */
+	public JsonWriter(/*@ non_null @*/ Appendable out)
+	{
+		this(out, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a new JSON writer.
+	 * @param out The destination of the JSON text
+	 * @param size The size of the buffer, in characters
+	 */
+	public JsonWriter(/*@ non_null @*/ Appendable out, int size)
+	{
+		super();
+		if (size <= 0)
+		{
+			throw new IllegalArgumentException("Buffer size must be positive");
+		}
+		m_out = out;
+		m_buffer = new char[size];
+	}
+
+	/**
+	 * Creates a new JSON writer writing to an output stream, encoded in
+	 * UTF-8.
+	 * @param os The output stream
+	 */
+	public JsonWriter(/*@ non_null @*/ OutputStream os)
+	{
+		this(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Gets the total number of characters written by this writer so far,
+	 * including those still in its buffer.
+	 * @return The number of characters
+	 */
+	public long getCount()
+	{
+		return m_count;
+	}
+
+	/**
+	 * Writes a JSON element.
+	 * @param e The element; <tt>null</tt> is written as a JSON null
+	 * @throws IOException Thrown if the text cannot be written
+	 */
+	public void write(JsonElement e) throws IOException
+	{
+		Deque<Frame> frames = new ArrayDeque<Frame>();
+		open(e, frames);
+		while (!frames.isEmpty())
+		{
+			Frame f = frames.peek();
+			if (!f.m_iterator.hasNext())
+			{
+				frames.pop();
+				append(f.m_map ? '}' : ']');
+				continue;
+			}
+			if (f.m_first)
+			{
+				f.m_first = false;
+			}
+			else
+			{
+				append(',');
+			}
+			Object next = f.m_iterator.next();
+			if (f.m_map)
+			{
+				Map.Entry<?,?> entry = (Map.Entry<?,?>) next;
+				writeString((String) entry.getKey());
+				append(':');
+				open((JsonElement) entry.getValue(), frames);
+			}
+			else
+			{
+				open((JsonElement) next, frames);
+			}
+		}
+	}
+
+	/**
+	 * Writes a string as a quoted and escaped JSON string.
+	 * @param s The string
+	 * @throws IOException Thrown if the text cannot be written
+	 */
+	public void writeString(String s) throws IOException
+	{
+		append('"');
+		escape(s, this);
+		append('"');
+	}
+
+	/**
+	 * Starts writing an element. Leaves are written completely; for maps and
+	 * lists, only the opening bracket is written, and a frame iterating over
+	 * their contents is pushed on the stack.
+	 * @param e The element
+	 * @param frames The stack of maps and lists being written
+	 * @throws IOException Thrown if the text cannot be written
+	 */
+	protected void open(JsonElement e, Deque<Frame> frames) throws IOException
+	{
+		if (e instanceof JsonMap)
+		{
+			append('{');
+			frames.push(new Frame(((JsonMap) e).entrySet().iterator(), true));
+		}
+		else if (e instanceof JsonList)
+		{
+			append('[');
+			frames.push(new Frame(((JsonList) e).iterator(), false));
+		}
+		else if (e instanceof JsonString)
+		{
+			writeString(((JsonString) e).stringValue());
+		}
+		else if (e == null)
+		{
+			append("null");
+		}
+		else
+		{
+			append(e.toString());
+		}
+	}
+
+	/**
+	 * Escapes the characters of a string that must be escaped in a JSON
+	 * string, without the surrounding quotes. Runs of characters that need
+	 * no escaping are appended as a whole.
+	 * @param s The string
+	 * @param out The destination of the escaped string
+	 * @throws IOException Thrown if the text cannot be written
+	 */
+	public static void escape(CharSequence s, Appendable out) throws IOException
+	{
+		int start = 0;
+		int len = s.length();
+		for (int i = 0; i < len; i++)
+		{
+			char c = s.charAt(i);
+			if (c >= 0x20 && c != '"' && c != '\\')
+			{
+				continue;
+			}
+			if (i > start)
+			{
+				out.append(s, start, i);
+			}
+			start = i + 1;
+			switch (c)
+			{
+			case '"':
+				out.append("\\\"");
+				break;
+			case '\\':
+				out.append("\\\\");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\r':
+				out.append("\\r");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			default:
+				out.append("\\u00").append(s_hexDigits[c >> 4]).append(s_hexDigits[c & 0xf]);
+			}
+		}
+		if (start < len)
+		{
+			out.append(s, start, len);
+		}
+	}
+
+	/**
+	 * Gets the number of characters of a string once escaped by
+	 * {@link #escape(CharSequence, Appendable)}, without the surrounding
+	 * quotes.
+	 * @param s The string
+	 * @return The number of characters
+	 */
+	public static int escapedLength(CharSequence s)
+	{
+		int len = s.length();
+		int size = len;
+		for (int i = 0; i < len; i++)
+		{
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\' || c == '\n' || c == '\r' || c == '\t')
+			{
+				size++;
+			}
+			else if (c < 0x20)
+			{
+				size += 5;
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public JsonWriter append(char c) throws IOException
+	{
+		if (m_length == m_buffer.length)
+		{
+			drain();
+		}
+		m_buffer[m_length++] = c;
+		m_count++;
+		return this;
+	}
+
+	@Override
+	public JsonWriter append(CharSequence s) throws IOException
+	{
+		return append(s, 0, s.length());
+	}
+
+	@Override
+	public JsonWriter append(CharSequence s, int start, int end) throws IOException
+	{
+		m_count += end - start;
+		while (start < end)
+		{
+			if (m_length == m_buffer.length)
+			{
+				drain();
+			}
+			int n = Math.min(end - start, m_buffer.length - m_length);
+			if (s instanceof String)
+			{
+				((String) s).getChars(start, start + n, m_buffer, m_length);
+			}
+			else
+			{
+				for (int i = 0; i < n; i++)
+				{
+					m_buffer[m_length + i] = s.charAt(start + i);
+				}
+			}
+			m_length += n;
+			start += n;
+		}
+		return this;
+	}
+
+	/**
+	 * Writes the contents of the buffer to the underlying destination, and
+	 * flushes it if it is {@link Flushable}.
+	 */
+	@Override
+	public void flush() throws IOException
+	{
+		drain();
+		if (m_out instanceof Flushable)
+		{
+			((Flushable) m_out).flush();
+		}
+	}
+
+	/**
+	 * Writes the contents of the buffer to the underlying destination and
+	 * empties the buffer.
+	 * @throws IOException Thrown if the text cannot be written
+	 */
+	protected void drain() throws IOException
+	{
+		if (m_length > 0)
+		{
+			if (m_out instanceof Writer)
+			{
+				((Writer) m_out).write(m_buffer, 0, m_length);
+			}
+			else
+			{
+				m_out.append(CharBuffer.wrap(m_buffer, 0, m_length));
+			}
+			m_length = 0;
+		}
+	}
+
+	/**
+	 * A map or list that has been opened but not yet closed.
+	 */
+	protected static class Frame
+	{
+		/**
+		 * An iterator over the entries of the map or the elements of the list
+		 * that remain to be written
+		 */
+		protected final Iterator<?> m_iterator;
+
+		/**
+		 * Whether the structure is a map
+		 */
+		protected final boolean m_map;
+
+		/**
+		 * Whether no entry or element of the structure has been written yet
+		 */
+		protected boolean m_first = true;
+
+		/**
+		 * Creates a new frame.
+		 * @param it An iterator over the contents of the structure
+		 * @param map Whether the structure is a map
+		 */
+		protected Frame(Iterator<?> it, boolean map)
+		{
+			super();
+			m_iterator = it;
+			m_map = map;
+		}
+	}
+}
@@ -20,11 +20,14 @@ package ca.uqac.lif.azrael.json;
 
 import java.util.List;
 
+import ca.uqac.lif.azrael.ContainerReadHandler;
+import ca.uqac.lif.azrael.ElementRead;
+import ca.uqac.lif.azrael.PendingRead;
 import ca.uqac.lif.azrael.ReadException;
 import ca.uqac.lif.json.JsonElement;
 import ca.uqac.lif.json.JsonList;
 
-public class ListReadHandler extends JsonReadHandler
+public class ListReadHandler extends JsonReadHandler implements ContainerReadHandler<JsonElement>
 {
 
 	public ListReadHandler(JsonReader reader)
@@ -43,19 +46,34 @@ public class ListReadHandler extends JsonReadHandler
 		return List.class.isAssignableFrom(clazz);
 	}
 
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
+
 	@Override
 	public List<?> handle(JsonElement o) throws ReadException
+	{
+		return (List<?>) m_reader.readPending(open(o));
+	}
+
+	@Override
+	public PendingRead open(JsonElement o) throws ReadException
 	{
 		Class<?> clazz = m_reader.unwrapType(o);
 		JsonList list = (JsonList) m_reader.unwrapContents(o);
 		@SuppressWarnings("unchecked")
-		List<Object> out_list = (List<Object>) m_reader.getInstance(clazz);
-		for (JsonElement el : list)
+		final List<Object> out_list = (List<Object>) m_reader.getInstance(clazz, list.size());
+		m_reader.register(out_list);
+		return new ElementRead(m_reader, list)
 		{
-			Object o_el = m_reader.read(el);
-			out_list.add(o_el);
-		}
-		return out_list;
+			@Override
+			protected Object combine(List<Object> elements)
+			{
+				out_list.addAll(elements);
+				return out_list;
+			}
+		};
 	}
-
 }
@@ -18,14 +18,18 @@
  */
 package ca.uqac.lif.azrael.json;
 
+import java.util.List;
 import java.util.Map;
 
+import ca.uqac.lif.azrael.ContainerPrintHandler;
+import ca.uqac.lif.azrael.EntryPrint;
+import ca.uqac.lif.azrael.PendingPrint;
 import ca.uqac.lif.azrael.PrintException;
 import ca.uqac.lif.json.JsonElement;
 import ca.uqac.lif.json.JsonList;
 import ca.uqac.lif.json.JsonMap;
 
-public class MapPrintHandler extends JsonPrintHandler
+public class MapPrintHandler extends JsonPrintHandler implements ContainerPrintHandler<JsonElement>
 {
 	public static String KEY_NAME = "!k";
 	
@@ -41,24 +45,83 @@ public class MapPrintHandler extends JsonPrintHandler
 	{
 		return o instanceof Map;
 	}
+
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
 	
 	@Override
 	public JsonElement handle(Object o) throws PrintException 
 	{
-		Map<?,?> map = (Map<?,?>) o;
-		JsonList keys = new JsonList();
-		JsonList values = new JsonList();
-		for (Map.Entry<?,?> entry : map.entrySet())
+		return m_printer.printPending(open(o));
+	}
+
+	@Override
+	public PendingPrint<JsonElement> open(final Object o)
+	{
+		final Map<?,?> map = (Map<?,?>) o;
+		if (m_printer.usesNativeMaps() && isStringKeyed(map))
+		{
+			// Map whose keys are strings, printed as a JSON object
+			return new EntryPrint<JsonElement>(m_printer, map, false)
+			{
+				@Override
+				protected JsonElement combine(List<JsonElement> keys, List<JsonElement> values) throws PrintException
+				{
+					JsonMap out_map = new JsonMap();
+					int i = 0;
+					for (Object key : map.keySet())
+					{
+						out_map.put((String) key, values.get(i++));
+					}
+					return m_printer.wrap(o, out_map);
+				}
+			};
+		}
+		return new EntryPrint<JsonElement>(m_printer, map, true)
+		{
+			@Override
+			protected JsonElement combine(List<JsonElement> keys, List<JsonElement> values) throws PrintException
+			{
+				JsonList out_keys = new JsonList();
+				out_keys.addAll(keys);
+				JsonList out_values = new JsonList();
+				out_values.addAll(values);
+				JsonMap out_map = new JsonMap();
+				out_map.put(KEY_NAME, out_keys);
+				out_map.put(KEY_VALUE, out_values);
+				return m_printer.wrap(o, out_map);
+			}
+		};
+	}
+
+	/**
+	 * Determines if a map can be printed as a JSON object. This is the case
+	 * if all its keys are strings that cannot be mistaken for anything else
+	 * when read: keys starting with <tt>!</tt> (which could be taken for the
+	 * keys of a wrapped object) and keys that look like numbers printed by
+	 * the {@link NumberPrintHandler} are excluded.
+	 * @param map The map
+	 * @return <tt>true</tt> if the map can be printed as a JSON object,
+	 * <tt>false</tt> otherwise
+	 */
+	protected static boolean isStringKeyed(Map<?,?> map)
+	{
+		for (Object key : map.keySet())
 		{
-			JsonElement j_key = m_printer.print(entry.getKey());
-			keys.add(j_key);
-			JsonElement j_value = m_printer.print(entry.getValue());
-			values.add(j_value);
+			if (!(key instanceof String))
+			{
+				return false;
+			}
+			String s = (String) key;
+			if (s.startsWith("!") || NumberReadHandler.scan(s) != 0)
+			{
+				return false;
+			}
 		}
-		JsonMap out_map = new JsonMap();
-		out_map.put(KEY_NAME, keys);
-		out_map.put(KEY_VALUE, values);
-		return m_printer.wrap(o, out_map);
+		return true;
 	}
 
 }
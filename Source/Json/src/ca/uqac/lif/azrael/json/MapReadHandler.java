@@ -18,14 +18,19 @@
  */
 package ca.uqac.lif.azrael.json;
 
+import java.util.List;
 import java.util.Map;
 
+import ca.uqac.lif.azrael.ContainerReadHandler;
+import ca.uqac.lif.azrael.ElementRead;
+import ca.uqac.lif.azrael.EntryRead;
+import ca.uqac.lif.azrael.PendingRead;
 import ca.uqac.lif.azrael.ReadException;
 import ca.uqac.lif.json.JsonElement;
 import ca.uqac.lif.json.JsonList;
 import ca.uqac.lif.json.JsonMap;
 
-public class MapReadHandler extends JsonReadHandler
+public class MapReadHandler extends JsonReadHandler implements ContainerReadHandler<JsonElement>
 {
 
 	public MapReadHandler(JsonReader reader)
@@ -44,23 +49,86 @@ public class MapReadHandler extends JsonReadHandler
 		return Map.class.isAssignableFrom(clazz);
 	}
 
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
+
 	@Override
 	public Map<?,?> handle(JsonElement o) throws ReadException
+	{
+		return (Map<?,?>) m_reader.readPending(open(o));
+	}
+
+	@Override
+	public PendingRead open(JsonElement o) throws ReadException
 	{
 		Class<?> clazz = m_reader.unwrapType(o);
 		JsonMap in_map = (JsonMap) m_reader.unwrapContents(o);
+		if (!isKeyValueLayout(in_map))
+		{
+			return openStringKeyed(clazz, in_map);
+		}
 		JsonList l_keys = (JsonList) in_map.get(MapPrintHandler.KEY_NAME);
 		JsonList l_values = (JsonList) in_map.get(MapPrintHandler.KEY_VALUE);
-		@SuppressWarnings("unchecked")
-		Map<Object,Object> out_map = (Map<Object,Object>) m_reader.getInstance(clazz);
 		int size = Math.min(l_keys.size(), l_values.size());
-		for (int i = 0; i < size; i++)
+		@SuppressWarnings("unchecked")
+		final Map<Object,Object> out_map = (Map<Object,Object>) m_reader.getInstance(clazz, size);
+		m_reader.register(out_map);
+		return new EntryRead(m_reader, l_keys.subList(0, size), l_values.subList(0, size))
 		{
-			Object o_k = m_reader.read(l_keys.get(i));
-			Object o_v = m_reader.read(l_values.get(i));
-			out_map.put(o_k, o_v);
-		}
-		return out_map;
+			@Override
+			protected Object combine(List<Object> keys, List<Object> values)
+			{
+				for (int i = 0; i < keys.size(); i++)
+				{
+					out_map.put(keys.get(i), values.get(i));
+				}
+				return out_map;
+			}
+		};
+	}
+
+	/**
+	 * Starts reading a map printed as a JSON object. The map is created with
+	 * room for all its entries.
+	 * @param clazz The class of the map
+	 * @param in_map The JSON object
+	 * @return The pending read of the map
+	 * @throws ReadException Thrown if the map cannot be created
+	 * @see JsonPrinter#useNativeMaps(boolean)
+	 */
+	protected PendingRead openStringKeyed(Class<?> clazz, final JsonMap in_map) throws ReadException
+	{
+		int size = in_map.size();
+		@SuppressWarnings("unchecked")
+		final Map<Object,Object> out_map = (Map<Object,Object>) m_reader.getInstance(clazz, size);
+		m_reader.register(out_map);
+		return new ElementRead(m_reader, in_map.values())
+		{
+			@Override
+			protected Object combine(List<Object> values)
+			{
+				int i = 0;
+				for (String key : in_map.keySet())
+				{
+					out_map.put(key, values.get(i++));
+				}
+				return out_map;
+			}
+		};
 	}
 
+	/**
+	 * Determines if the contents of a wrapped map use the layout with two
+	 * lists of keys and values, rather than being a JSON object.
+	 * @param in_map The contents of the map
+	 * @return <tt>true</tt> if the contents use two lists, <tt>false</tt>
+	 * otherwise
+	 */
+	protected static boolean isKeyValueLayout(JsonMap in_map)
+	{
+		return in_map.containsKey(MapPrintHandler.KEY_NAME) && in_map.containsKey(MapPrintHandler.KEY_VALUE);
+	}
 }
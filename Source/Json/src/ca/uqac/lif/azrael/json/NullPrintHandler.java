@@ -34,6 +34,12 @@ public class NullPrintHandler extends JsonPrintHandler
 		return o == null;
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public JsonNull handle(Object o) throws PrintException 
 	{
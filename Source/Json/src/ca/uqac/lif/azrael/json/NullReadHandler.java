@@ -36,6 +36,12 @@ public class NullReadHandler extends JsonReadHandler
 		return o instanceof JsonNull;
 	}
 
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
+
 	@Override
 	public Object handle(JsonElement o) throws ReadException
 	{
@@ -18,11 +18,21 @@
  */
 package ca.uqac.lif.azrael.json;
 
+import ca.uqac.lif.azrael.NumberEncoding;
 import ca.uqac.lif.azrael.PrintException;
+import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonNumber;
 import ca.uqac.lif.json.JsonString;
 
 public class NumberPrintHandler extends JsonPrintHandler
 {
+	/**
+	 * The largest magnitude of a long that a JSON parser is guaranteed to
+	 * read without losing precision, even if it represents all numbers as
+	 * doubles
+	 */
+	protected static final long MAX_EXACT_LONG = 1L << 53;
+
 	public NumberPrintHandler(JsonPrinter printer)
 	{
 		super(printer);
@@ -35,26 +45,47 @@ public class NumberPrintHandler extends JsonPrintHandler
 	}
 
 	@Override
-	public JsonString handle(Object o) throws PrintException 
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
+	@Override
+	public JsonElement handle(Object o) throws PrintException 
 	{
-		String suffix = "";
-		if (o instanceof Integer)
+		if (m_printer.usesNativeNumbers() && isInferable((Number) o))
 		{
-			suffix = "I";
+			return new JsonNumber((Number) o);
 		}
-		if (o instanceof Long)
+		return new JsonString(NumberEncoding.encode((Number) o));
+	}
+
+	/**
+	 * Determines if a number printed as a native JSON number is read back
+	 * as a number of the same type. The {@link NumberReadHandler} reads an
+	 * integral JSON number as an <tt>Integer</tt> if it fits in an int, and
+	 * as a <tt>Long</tt> otherwise; it reads any other JSON number as a
+	 * <tt>Double</tt>.
+	 * @param n The number
+	 * @return <tt>true</tt> if the type of the number can be inferred,
+	 * <tt>false</tt> otherwise
+	 */
+	protected static boolean isInferable(Number n)
+	{
+		if (n instanceof Integer)
 		{
-			suffix = "L";
+			return true;
 		}
-		if (o instanceof Float)
+		if (n instanceof Long)
 		{
-			suffix = "F";
+			long l = n.longValue();
+			return (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) && l > -MAX_EXACT_LONG && l < MAX_EXACT_LONG;
 		}
-		if (o instanceof Double)
+		if (n instanceof Double)
 		{
-			suffix = "D";
+			double d = n.doubleValue();
+			return !Double.isNaN(d) && !Double.isInfinite(d) && d != Math.rint(d);
 		}
-		Number n = (Number) o;
-		return new JsonString(n.toString() + suffix);
+		return false;
 	}
 }
@@ -20,6 +20,7 @@ package ca.uqac.lif.azrael.json;
 
 import ca.uqac.lif.azrael.ReadException;
 import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonNumber;
 import ca.uqac.lif.json.JsonString;
 
 public class NumberReadHandler extends JsonReadHandler
@@ -32,40 +33,170 @@ public class NumberReadHandler extends JsonReadHandler
 	@Override
 	public boolean canHandle(JsonElement o) 
 	{
+		if (o instanceof JsonNumber)
+		{
+			return true;
+		}
 		if (!(o instanceof JsonString))
 		{
 			return false;
 		}
-		return ((JsonString) o).stringValue().matches("[\\d]*\\.[\\d]+[FDIL]|[\\d]+[FDIL]");
+		return scan(((JsonString) o).stringValue()) != 0;
+	}
+
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
 	}
 
 	@Override
 	public Number handle(JsonElement o) throws ReadException
 	{
+		if (o instanceof JsonNumber)
+		{
+			return inferType(((JsonNumber) o).numberValue());
+		}
 		if (!(o instanceof JsonString))
 		{
 			throw new ReadException("Expected a JsonString, got a " + o.getClass().getSimpleName());
 		}
-		JsonString js = (JsonString) o;
-		String beginning = js.stringValue().substring(0, js.stringValue().length() - 1);
-		String type = js.stringValue().substring(js.stringValue().length() - 1);
-		if (type.compareTo("L") == 0)
+		String s = ((JsonString) o).stringValue();
+		char type = scan(s);
+		String beginning = s.substring(0, s.length() - 1);
+		try
+		{
+			switch (type)
+			{
+			case 'L':
+				return Long.parseLong(beginning);
+			case 'I':
+				return Integer.parseInt(beginning);
+			case 'F':
+				return Float.parseFloat(beginning);
+			case 'D':
+				return Double.parseDouble(beginning);
+			default:
+				throw new ReadException("Invalid number type");
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			throw new ReadException(e);
+		}
+	}
+
+	/**
+	 * Gives its Java type to a native JSON number. This reverses the choice
+	 * made by {@link NumberPrintHandler#isInferable(Number)}.
+	 * @param n The value of the JSON number
+	 * @return The number
+	 */
+	protected static Number inferType(Number n)
+	{
+		double d = n.doubleValue();
+		if (d != Math.rint(d) || Double.isInfinite(d))
+		{
+			return d;
+		}
+		long l = n.longValue();
+		if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE)
 		{
-			return Long.parseLong(beginning);
+			return (int) l;
 		}
-		if (type.compareTo("I") == 0)
+		return l;
+	}
+
+	/**
+	 * Determines in a single pass if a string is a number printed with a
+	 * type suffix by the {@link NumberPrintHandler}. Integers and longs
+	 * (suffixes <tt>I</tt> and <tt>L</tt>) are made of an optional minus sign
+	 * followed by digits. Floats and doubles (suffixes <tt>F</tt> and
+	 * <tt>D</tt>) can also have a fractional part and an exponent, or be
+	 * one of <tt>NaN</tt> and <tt>Infinity</tt>.
+	 * @param s The string
+	 * @return The type suffix, or 0 if the string is not such a number
+	 */
+	protected static char scan(String s)
+	{
+		int len = s.length() - 1;
+		if (len < 1)
+		{
+			return 0;
+		}
+		char type = s.charAt(len);
+		boolean decimal = type == 'F' || type == 'D';
+		if (!decimal && type != 'I' && type != 'L')
+		{
+			return 0;
+		}
+		int i = 0;
+		if (s.charAt(0) == '-')
+		{
+			i++;
+		}
+		if (decimal && (s.startsWith("Infinity", i) && i + 8 == len || i == 0 && s.startsWith("NaN") && len == 3))
 		{
-			return Integer.parseInt(beginning);
+			return type;
 		}
-		if (type.compareTo("F") == 0)
+		int digits = 0;
+		while (i < len && isDigit(s.charAt(i)))
 		{
-			return Float.parseFloat(beginning);
+			i++;
+			digits++;
 		}
-		if (type.compareTo("D") == 0)
+		if (!decimal)
 		{
-			return Double.parseDouble(beginning);
+			return digits > 0 && i == len ? type : 0;
 		}
-		throw new ReadException("Invalid number type");
+		if (i < len && s.charAt(i) == '.')
+		{
+			i++;
+			int fraction = 0;
+			while (i < len && isDigit(s.charAt(i)))
+			{
+				i++;
+				fraction++;
+			}
+			if (fraction == 0)
+			{
+				return 0;
+			}
+			digits += fraction;
+		}
+		if (digits == 0)
+		{
+			return 0;
+		}
+		if (i < len && (s.charAt(i) == 'E' || s.charAt(i) == 'e'))
+		{
+			i++;
+			if (i < len && (s.charAt(i) == '-' || s.charAt(i) == '+'))
+			{
+				i++;
+			}
+			int exponent = 0;
+			while (i < len && isDigit(s.charAt(i)))
+			{
+				i++;
+				exponent++;
+			}
+			if (exponent == 0)
+			{
+				return 0;
+			}
+		}
+		return i == len ? type : 0;
 	}
 
+	/**
+	 * Determines if a character is an ASCII digit.
+	 * @param c The character
+	 * @return <tt>true</tt> if the character is a digit, <tt>false</tt>
+	 * otherwise
+	 */
+	protected static boolean isDigit(char c)
+	{
+		return c >= '0' && c <= '9';
+	}
 }
@@ -18,13 +18,17 @@
  */
 package ca.uqac.lif.azrael.json;
 
+import java.util.List;
 import java.util.Queue;
 
+import ca.uqac.lif.azrael.ContainerPrintHandler;
+import ca.uqac.lif.azrael.ElementPrint;
+import ca.uqac.lif.azrael.PendingPrint;
 import ca.uqac.lif.azrael.PrintException;
 import ca.uqac.lif.json.JsonElement;
 import ca.uqac.lif.json.JsonList;
 
-public class QueuePrintHandler extends JsonPrintHandler
+public class QueuePrintHandler extends JsonPrintHandler implements ContainerPrintHandler<JsonElement>
 {
 	public QueuePrintHandler(JsonPrinter printer)
 	{
@@ -37,16 +41,30 @@ public class QueuePrintHandler extends JsonPrintHandler
 		return o instanceof Queue;
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public JsonElement handle(Object o) throws PrintException 
 	{
-		Queue<?> queue = (Queue<?>) o;
-		JsonList out_list = new JsonList();
-		for (Object e: queue)
+		return m_printer.printPending(open(o));
+	}
+
+	@Override
+	public PendingPrint<JsonElement> open(final Object o)
+	{
+		return new ElementPrint<JsonElement>(m_printer, (Queue<?>) o)
 		{
-			JsonElement j_e = m_printer.print(e);
-			out_list.add(j_e);
-		}
-		return m_printer.wrap(o, out_list);
+			@Override
+			protected JsonElement combine(List<JsonElement> elements) throws PrintException
+			{
+				JsonList out_list = new JsonList();
+				out_list.addAll(elements);
+				return m_printer.wrap(o, out_list);
+			}
+		};
 	}
 }
@@ -18,13 +18,17 @@
  */
 package ca.uqac.lif.azrael.json;
 
+import java.util.List;
 import java.util.Queue;
 
+import ca.uqac.lif.azrael.ContainerReadHandler;
+import ca.uqac.lif.azrael.ElementRead;
+import ca.uqac.lif.azrael.PendingRead;
 import ca.uqac.lif.azrael.ReadException;
 import ca.uqac.lif.json.JsonElement;
 import ca.uqac.lif.json.JsonList;
 
-public class QueueReadHandler extends JsonReadHandler
+public class QueueReadHandler extends JsonReadHandler implements ContainerReadHandler<JsonElement>
 {
 
 	public QueueReadHandler(JsonReader reader)
@@ -43,19 +47,34 @@ public class QueueReadHandler extends JsonReadHandler
 		return Queue.class.isAssignableFrom(clazz);
 	}
 
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
+
 	@Override
 	public Queue<?> handle(JsonElement o) throws ReadException
+	{
+		return (Queue<?>) m_reader.readPending(open(o));
+	}
+
+	@Override
+	public PendingRead open(JsonElement o) throws ReadException
 	{
 		Class<?> clazz = m_reader.unwrapType(o);
 		JsonList list = (JsonList) m_reader.unwrapContents(o);
 		@SuppressWarnings("unchecked")
-		Queue<Object> out_list = (Queue<Object>) m_reader.getInstance(clazz);
-		for (JsonElement el : list)
+		final Queue<Object> out_list = (Queue<Object>) m_reader.getInstance(clazz, list.size());
+		m_reader.register(out_list);
+		return new ElementRead(m_reader, list)
 		{
-			Object o_el = m_reader.read(el);
-			out_list.add(o_el);
-		}
-		return out_list;
+			@Override
+			protected Object combine(List<Object> elements)
+			{
+				out_list.addAll(elements);
+				return out_list;
+			}
+		};
 	}
-
 }
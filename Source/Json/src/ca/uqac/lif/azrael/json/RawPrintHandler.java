@@ -34,6 +34,12 @@ public class RawPrintHandler extends JsonPrintHandler
 		return o instanceof JsonElement;
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public JsonElement handle(Object o) throws PrintException
 	{
@@ -39,6 +39,12 @@ public class RawReadHandler extends JsonReadHandler
 		return JsonElement.class.isAssignableFrom(clazz);
 	}
 
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
+
 	@Override
 	public Object handle(JsonElement o) throws ReadException 
 	{
@@ -18,13 +18,17 @@
  */
 package ca.uqac.lif.azrael.json;
 
+import java.util.List;
 import java.util.Set;
 
+import ca.uqac.lif.azrael.ContainerReadHandler;
+import ca.uqac.lif.azrael.ElementRead;
+import ca.uqac.lif.azrael.PendingRead;
 import ca.uqac.lif.azrael.ReadException;
 import ca.uqac.lif.json.JsonElement;
 import ca.uqac.lif.json.JsonList;
 
-public class SetReadHandler extends JsonReadHandler
+public class SetReadHandler extends JsonReadHandler implements ContainerReadHandler<JsonElement>
 {
 
 	public SetReadHandler(JsonReader reader)
@@ -43,18 +47,34 @@ public class SetReadHandler extends JsonReadHandler
 		return Set.class.isAssignableFrom(clazz);
 	}
 
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
+
 	@Override
 	public Set<?> handle(JsonElement o) throws ReadException
+	{
+		return (Set<?>) m_reader.readPending(open(o));
+	}
+
+	@Override
+	public PendingRead open(JsonElement o) throws ReadException
 	{
 		Class<?> clazz = m_reader.unwrapType(o);
 		JsonList list = (JsonList) m_reader.unwrapContents(o);
 		@SuppressWarnings("unchecked")
-		Set<Object> out_set = (Set<Object>) m_reader.getInstance(clazz);
-		for (JsonElement el : list)
+		final Set<Object> out_set = (Set<Object>) m_reader.getInstance(clazz, list.size());
+		m_reader.register(out_set);
+		return new ElementRead(m_reader, list)
 		{
-			Object o_el = m_reader.read(el);
-			out_set.add(o_el);
-		}
-		return out_set;
+			@Override
+			protected Object combine(List<Object> elements)
+			{
+				out_set.addAll(elements);
+				return out_set;
+			}
+		};
 	}
 }
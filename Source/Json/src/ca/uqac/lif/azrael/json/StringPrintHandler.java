@@ -19,6 +19,7 @@
 package ca.uqac.lif.azrael.json;
 
 import ca.uqac.lif.azrael.PrintException;
+import ca.uqac.lif.json.JsonElement;
 import ca.uqac.lif.json.JsonString;
 
 public class StringPrintHandler extends JsonPrintHandler
@@ -35,9 +36,26 @@ public class StringPrintHandler extends JsonPrintHandler
 	}
 
 	@Override
-	public JsonString handle(Object o) throws PrintException 
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * A string that the {@link NumberReadHandler} would take for a number,
+	 * such as <tt>"-1L"</tt>, is printed wrapped with its type so that it is
+	 * read back as a string.
+	 */
+	@Override
+	public JsonElement handle(Object o) throws PrintException 
 	{
 		String s = (String) o;
+		if (NumberReadHandler.scan(s) != 0)
+		{
+			return m_printer.wrap(o, new JsonString(s));
+		}
 		return new JsonString(s);
 	}
 
@@ -31,15 +31,31 @@ public class StringReadHandler extends JsonReadHandler
 	}
 
 	@Override
-	public boolean canHandle(JsonElement o) 
+	public boolean canHandle(JsonElement o) throws ReadException
 	{
-		return o instanceof JsonString;
+		if (o instanceof JsonString)
+		{
+			return true;
+		}
+		// Strings that look like numbers are printed wrapped
+		return m_reader.isWrapped(o) && m_reader.unwrapType(o) == String.class;
+	}
+
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
 	}
 
 	@Override
 	public String handle(JsonElement o) throws ReadException
 	{
-		return ((JsonString) o).stringValue();
+		JsonElement s = o instanceof JsonString ? o : m_reader.unwrapContents(o);
+		if (!(s instanceof JsonString))
+		{
+			throw new ReadException("Expected a JsonString, got a " + s.getClass().getSimpleName());
+		}
+		return ((JsonString) s).stringValue();
 	}
 
 }
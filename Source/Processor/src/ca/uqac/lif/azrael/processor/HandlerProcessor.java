@@ -0,0 +1,503 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor generating a <tt>CompiledSerializer</tt> for each
+ * class marked with <tt>GenerateHandlers</tt>. The generated serializer
+ * for a class <i>C</i> is called <tt><i>C</i>_AzraelSerializer</tt> and is
+ * placed in the same package as <i>C</i>, which allows it to read and write
+ * the non-private fields of <i>C</i> directly. The names of all the
+ * generated serializers are written to the service index
+ * <tt>META-INF/services/ca.uqac.lif.azrael.CompiledSerializer</tt>, from
+ * which the JSON and XML printers and readers pick them up.
+ * <p>
+ * The processor only generates source code, and therefore does not depend
+ * on the classes of Azrael's core; these are only needed to compile the
+ * generated code.
+ * @author Sylvain Hallé
+ */
+@SupportedAnnotationTypes(HandlerProcessor.ANNOTATION_NAME)
+public class HandlerProcessor extends AbstractProcessor
+{
+	/**
+	 * The fully qualified name of the annotation processed by this processor
+	 */
+	public static final String ANNOTATION_NAME = "ca.uqac.lif.azrael.GenerateHandlers";
+
+	/**
+	 * The path of the service index listing the generated serializers
+	 */
+	public static final String SERVICE_FILE = "META-INF/services/ca.uqac.lif.azrael.CompiledSerializer";
+
+	/**
+	 * The suffix appended to the name of a class to obtain the name of its
+	 * serializer
+	 */
+	public static final String SUFFIX = "_AzraelSerializer";
+
+	/**
+	 * The fully qualified names of the serializers generated so far
+	 */
+	protected final Set<String> m_generated = new TreeSet<String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment env)
+	{
+		if (env.processingOver())
+		{
+			if (!m_generated.isEmpty())
+			{
+				writeIndex();
+			}
+			return false;
+		}
+		for (TypeElement annotation : annotations)
+		{
+			for (Element e : env.getElementsAnnotatedWith(annotation))
+			{
+				if (e.getKind() != ElementKind.CLASS)
+				{
+					error(e, "@GenerateHandlers can only be applied to classes");
+					continue;
+				}
+				generate((TypeElement) e);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Generates the serializer for a class. Nothing is generated if the
+	 * class does not meet the requirements stated in the documentation of
+	 * <tt>GenerateHandlers</tt>; an error is reported instead.
+	 * @param type The class
+	 */
+	protected void generate(TypeElement type)
+	{
+		if (!checkClass(type))
+		{
+			return;
+		}
+		List<VariableElement> fields = getSerializedFields(type);
+		if (fields == null)
+		{
+			return;
+		}
+		String pkg = getPackageName(type);
+		String class_name = getFlatName(type) + SUFFIX;
+		String qualified_name = pkg.isEmpty() ? class_name : pkg + "." + class_name;
+		try
+		{
+			JavaFileObject jfo = processingEnv.getFiler().createSourceFile(qualified_name, type);
+			try (PrintWriter out = new PrintWriter(jfo.openWriter()))
+			{
+				writeSerializer(out, pkg, class_name, type, fields);
+			}
+			m_generated.add(qualified_name);
+		}
+		catch (IOException e)
+		{
+			error(type, "Cannot write " + qualified_name + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Checks that a class can be instantiated by a serializer placed in its
+	 * package.
+	 * @param type The class
+	 * @return <tt>true</tt> if the class can be handled, <tt>false</tt>
+	 * otherwise
+	 */
+	protected boolean checkClass(TypeElement type)
+	{
+		if (type.getModifiers().contains(Modifier.ABSTRACT))
+		{
+			error(type, "@GenerateHandlers cannot be applied to an abstract class");
+			return false;
+		}
+		Element e = type;
+		while (e instanceof TypeElement)
+		{
+			TypeElement te = (TypeElement) e;
+			if (te.getModifiers().contains(Modifier.PRIVATE))
+			{
+				error(type, "@GenerateHandlers cannot be applied to a private class");
+				return false;
+			}
+			if (te.getNestingKind() == NestingKind.LOCAL || te.getNestingKind() == NestingKind.ANONYMOUS
+					|| (te.getNestingKind() == NestingKind.MEMBER && !te.getModifiers().contains(Modifier.STATIC)))
+			{
+				error(type, "@GenerateHandlers cannot be applied to an inner class");
+				return false;
+			}
+			e = te.getEnclosingElement();
+		}
+		for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements()))
+		{
+			if (c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE))
+			{
+				return true;
+			}
+		}
+		error(type, "@GenerateHandlers requires a non-private no-argument constructor");
+		return false;
+	}
+
+	/**
+	 * Gets the fields of a class and of its ancestors that are serialized,
+	 * starting with the fields declared by the class itself. When a field
+	 * name is declared by more than one class in the hierarchy, only the
+	 * field declared lowest in the hierarchy is kept.
+	 * @param type The class
+	 * @return The list of fields, or <tt>null</tt> if one of them cannot be
+	 * accessed from the package of the class
+	 */
+	protected List<VariableElement> getSerializedFields(TypeElement type)
+	{
+		List<VariableElement> fields = new ArrayList<VariableElement>();
+		Set<String> names = new HashSet<String>();
+		String pkg = getPackageName(type);
+		boolean ok = true;
+		TypeElement current = type;
+		while (current != null && !current.getQualifiedName().contentEquals("java.lang.Object"))
+		{
+			boolean same_package = pkg.equals(getPackageName(current));
+			for (VariableElement f : ElementFilter.fieldsIn(current.getEnclosedElements()))
+			{
+				Set<Modifier> mods = f.getModifiers();
+				String name = f.getSimpleName().toString();
+				if (mods.contains(Modifier.STATIC) || mods.contains(Modifier.TRANSIENT) || !names.add(name))
+				{
+					continue;
+				}
+				if (mods.contains(Modifier.PRIVATE) || (!same_package && !mods.contains(Modifier.PUBLIC)))
+				{
+					error(f, "Field " + name + " cannot be accessed by the serializer generated for " + type.getQualifiedName() + "; make it package-private or mark it as transient");
+					ok = false;
+				}
+				else if (mods.contains(Modifier.FINAL))
+				{
+					error(f, "Field " + name + " is final and cannot be set by the serializer generated for " + type.getQualifiedName());
+					ok = false;
+				}
+				fields.add(f);
+			}
+			TypeMirror sup = current.getSuperclass();
+			current = sup.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) sup).asElement() : null;
+		}
+		return ok ? fields : null;
+	}
+
+	/**
+	 * Writes the source code of a serializer. The serializer of a generic
+	 * class handles instances of this class with any type arguments; it
+	 * creates them in a generic method that declares the same type
+	 * parameters as the class, so that the fields can be assigned without
+	 * resorting to raw types.
+	 * @param out The writer to print to
+	 * @param pkg The package of the serializer
+	 * @param class_name The simple name of the serializer
+	 * @param type The class handled by the serializer
+	 * @param fields The serialized fields of this class
+	 */
+	protected void writeSerializer(PrintWriter out, String pkg, String class_name, TypeElement type, List<VariableElement> fields)
+	{
+		String target = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+		List<? extends TypeParameterElement> params = type.getTypeParameters();
+		String parameters = "";
+		String arguments = "";
+		String wildcards = "";
+		for (TypeParameterElement param : params)
+		{
+			String separator = parameters.isEmpty() ? "" : ", ";
+			parameters += separator + param.getSimpleName();
+			String bounds = "";
+			for (TypeMirror bound : param.getBounds())
+			{
+				if (!bound.toString().equals("java.lang.Object"))
+				{
+					bounds += (bounds.isEmpty() ? " extends " : " & ") + bound.toString();
+				}
+			}
+			parameters += bounds;
+			arguments += separator + param.getSimpleName();
+			wildcards += separator + "?";
+		}
+		String handled = target;
+		if (!params.isEmpty())
+		{
+			parameters = "<" + parameters + "> ";
+			arguments = "<" + arguments + ">";
+			handled = target + "<" + wildcards + ">";
+		}
+		if (!pkg.isEmpty())
+		{
+			out.println("package " + pkg + ";");
+			out.println();
+		}
+		out.println("/**");
+		out.println(" * Serializer for {@link " + target + "}.");
+		out.println(" * Generated by the Azrael annotation processor; do not edit.");
+		out.println(" */");
+		out.println("public final class " + class_name + " implements ca.uqac.lif.azrael.CompiledSerializer<" + handled + ">");
+		out.println("{");
+		if (!params.isEmpty())
+		{
+			out.println("\t@SuppressWarnings(\"unchecked\")");
+		}
+		out.println("\t@Override");
+		out.println("\tpublic Class<" + handled + "> getTargetClass()");
+		out.println("\t{");
+		if (params.isEmpty())
+		{
+			out.println("\t\treturn " + target + ".class;");
+		}
+		else
+		{
+			out.println("\t\treturn (Class<" + handled + ">) (Class<?>) " + target + ".class;");
+		}
+		out.println("\t}");
+		out.println();
+		out.println("\t@Override");
+		out.println("\tpublic java.util.Map<String,Object> getFields(" + handled + " o)");
+		out.println("\t{");
+		out.println("\t\tjava.util.Map<String,Object> fields = new java.util.HashMap<String,Object>(" + (fields.size() * 4 / 3 + 1) + ");");
+		for (VariableElement f : fields)
+		{
+			String name = f.getSimpleName().toString();
+			out.println("\t\tfields.put(\"" + name + "\", o." + name + ");");
+		}
+		out.println("\t\treturn fields;");
+		out.println("\t}");
+		out.println();
+		out.println("\t@Override");
+		out.println("\tpublic " + handled + " create(java.util.Map<String,Object> fields) throws ca.uqac.lif.azrael.ReadException");
+		out.println("\t{");
+		out.println("\t\treturn newInstance(fields);");
+		out.println("\t}");
+		out.println();
+		out.println("\t@SuppressWarnings(\"unchecked\")");
+		out.println("\tprivate static " + parameters + target + arguments + " newInstance(java.util.Map<String,Object> fields) throws ca.uqac.lif.azrael.ReadException");
+		out.println("\t{");
+		out.println("\t\t" + target + arguments + " o = new " + target + arguments + "();");
+		out.println("\t\tObject v;");
+		out.println("\t\ttry");
+		out.println("\t\t{");
+		for (VariableElement f : fields)
+		{
+			writeAssignment(out, f);
+		}
+		out.println("\t\t}");
+		out.println("\t\tcatch (ClassCastException e)");
+		out.println("\t\t{");
+		out.println("\t\t\tthrow new ca.uqac.lif.azrael.ReadException(e);");
+		out.println("\t\t}");
+		out.println("\t\treturn o;");
+		out.println("\t}");
+		out.println("}");
+	}
+
+	/**
+	 * Writes the statements setting a field from the map of deserialized
+	 * values. The value is cast to the declared type of the field, which
+	 * may refer to the type parameters of its class.
+	 * @param out The writer to print to
+	 * @param f The field
+	 */
+	protected void writeAssignment(PrintWriter out, VariableElement f)
+	{
+		String name = f.getSimpleName().toString();
+		TypeMirror type = f.asType();
+		out.println("\t\t\tv = fields.get(\"" + name + "\");");
+		if (type.getKind().isPrimitive())
+		{
+			String expr;
+			switch (type.getKind())
+			{
+			case BOOLEAN:
+				expr = "((Boolean) v).booleanValue()";
+				break;
+			case CHAR:
+				expr = "((Character) v).charValue()";
+				break;
+			default:
+				expr = "((Number) v)." + type.toString() + "Value()";
+				break;
+			}
+			out.println("\t\t\tif (v != null)");
+			out.println("\t\t\t{");
+			out.println("\t\t\t\to." + name + " = " + expr + ";");
+			out.println("\t\t\t}");
+			return;
+		}
+		String declared = type.toString();
+		out.println("\t\t\tif (v != null || fields.containsKey(\"" + name + "\"))");
+		out.println("\t\t\t{");
+		if (isEnum(type))
+		{
+			out.println("\t\t\t\to." + name + " = v instanceof String ? Enum.valueOf(" + declared + ".class, (String) v) : (" + declared + ") v;");
+		}
+		else if (declared.equals("java.lang.Object"))
+		{
+			out.println("\t\t\t\to." + name + " = v;");
+		}
+		else
+		{
+			out.println("\t\t\t\to." + name + " = (" + declared + ") v;");
+		}
+		out.println("\t\t\t}");
+	}
+
+	/**
+	 * Writes the service index listing the generated serializers. Entries
+	 * already present in an index produced by a previous (incremental)
+	 * compilation are preserved.
+	 */
+	protected void writeIndex()
+	{
+		Set<String> entries = new TreeSet<String>(m_generated);
+		try
+		{
+			FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			try (BufferedReader in = new BufferedReader(new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8)))
+			{
+				String line;
+				while ((line = in.readLine()) != null)
+				{
+					line = line.trim();
+					if (!line.isEmpty() && !line.startsWith("#"))
+					{
+						entries.add(line);
+					}
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			// No previous index
+		}
+		try
+		{
+			FileObject fo = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			try (Writer w = fo.openWriter())
+			{
+				for (String entry : entries)
+				{
+					w.write(entry);
+					w.write("\n");
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write " + SERVICE_FILE + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Determines if a type is an enum.
+	 * @param type The type
+	 * @return <tt>true</tt> if the type is an enum, <tt>false</tt> otherwise
+	 */
+	protected static boolean isEnum(TypeMirror type)
+	{
+		return type.getKind() == TypeKind.DECLARED && ((DeclaredType) type).asElement().getKind() == ElementKind.ENUM;
+	}
+
+	/**
+	 * Gets the name of the package a class belongs to.
+	 * @param type The class
+	 * @return The name of the package, or the empty string for the default
+	 * package
+	 */
+	protected String getPackageName(TypeElement type)
+	{
+		PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+		return pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+	}
+
+	/**
+	 * Gets the name of a class within its package, with the names of
+	 * enclosing classes separated by underscores.
+	 * @param type The class
+	 * @return The name
+	 */
+	protected static String getFlatName(TypeElement type)
+	{
+		String name = type.getSimpleName().toString();
+		Element e = type.getEnclosingElement();
+		while (e instanceof TypeElement)
+		{
+			name = e.getSimpleName() + "_" + name;
+			e = e.getEnclosingElement();
+		}
+		return name;
+	}
+
+	/**
+	 * Reports an error on an element.
+	 * @param e The element
+	 * @param message The error message
+	 */
+	protected void error(Element e, String message)
+	{
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, e);
+	}
+}
@@ -0,0 +1,224 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.processor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import ca.uqac.lif.azrael.CompiledSerializer;
+
+/**
+ * Unit tests for {@link HandlerProcessor}. Each test compiles annotated
+ * classes with the processor, and then compiles and loads the generated
+ * serializers.
+ */
+public class HandlerProcessorTest
+{
+	@Test
+	public void testPlainClass() throws Exception
+	{
+		File out = compile("p.Plain",
+				"package p;\n"
+				+ "import java.util.List;\n"
+				+ "@ca.uqac.lif.azrael.GenerateHandlers\n"
+				+ "public class Plain {\n"
+				+ "  int m_x;\n"
+				+ "  String m_name;\n"
+				+ "  List<String> m_list;\n"
+				+ "  Object m_any;\n"
+				+ "  Thread.State m_state;\n"
+				+ "}\n");
+		String source = readGenerated(out, "p/Plain_AzraelSerializer.java");
+		assertTrue(source.contains("CompiledSerializer<p.Plain>"));
+		assertFalse(source.contains("(java.lang.Object)"));
+		Map<String,Object> fields = new HashMap<String,Object>();
+		fields.put("m_x", 3);
+		fields.put("m_name", "foo");
+		fields.put("m_list", new ArrayList<Object>(Arrays.asList("a", "b")));
+		fields.put("m_any", 4L);
+		fields.put("m_state", "NEW");
+		CompiledSerializer<Object> s = load(out, "p.Plain_AzraelSerializer");
+		Object o = s.create(fields);
+		assertEquals("p.Plain", s.getTargetClass().getName());
+		fields.put("m_state", Thread.State.NEW);
+		assertEquals(fields, s.getFields(o));
+	}
+
+	@Test
+	public void testGenericClass() throws Exception
+	{
+		File out = compile("p.Outer",
+				"package p;\n"
+				+ "import java.util.List;\n"
+				+ "public class Outer {\n"
+				+ "  @ca.uqac.lif.azrael.GenerateHandlers\n"
+				+ "  static class Inner<T extends Number & Comparable<T>, U> {\n"
+				+ "    T m_value;\n"
+				+ "    List<U> m_list;\n"
+				+ "    U m_other;\n"
+				+ "  }\n"
+				+ "}\n");
+		String source = readGenerated(out, "p/Outer_Inner_AzraelSerializer.java");
+		assertTrue(source.contains("CompiledSerializer<p.Outer.Inner<?, ?>>"));
+		assertFalse(source.contains("(java.lang.Object)"));
+		Map<String,Object> fields = new HashMap<String,Object>();
+		fields.put("m_value", 3);
+		fields.put("m_list", new ArrayList<Object>(Arrays.asList("a", "b")));
+		fields.put("m_other", null);
+		CompiledSerializer<Object> s = load(out, "p.Outer_Inner_AzraelSerializer");
+		assertEquals("p.Outer$Inner", s.getTargetClass().getName());
+		assertEquals(fields, s.getFields(s.create(fields)));
+	}
+
+	@Test
+	public void testInaccessibleField() throws Exception
+	{
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		boolean ok = run(diagnostics, Files.createTempDirectory("azrael").toFile(), "p.Hidden",
+				"package p;\n"
+				+ "@ca.uqac.lif.azrael.GenerateHandlers\n"
+				+ "public class Hidden {\n"
+				+ "  private int m_x;\n"
+				+ "}\n");
+		assertFalse(ok);
+		assertTrue(diagnostics.getDiagnostics().get(0).getMessage(null).contains("m_x"));
+	}
+
+	/**
+	 * Compiles a class with the processor, and checks that the compilation
+	 * succeeds without any warning, including in the generated code.
+	 * @param name The fully qualified name of the class
+	 * @param code The source code of the class
+	 * @return The folder containing the compiled classes and the generated
+	 * sources
+	 * @throws IOException Thrown if the folder cannot be created
+	 */
+	protected static File compile(String name, String code) throws IOException
+	{
+		File out = Files.createTempDirectory("azrael").toFile();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		boolean ok = run(diagnostics, out, name, code);
+		for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics())
+		{
+			if (d.getKind() != Diagnostic.Kind.NOTE)
+			{
+				fail(d.toString());
+			}
+		}
+		assertTrue(ok);
+		return out;
+	}
+
+	/**
+	 * Compiles a class with the processor. Warnings about raw types,
+	 * unchecked conversions and redundant casts are enabled.
+	 * @param diagnostics The collector receiving the diagnostics
+	 * @param out The folder receiving the compiled classes and the
+	 * generated sources
+	 * @param name The fully qualified name of the class
+	 * @param code The source code of the class
+	 * @return <tt>true</tt> if the compilation succeeds, <tt>false</tt>
+	 * otherwise
+	 */
+	protected static boolean run(DiagnosticCollector<JavaFileObject> diagnostics, File out, String name, String code)
+	{
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		List<String> options = Arrays.asList("-d", out.getPath(), "-s", out.getPath(),
+				"-classpath", System.getProperty("java.class.path"), "-Xlint:rawtypes,unchecked,cast");
+		JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null,
+				Arrays.asList(new StringSource(name, code)));
+		task.setProcessors(Arrays.asList(new HandlerProcessor()));
+		return task.call();
+	}
+
+	/**
+	 * Reads the source code of a generated serializer.
+	 * @param out The folder containing the generated sources
+	 * @param path The path of the source file in this folder
+	 * @return The source code
+	 * @throws IOException Thrown if the file cannot be read
+	 */
+	protected static String readGenerated(File out, String path) throws IOException
+	{
+		return new String(Files.readAllBytes(new File(out, path).toPath()), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Loads a compiled serializer and creates an instance of it.
+	 * @param out The folder containing the compiled classes
+	 * @param name The fully qualified name of the serializer
+	 * @return The serializer
+	 * @throws Exception Thrown if the serializer cannot be loaded
+	 */
+	@SuppressWarnings("unchecked")
+	protected static CompiledSerializer<Object> load(File out, String name) throws Exception
+	{
+		URLClassLoader loader = new URLClassLoader(new URL[] {out.toURI().toURL()}, HandlerProcessorTest.class.getClassLoader());
+		return (CompiledSerializer<Object>) loader.loadClass(name).getDeclaredConstructor().newInstance();
+	}
+
+	/**
+	 * Source file whose contents are given as a string.
+	 */
+	protected static class StringSource extends SimpleJavaFileObject
+	{
+		/**
+		 * The contents of the file
+		 */
+		protected final String m_code;
+
+		/**
+		 * Creates a new source file.
+		 * @param name The fully qualified name of the class it declares
+		 * @param code The contents of the file
+		 */
+		public StringSource(String name, String code)
+		{
+			super(URI.create("string:///" + name.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+			m_code = code;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignore_errors)
+		{
+			return m_code;
+		}
+	}
+}
@@ -30,6 +30,12 @@ public class BooleanPrintHandler implements PrintHandler<Number>
 		return o instanceof Boolean;
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public Number handle(Object o) throws PrintException 
 	{
@@ -30,6 +30,12 @@ public class NumberPrintHandler implements PrintHandler<Number>
 		return o instanceof Number;
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public Number handle(Object o) throws PrintException 
 	{
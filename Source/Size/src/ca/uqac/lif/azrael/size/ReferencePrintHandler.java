@@ -18,14 +18,13 @@
  */
 package ca.uqac.lif.azrael.size;
 
-import java.util.IdentityHashMap;
 
 import ca.uqac.lif.azrael.PrintException;
 import ca.uqac.lif.azrael.PrintHandler;
 
 public abstract class ReferencePrintHandler implements PrintHandler<Number>
 {
-	protected IdentityHashMap<Object,Integer> m_seenObjects;
+	protected SeenObjects m_seenObjects;
 	
 	protected SizePrinter m_printer;
 	
@@ -33,23 +32,33 @@ public abstract class ReferencePrintHandler implements PrintHandler<Number>
 	{
 		super();
 		m_printer = printer;
-		m_seenObjects = new IdentityHashMap<Object,Integer>();
+		m_seenObjects = new SeenObjects();
 	}
 	
 	@Override
 	public final Number handle(Object o) throws PrintException 
 	{
 		// We count objects only once
-		if (m_seenObjects.containsKey(o))
+		if (!m_seenObjects.add(o))
 		{
 			return 0;
 		}
-		m_seenObjects.put(o, 1);
 		return getSize(o);
 	}
 	
 	public abstract Number getSize(Object o) throws PrintException;
 	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Size handlers only look at the type of an object.
+	 */
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public void reset()
 	{
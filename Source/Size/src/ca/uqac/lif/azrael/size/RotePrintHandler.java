@@ -18,7 +18,6 @@
  */
 package ca.uqac.lif.azrael.size;
 
-import java.util.IdentityHashMap;
 
 import ca.uqac.lif.azrael.PrintHandler;
 
@@ -32,9 +31,9 @@ import ca.uqac.lif.azrael.PrintHandler;
 public class RotePrintHandler implements PrintHandler<Number>
 {
 	/**
-	 * A map of already seen objects
+	 * The objects already counted
 	 */
-	protected IdentityHashMap<Object,Integer> m_seenObjects;
+	protected SeenObjects m_seenObjects;
 
 	/**
 	 * The name of the class to match
@@ -51,7 +50,7 @@ public class RotePrintHandler implements PrintHandler<Number>
 		super();
 		m_className = class_name;
 		m_sizeToReturn = size;
-		m_seenObjects = new IdentityHashMap<Object,Integer>();
+		m_seenObjects = new SeenObjects();
 	}
 
 	@Override
@@ -60,15 +59,20 @@ public class RotePrintHandler implements PrintHandler<Number>
 		return o != null && o.getClass().getSimpleName().compareTo(m_className) == 0;
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public Number handle(Object o)
 	{
 		// We count objects only once
-		if (m_seenObjects.containsKey(o))
+		if (!m_seenObjects.add(o))
 		{
 			return 0;
 		}
-		m_seenObjects.put(o, 1);
 		return m_sizeToReturn;
 	}
 
@@ -0,0 +1,63 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.size;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The set of objects already counted by the handlers of a size printer.
+ * Each thread using the printer has its own set, so that a single
+ * {@link SizePrinter} can compute the size of objects in several threads
+ * at once.
+ * @author Sylvain Hallé
+ */
+public class SeenObjects
+{
+	/**
+	 * The objects seen by each thread
+	 */
+	protected final ThreadLocal<Map<Object,Boolean>> m_seen = new ThreadLocal<Map<Object,Boolean>>()
+	{
+		@Override
+		protected Map<Object,Boolean> initialValue()
+		{
+			return new IdentityHashMap<Object,Boolean>();
+		}
+	};
+
+	/**
+	 * Marks an object as seen by the calling thread.
+	 * @param o The object
+	 * @return <tt>true</tt> if the object had not been seen before,
+	 * <tt>false</tt> otherwise
+	 */
+	public boolean add(Object o)
+	{
+		return m_seen.get().put(o, Boolean.TRUE) == null;
+	}
+
+	/**
+	 * Forgets the objects seen by the calling thread.
+	 */
+	public void clear()
+	{
+		m_seen.remove();
+	}
+}
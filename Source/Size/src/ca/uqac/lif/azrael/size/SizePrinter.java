@@ -47,6 +47,16 @@ public class SizePrinter extends ObjectPrinter<Number>
 		m_usePrintable = false;
 	}
 
+	/**
+	 * Reports the size computed for an object, in bytes, as the size of its
+	 * printed contents.
+	 */
+	@Override
+	protected long getOutputSize(Number t)
+	{
+		return t == null ? -1 : t.longValue();
+	}
+
 	@Override
 	public Number wrap(Object o, Number t) throws PrintException
 	{
@@ -20,34 +20,36 @@ package ca.uqac.lif.azrael.size;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
+import ca.uqac.lif.azrael.ClassDescriptor;
+import ca.uqac.lif.azrael.PendingPrint;
 import ca.uqac.lif.azrael.PrintException;
 import ca.uqac.lif.azrael.ReflectionPrintHandler;
 
 public class SizeReflectionHandler extends ReflectionPrintHandler<Number>
 {
-	protected IdentityHashMap<Object,Integer> m_seenObjects;
+	protected SeenObjects m_seenObjects;
 
 	public SizeReflectionHandler(SizePrinter s) 
 	{
 		super(s);
 		m_ignoreTransient = false;
-		m_seenObjects = new IdentityHashMap<Object,Integer>();
+		m_seenObjects = new SeenObjects();
 	}
 
 	@Override
 	public Number handle(Object o) throws PrintException
 	{
 		// We count objects only once
-		if (m_seenObjects.containsKey(o))
+		if (!m_seenObjects.add(o))
 		{
 			return 0;
 		}
-		m_seenObjects.put(o, 1);
 		int size = SizePrinter.OBJECT_SHELL_SIZE; // Basic overhead of a Java object
-		for (Field field : getAllFields(o.getClass()))
+		ClassDescriptor desc = ClassDescriptor.forClass(o.getClass());
+		for (Field field : desc.getFields())
 		{
 			// Is this field declared as transient?
 			if (m_ignoreTransient && Modifier.isTransient(field.getModifiers()))
@@ -55,20 +57,16 @@ public class SizeReflectionHandler extends ReflectionPrintHandler<Number>
 				// Yes: don't serialize this field
 				continue; 
 			}
-			try
-			{
-				field.setAccessible(true);
-			}
-			catch (RuntimeException e)
+			RuntimeException access_error = desc.getAccessError(field);
+			if (access_error != null)
 			{
-				// Must check exception by its name, as the actual class only exists in Java 9+
-				if (e.getClass().getSimpleName().contains("InaccessibleObjectException") && m_ignoreAccessChecks)
+				if (ClassDescriptor.isInaccessibleObjectException(access_error) && m_ignoreAccessChecks)
 				{
 					continue;
 				}
 				else
 				{
-					throw new PrintException(e);
+					throw new PrintException(access_error);
 				}
 			}
 			try
@@ -96,6 +94,39 @@ public class SizeReflectionHandler extends ReflectionPrintHandler<Number>
 		return size;
 	}
 	
+	@Override
+	public PendingPrint<Number> open(Object o) throws PrintException
+	{
+		// The size is computed at once; the object has no parts to print
+		final Number size = handle(o);
+		return new PendingPrint<Number>()
+		{
+			@Override
+			public boolean hasNext()
+			{
+				return false;
+			}
+
+			@Override
+			public Object next()
+			{
+				throw new NoSuchElementException();
+			}
+
+			@Override
+			public void add(Number t)
+			{
+				// Nothing to do
+			}
+
+			@Override
+			public Number close()
+			{
+				return size;
+			}
+		};
+	}
+
 	@Override
 	public Number encapsulateFields(Object o, Map<String,Object> contents) throws PrintException
 	{
@@ -38,6 +38,12 @@ public class BooleanPrintHandler extends XmlPrintHandler
 		return o instanceof Boolean;
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public XmlElement handle(Object o) throws PrintException
 	{
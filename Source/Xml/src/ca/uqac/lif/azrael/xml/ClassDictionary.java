@@ -0,0 +1,220 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.xml;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ca.uqac.lif.azrael.ReadException;
+import ca.uqac.lif.xml.TextElement;
+import ca.uqac.lif.xml.XmlElement;
+
+/**
+ * Replaces the class names declared by the wrapped elements of an XML
+ * structure by indices in a table of names, and back. The structure and its
+ * table are put together in a header of the form
+ * <tt>&lt;dictionary&gt;&lt;name&gt;...&lt;/name&gt;...&lt;value&gt;structure&lt;/value&gt;&lt;/dictionary&gt;</tt>.
+ * Since a class name cannot start with a digit, a class element containing
+ * an index cannot be mistaken for one containing a name.
+ * <p>
+ * Both directions visit the structure iteratively, so that structures of
+ * arbitrary depth can be processed.
+ * @author Sylvain Hallé
+ * @see XmlPrinter#useClassDictionary(boolean)
+ */
+class ClassDictionary
+{
+	/**
+	 * Private constructor, as this class only has static methods
+	 */
+	private ClassDictionary()
+	{
+		super();
+	}
+
+	/**
+	 * Replaces the class names of a structure by indices, and puts the
+	 * structure in a header along with its table of names. The structure is
+	 * modified in place.
+	 * @param root The structure
+	 * @return The header
+	 */
+	static XmlElement compress(XmlElement root)
+	{
+		Map<String,String> indices = new HashMap<String,String>();
+		XmlElement header = new XmlElement(XmlPrinter.s_dictionaryName);
+		Deque<XmlElement> to_visit = new ArrayDeque<XmlElement>();
+		to_visit.push(root);
+		while (!to_visit.isEmpty())
+		{
+			XmlElement e = to_visit.pop();
+			if (e.getName().compareTo(XmlPrinter.s_wrapName) == 0)
+			{
+				List<XmlElement> children = e.getChildren();
+				for (int i = 0; i < children.size(); i++)
+				{
+					XmlElement child = children.get(i);
+					if (child.getName().compareTo(XmlPrinter.s_classKey) != 0)
+					{
+						continue;
+					}
+					String name = ((TextElement) child.getChildren().get(0)).getText();
+					String index = indices.get(name);
+					if (index == null)
+					{
+						index = Integer.toString(indices.size());
+						indices.put(name, index);
+						XmlElement name_elem = new XmlElement(XmlPrinter.s_nameKey);
+						name_elem.addChild(new TextElement(name));
+						header.addChild(name_elem);
+					}
+					XmlElement index_elem = new XmlElement(XmlPrinter.s_classKey);
+					index_elem.addChild(new TextElement(index));
+					children.set(i, index_elem);
+				}
+			}
+			for (XmlElement child : e.getChildren())
+			{
+				to_visit.push(child);
+			}
+		}
+		XmlElement value = new XmlElement(XmlPrinter.s_valueKey);
+		value.addChild(root);
+		header.addChild(value);
+		return header;
+	}
+
+	/**
+	 * Determines if an element is a header produced by
+	 * {@link #compress(XmlElement)}.
+	 * @param e The element
+	 * @return <tt>true</tt> if the element is a header, <tt>false</tt>
+	 * otherwise
+	 */
+	static boolean isHeader(Object e)
+	{
+		return e instanceof XmlElement && ((XmlElement) e).getName().compareTo(XmlPrinter.s_dictionaryName) == 0;
+	}
+
+	/**
+	 * Puts back the class names in a structure contained in a header. This
+	 * is done on a copy of the structure, so that the header is left
+	 * unchanged; text elements are shared by the structure and its copy.
+	 * @param header The header
+	 * @return The copy of the structure, with its class names
+	 * @throws ReadException Thrown if the header is malformed, or if the
+	 * structure refers to an index that is not in the table
+	 */
+	static XmlElement expand(XmlElement header) throws ReadException
+	{
+		List<XmlElement> names = new ArrayList<XmlElement>();
+		XmlElement root = null;
+		for (XmlElement child : header.getChildren())
+		{
+			if (child.getName().compareTo(XmlPrinter.s_nameKey) == 0)
+			{
+				XmlElement class_elem = new XmlElement(XmlPrinter.s_classKey);
+				class_elem.addChild(child.getChildren().get(0));
+				names.add(class_elem);
+			}
+			else if (child.getName().compareTo(XmlPrinter.s_valueKey) == 0 && !child.getChildren().isEmpty())
+			{
+				root = child.getChildren().get(0);
+			}
+		}
+		if (root == null)
+		{
+			throw new ReadException("Invalid class dictionary");
+		}
+		XmlElement copy = copyElement(root);
+		Deque<XmlElement> to_copy = new ArrayDeque<XmlElement>();
+		to_copy.push(root);
+		to_copy.push(copy);
+		while (!to_copy.isEmpty())
+		{
+			XmlElement e_copy = to_copy.pop();
+			XmlElement e = to_copy.pop();
+			boolean wrapped = e.getName().compareTo(XmlPrinter.s_wrapName) == 0;
+			for (XmlElement child : e.getChildren())
+			{
+				XmlElement class_elem = wrapped ? getClassElement(child, names) : null;
+				if (class_elem != null)
+				{
+					e_copy.addChild(class_elem);
+					continue;
+				}
+				XmlElement child_copy = copyElement(child);
+				e_copy.addChild(child_copy);
+				if (child_copy != child)
+				{
+					to_copy.push(child);
+					to_copy.push(child_copy);
+				}
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Gets the class element that replaces a child of a wrapped element, if
+	 * this child is a class element containing an index.
+	 * @param child The child
+	 * @param names The class elements of the table of names
+	 * @return The class element designated by the index, or <tt>null</tt> if
+	 * the child does not contain an index
+	 * @throws ReadException Thrown if the index is not in the table
+	 */
+	private static XmlElement getClassElement(XmlElement child, List<XmlElement> names) throws ReadException
+	{
+		if (child.getName().compareTo(XmlPrinter.s_classKey) != 0 || child.getChildren().isEmpty())
+		{
+			return null;
+		}
+		String text = ((TextElement) child.getChildren().get(0)).getText().trim();
+		if (text.isEmpty() || !Character.isDigit(text.charAt(0)))
+		{
+			return null;
+		}
+		int index = Integer.parseInt(text);
+		if (index >= names.size())
+		{
+			throw new ReadException("Invalid class index: " + index);
+		}
+		return names.get(index);
+	}
+
+	/**
+	 * Creates an element with the same name as another one, but without its
+	 * children. Text elements are immutable, and are returned as is.
+	 * @param e The element
+	 * @return The new element, or the element itself if it is a text element
+	 */
+	private static XmlElement copyElement(XmlElement e)
+	{
+		if (e instanceof TextElement)
+		{
+			return e;
+		}
+		return new XmlElement(e.getName());
+	}
+}
@@ -34,6 +34,12 @@ public class EnumPrintHandler extends XmlPrintHandler
 		return o.getClass().isEnum();
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public XmlElement handle(Object o) throws PrintException 
 	{
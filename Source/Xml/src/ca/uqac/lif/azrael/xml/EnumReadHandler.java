@@ -41,6 +41,12 @@ public class EnumReadHandler extends XmlReadHandler
 		return clazz.isEnum();
 	}
 
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
+
 	@Override
 	public String handle(XmlElement o) throws ReadException
 	{
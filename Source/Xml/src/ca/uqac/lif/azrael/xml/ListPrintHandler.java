@@ -20,6 +20,9 @@
 
 import java.util.List;
 
+import ca.uqac.lif.azrael.ContainerPrintHandler;
+import ca.uqac.lif.azrael.ElementPrint;
+import ca.uqac.lif.azrael.PendingPrint;
 import ca.uqac.lif.azrael.PrintException;
 import ca.uqac.lif.xml.XmlElement;
 
@@ -27,7 +30,7 @@ import ca.uqac.lif.xml.XmlElement;
  * Exports a list.
  * @author Sylvain Hallé
  */
-public class ListPrintHandler extends XmlPrintHandler
+public class ListPrintHandler extends XmlPrintHandler implements ContainerPrintHandler<XmlElement>
 {
 	public ListPrintHandler(XmlPrinter printer)
 	{
@@ -40,16 +43,33 @@ public class ListPrintHandler extends XmlPrintHandler
 		return o instanceof List;
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public XmlElement handle(Object o) throws PrintException
 	{
-		List<?> in_list = (List<?>) o;
-		XmlElement x_list = new XmlElement(XmlPrinter.s_listName);
-		for (Object e : in_list)
+		return m_printer.printPending(open(o));
+	}
+
+	@Override
+	public PendingPrint<XmlElement> open(final Object o)
+	{
+		return new ElementPrint<XmlElement>(m_printer, (List<?>) o)
 		{
-			XmlElement xe = m_printer.print(e);
-			x_list.addChild(xe);
-		}
-		return m_printer.wrap(o, x_list);
+			@Override
+			protected XmlElement combine(List<XmlElement> elements) throws PrintException
+			{
+				XmlElement x_list = new XmlElement(XmlPrinter.s_listName);
+				for (XmlElement xe : elements)
+				{
+					x_list.addChild(xe);
+				}
+				return m_printer.wrap(o, x_list);
+			}
+		};
 	}
 }
@@ -20,6 +20,9 @@ package ca.uqac.lif.azrael.xml;
 
 import java.util.List;
 
+import ca.uqac.lif.azrael.ContainerReadHandler;
+import ca.uqac.lif.azrael.ElementRead;
+import ca.uqac.lif.azrael.PendingRead;
 import ca.uqac.lif.azrael.ReadException;
 import ca.uqac.lif.xml.XmlElement;
 
@@ -29,7 +32,7 @@ import ca.uqac.lif.xml.XmlElement;
  * an input string into an XML element.
  * @author Sylvain Hallé
  */
-public class ListReadHandler extends XmlReadHandler
+public class ListReadHandler extends XmlReadHandler implements ContainerReadHandler<XmlElement>
 {	
 	/**
 	 * Creates a new Xml string reader
@@ -49,19 +52,35 @@ public class ListReadHandler extends XmlReadHandler
 		Class<?> clazz = m_reader.unwrapType(o);
 		return List.class.isAssignableFrom(clazz);
 	}
+
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
 	
 	@Override
 	public List<?> handle(XmlElement o) throws ReadException
+	{
+		return (List<?>) m_reader.readPending(open(o));
+	}
+
+	@Override
+	public PendingRead open(XmlElement o) throws ReadException
 	{
 		Class<?> clazz = m_reader.unwrapType(o);
 		XmlElement in_list = m_reader.unwrapContents(o);
 		@SuppressWarnings("unchecked")
-		List<Object> out_list = (List<Object>) m_reader.getInstance(clazz);
-		for (XmlElement child : in_list.getChildren())
+		final List<Object> out_list = (List<Object>) m_reader.getInstance(clazz, in_list.getChildren().size());
+		m_reader.register(out_list);
+		return new ElementRead(m_reader, in_list.getChildren())
 		{
-			Object o_k = m_reader.read(child);
-			out_list.add(o_k);
-		}	
-		return out_list;
+			@Override
+			protected Object combine(List<Object> elements)
+			{
+				out_list.addAll(elements);
+				return out_list;
+			}
+		};
 	}
 }
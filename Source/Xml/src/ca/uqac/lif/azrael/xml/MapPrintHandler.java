@@ -18,8 +18,12 @@
  */
 package ca.uqac.lif.azrael.xml;
 
+import java.util.List;
 import java.util.Map;
 
+import ca.uqac.lif.azrael.ContainerPrintHandler;
+import ca.uqac.lif.azrael.EntryPrint;
+import ca.uqac.lif.azrael.PendingPrint;
 import ca.uqac.lif.azrael.PrintException;
 import ca.uqac.lif.xml.XmlElement;
 
@@ -27,7 +31,7 @@ import ca.uqac.lif.xml.XmlElement;
  * Exports a map.
  * @author Sylvain Hallé
  */
-public class MapPrintHandler extends XmlPrintHandler
+public class MapPrintHandler extends XmlPrintHandler implements ContainerPrintHandler<XmlElement>
 {
 	public MapPrintHandler(XmlPrinter printer)
 	{
@@ -40,22 +44,51 @@ public class MapPrintHandler extends XmlPrintHandler
 		return o instanceof Map;
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public XmlElement handle(Object o) throws PrintException
 	{
-		Map<?,?> in_map = (Map<?,?>) o;
-		XmlElement x_map = new XmlElement(XmlPrinter.s_mapName);
-		for (Map.Entry<?,?> entry : in_map.entrySet())
+		return m_printer.printPending(open(o));
+	}
+
+	@Override
+	public PendingPrint<XmlElement> open(final Object o)
+	{
+		return new EntryPrint<XmlElement>(m_printer, (Map<?,?>) o, true)
 		{
-			XmlElement x_entry = new XmlElement(XmlPrinter.s_entryName);
-			XmlElement x_key = new XmlElement(XmlPrinter.s_keyKey);
-			x_key.addChild(m_printer.print(entry.getKey()));
-			XmlElement x_value = new XmlElement(XmlPrinter.s_valueKey);
-			x_value.addChild(m_printer.print(entry.getValue()));
-			x_entry.addChild(x_key);
-			x_entry.addChild(x_value);
-			x_map.addChild(x_entry);
-		}
-		return m_printer.wrap(o, x_map);
+			@Override
+			protected XmlElement combine(List<XmlElement> keys, List<XmlElement> values) throws PrintException
+			{
+				XmlElement x_map = new XmlElement(XmlPrinter.s_mapName);
+				for (int i = 0; i < keys.size(); i++)
+				{
+					x_map.addChild(createEntry(keys.get(i), values.get(i)));
+				}
+				return m_printer.wrap(o, x_map);
+			}
+		};
+	}
+
+	/**
+	 * Creates the element representing an entry of the map.
+	 * @param key The printed key
+	 * @param value The printed value
+	 * @return The element
+	 */
+	protected static XmlElement createEntry(XmlElement key, XmlElement value)
+	{
+		XmlElement x_entry = new XmlElement(XmlPrinter.s_entryName);
+		XmlElement x_key = new XmlElement(XmlPrinter.s_keyKey);
+		x_key.addChild(key);
+		XmlElement x_value = new XmlElement(XmlPrinter.s_valueKey);
+		x_value.addChild(value);
+		x_entry.addChild(x_key);
+		x_entry.addChild(x_value);
+		return x_entry;
 	}
 }
@@ -18,8 +18,13 @@
  */
 package ca.uqac.lif.azrael.xml;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+import ca.uqac.lif.azrael.ContainerReadHandler;
+import ca.uqac.lif.azrael.EntryRead;
+import ca.uqac.lif.azrael.PendingRead;
 import ca.uqac.lif.azrael.ReadException;
 import ca.uqac.lif.xml.XmlElement;
 
@@ -29,7 +34,7 @@ import ca.uqac.lif.xml.XmlElement;
  * an input string into an XML element.
  * @author Sylvain Hallé
  */
-public class MapReadHandler extends XmlReadHandler
+public class MapReadHandler extends XmlReadHandler implements ContainerReadHandler<XmlElement>
 {	
 	/**
 	 * Creates a new Xml string reader
@@ -49,26 +54,61 @@ public class MapReadHandler extends XmlReadHandler
 		Class<?> clazz = m_reader.unwrapType(o);
 		return Map.class.isAssignableFrom(clazz);
 	}
+
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
 	
 	@Override
 	public Map<?,?> handle(XmlElement o) throws ReadException
+	{
+		return (Map<?,?>) m_reader.readPending(open(o));
+	}
+
+	@Override
+	public PendingRead open(XmlElement o) throws ReadException
 	{
 		Class<?> clazz = m_reader.unwrapType(o);
 		XmlElement in_map = m_reader.unwrapContents(o);
 		@SuppressWarnings("unchecked")
-		Map<Object,Object> out_map = (Map<Object,Object>) m_reader.getInstance(clazz);
+		final Map<Object,Object> out_map = (Map<Object,Object>) m_reader.getInstance(clazz, in_map.getChildren().size());
+		m_reader.register(out_map);
+		List<XmlElement> x_keys = new ArrayList<XmlElement>(in_map.getChildren().size());
+		List<XmlElement> x_values = new ArrayList<XmlElement>(in_map.getChildren().size());
 		for (XmlElement child : in_map.getChildren())
 		{
-			if (!child.getName().equals(XmlPrinter.s_entryName))
+			x_keys.add(getEntryPart(child, XmlPrinter.s_keyKey));
+			x_values.add(getEntryPart(child, XmlPrinter.s_valueKey));
+		}
+		return new EntryRead(m_reader, x_keys, x_values)
+		{
+			@Override
+			protected Object combine(List<Object> keys, List<Object> values)
 			{
-				throw new ReadException("Expected entry element, found " + child.getName());
+				for (int i = 0; i < keys.size(); i++)
+				{
+					out_map.put(keys.get(i), values.get(i));
+				}
+				return out_map;
 			}
-			XmlElement c_key = XmlReader.getChildWithName(child, XmlPrinter.s_keyKey);
-			XmlElement c_value = XmlReader.getChildWithName(child, XmlPrinter.s_valueKey);
-			Object o_k = m_reader.read(c_key.getChildren().get(0));
-			Object o_v = m_reader.read(c_value.getChildren().get(0));
-			out_map.put(o_k, o_v);
-		}	
-		return out_map;
+		};
+	}
+
+	/**
+	 * Gets the printed key or value of an entry of the map.
+	 * @param child The element representing the entry
+	 * @param name The name of the part to get
+	 * @return The printed key or value
+	 * @throws ReadException Thrown if the element is not a valid entry
+	 */
+	protected static XmlElement getEntryPart(XmlElement child, String name) throws ReadException
+	{
+		if (!child.getName().equals(XmlPrinter.s_entryName))
+		{
+			throw new ReadException("Expected entry element, found " + child.getName());
+		}
+		return XmlReader.getChildWithName(child, name).getChildren().get(0);
 	}
 }
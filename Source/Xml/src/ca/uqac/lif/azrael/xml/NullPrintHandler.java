@@ -38,6 +38,12 @@ public class NullPrintHandler extends XmlPrintHandler
 		return o == null;
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public XmlElement handle(Object o) throws PrintException
 	{
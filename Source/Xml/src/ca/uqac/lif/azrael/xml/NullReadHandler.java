@@ -43,6 +43,12 @@ public class NullReadHandler extends XmlReadHandler
 	{
 		return o instanceof TextElement && ((TextElement) o).getText().equals("null");
 	}
+
+	@Override
+	public boolean isTypeBased()
+	{
+		return true;
+	}
 	
 	@Override
 	public Object handle(XmlElement o) throws ReadException
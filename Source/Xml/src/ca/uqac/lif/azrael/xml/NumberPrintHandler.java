@@ -18,6 +18,7 @@
  */
 package ca.uqac.lif.azrael.xml;
 
+import ca.uqac.lif.azrael.NumberEncoding;
 import ca.uqac.lif.azrael.PrintException;
 import ca.uqac.lif.xml.TextElement;
 import ca.uqac.lif.xml.XmlElement;
@@ -39,29 +40,17 @@ public class NumberPrintHandler extends XmlPrintHandler
 		return o instanceof Number;
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public XmlElement handle(Object o) throws PrintException
 	{
-		String suffix = "";
-		if (o instanceof Integer)
-		{
-			suffix = "I";
-		}
-		if (o instanceof Long)
-		{
-			suffix = "L";
-		}
-		if (o instanceof Float)
-		{
-			suffix = "F";
-		}
-		if (o instanceof Double)
-		{
-			suffix = "D";
-		}
-		Number n = (Number) o;
 		XmlElement xe = new XmlElement(XmlPrinter.s_numberName);
-		xe.addChild(new TextElement(n.toString() + suffix));
+		xe.addChild(new TextElement(NumberEncoding.encode((Number) o)));
 		return xe;
 	}
 }
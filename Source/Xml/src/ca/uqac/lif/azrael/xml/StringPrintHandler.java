@@ -39,6 +39,12 @@ public class StringPrintHandler extends XmlPrintHandler
 		return o instanceof String;
 	}
 
+	@Override
+	public boolean isClassBased()
+	{
+		return true;
+	}
+
 	@Override
 	public XmlElement handle(Object o) throws PrintException
 	{
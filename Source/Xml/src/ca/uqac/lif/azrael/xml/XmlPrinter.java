@@ -53,6 +53,20 @@ public class XmlPrinter extends ObjectPrinter<XmlElement>
 	
 	public static final String s_valueKey = "value";
 	
+	public static final String s_idKey = "id";
+	
+	public static final String s_refName = "ref";
+
+	public static final String s_dictionaryName = "dictionary";
+
+	public static final String s_nameKey = "name";
+
+	/**
+	 * Whether the class names of the printed structure are replaced by
+	 * indices in a table of names
+	 */
+	protected boolean m_classDictionary = false;
+
 	/**
 	 * Creates a new XML printer
 	 */
@@ -65,8 +79,72 @@ public class XmlPrinter extends ObjectPrinter<XmlElement>
 		m_handlers.add(new StringPrintHandler(this));
 		m_handlers.add(new ListPrintHandler(this));
 		m_handlers.add(new MapPrintHandler(this));
+		addCompiledHandlers();
 	}
 	
+	/**
+	 * Sets whether the printer replaces the class names declared by wrapped
+	 * elements by indices in a table of names. The table is printed once, in
+	 * a header surrounding the printed object. The output can be read by any
+	 * {@link XmlReader}.
+	 * @param b <tt>true</tt> to use a class dictionary, <tt>false</tt>
+	 * otherwise (default)
+	 */
+	public void useClassDictionary(boolean b)
+	{
+		m_classDictionary = b;
+	}
+
+	/**
+	 * Determines whether the printer replaces class names by indices in a
+	 * table of names.
+	 * @return <tt>true</tt> if a class dictionary is used, <tt>false</tt>
+	 * otherwise
+	 * @see #useClassDictionary(boolean)
+	 */
+	public boolean usesClassDictionary()
+	{
+		return m_classDictionary;
+	}
+
+	@Override
+	protected XmlElement printTracked(Object o) throws PrintException
+	{
+		if (!m_classDictionary)
+		{
+			return super.printTracked(o);
+		}
+		boolean outermost = enterCall();
+		try
+		{
+			XmlElement e = super.printTracked(o);
+			return outermost ? ClassDictionary.compress(e) : e;
+		}
+		finally
+		{
+			exitCall();
+		}
+	}
+
+	@Override
+	protected XmlElement printNested(Object o) throws PrintException
+	{
+		if (!m_classDictionary)
+		{
+			return super.printNested(o);
+		}
+		// Elements printed in parallel are never at the top level
+		enterCall();
+		try
+		{
+			return super.printNested(o);
+		}
+		finally
+		{
+			exitCall();
+		}
+	}
+
 	@Override
 	public XmlElement wrap(Object o, XmlElement t) throws PrintException
 	{
@@ -79,4 +157,49 @@ public class XmlPrinter extends ObjectPrinter<XmlElement>
 		obj.addChild(va);
 		return obj;
 	}
+
+	@Override
+	protected XmlElement unwrap(XmlElement t)
+	{
+		if (t.getName().compareTo(s_wrapName) != 0)
+		{
+			return null;
+		}
+		XmlElement contents = null;
+		for (XmlElement child : t.getChildren())
+		{
+			String name = child.getName();
+			if (name.compareTo(s_valueKey) == 0)
+			{
+				contents = child.getChildren().get(0);
+			}
+			else if (name.compareTo(s_classKey) != 0)
+			{
+				// Carries an identifier that must be kept
+				return null;
+			}
+		}
+		return contents;
+	}
+
+	@Override
+	protected XmlElement printReference(int id)
+	{
+		XmlElement ref = new XmlElement(s_refName);
+		ref.addChild(new TextElement(Integer.toString(id)));
+		return ref;
+	}
+
+	@Override
+	protected boolean tagIdentity(XmlElement t, int id)
+	{
+		if (t.getName().compareTo(s_wrapName) != 0)
+		{
+			return false;
+		}
+		XmlElement id_elem = new XmlElement(s_idKey);
+		id_elem.addChild(new TextElement(Integer.toString(id)));
+		t.addChild(id_elem);
+		return true;
+	}
 }
@@ -18,6 +18,11 @@
  */
 package ca.uqac.lif.azrael.xml;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import ca.uqac.lif.azrael.ObjectReader;
 import ca.uqac.lif.azrael.ReadException;
 import ca.uqac.lif.xml.TextElement;
@@ -41,6 +46,26 @@ public class XmlReader extends ObjectReader<XmlElement>
 		m_handlers.add(new MapReadHandler(this));
 		m_handlers.add(new StringReadHandler(this));
 		m_handlers.add(new NumberReadHandler(this));
+		addCompiledHandlers();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the element is a header produced by a printer that uses a class
+	 * dictionary, the class names of the structure it contains are first
+	 * put back in place. This is done on a copy of the structure; the
+	 * element itself is left unchanged, and can be read again.
+	 * @see XmlPrinter#useClassDictionary(boolean)
+	 */
+	@Override
+	protected Object readTracked(Object t) throws ReadException
+	{
+		if (ClassDictionary.isHeader(t))
+		{
+			return super.readTracked(ClassDictionary.expand((XmlElement) t));
+		}
+		return super.readTracked(t);
 	}
 
 	@Override
@@ -66,14 +91,7 @@ public class XmlReader extends ObjectReader<XmlElement>
 	@Override
 	protected Class<?> unwrapType(Object t) throws ReadException
 	{
-		try 
-		{
-			return Class.forName(getWrappedTypeName(t));
-		} 
-		catch (ClassNotFoundException e) 
-		{
-			throw new ReadException(e);
-		}
+		return resolveClass(getWrappedTypeName(t));
 	}
 
 	@Override
@@ -100,9 +118,119 @@ public class XmlReader extends ObjectReader<XmlElement>
 			return false;
 		}
 		XmlElement m = (XmlElement) t;
-		XmlElement class_elem = getChildWithName(m, XmlPrinter.s_classKey);
-		XmlElement value_elem = getChildWithName(m, XmlPrinter.s_valueKey);
-		return class_elem != null && value_elem != null;
+		boolean has_class = false, has_value = false;
+		for (XmlElement child : m.getChildren())
+		{
+			String name = child.getName();
+			has_class = has_class || name.compareTo(XmlPrinter.s_classKey) == 0;
+			has_value = has_value || name.compareTo(XmlPrinter.s_valueKey) == 0;
+			if (has_class && has_value)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	protected XmlElement wrap(Class<?> clazz, Object t) throws ReadException
+	{
+		if (!(t instanceof XmlElement))
+		{
+			throw new ReadException("Incompatible element to deserialize from");
+		}
+		XmlElement m = (XmlElement) t;
+		if (m.getName().compareTo(XmlPrinter.NULL.getName()) == 0)
+		{
+			return m;
+		}
+		XmlElement obj = new XmlElement(XmlPrinter.s_wrapName);
+		XmlElement cl = new XmlElement(XmlPrinter.s_classKey);
+		cl.addChild(new TextElement(clazz.getName()));
+		obj.addChild(cl);
+		XmlElement va = new XmlElement(XmlPrinter.s_valueKey);
+		va.addChild(m);
+		obj.addChild(va);
+		return obj;
+	}
+
+	@Override
+	protected List<XmlElement> getSerializedElements(XmlElement t) throws ReadException
+	{
+		if (!isWrapped(t) || !List.class.isAssignableFrom(unwrapType(t)))
+		{
+			return null;
+		}
+		return unwrapContents(t).getChildren();
+	}
+
+	@Override
+	protected List<Map.Entry<XmlElement,XmlElement>> getSerializedEntries(XmlElement t) throws ReadException
+	{
+		if (!isWrapped(t) || !Map.class.isAssignableFrom(unwrapType(t)))
+		{
+			return null;
+		}
+		XmlElement in_map = unwrapContents(t);
+		List<Map.Entry<XmlElement,XmlElement>> entries = new ArrayList<Map.Entry<XmlElement,XmlElement>>(in_map.getChildren().size());
+		for (XmlElement child : in_map.getChildren())
+		{
+			entries.add(new AbstractMap.SimpleEntry<XmlElement,XmlElement>(MapReadHandler.getEntryPart(child, XmlPrinter.s_keyKey), MapReadHandler.getEntryPart(child, XmlPrinter.s_valueKey)));
+		}
+		return entries;
+	}
+
+	@Override
+	protected Integer getReference(Object t) throws ReadException
+	{
+		if (!(t instanceof XmlElement))
+		{
+			return null;
+		}
+		XmlElement m = (XmlElement) t;
+		if (m.getName().compareTo(XmlPrinter.s_refName) != 0)
+		{
+			return null;
+		}
+		return parseIdentifier(m);
+	}
+
+	@Override
+	protected Integer getIdentity(Object t) throws ReadException
+	{
+		if (!(t instanceof XmlElement))
+		{
+			return null;
+		}
+		XmlElement m = (XmlElement) t;
+		if (m.getName().compareTo(XmlPrinter.s_wrapName) != 0)
+		{
+			return null;
+		}
+		XmlElement id_elem = getChildWithName(m, XmlPrinter.s_idKey);
+		if (id_elem == null)
+		{
+			return null;
+		}
+		return parseIdentifier(id_elem);
+	}
+
+	/**
+	 * Reads the object identifier contained in an element.
+	 * @param e The element
+	 * @return The identifier
+	 * @throws ReadException Thrown if the element does not contain a number
+	 */
+	protected static Integer parseIdentifier(XmlElement e) throws ReadException
+	{
+		try
+		{
+			return Integer.parseInt(((TextElement) e.getChildren().get(0)).getText().trim());
+		}
+		catch (RuntimeException ex)
+		{
+			throw new ReadException("Invalid object identifier");
+		}
 	}
 
 	/**
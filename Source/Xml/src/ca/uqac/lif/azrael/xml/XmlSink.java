@@ -0,0 +1,249 @@
+/*
+    Azrael, a serializer for Java objects
+    Copyright (C) 2016-2025 Sylvain Hallé
+    Laboratoire d'informatique formelle
+    Université du Québec à Chicoutimi, Canada
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.azrael.xml;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import ca.uqac.lif.azrael.NumberEncoding;
+import ca.uqac.lif.azrael.PrintException;
+import ca.uqac.lif.azrael.stream.ObjectSink;
+import ca.uqac.lif.azrael.stream.StreamPrinter;
+
+/**
+ * Sink that writes the events of a {@link StreamPrinter} as XML text.
+ * The text has the same structure as the elements produced by an
+ * {@link XmlPrinter}, and can be read back with an {@link XmlStringReader};
+ * however, it is written piece by piece to an {@link Appendable} as the
+ * object is traversed, instead of being built in memory first. The output
+ * is flushed each time a top-level value has been written.
+ * @author Sylvain Hallé
+ */
+public class XmlSink implements ObjectSink
+{
+	/**
+	 * The destination of the XML text
+	 */
+	protected Appendable m_out;
+
+	/**
+	 * For each map currently open, whether the entry being written is
+	 * inside its key (1), its value (2), or whether no entry has been
+	 * started yet (0); the innermost map is at the head of the deque
+	 */
+	protected Deque<int[]> m_maps;
+
+	/**
+	 * The number of structures (wrapped objects, lists and maps) currently
+	 * open
+	 */
+	protected int m_depth = 0;
+
+	/**
+	 * Creates a new XML sink.
+	 * @param out The destination of the XML text
+	 */
+	public XmlSink(/*@ non_null @*/ Appendable out)
+	{
+		super();
+		m_out = out;
+		m_maps = new ArrayDeque<int[]>();
+	}
+
+	/**
+	 * Creates a new XML sink writing to an output stream, encoded in UTF-8.
+	 * @param os The output stream
+	 */
+	public XmlSink(/*@ non_null @*/ OutputStream os)
+	{
+		this(new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8)));
+	}
+
+	@Override
+	public void beginObject(String type) throws PrintException
+	{
+		m_depth++;
+		write(open(XmlPrinter.s_wrapName) + open(XmlPrinter.s_classKey) + StringPrintHandler.escape(type) 
+			+ close(XmlPrinter.s_classKey) + open(XmlPrinter.s_valueKey));
+	}
+
+	@Override
+	public void endObject() throws PrintException
+	{
+		m_depth--;
+		write(close(XmlPrinter.s_valueKey) + close(XmlPrinter.s_wrapName));
+		afterValue();
+	}
+
+	@Override
+	public void beginList(int size) throws PrintException
+	{
+		m_depth++;
+		write(open(XmlPrinter.s_listName));
+	}
+
+	@Override
+	public void endList() throws PrintException
+	{
+		m_depth--;
+		write(close(XmlPrinter.s_listName));
+		afterValue();
+	}
+
+	@Override
+	public void beginMap(int size) throws PrintException
+	{
+		m_depth++;
+		m_maps.push(new int[] {0});
+		write(open(XmlPrinter.s_mapName));
+	}
+
+	@Override
+	public void entryKey() throws PrintException
+	{
+		int[] state = m_maps.peek();
+		if (state[0] == 2)
+		{
+			write(close(XmlPrinter.s_valueKey) + close(XmlPrinter.s_entryName));
+		}
+		write(open(XmlPrinter.s_entryName) + open(XmlPrinter.s_keyKey));
+		state[0] = 1;
+	}
+
+	@Override
+	public void entryValue() throws PrintException
+	{
+		write(close(XmlPrinter.s_keyKey) + open(XmlPrinter.s_valueKey));
+		m_maps.peek()[0] = 2;
+	}
+
+	@Override
+	public void endMap() throws PrintException
+	{
+		m_depth--;
+		if (m_maps.pop()[0] == 2)
+		{
+			write(close(XmlPrinter.s_valueKey) + close(XmlPrinter.s_entryName));
+		}
+		write(close(XmlPrinter.s_mapName));
+		afterValue();
+	}
+
+	/**
+	 * Always returns <tt>false</tt>, as each entry of a map is written as
+	 * an element containing its key and its value.
+	 */
+	@Override
+	public boolean groupsMapKeys()
+	{
+		return false;
+	}
+
+	@Override
+	public void nullValue() throws PrintException
+	{
+		write(open(XmlPrinter.NULL.getName()) + close(XmlPrinter.NULL.getName()));
+		afterValue();
+	}
+
+	@Override
+	public void value(boolean b) throws PrintException
+	{
+		String name = b ? XmlPrinter.TRUE.getName() : XmlPrinter.FALSE.getName();
+		write(open(name) + close(name));
+		afterValue();
+	}
+
+	@Override
+	public void value(Number n) throws PrintException
+	{
+		// Same encoding as the NumberPrintHandler
+		write(open(XmlPrinter.s_numberName) + NumberEncoding.encode(n) + close(XmlPrinter.s_numberName));
+		afterValue();
+	}
+
+	@Override
+	public void value(String s) throws PrintException
+	{
+		write(open(XmlPrinter.s_stringName) + StringPrintHandler.escape(s) + close(XmlPrinter.s_stringName));
+		afterValue();
+	}
+
+	/**
+	 * Flushes the output once a top-level value has been written.
+	 * @throws PrintException Thrown if the output cannot be flushed
+	 */
+	protected void afterValue() throws PrintException
+	{
+		if (m_depth == 0 && m_out instanceof Flushable)
+		{
+			try
+			{
+				((Flushable) m_out).flush();
+			}
+			catch (IOException e)
+			{
+				throw new PrintException(e);
+			}
+		}
+	}
+
+	/**
+	 * Writes text to the output.
+	 * @param s The text
+	 * @throws PrintException Thrown if the text cannot be written
+	 */
+	protected void write(String s) throws PrintException
+	{
+		try
+		{
+			m_out.append(s);
+		}
+		catch (IOException e)
+		{
+			throw new PrintException(e);
+		}
+	}
+
+	/**
+	 * Produces the opening tag of an element.
+	 * @param name The name of the element
+	 * @return The tag
+	 */
+	protected static String open(String name)
+	{
+		return "<" + name + ">";
+	}
+
+	/**
+	 * Produces the closing tag of an element.
+	 * @param name The name of the element
+	 * @return The tag
+	 */
+	protected static String close(String name)
+	{
+		return "</" + name + ">";
+	}
+}
@@ -18,8 +18,11 @@
  */
 package ca.uqac.lif.azrael.xml;
 
+import java.util.concurrent.ForkJoinPool;
+
 import ca.uqac.lif.azrael.ObjectPrinter;
 import ca.uqac.lif.azrael.PrintException;
+import ca.uqac.lif.azrael.metrics.SerializationObserver;
 import ca.uqac.lif.xml.XmlElement;
 
 /**
@@ -43,14 +46,149 @@ public class XmlStringPrinter extends ObjectPrinter<String>
 	}
 	
 	@Override
-	public String print(Object o) throws PrintException
+	public void trackReferences(boolean b)
+	{
+		super.trackReferences(b);
+		m_printer.trackReferences(b);
+	}
+
+	/**
+	 * Sets whether the printer replaces class names by indices in a table
+	 * of names.
+	 * @param b <tt>true</tt> to use a class dictionary, <tt>false</tt>
+	 * otherwise (default)
+	 * @see XmlPrinter#useClassDictionary(boolean)
+	 */
+	public void useClassDictionary(boolean b)
+	{
+		m_printer.useClassDictionary(b);
+	}
+
+	@Override
+	public void elideTypes(boolean b)
+	{
+		super.elideTypes(b);
+		m_printer.elideTypes(b);
+	}
+
+	@Override
+	public void setMaxDepth(int depth)
+	{
+		super.setMaxDepth(depth);
+		m_printer.setMaxDepth(depth);
+	}
+
+	@Override
+	public void setMaxNodes(long nodes)
+	{
+		super.setMaxNodes(nodes);
+		m_printer.setMaxNodes(nodes);
+	}
+
+	@Override
+	public void setTimeLimit(long millis)
+	{
+		super.setTimeLimit(millis);
+		m_printer.setTimeLimit(millis);
+	}
+
+	@Override
+	public void truncateOnLimit(boolean b)
+	{
+		super.truncateOnLimit(b);
+		m_printer.truncateOnLimit(b);
+	}
+
+	@Override
+	public void setTruncationMarker(Object marker)
+	{
+		super.setTruncationMarker(marker);
+		m_printer.setTruncationMarker(marker);
+	}
+
+	@Override
+	public void setParallelThreshold(int threshold)
+	{
+		super.setParallelThreshold(threshold);
+		m_printer.setParallelThreshold(threshold);
+	}
+
+	@Override
+	public void setForkJoinPool(ForkJoinPool pool)
+	{
+		super.setForkJoinPool(pool);
+		m_printer.setForkJoinPool(pool);
+	}
+
+	@Override
+	public void setObserver(SerializationObserver observer)
+	{
+		super.setObserver(observer);
+		m_printer.setObserver(observer);
+	}
+
+	@Override
+	protected String printTracked(Object o) throws PrintException
 	{
 		if (!(o instanceof String))
 		{
 			throw new PrintException("This printer can only print strings");
 		}
+		SerializationObserver observer = m_observer;
+		if (observer == null)
+		{
+			return checkSize(m_printer.print(o).toString());
+		}
+		long start = System.nanoTime();
 		XmlElement je = m_printer.print(o);
-		return je.toString();
+		long printed = System.nanoTime();
+		String s = je.toString();
+		long end = System.nanoTime();
+		observer.objectPrinted(o.getClass(), getClass(), 0, end - start, end - printed, s.length());
+		return checkSize(s);
+	}
+
+	/**
+	 * Checks the length of a printed string against the maximum size set
+	 * on this printer. This check is only made once the whole string has
+	 * been built; it therefore does not bound the work or the memory used
+	 * to print the object. Since the part of the object that is too large
+	 * is not known at this point, the object is always rejected, even if
+	 * the printer truncates objects.
+	 * @param s The string
+	 * @return The string
+	 * @throws PrintException Thrown if the string is too long
+	 * @see #setMaxSize(long)
+	 */
+	protected String checkSize(String s) throws PrintException
+	{
+		if (m_maxSize > 0 && s.length() > m_maxSize)
+		{
+			throw new PrintException("Maximum output size of " + m_maxSize + " exceeded");
+		}
+		return s;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This printer reports itself as the handler of the objects it prints.
+	 */
+	@Override
+	protected Class<?> getHandlerClass(Object o)
+	{
+		return getClass();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The size of a string is its number of characters.
+	 */
+	@Override
+	protected long getOutputSize(String t)
+	{
+		return t.length();
 	}
 
 	@Override
@@ -18,8 +18,12 @@
  */
 package ca.uqac.lif.azrael.xml;
 
+import java.util.concurrent.ForkJoinPool;
+
 import ca.uqac.lif.azrael.ObjectReader;
+import ca.uqac.lif.azrael.Projection;
 import ca.uqac.lif.azrael.ReadException;
+import ca.uqac.lif.azrael.metrics.SerializationObserver;
 import ca.uqac.lif.xml.XmlElement;
 import ca.uqac.lif.xml.XmlElement.XmlParseException;
 
@@ -30,6 +34,12 @@ import ca.uqac.lif.xml.XmlElement.XmlParseException;
  */
 public class XmlStringReader extends ObjectReader<String>
 {
+	/**
+	 * A reader with default settings, shared by all the calls to
+	 * {@link #fromJson(String)}
+	 */
+	protected static final XmlStringReader s_defaultReader = new XmlStringReader();
+
 	/**
 	 * Reads an object from an XML string using default settings.
 	 * @param s The XML string to read from
@@ -39,8 +49,7 @@ public class XmlStringReader extends ObjectReader<String>
 	 */
 	public static Object fromJson(String s) throws ReadException
 	{
-		XmlStringReader jsr = new XmlStringReader();
-		return jsr.read(s);
+		return s_defaultReader.read(s);
 	}
 	
 	/**
@@ -58,7 +67,56 @@ public class XmlStringReader extends ObjectReader<String>
 	}
 	
 	@Override
-	public Object read(Object o) throws ReadException
+	public void trackReferences(boolean b)
+	{
+		super.trackReferences(b);
+		m_reader.trackReferences(b);
+	}
+
+	@Override
+	public void elideTypes(boolean b)
+	{
+		super.elideTypes(b);
+		m_reader.elideTypes(b);
+	}
+
+	@Override
+	public void useLazyCollections(boolean b)
+	{
+		super.useLazyCollections(b);
+		m_reader.useLazyCollections(b);
+	}
+
+	@Override
+	public void setMaxDepth(int depth)
+	{
+		super.setMaxDepth(depth);
+		m_reader.setMaxDepth(depth);
+	}
+
+	@Override
+	public void setParallelThreshold(int threshold)
+	{
+		super.setParallelThreshold(threshold);
+		m_reader.setParallelThreshold(threshold);
+	}
+
+	@Override
+	public void setForkJoinPool(ForkJoinPool pool)
+	{
+		super.setForkJoinPool(pool);
+		m_reader.setForkJoinPool(pool);
+	}
+
+	@Override
+	public void setObserver(SerializationObserver observer)
+	{
+		super.setObserver(observer);
+		m_reader.setObserver(observer);
+	}
+
+	@Override
+	protected Object readTracked(Object o) throws ReadException
 	{
 		if (!(o instanceof String))
 		{
@@ -66,14 +124,86 @@ public class XmlStringReader extends ObjectReader<String>
 		}
 		try 
 		{
+			SerializationObserver observer = m_observer;
+			if (observer == null)
+			{
+				return m_reader.read(XmlElement.parse((String) o));
+			}
+			long start = System.nanoTime();
 			XmlElement e = XmlElement.parse((String) o);
-			return m_reader.read(e);
+			long parsed = System.nanoTime();
+			Object obj = m_reader.read(e);
+			long end = System.nanoTime();
+			observer.objectRead(obj == null ? null : obj.getClass(), getClass(), 0, end - start, parsed - start, ((String) o).length());
+			return obj;
+		}
+		catch (XmlParseException e) 
+		{
+			throw new ReadException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The string is parsed completely; only the conversion of the other
+	 * fields into objects is avoided.
+	 */
+	@Override
+	public Object readProjected(Object o, Projection p) throws ReadException
+	{
+		if (!(o instanceof String))
+		{
+			throw new ReadException("Expected a string");
+		}
+		try 
+		{
+			return m_reader.readProjected(XmlElement.parse((String) o), p);
+		}
+		catch (XmlParseException e) 
+		{
+			throw new ReadException(e);
+		}
+	}
+
+	@Override
+	public Object readInto(Object target, Object o) throws ReadException
+	{
+		if (!(o instanceof String))
+		{
+			throw new ReadException("Expected a string");
+		}
+		try 
+		{
+			return m_reader.readInto(target, XmlElement.parse((String) o));
 		}
 		catch (XmlParseException e) 
 		{
 			throw new ReadException(e);
 		}
 	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This reader reports itself as the handler of the objects it reads.
+	 */
+	@Override
+	protected Class<?> getHandlerClass(Object t, Class<?> clazz)
+	{
+		return getClass();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The size of a string is its number of characters.
+	 */
+	@Override
+	protected long getInputSize(String t)
+	{
+		return t == null ? -1 : t.length();
+	}
 	
 	@Override
 	protected String getWrappedTypeName(Object t) throws ReadException 
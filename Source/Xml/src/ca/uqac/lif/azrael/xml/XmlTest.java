@@ -31,8 +31,10 @@ import ca.uqac.lif.azrael.ObjectPrinter;
 import ca.uqac.lif.azrael.ObjectReader;
 import ca.uqac.lif.azrael.PrintException;
 import ca.uqac.lif.azrael.Printable;
+import ca.uqac.lif.azrael.Projection;
 import ca.uqac.lif.azrael.ReadException;
 import ca.uqac.lif.azrael.Readable;
+import ca.uqac.lif.azrael.stream.StreamPrinter;
 import ca.uqac.lif.xml.XmlElement;
 
 /**
@@ -99,6 +101,186 @@ public class XmlTest
 		assertEquals("bar", nco.m_objects.get(1).m_y);
 	}
 
+	@Test
+	public void testSharedReference() throws PrintException, ReadException
+	{
+		Node shared = new Node("shared");
+		shared.m_next = shared;
+		List<Node> list = new ArrayList<Node>();
+		list.add(shared);
+		list.add(shared);
+		XmlPrinter printer = new XmlPrinter();
+		printer.trackReferences(true);
+		XmlElement je = printer.print(list);
+		XmlReader reader = new XmlReader();
+		reader.trackReferences(true);
+		List<?> n_list = (List<?>) reader.read(je);
+		assertEquals(2, n_list.size());
+		assertEquals("shared", ((Node) n_list.get(0)).m_name);
+		assertTrue(n_list.get(0) == n_list.get(1));
+		assertTrue(((Node) n_list.get(0)).m_next == n_list.get(0));
+	}
+	
+	@Test
+	public void testCycle() throws PrintException, ReadException
+	{
+		Node a = new Node("a");
+		Node b = new Node("b");
+		a.m_next = b;
+		b.m_next = a;
+		XmlPrinter printer = new XmlPrinter();
+		printer.trackReferences(true);
+		XmlElement je = printer.print(a);
+		XmlReader reader = new XmlReader();
+		reader.trackReferences(true);
+		Node n_a = (Node) reader.read(je);
+		assertEquals("a", n_a.m_name);
+		assertEquals("b", n_a.m_next.m_name);
+		assertTrue(n_a.m_next.m_next == n_a);
+	}
+	
+	@Test
+	public void testProjection() throws PrintException, ReadException
+	{
+		Node a = new Node("a");
+		a.m_next = new Node("b");
+		a.m_next.m_next = new Node("c");
+		XmlElement xe = new XmlPrinter().print(a);
+		Object o = new XmlReader().readProjected(xe, new Projection("m_next.m_name"));
+		assertTrue(o instanceof Node);
+		Node n_a = (Node) o;
+		assertEquals("", n_a.m_name);
+		assertEquals("b", n_a.m_next.m_name);
+		assertNull(n_a.m_next.m_next);
+	}
+	
+	@Test
+	public void testClassDictionary() throws PrintException, ReadException
+	{
+		List<SimpleObject> list = new ArrayList<SimpleObject>();
+		for (int i = 0; i < 5; i++)
+		{
+			list.add(new SimpleObject(i, "foo"));
+		}
+		XmlPrinter printer = new XmlPrinter();
+		printer.useClassDictionary(true);
+		XmlElement xe = printer.print(list);
+		String s = xe.toString();
+		assertEquals(s.indexOf(SimpleObject.class.getName()), s.lastIndexOf(SimpleObject.class.getName()));
+		XmlReader reader = new XmlReader();
+		// Reading the same element twice leaves it unchanged
+		for (int i = 0; i < 2; i++)
+		{
+			List<?> n_list = (List<?>) reader.read(xe);
+			assertEquals(s, xe.toString());
+			assertEquals(5, n_list.size());
+			assertEquals(3, ((SimpleObject) n_list.get(3)).m_x);
+			assertEquals("foo", ((SimpleObject) n_list.get(3)).m_y);
+		}
+	}
+	
+	@Test
+	public void testClassDictionaryChain() throws PrintException, ReadException
+	{
+		Node first = new Node("0");
+		Node n = first;
+		for (int i = 1; i < 20; i++)
+		{
+			n.m_next = new Node(Integer.toString(i));
+			n = n.m_next;
+		}
+		n.m_next = first;
+		XmlPrinter printer = new XmlPrinter();
+		printer.trackReferences(true);
+		printer.useClassDictionary(true);
+		String s = printer.print(first).toString();
+		String tag = "<" + XmlPrinter.s_dictionaryName + ">";
+		assertTrue(s.indexOf(tag) >= 0);
+		assertEquals(s.indexOf(tag), s.lastIndexOf(tag));
+		assertEquals(s.indexOf(Node.class.getName()), s.lastIndexOf(Node.class.getName()));
+		XmlStringReader reader = new XmlStringReader();
+		reader.trackReferences(true);
+		Node n_first = (Node) reader.read(s);
+		n = n_first;
+		for (int i = 0; i < 20; i++)
+		{
+			assertEquals(Integer.toString(i), n.m_name);
+			n = n.m_next;
+		}
+		assertTrue(n == n_first);
+	}
+	
+	@Test
+	public void testStream() throws PrintException, ReadException
+	{
+		NonPrintableObject co = new NonPrintableObject();
+		co.add(new SimpleObject(3, "foo <&>"));
+		co.add(new SimpleObject(5, "bar"));
+		StringBuilder out = new StringBuilder();
+		StreamPrinter printer = new StreamPrinter(new XmlSink(out));
+		printer.print(co);
+		Object o = new XmlStringReader().read(out.toString());
+		assertTrue(o instanceof NonPrintableObject);
+		NonPrintableObject nco = (NonPrintableObject) o;
+		assertEquals(2, nco.m_objects.size());
+		assertEquals(3, nco.m_objects.get(0).m_x);
+		assertEquals("foo <&>", nco.m_objects.get(0).m_y);
+		assertEquals(5, nco.m_objects.get(1).m_x);
+		assertEquals("bar", nco.m_objects.get(1).m_y);
+	}
+	
+	protected static class Node
+	{
+		String m_name;
+		
+		Node m_next;
+		
+		protected Node()
+		{
+			this("");
+		}
+		
+		public Node(String name)
+		{
+			super();
+			m_name = name;
+		}
+	}
+	
+	@Test
+	public void testParallel() throws PrintException, ReadException
+	{
+		List<SimpleObject> list = new ArrayList<SimpleObject>();
+		Map<String,SimpleObject> map = new HashMap<String,SimpleObject>();
+		for (int i = 0; i < 2000; i++)
+		{
+			list.add(new SimpleObject(i, "s" + i));
+			map.put("k" + i, new SimpleObject(i, "m" + i));
+		}
+		List<Object> in = new ArrayList<Object>();
+		in.add(list);
+		in.add(map);
+		XmlPrinter printer = new XmlPrinter();
+		printer.setParallelThreshold(100);
+		XmlElement e = printer.print(in);
+		XmlReader reader = new XmlReader();
+		reader.setParallelThreshold(100);
+		List<?> out = (List<?>) reader.read(e);
+		List<?> n_list = (List<?>) out.get(0);
+		assertEquals(2000, n_list.size());
+		for (int i = 0; i < 2000; i++)
+		{
+			SimpleObject so = (SimpleObject) n_list.get(i);
+			assertEquals(i, so.m_x);
+			assertEquals("s" + i, so.m_y);
+		}
+		Map<?,?> n_map = (Map<?,?>) out.get(1);
+		assertEquals(2000, n_map.size());
+		assertEquals("m42", ((SimpleObject) n_map.get("k42")).m_y);
+		// The output is the same as when printing sequentially
+		assertEquals(new XmlPrinter().print(in).toString(), e.toString());
+	}
+
 	protected static class SimpleObject implements Printable, Readable
 	{
 		int m_x;